@@ -3,6 +3,7 @@ package com.integration.nasajon;
 import com.integration.nasajon.config.IntegrationConfig;
 import com.integration.nasajon.gui.MainApplication;
 import com.integration.nasajon.scheduler.IntegrationScheduler;
+import com.integration.nasajon.service.IntegrationRuntime;
 import javafx.application.Application;
 
 import java.util.logging.Level;
@@ -16,10 +17,17 @@ public class NasajonIntegrationApp {
             // Carregar configurações
             IntegrationConfig config = IntegrationConfig.load("config.properties");
             
+            // Criar os serviços compartilhados e aquecer banco, JSON e conexão com a API
+            IntegrationRuntime.iniciar(config);
+            
             // Iniciar o agendador de tarefas
             IntegrationScheduler scheduler = new IntegrationScheduler(config);
             scheduler.initialize();
             
+            // A interface usa a mesma configuração e o mesmo agendador
+            MainApplication.setConfig(config);
+            MainApplication.setScheduler(scheduler);
+            
             // Iniciar a interface gráfica
             Application.launch(MainApplication.class, args);
             
@@ -35,6 +35,120 @@ public class IntegrationConfig {
     private String scheduleExpression;
     private boolean schedulingEnabled;
     
+    // Configurações do pool de conexões
+    private int poolMinSize = 2;
+    private int poolMaxSize = 10;
+    private int poolIdleTimeoutSeconds = 600;
+    private int poolBorrowTimeoutSeconds = 30;
+    private int poolValidationTimeoutSeconds = 5;
+    private int poolLeakThresholdSeconds = 120;
+    private int poolMetricsIntervalSeconds = 300;
+    
+    // Configurações de atualização em lote
+    private int updateChunkSize = 1000;
+    
+    // Configurações de leitura em janelas
+    private int readWindowSize = 1000;
+    private int fetchSize = 500;
+    
+    // Configurações da fila de trabalho
+    private int integrationWorkers = 1;
+    private int leaseSeconds = 600;
+    
+    // Configurações de log assíncrono
+    private boolean logAsyncEnabled = true;
+    private int logAsyncCapacity = 10000;
+    private int logAsyncBatchSize = 500;
+    private int logAsyncLingerMs = 50;
+    private String logAsyncOverflow = "BLOQUEAR";
+    
+    // Configurações de carga em massa
+    private int bulkBatchSize = 5000;
+    private int bulkTimeoutSeconds = 600;
+    private boolean bulkTableLock = false;
+    
+    // Configurações de retenção dos logs
+    private boolean logRetentionEnabled = true;
+    private String logRetentionSchedule = "0 30 2 * * ?";
+    private int logRetentionDays = 30;
+    private int logRetentionBatchSize = 1000;
+    private long logRetentionPauseMs = 200L;
+    private String logRetentionArchive = "TABELA";
+    private String logRetentionArchiveDir = "arquivo_logs";
+    private int logRetentionArchiveDays = 365;
+    private int logRetentionSummaryDays = 730;
+    private int logRetentionDeletedDays = 7;
+    
+    // Configurações das consultas somente leitura (interface e relatórios)
+    private int readPoolMaxSize = 3;
+    private int readQueryTimeoutSeconds = 15;
+    
+    // Configurações de envio concorrente para a API
+    private int apiMaxInFlight = 1;
+    
+    // Configurações de compressão do envio para a API
+    private boolean apiCompressionEnabled = false;
+    private int apiCompressionLevel = 6;
+    private int apiCompressionThresholdBytes = 8192;
+    
+    // Configurações do tamanho adaptativo de lote da API
+    private boolean apiBatchAdaptive = false;
+    private int apiBatchMinSize = 10;
+    private int apiBatchMaxSize = 1000;
+    private long apiBatchTargetLatencyMs = 2000L;
+    private long apiBatchMaxBytes = 1048576L;
+    private int apiBatchIncreaseStep = 10;
+    
+    // Configurações de proteção da API (circuit breaker e limite de taxa)
+    private int apiCircuitFailureThreshold = 5;
+    private int apiCircuitOpenSeconds = 60;
+    private int apiCircuitHalfOpenCalls = 1;
+    private double apiRateLimitPerSecond = 10;
+    private int apiRateLimitBurst = 10;
+    
+    // Leitura das respostas da API
+    private long apiResponseMaxBytes = 1048576L;
+    
+    // Consulta do status dos lotes enviados à API
+    private boolean apiStatusPollEnabled = false;
+    private int apiStatusPollSeconds = 60;
+    private int apiStatusBatchSize = 100;
+    private int apiStatusMaxInFlight = 4;
+    private int apiStatusTimeoutSeconds = 10;
+    private int apiStatusCacheSize = 10000;
+    
+    // Aquecimento da conexão com a API na inicialização
+    private boolean apiWarmupEnabled = true;
+    
+    // Orçamento de novas tentativas por execução
+    private double retryBudgetRatio = 0.2;
+    private int retryBudgetMin = 10;
+    
+    // Exportação em arquivo: limites de cada parte e buffer de escrita
+    private long fileMaxBytes = 104857600L;
+    private long fileMaxRows = 1000000L;
+    private int fileBufferKb = 64;
+    
+    // Exportação em arquivo: geração em paralelo e divisão por conta ou mês
+    private int fileParallelism = 1;
+    private String fileShardBy = "none";
+    
+    // Exportação em arquivo: compressão e cópia local dos arquivos enviados por FTP
+    private String fileCompression = "none";
+    private boolean fileKeepLocal = true;
+    
+    // FTP: porta, tempos limite, pool de sessões, envio em paralelo e retomada
+    private int ftpPort = 21;
+    private int ftpConnectTimeoutSeconds = 30;
+    private int ftpDataTimeoutSeconds = 120;
+    private int ftpPoolSize = 4;
+    private int ftpUploadParallelism = 4;
+    private int ftpResumeAttempts = 3;
+    private boolean ftpStreaming = true;
+    
+    // Layout posicional (file.format=layout)
+    private String fileLayout = "";
+    
     public static IntegrationConfig load(String configFile) throws IOException {
         Properties props = new Properties();
         try (FileInputStream fis = new FileInputStream(configFile)) {
@@ -72,6 +186,120 @@ public class IntegrationConfig {
         config.setScheduleExpression(props.getProperty("schedule.expression", "0 0 22 * * ?"));  // Padrão: todos os dias às 22h
         config.setSchedulingEnabled(Boolean.parseBoolean(props.getProperty("schedule.enabled", "false")));
         
+        // Configurações do pool de conexões
+        config.setPoolMinSize(Integer.parseInt(props.getProperty("sqlserver.pool.min.size", "2")));
+        config.setPoolMaxSize(Integer.parseInt(props.getProperty("sqlserver.pool.max.size", "10")));
+        config.setPoolIdleTimeoutSeconds(Integer.parseInt(props.getProperty("sqlserver.pool.idle.timeout.seconds", "600")));
+        config.setPoolBorrowTimeoutSeconds(Integer.parseInt(props.getProperty("sqlserver.pool.borrow.timeout.seconds", "30")));
+        config.setPoolValidationTimeoutSeconds(Integer.parseInt(props.getProperty("sqlserver.pool.validation.timeout.seconds", "5")));
+        config.setPoolLeakThresholdSeconds(Integer.parseInt(props.getProperty("sqlserver.pool.leak.threshold.seconds", "120")));
+        config.setPoolMetricsIntervalSeconds(Integer.parseInt(props.getProperty("sqlserver.pool.metrics.interval.seconds", "300")));
+        
+        // Configurações de atualização em lote
+        config.setUpdateChunkSize(Integer.parseInt(props.getProperty("sqlserver.update.chunk.size", "1000")));
+        
+        // Configurações de leitura em janelas
+        config.setReadWindowSize(Integer.parseInt(props.getProperty("batch.window.size", "1000")));
+        config.setFetchSize(Integer.parseInt(props.getProperty("sqlserver.fetch.size", "500")));
+        
+        // Configurações da fila de trabalho
+        config.setIntegrationWorkers(Integer.parseInt(props.getProperty("integration.workers", "1")));
+        config.setLeaseSeconds(Integer.parseInt(props.getProperty("integration.lease.seconds", "600")));
+        
+        // Configurações de log assíncrono
+        config.setLogAsyncEnabled(Boolean.parseBoolean(props.getProperty("log.async.enabled", "true")));
+        config.setLogAsyncCapacity(Integer.parseInt(props.getProperty("log.async.capacity", "10000")));
+        config.setLogAsyncBatchSize(Integer.parseInt(props.getProperty("log.async.batch.size", "500")));
+        config.setLogAsyncLingerMs(Integer.parseInt(props.getProperty("log.async.linger.ms", "50")));
+        config.setLogAsyncOverflow(props.getProperty("log.async.overflow", "BLOQUEAR"));
+        
+        // Configurações de carga em massa
+        config.setBulkBatchSize(Integer.parseInt(props.getProperty("bulk.batch.size", "5000")));
+        config.setBulkTimeoutSeconds(Integer.parseInt(props.getProperty("bulk.timeout.seconds", "600")));
+        config.setBulkTableLock(Boolean.parseBoolean(props.getProperty("bulk.table.lock", "false")));
+        
+        // Configurações de retenção dos logs
+        config.setLogRetentionEnabled(Boolean.parseBoolean(props.getProperty("log.retention.enabled", "true")));
+        config.setLogRetentionSchedule(props.getProperty("log.retention.schedule", "0 30 2 * * ?"));
+        config.setLogRetentionDays(Integer.parseInt(props.getProperty("log.retention.days", "30")));
+        config.setLogRetentionBatchSize(Integer.parseInt(props.getProperty("log.retention.batch.size", "1000")));
+        config.setLogRetentionPauseMs(Long.parseLong(props.getProperty("log.retention.pause.ms", "200")));
+        config.setLogRetentionArchive(props.getProperty("log.retention.archive", "TABELA"));
+        config.setLogRetentionArchiveDir(props.getProperty("log.retention.archive.dir", "arquivo_logs"));
+        config.setLogRetentionArchiveDays(Integer.parseInt(props.getProperty("log.retention.archive.days", "365")));
+        config.setLogRetentionSummaryDays(Integer.parseInt(props.getProperty("log.retention.summary.days", "730")));
+        config.setLogRetentionDeletedDays(Integer.parseInt(props.getProperty("log.retention.deleted.days", "7")));
+        
+        // Configurações das consultas somente leitura (interface e relatórios)
+        config.setReadPoolMaxSize(Integer.parseInt(props.getProperty("sqlserver.read.pool.max.size", "3")));
+        config.setReadQueryTimeoutSeconds(Integer.parseInt(props.getProperty("sqlserver.read.query.timeout.seconds", "15")));
+        
+        // Configurações de envio concorrente para a API
+        config.setApiMaxInFlight(Integer.parseInt(props.getProperty("api.max.in.flight", "1")));
+        
+        // Configurações de compressão do envio para a API
+        config.setApiCompressionEnabled(Boolean.parseBoolean(props.getProperty("api.compression.enabled", "false")));
+        config.setApiCompressionLevel(Integer.parseInt(props.getProperty("api.compression.level", "6")));
+        config.setApiCompressionThresholdBytes(Integer.parseInt(props.getProperty("api.compression.threshold.bytes", "8192")));
+        
+        // Configurações do tamanho adaptativo de lote da API
+        config.setApiBatchAdaptive(Boolean.parseBoolean(props.getProperty("api.batch.adaptive.enabled", "false")));
+        config.setApiBatchMinSize(Integer.parseInt(props.getProperty("api.batch.min.size", "10")));
+        config.setApiBatchMaxSize(Integer.parseInt(props.getProperty("api.batch.max.size", "1000")));
+        config.setApiBatchTargetLatencyMs(Long.parseLong(props.getProperty("api.batch.target.latency.ms", "2000")));
+        config.setApiBatchMaxBytes(Long.parseLong(props.getProperty("api.batch.max.bytes", "1048576")));
+        config.setApiBatchIncreaseStep(Integer.parseInt(props.getProperty("api.batch.increase.step", "10")));
+        
+        // Configurações de proteção da API (circuit breaker e limite de taxa)
+        config.setApiCircuitFailureThreshold(Integer.parseInt(props.getProperty("api.circuit.failure.threshold", "5")));
+        config.setApiCircuitOpenSeconds(Integer.parseInt(props.getProperty("api.circuit.open.seconds", "60")));
+        config.setApiCircuitHalfOpenCalls(Integer.parseInt(props.getProperty("api.circuit.half.open.calls", "1")));
+        config.setApiRateLimitPerSecond(Double.parseDouble(props.getProperty("api.rate.limit.per.second", "10")));
+        config.setApiRateLimitBurst(Integer.parseInt(props.getProperty("api.rate.limit.burst", "10")));
+        
+        // Leitura das respostas da API
+        config.setApiResponseMaxBytes(Long.parseLong(props.getProperty("api.response.max.bytes", "1048576")));
+        
+        // Consulta do status dos lotes enviados à API
+        config.setApiStatusPollEnabled(Boolean.parseBoolean(props.getProperty("api.status.poll.enabled", "false")));
+        config.setApiStatusPollSeconds(Integer.parseInt(props.getProperty("api.status.poll.seconds", "60")));
+        config.setApiStatusBatchSize(Integer.parseInt(props.getProperty("api.status.batch.size", "100")));
+        config.setApiStatusMaxInFlight(Integer.parseInt(props.getProperty("api.status.max.in.flight", "4")));
+        config.setApiStatusTimeoutSeconds(Integer.parseInt(props.getProperty("api.status.timeout.seconds", "10")));
+        config.setApiStatusCacheSize(Integer.parseInt(props.getProperty("api.status.cache.size", "10000")));
+        
+        // Aquecimento da conexão com a API na inicialização
+        config.setApiWarmupEnabled(Boolean.parseBoolean(props.getProperty("api.warmup.enabled", "true")));
+        
+        // Orçamento de novas tentativas por execução
+        config.setRetryBudgetRatio(Double.parseDouble(props.getProperty("retry.budget.ratio", "0.2")));
+        config.setRetryBudgetMin(Integer.parseInt(props.getProperty("retry.budget.min", "10")));
+        
+        // Exportação em arquivo: limites de cada parte e buffer de escrita
+        config.setFileMaxBytes(Long.parseLong(props.getProperty("file.max.bytes", "104857600")));
+        config.setFileMaxRows(Long.parseLong(props.getProperty("file.max.rows", "1000000")));
+        config.setFileBufferKb(Integer.parseInt(props.getProperty("file.buffer.kb", "64")));
+        
+        // Exportação em arquivo: geração em paralelo e divisão por conta ou mês
+        config.setFileParallelism(Integer.parseInt(props.getProperty("file.parallelism", "1")));
+        config.setFileShardBy(props.getProperty("file.shard.by", "none"));
+        
+        // Exportação em arquivo: compressão e cópia local dos arquivos enviados por FTP
+        config.setFileCompression(props.getProperty("file.compression", "none"));
+        config.setFileKeepLocal(Boolean.parseBoolean(props.getProperty("file.keep.local", "true")));
+        
+        // FTP: porta, tempos limite, pool de sessões, envio em paralelo e retomada
+        config.setFtpPort(Integer.parseInt(props.getProperty("ftp.port", "21")));
+        config.setFtpConnectTimeoutSeconds(Integer.parseInt(props.getProperty("ftp.connect.timeout.seconds", "30")));
+        config.setFtpDataTimeoutSeconds(Integer.parseInt(props.getProperty("ftp.data.timeout.seconds", "120")));
+        config.setFtpPoolSize(Integer.parseInt(props.getProperty("ftp.pool.size", "4")));
+        config.setFtpUploadParallelism(Integer.parseInt(props.getProperty("ftp.upload.parallelism", "4")));
+        config.setFtpResumeAttempts(Integer.parseInt(props.getProperty("ftp.resume.attempts", "3")));
+        config.setFtpStreaming(Boolean.parseBoolean(props.getProperty("ftp.streaming", "true")));
+        
+        // Layout posicional (file.format=layout)
+        config.setFileLayout(props.getProperty("file.layout", ""));
+        
         logger.log(Level.INFO, "Configuração carregada: tipo={0}", config.getIntegrationType());
         return config;
     }
@@ -104,6 +332,120 @@ public class IntegrationConfig {
         props.setProperty("schedule.expression", scheduleExpression);
         props.setProperty("schedule.enabled", String.valueOf(schedulingEnabled));
         
+        // Configurações do pool de conexões
+        props.setProperty("sqlserver.pool.min.size", String.valueOf(poolMinSize));
+        props.setProperty("sqlserver.pool.max.size", String.valueOf(poolMaxSize));
+        props.setProperty("sqlserver.pool.idle.timeout.seconds", String.valueOf(poolIdleTimeoutSeconds));
+        props.setProperty("sqlserver.pool.borrow.timeout.seconds", String.valueOf(poolBorrowTimeoutSeconds));
+        props.setProperty("sqlserver.pool.validation.timeout.seconds", String.valueOf(poolValidationTimeoutSeconds));
+        props.setProperty("sqlserver.pool.leak.threshold.seconds", String.valueOf(poolLeakThresholdSeconds));
+        props.setProperty("sqlserver.pool.metrics.interval.seconds", String.valueOf(poolMetricsIntervalSeconds));
+        
+        // Configurações de atualização em lote
+        props.setProperty("sqlserver.update.chunk.size", String.valueOf(updateChunkSize));
+        
+        // Configurações de leitura em janelas
+        props.setProperty("batch.window.size", String.valueOf(readWindowSize));
+        props.setProperty("sqlserver.fetch.size", String.valueOf(fetchSize));
+        
+        // Configurações da fila de trabalho
+        props.setProperty("integration.workers", String.valueOf(integrationWorkers));
+        props.setProperty("integration.lease.seconds", String.valueOf(leaseSeconds));
+        
+        // Configurações de log assíncrono
+        props.setProperty("log.async.enabled", String.valueOf(logAsyncEnabled));
+        props.setProperty("log.async.capacity", String.valueOf(logAsyncCapacity));
+        props.setProperty("log.async.batch.size", String.valueOf(logAsyncBatchSize));
+        props.setProperty("log.async.linger.ms", String.valueOf(logAsyncLingerMs));
+        props.setProperty("log.async.overflow", logAsyncOverflow);
+        
+        // Configurações de carga em massa
+        props.setProperty("bulk.batch.size", String.valueOf(bulkBatchSize));
+        props.setProperty("bulk.timeout.seconds", String.valueOf(bulkTimeoutSeconds));
+        props.setProperty("bulk.table.lock", String.valueOf(bulkTableLock));
+        
+        // Configurações de retenção dos logs
+        props.setProperty("log.retention.enabled", String.valueOf(logRetentionEnabled));
+        props.setProperty("log.retention.schedule", logRetentionSchedule);
+        props.setProperty("log.retention.days", String.valueOf(logRetentionDays));
+        props.setProperty("log.retention.batch.size", String.valueOf(logRetentionBatchSize));
+        props.setProperty("log.retention.pause.ms", String.valueOf(logRetentionPauseMs));
+        props.setProperty("log.retention.archive", logRetentionArchive);
+        props.setProperty("log.retention.archive.dir", logRetentionArchiveDir);
+        props.setProperty("log.retention.archive.days", String.valueOf(logRetentionArchiveDays));
+        props.setProperty("log.retention.summary.days", String.valueOf(logRetentionSummaryDays));
+        props.setProperty("log.retention.deleted.days", String.valueOf(logRetentionDeletedDays));
+        
+        // Configurações das consultas somente leitura (interface e relatórios)
+        props.setProperty("sqlserver.read.pool.max.size", String.valueOf(readPoolMaxSize));
+        props.setProperty("sqlserver.read.query.timeout.seconds", String.valueOf(readQueryTimeoutSeconds));
+        
+        // Configurações de envio concorrente para a API
+        props.setProperty("api.max.in.flight", String.valueOf(apiMaxInFlight));
+        
+        // Configurações de compressão do envio para a API
+        props.setProperty("api.compression.enabled", String.valueOf(apiCompressionEnabled));
+        props.setProperty("api.compression.level", String.valueOf(apiCompressionLevel));
+        props.setProperty("api.compression.threshold.bytes", String.valueOf(apiCompressionThresholdBytes));
+        
+        // Configurações do tamanho adaptativo de lote da API
+        props.setProperty("api.batch.adaptive.enabled", String.valueOf(apiBatchAdaptive));
+        props.setProperty("api.batch.min.size", String.valueOf(apiBatchMinSize));
+        props.setProperty("api.batch.max.size", String.valueOf(apiBatchMaxSize));
+        props.setProperty("api.batch.target.latency.ms", String.valueOf(apiBatchTargetLatencyMs));
+        props.setProperty("api.batch.max.bytes", String.valueOf(apiBatchMaxBytes));
+        props.setProperty("api.batch.increase.step", String.valueOf(apiBatchIncreaseStep));
+        
+        // Configurações de proteção da API (circuit breaker e limite de taxa)
+        props.setProperty("api.circuit.failure.threshold", String.valueOf(apiCircuitFailureThreshold));
+        props.setProperty("api.circuit.open.seconds", String.valueOf(apiCircuitOpenSeconds));
+        props.setProperty("api.circuit.half.open.calls", String.valueOf(apiCircuitHalfOpenCalls));
+        props.setProperty("api.rate.limit.per.second", String.valueOf(apiRateLimitPerSecond));
+        props.setProperty("api.rate.limit.burst", String.valueOf(apiRateLimitBurst));
+        
+        // Leitura das respostas da API
+        props.setProperty("api.response.max.bytes", String.valueOf(apiResponseMaxBytes));
+        
+        // Consulta do status dos lotes enviados à API
+        props.setProperty("api.status.poll.enabled", String.valueOf(apiStatusPollEnabled));
+        props.setProperty("api.status.poll.seconds", String.valueOf(apiStatusPollSeconds));
+        props.setProperty("api.status.batch.size", String.valueOf(apiStatusBatchSize));
+        props.setProperty("api.status.max.in.flight", String.valueOf(apiStatusMaxInFlight));
+        props.setProperty("api.status.timeout.seconds", String.valueOf(apiStatusTimeoutSeconds));
+        props.setProperty("api.status.cache.size", String.valueOf(apiStatusCacheSize));
+        
+        // Aquecimento da conexão com a API na inicialização
+        props.setProperty("api.warmup.enabled", String.valueOf(apiWarmupEnabled));
+        
+        // Orçamento de novas tentativas por execução
+        props.setProperty("retry.budget.ratio", String.valueOf(retryBudgetRatio));
+        props.setProperty("retry.budget.min", String.valueOf(retryBudgetMin));
+        
+        // Exportação em arquivo: limites de cada parte e buffer de escrita
+        props.setProperty("file.max.bytes", String.valueOf(fileMaxBytes));
+        props.setProperty("file.max.rows", String.valueOf(fileMaxRows));
+        props.setProperty("file.buffer.kb", String.valueOf(fileBufferKb));
+        
+        // Exportação em arquivo: geração em paralelo e divisão por conta ou mês
+        props.setProperty("file.parallelism", String.valueOf(fileParallelism));
+        props.setProperty("file.shard.by", fileShardBy);
+        
+        // Exportação em arquivo: compressão e cópia local dos arquivos enviados por FTP
+        props.setProperty("file.compression", fileCompression);
+        props.setProperty("file.keep.local", String.valueOf(fileKeepLocal));
+        
+        // FTP: porta, tempos limite, pool de sessões, envio em paralelo e retomada
+        props.setProperty("ftp.port", String.valueOf(ftpPort));
+        props.setProperty("ftp.connect.timeout.seconds", String.valueOf(ftpConnectTimeoutSeconds));
+        props.setProperty("ftp.data.timeout.seconds", String.valueOf(ftpDataTimeoutSeconds));
+        props.setProperty("ftp.pool.size", String.valueOf(ftpPoolSize));
+        props.setProperty("ftp.upload.parallelism", String.valueOf(ftpUploadParallelism));
+        props.setProperty("ftp.resume.attempts", String.valueOf(ftpResumeAttempts));
+        props.setProperty("ftp.streaming", String.valueOf(ftpStreaming));
+        
+        // Layout posicional (file.format=layout)
+        props.setProperty("file.layout", fileLayout);
+        
         try (FileOutputStream fos = new FileOutputStream(configFile)) {
             props.store(fos, "Configurações da Integração Nasajon");
         }
@@ -296,6 +638,582 @@ public class IntegrationConfig {
         this.schedulingEnabled = schedulingEnabled;
     }
     
+    public int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    public void setPoolMinSize(int poolMinSize) {
+        this.poolMinSize = poolMinSize;
+    }
+
+    public int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    public void setPoolMaxSize(int poolMaxSize) {
+        this.poolMaxSize = poolMaxSize;
+    }
+
+    public int getPoolIdleTimeoutSeconds() {
+        return poolIdleTimeoutSeconds;
+    }
+
+    public void setPoolIdleTimeoutSeconds(int poolIdleTimeoutSeconds) {
+        this.poolIdleTimeoutSeconds = poolIdleTimeoutSeconds;
+    }
+
+    public int getPoolBorrowTimeoutSeconds() {
+        return poolBorrowTimeoutSeconds;
+    }
+
+    public void setPoolBorrowTimeoutSeconds(int poolBorrowTimeoutSeconds) {
+        this.poolBorrowTimeoutSeconds = poolBorrowTimeoutSeconds;
+    }
+
+    public int getPoolValidationTimeoutSeconds() {
+        return poolValidationTimeoutSeconds;
+    }
+
+    public void setPoolValidationTimeoutSeconds(int poolValidationTimeoutSeconds) {
+        this.poolValidationTimeoutSeconds = poolValidationTimeoutSeconds;
+    }
+
+    public int getPoolLeakThresholdSeconds() {
+        return poolLeakThresholdSeconds;
+    }
+
+    public void setPoolLeakThresholdSeconds(int poolLeakThresholdSeconds) {
+        this.poolLeakThresholdSeconds = poolLeakThresholdSeconds;
+    }
+
+    public int getPoolMetricsIntervalSeconds() {
+        return poolMetricsIntervalSeconds;
+    }
+
+    public void setPoolMetricsIntervalSeconds(int poolMetricsIntervalSeconds) {
+        this.poolMetricsIntervalSeconds = poolMetricsIntervalSeconds;
+    }
+    
+    public int getUpdateChunkSize() {
+        return updateChunkSize;
+    }
+
+    public void setUpdateChunkSize(int updateChunkSize) {
+        this.updateChunkSize = updateChunkSize;
+    }
+    
+    public int getReadWindowSize() {
+        return readWindowSize;
+    }
+
+    public void setReadWindowSize(int readWindowSize) {
+        this.readWindowSize = readWindowSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+    
+    public int getIntegrationWorkers() {
+        return integrationWorkers;
+    }
+
+    public void setIntegrationWorkers(int integrationWorkers) {
+        this.integrationWorkers = integrationWorkers;
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(int leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+    
+    public boolean isLogAsyncEnabled() {
+        return logAsyncEnabled;
+    }
+
+    public void setLogAsyncEnabled(boolean logAsyncEnabled) {
+        this.logAsyncEnabled = logAsyncEnabled;
+    }
+
+    public int getLogAsyncCapacity() {
+        return logAsyncCapacity;
+    }
+
+    public void setLogAsyncCapacity(int logAsyncCapacity) {
+        this.logAsyncCapacity = logAsyncCapacity;
+    }
+
+    public int getLogAsyncBatchSize() {
+        return logAsyncBatchSize;
+    }
+
+    public void setLogAsyncBatchSize(int logAsyncBatchSize) {
+        this.logAsyncBatchSize = logAsyncBatchSize;
+    }
+
+    public int getLogAsyncLingerMs() {
+        return logAsyncLingerMs;
+    }
+
+    public void setLogAsyncLingerMs(int logAsyncLingerMs) {
+        this.logAsyncLingerMs = logAsyncLingerMs;
+    }
+
+    public String getLogAsyncOverflow() {
+        return logAsyncOverflow;
+    }
+
+    public void setLogAsyncOverflow(String logAsyncOverflow) {
+        this.logAsyncOverflow = logAsyncOverflow;
+    }
+    
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
+    }
+
+    public void setBulkBatchSize(int bulkBatchSize) {
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
+    public int getBulkTimeoutSeconds() {
+        return bulkTimeoutSeconds;
+    }
+
+    public void setBulkTimeoutSeconds(int bulkTimeoutSeconds) {
+        this.bulkTimeoutSeconds = bulkTimeoutSeconds;
+    }
+
+    public boolean isBulkTableLock() {
+        return bulkTableLock;
+    }
+
+    public void setBulkTableLock(boolean bulkTableLock) {
+        this.bulkTableLock = bulkTableLock;
+    }
+    
+    public boolean isLogRetentionEnabled() {
+        return logRetentionEnabled;
+    }
+
+    public void setLogRetentionEnabled(boolean logRetentionEnabled) {
+        this.logRetentionEnabled = logRetentionEnabled;
+    }
+
+    public String getLogRetentionSchedule() {
+        return logRetentionSchedule;
+    }
+
+    public void setLogRetentionSchedule(String logRetentionSchedule) {
+        this.logRetentionSchedule = logRetentionSchedule;
+    }
+
+    public int getLogRetentionDays() {
+        return logRetentionDays;
+    }
+
+    public void setLogRetentionDays(int logRetentionDays) {
+        this.logRetentionDays = logRetentionDays;
+    }
+
+    public int getLogRetentionBatchSize() {
+        return logRetentionBatchSize;
+    }
+
+    public void setLogRetentionBatchSize(int logRetentionBatchSize) {
+        this.logRetentionBatchSize = logRetentionBatchSize;
+    }
+
+    public long getLogRetentionPauseMs() {
+        return logRetentionPauseMs;
+    }
+
+    public void setLogRetentionPauseMs(long logRetentionPauseMs) {
+        this.logRetentionPauseMs = logRetentionPauseMs;
+    }
+
+    public String getLogRetentionArchive() {
+        return logRetentionArchive;
+    }
+
+    public void setLogRetentionArchive(String logRetentionArchive) {
+        this.logRetentionArchive = logRetentionArchive;
+    }
+
+    public String getLogRetentionArchiveDir() {
+        return logRetentionArchiveDir;
+    }
+
+    public void setLogRetentionArchiveDir(String logRetentionArchiveDir) {
+        this.logRetentionArchiveDir = logRetentionArchiveDir;
+    }
+
+    public int getLogRetentionArchiveDays() {
+        return logRetentionArchiveDays;
+    }
+
+    public void setLogRetentionArchiveDays(int logRetentionArchiveDays) {
+        this.logRetentionArchiveDays = logRetentionArchiveDays;
+    }
+
+    public int getLogRetentionSummaryDays() {
+        return logRetentionSummaryDays;
+    }
+
+    public void setLogRetentionSummaryDays(int logRetentionSummaryDays) {
+        this.logRetentionSummaryDays = logRetentionSummaryDays;
+    }
+    
+    public int getLogRetentionDeletedDays() {
+        return logRetentionDeletedDays;
+    }
+
+    public void setLogRetentionDeletedDays(int logRetentionDeletedDays) {
+        this.logRetentionDeletedDays = logRetentionDeletedDays;
+    }
+
+    public int getReadPoolMaxSize() {
+        return readPoolMaxSize;
+    }
+
+    public void setReadPoolMaxSize(int readPoolMaxSize) {
+        this.readPoolMaxSize = readPoolMaxSize;
+    }
+
+    public int getReadQueryTimeoutSeconds() {
+        return readQueryTimeoutSeconds;
+    }
+
+    public void setReadQueryTimeoutSeconds(int readQueryTimeoutSeconds) {
+        this.readQueryTimeoutSeconds = readQueryTimeoutSeconds;
+    }
+    
+    public int getApiMaxInFlight() {
+        return apiMaxInFlight;
+    }
+
+    public void setApiMaxInFlight(int apiMaxInFlight) {
+        this.apiMaxInFlight = apiMaxInFlight;
+    }
+    
+    public boolean isApiCompressionEnabled() {
+        return apiCompressionEnabled;
+    }
+
+    public void setApiCompressionEnabled(boolean apiCompressionEnabled) {
+        this.apiCompressionEnabled = apiCompressionEnabled;
+    }
+
+    public int getApiCompressionLevel() {
+        return apiCompressionLevel;
+    }
+
+    public void setApiCompressionLevel(int apiCompressionLevel) {
+        this.apiCompressionLevel = apiCompressionLevel;
+    }
+
+    public int getApiCompressionThresholdBytes() {
+        return apiCompressionThresholdBytes;
+    }
+
+    public void setApiCompressionThresholdBytes(int apiCompressionThresholdBytes) {
+        this.apiCompressionThresholdBytes = apiCompressionThresholdBytes;
+    }
+    
+    public boolean isApiBatchAdaptive() {
+        return apiBatchAdaptive;
+    }
+
+    public void setApiBatchAdaptive(boolean apiBatchAdaptive) {
+        this.apiBatchAdaptive = apiBatchAdaptive;
+    }
+
+    public int getApiBatchMinSize() {
+        return apiBatchMinSize;
+    }
+
+    public void setApiBatchMinSize(int apiBatchMinSize) {
+        this.apiBatchMinSize = apiBatchMinSize;
+    }
+
+    public int getApiBatchMaxSize() {
+        return apiBatchMaxSize;
+    }
+
+    public void setApiBatchMaxSize(int apiBatchMaxSize) {
+        this.apiBatchMaxSize = apiBatchMaxSize;
+    }
+
+    public long getApiBatchTargetLatencyMs() {
+        return apiBatchTargetLatencyMs;
+    }
+
+    public void setApiBatchTargetLatencyMs(long apiBatchTargetLatencyMs) {
+        this.apiBatchTargetLatencyMs = apiBatchTargetLatencyMs;
+    }
+
+    public long getApiBatchMaxBytes() {
+        return apiBatchMaxBytes;
+    }
+
+    public void setApiBatchMaxBytes(long apiBatchMaxBytes) {
+        this.apiBatchMaxBytes = apiBatchMaxBytes;
+    }
+
+    public int getApiBatchIncreaseStep() {
+        return apiBatchIncreaseStep;
+    }
+
+    public void setApiBatchIncreaseStep(int apiBatchIncreaseStep) {
+        this.apiBatchIncreaseStep = apiBatchIncreaseStep;
+    }
+    
+    public int getApiCircuitFailureThreshold() {
+        return apiCircuitFailureThreshold;
+    }
+
+    public void setApiCircuitFailureThreshold(int apiCircuitFailureThreshold) {
+        this.apiCircuitFailureThreshold = apiCircuitFailureThreshold;
+    }
+
+    public int getApiCircuitOpenSeconds() {
+        return apiCircuitOpenSeconds;
+    }
+
+    public void setApiCircuitOpenSeconds(int apiCircuitOpenSeconds) {
+        this.apiCircuitOpenSeconds = apiCircuitOpenSeconds;
+    }
+
+    public int getApiCircuitHalfOpenCalls() {
+        return apiCircuitHalfOpenCalls;
+    }
+
+    public void setApiCircuitHalfOpenCalls(int apiCircuitHalfOpenCalls) {
+        this.apiCircuitHalfOpenCalls = apiCircuitHalfOpenCalls;
+    }
+
+    public double getApiRateLimitPerSecond() {
+        return apiRateLimitPerSecond;
+    }
+
+    public void setApiRateLimitPerSecond(double apiRateLimitPerSecond) {
+        this.apiRateLimitPerSecond = apiRateLimitPerSecond;
+    }
+
+    public int getApiRateLimitBurst() {
+        return apiRateLimitBurst;
+    }
+
+    public void setApiRateLimitBurst(int apiRateLimitBurst) {
+        this.apiRateLimitBurst = apiRateLimitBurst;
+    }
+    
+    public long getApiResponseMaxBytes() {
+        return apiResponseMaxBytes;
+    }
+
+    public void setApiResponseMaxBytes(long apiResponseMaxBytes) {
+        this.apiResponseMaxBytes = apiResponseMaxBytes;
+    }
+    
+    public boolean isApiStatusPollEnabled() {
+        return apiStatusPollEnabled;
+    }
+
+    public void setApiStatusPollEnabled(boolean apiStatusPollEnabled) {
+        this.apiStatusPollEnabled = apiStatusPollEnabled;
+    }
+
+    public int getApiStatusPollSeconds() {
+        return apiStatusPollSeconds;
+    }
+
+    public void setApiStatusPollSeconds(int apiStatusPollSeconds) {
+        this.apiStatusPollSeconds = apiStatusPollSeconds;
+    }
+
+    public int getApiStatusBatchSize() {
+        return apiStatusBatchSize;
+    }
+
+    public void setApiStatusBatchSize(int apiStatusBatchSize) {
+        this.apiStatusBatchSize = apiStatusBatchSize;
+    }
+
+    public int getApiStatusMaxInFlight() {
+        return apiStatusMaxInFlight;
+    }
+
+    public void setApiStatusMaxInFlight(int apiStatusMaxInFlight) {
+        this.apiStatusMaxInFlight = apiStatusMaxInFlight;
+    }
+
+    public int getApiStatusTimeoutSeconds() {
+        return apiStatusTimeoutSeconds;
+    }
+
+    public void setApiStatusTimeoutSeconds(int apiStatusTimeoutSeconds) {
+        this.apiStatusTimeoutSeconds = apiStatusTimeoutSeconds;
+    }
+
+    public int getApiStatusCacheSize() {
+        return apiStatusCacheSize;
+    }
+
+    public void setApiStatusCacheSize(int apiStatusCacheSize) {
+        this.apiStatusCacheSize = apiStatusCacheSize;
+    }
+    
+    public boolean isApiWarmupEnabled() {
+        return apiWarmupEnabled;
+    }
+
+    public void setApiWarmupEnabled(boolean apiWarmupEnabled) {
+        this.apiWarmupEnabled = apiWarmupEnabled;
+    }
+    
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    public int getRetryBudgetMin() {
+        return retryBudgetMin;
+    }
+
+    public void setRetryBudgetMin(int retryBudgetMin) {
+        this.retryBudgetMin = retryBudgetMin;
+    }
+
+    public long getFileMaxBytes() {
+        return fileMaxBytes;
+    }
+
+    public void setFileMaxBytes(long fileMaxBytes) {
+        this.fileMaxBytes = fileMaxBytes;
+    }
+
+    public long getFileMaxRows() {
+        return fileMaxRows;
+    }
+
+    public void setFileMaxRows(long fileMaxRows) {
+        this.fileMaxRows = fileMaxRows;
+    }
+
+    public int getFileBufferKb() {
+        return fileBufferKb;
+    }
+
+    public void setFileBufferKb(int fileBufferKb) {
+        this.fileBufferKb = fileBufferKb;
+    }
+
+    public int getFileParallelism() {
+        return fileParallelism;
+    }
+
+    public void setFileParallelism(int fileParallelism) {
+        this.fileParallelism = fileParallelism;
+    }
+
+    public String getFileShardBy() {
+        return fileShardBy;
+    }
+
+    public void setFileShardBy(String fileShardBy) {
+        this.fileShardBy = fileShardBy;
+    }
+
+    public String getFileCompression() {
+        return fileCompression;
+    }
+
+    public void setFileCompression(String fileCompression) {
+        this.fileCompression = fileCompression;
+    }
+
+    public boolean isFileKeepLocal() {
+        return fileKeepLocal;
+    }
+
+    public void setFileKeepLocal(boolean fileKeepLocal) {
+        this.fileKeepLocal = fileKeepLocal;
+    }
+
+    public int getFtpPort() {
+        return ftpPort;
+    }
+
+    public void setFtpPort(int ftpPort) {
+        this.ftpPort = ftpPort;
+    }
+
+    public int getFtpConnectTimeoutSeconds() {
+        return ftpConnectTimeoutSeconds;
+    }
+
+    public void setFtpConnectTimeoutSeconds(int ftpConnectTimeoutSeconds) {
+        this.ftpConnectTimeoutSeconds = ftpConnectTimeoutSeconds;
+    }
+
+    public int getFtpDataTimeoutSeconds() {
+        return ftpDataTimeoutSeconds;
+    }
+
+    public void setFtpDataTimeoutSeconds(int ftpDataTimeoutSeconds) {
+        this.ftpDataTimeoutSeconds = ftpDataTimeoutSeconds;
+    }
+
+    public int getFtpPoolSize() {
+        return ftpPoolSize;
+    }
+
+    public void setFtpPoolSize(int ftpPoolSize) {
+        this.ftpPoolSize = ftpPoolSize;
+    }
+
+    public int getFtpUploadParallelism() {
+        return ftpUploadParallelism;
+    }
+
+    public void setFtpUploadParallelism(int ftpUploadParallelism) {
+        this.ftpUploadParallelism = ftpUploadParallelism;
+    }
+
+    public int getFtpResumeAttempts() {
+        return ftpResumeAttempts;
+    }
+
+    public void setFtpResumeAttempts(int ftpResumeAttempts) {
+        this.ftpResumeAttempts = ftpResumeAttempts;
+    }
+
+    public boolean isFtpStreaming() {
+        return ftpStreaming;
+    }
+
+    public void setFtpStreaming(boolean ftpStreaming) {
+        this.ftpStreaming = ftpStreaming;
+    }
+
+    public String getFileLayout() {
+        return fileLayout;
+    }
+
+    public void setFileLayout(String fileLayout) {
+        this.fileLayout = fileLayout;
+    }
+    
     public String getJdbcUrl() {
         return String.format("jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=true;trustServerCertificate=true", 
                 sqlServerHost, sqlServerPort, sqlServerDatabase);
@@ -0,0 +1,306 @@
+package com.integration.nasajon.dao;
+
+import com.integration.nasajon.model.IntegrationLog;
+
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gravador assíncrono de logs de integração.
+ *
+ * Os logs entram em um buffer limitado e uma thread de fundo os grava em lotes,
+ * cada lote em uma única transação. Mensagens idênticas dentro do mesmo lote são
+ * agrupadas em um único registro com a contagem de repetições.
+ */
+public class AsyncLogWriter {
+    private static final Logger logger = Logger.getLogger(AsyncLogWriter.class.getName());
+    
+    private static final DateTimeFormatter HORA_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    
+    /**
+     * O que fazer quando o buffer está cheio
+     */
+    public enum PoliticaOverflow {
+        /** Aguarda espaço no buffer (até 1 segundo) e depois descarta o log novo */
+        BLOQUEAR,
+        /** Descarta o log novo */
+        DESCARTAR_NOVO,
+        /** Descarta o log mais antigo do buffer para abrir espaço */
+        DESCARTAR_ANTIGO,
+        /** Grava o log na thread do chamador */
+        SINCRONO
+    }
+    
+    /**
+     * Gravação de um lote de logs em uma transação
+     */
+    public interface GravadorLote {
+        void gravar(List<IntegrationLog> logs) throws SQLException;
+    }
+    
+    private final String nome;
+    private final BlockingQueue<IntegrationLog> buffer;
+    private final int tamanhoLote;
+    private final long lingerMillis;
+    private final PoliticaOverflow politica;
+    private final GravadorLote gravador;
+    private final Thread escritor;
+    
+    private final AtomicLong enfileirados = new AtomicLong();
+    private final AtomicLong processados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong agrupados = new AtomicLong();
+    private final Object monitor = new Object();
+    private volatile boolean ativo = true;
+    
+    public AsyncLogWriter(String nome, int capacidade, int tamanhoLote, long lingerMillis,
+                          PoliticaOverflow politica, GravadorLote gravador) {
+        this.nome = nome;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacidade));
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.lingerMillis = Math.max(0, lingerMillis);
+        this.politica = politica;
+        this.gravador = gravador;
+        
+        this.escritor = new Thread(this::executar, "log-async-" + nome);
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+    
+    /**
+     * Coloca um log no buffer, aplicando a política de overflow se estiver cheio
+     * @param log Log a ser gravado
+     */
+    public void enfileirar(IntegrationLog log) {
+        if (!ativo) {
+            gravarSincrono(log);
+            return;
+        }
+        
+        enfileirados.incrementAndGet();
+        if (buffer.offer(log)) {
+            return;
+        }
+        
+        switch (politica) {
+            case DESCARTAR_NOVO:
+                descartar(1);
+                break;
+            case DESCARTAR_ANTIGO:
+                while (!buffer.offer(log)) {
+                    if (buffer.poll() != null) {
+                        descartar(1);
+                    }
+                }
+                break;
+            case SINCRONO:
+                gravarSincrono(log);
+                marcarProcessados(1);
+                break;
+            case BLOQUEAR:
+            default:
+                try {
+                    if (!buffer.offer(log, 1, TimeUnit.SECONDS)) {
+                        descartar(1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    descartar(1);
+                }
+                break;
+        }
+    }
+    
+    /**
+     * Aguarda até que todos os logs enfileirados antes desta chamada estejam gravados
+     * @param timeoutMillis Tempo máximo de espera
+     * @return true se tudo foi gravado dentro do prazo
+     */
+    public boolean flush(long timeoutMillis) {
+        long alvo = enfileirados.get();
+        long limite = System.currentTimeMillis() + timeoutMillis;
+        
+        synchronized (monitor) {
+            while (processados.get() < alvo && escritor.isAlive()) {
+                long restante = limite - System.currentTimeMillis();
+                if (restante <= 0) {
+                    return false;
+                }
+                try {
+                    monitor.wait(restante);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return processados.get() >= alvo;
+    }
+    
+    /**
+     * Grava o que restar no buffer e encerra a thread de fundo
+     * @param timeoutMillis Tempo máximo de espera
+     */
+    public void close(long timeoutMillis) {
+        if (!ativo) {
+            return;
+        }
+        ativo = false;
+        
+        try {
+            escritor.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        logger.log(Level.INFO, "Gravador de logs {0} encerrado: gravados={1}, agrupados={2}, descartados={3}",
+                new Object[]{nome, processados.get() - descartados.get() - agrupados.get(),
+                        agrupados.get(), descartados.get()});
+    }
+    
+    public long getDescartados() {
+        return descartados.get();
+    }
+    
+    public int getPendentes() {
+        return buffer.size();
+    }
+    
+    private void executar() {
+        List<IntegrationLog> lote = new ArrayList<>(tamanhoLote);
+        
+        while (ativo || !buffer.isEmpty()) {
+            try {
+                IntegrationLog primeiro = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                
+                // Dar uma pequena janela para a rajada acumular e gravar tudo de uma vez
+                if (lingerMillis > 0 && ativo && buffer.size() < tamanhoLote - 1) {
+                    Thread.sleep(lingerMillis);
+                }
+                buffer.drainTo(lote, tamanhoLote - 1);
+                
+                gravarLote(lote);
+            
+            } catch (InterruptedException e) {
+                // Encerramento: continua até esvaziar o buffer
+                ativo = false;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Erro inesperado no gravador de logs " + nome, e);
+            } finally {
+                if (!lote.isEmpty()) {
+                    marcarProcessados(lote.size());
+                    lote.clear();
+                }
+            }
+        }
+        
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+    
+    private void gravarLote(List<IntegrationLog> lote) {
+        List<IntegrationLog> agrupado = agrupar(lote);
+        agrupados.addAndGet(lote.size() - agrupado.size());
+        
+        try {
+            gravador.gravar(agrupado);
+        } catch (SQLException e) {
+            descartados.addAndGet(agrupado.size());
+            logger.log(Level.SEVERE, "Erro ao gravar lote de " + agrupado.size() + " logs; lote descartado", e);
+        }
+    }
+    
+    /**
+     * Agrupa logs com o mesmo tipo, mensagem e detalhes, mantendo a ordem da primeira ocorrência
+     */
+    private List<IntegrationLog> agrupar(List<IntegrationLog> lote) {
+        if (lote.size() == 1) {
+            return lote;
+        }
+        
+        Map<List<String>, Repeticao> grupos = new LinkedHashMap<>();
+        for (IntegrationLog log : lote) {
+            List<String> chave = List.of(
+                    Objects.toString(log.getTipo(), ""),
+                    Objects.toString(log.getMensagem(), ""),
+                    Objects.toString(log.getDetalhes(), ""));
+            Repeticao repeticao = grupos.get(chave);
+            if (repeticao == null) {
+                grupos.put(chave, new Repeticao(log));
+            } else {
+                repeticao.ultimo = log;
+                repeticao.quantidade++;
+            }
+        }
+        
+        if (grupos.size() == lote.size()) {
+            return lote;
+        }
+        
+        List<IntegrationLog> resultado = new ArrayList<>(grupos.size());
+        for (Repeticao repeticao : grupos.values()) {
+            IntegrationLog log = repeticao.primeiro;
+            if (repeticao.quantidade > 1) {
+                String resumo = "Repetido " + repeticao.quantidade + " vezes entre " +
+                        log.getTimestamp().format(HORA_FORMATTER) + " e " +
+                        repeticao.ultimo.getTimestamp().format(HORA_FORMATTER);
+                log = new IntegrationLog(null, log.getTimestamp(), log.getTipo(), log.getMensagem(),
+                        log.getDetalhes() != null ? log.getDetalhes() + "\n" + resumo : resumo);
+            }
+            resultado.add(log);
+        }
+        return resultado;
+    }
+    
+    private void gravarSincrono(IntegrationLog log) {
+        try {
+            gravador.gravar(List.of(log));
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao salvar log", e);
+        }
+    }
+    
+    private void descartar(int quantidade) {
+        long total = descartados.addAndGet(quantidade);
+        marcarProcessados(quantidade);
+        
+        // Avisar no início e depois a cada mil descartes, para não inundar o log da aplicação
+        if (total == quantidade || total % 1000 == 0) {
+            logger.warning("Buffer de logs " + nome + " cheio (política " + politica + "). Logs descartados: " + total);
+        }
+    }
+    
+    private void marcarProcessados(int quantidade) {
+        processados.addAndGet(quantidade);
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+    
+    private static final class Repeticao {
+        private final IntegrationLog primeiro;
+        private IntegrationLog ultimo;
+        private int quantidade = 1;
+        
+        private Repeticao(IntegrationLog primeiro) {
+            this.primeiro = primeiro;
+            this.ultimo = primeiro;
+        }
+    }
+}
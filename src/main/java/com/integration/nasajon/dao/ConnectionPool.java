@@ -0,0 +1,498 @@
+package com.integration.nasajon.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexões JDBC de longa duração.
+ *
+ * As conexões físicas são reaproveitadas entre chamadas dos DAOs; o objeto
+ * entregue ao chamador é um proxy cujo close() devolve a conexão ao pool.
+ */
+public class ConnectionPool {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    
+    // Conexões usadas há menos tempo que isso não são revalidadas no empréstimo
+    private static final long VALIDACAO_INTERVALO_MS = 500;
+    
+    /**
+     * Preparação de cada conexão física nova. O estado deixado por ela (isolamento,
+     * somente leitura) passa a ser o estado restaurado quando a conexão volta ao pool.
+     */
+    public interface ConfiguradorConexao {
+        void configurar(Connection conexao) throws SQLException;
+    }
+    
+    private final String nome;
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdMillis;
+    private final ConfiguradorConexao configurador;
+    
+    private final Semaphore permissoes;
+    private final Deque<ConexaoFisica> ociosas = new ConcurrentLinkedDeque<>();
+    private final Set<ConexaoFisica> emUso = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+    
+    // Métricas
+    private final LongAdder emprestimos = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder vazamentos = new LongAdder();
+    private final AtomicInteger picoAtivas = new AtomicInteger();
+    
+    public ConnectionPool(String nome, String jdbcUrl, String user, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int validationTimeoutSeconds, long leakThresholdMillis, long metricsIntervalMillis) {
+        this(nome, jdbcUrl, user, password, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis,
+                validationTimeoutSeconds, leakThresholdMillis, metricsIntervalMillis, null);
+    }
+    
+    public ConnectionPool(String nome, String jdbcUrl, String user, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int validationTimeoutSeconds, long leakThresholdMillis, long metricsIntervalMillis,
+                          ConfiguradorConexao configurador) {
+        this.nome = nome;
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.configurador = configurador;
+        this.permissoes = new Semaphore(this.maxSize, true);
+        
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-manutencao-" + nome);
+            t.setDaemon(true);
+            return t;
+        });
+        
+        long intervalo = idleTimeoutMillis > 0 ? Math.min(idleTimeoutMillis / 2, 30000) : 30000;
+        if (leakThresholdMillis > 0) {
+            intervalo = Math.min(intervalo, Math.max(1000, leakThresholdMillis / 2));
+        }
+        intervalo = Math.max(intervalo, 1000);
+        manutencao.scheduleWithFixedDelay(this::executarManutencao, 0, intervalo, TimeUnit.MILLISECONDS);
+        
+        if (metricsIntervalMillis > 0) {
+            manutencao.scheduleAtFixedRate(() -> logger.info(getMetricas().toString()),
+                    metricsIntervalMillis, metricsIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        
+        logger.log(Level.INFO, "Pool de conexões {0} criado (mín={1}, máx={2})",
+                new Object[]{nome, this.minSize, this.maxSize});
+    }
+    
+    /**
+     * Empresta uma conexão do pool, aguardando até o tempo limite configurado
+     * @return Conexão cujo close() a devolve ao pool
+     * @throws SQLException Se o pool estiver esgotado ou a conexão não puder ser criada
+     */
+    public Connection getConnection() throws SQLException {
+        if (fechado) {
+            throw new SQLException("Pool de conexões " + nome + " encerrado");
+        }
+        
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Tempo esgotado aguardando conexão do pool " + nome +
+                        " (" + borrowTimeoutMillis + "ms, ativas=" + emUso.size() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool " + nome, e);
+        }
+        
+        try {
+            ConexaoFisica conexao = obterOuCriar();
+            registrarEspera(System.nanoTime() - inicio);
+            
+            conexao.emprestadaEm = System.currentTimeMillis();
+            conexao.vazamentoReportado = false;
+            conexao.origem = leakThresholdMillis > 0 ? new Exception("Conexão emprestada aqui") : null;
+            emUso.add(conexao);
+            picoAtivas.accumulateAndGet(emUso.size(), Math::max);
+            
+            return conexao.novoEmprestimo();
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+    
+    private ConexaoFisica obterOuCriar() throws SQLException {
+        ConexaoFisica conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            if (validar(conexao)) {
+                return conexao;
+            }
+            descartar(conexao);
+        }
+        return criar();
+    }
+    
+    private boolean validar(ConexaoFisica conexao) {
+        if (System.currentTimeMillis() - conexao.ultimoUso < VALIDACAO_INTERVALO_MS) {
+            return true;
+        }
+        try {
+            return conexao.fisica.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Falha ao validar conexão do pool " + nome, e);
+            return false;
+        }
+    }
+    
+    private ConexaoFisica criar() throws SQLException {
+        Connection fisica = DriverManager.getConnection(jdbcUrl, user, password);
+        ConexaoFisica conexao;
+        try {
+            if (configurador != null) {
+                configurador.configurar(fisica);
+            }
+            conexao = new ConexaoFisica(fisica);
+        } catch (SQLException | RuntimeException e) {
+            fisica.close();
+            throw e;
+        }
+        total.incrementAndGet();
+        criadas.increment();
+        return conexao;
+    }
+    
+    private void descartar(ConexaoFisica conexao) {
+        total.decrementAndGet();
+        descartadas.increment();
+        try {
+            conexao.fisica.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Erro ao fechar conexão descartada do pool " + nome, e);
+        }
+    }
+    
+    private void devolver(ConexaoFisica conexao) {
+        emUso.remove(conexao);
+        try {
+            if (fechado || !restaurarEstado(conexao)) {
+                descartar(conexao);
+            } else {
+                conexao.ultimoUso = System.currentTimeMillis();
+                ociosas.offerFirst(conexao);
+            }
+        } finally {
+            permissoes.release();
+        }
+    }
+    
+    private boolean restaurarEstado(ConexaoFisica conexao) {
+        Connection fisica = conexao.fisica;
+        try {
+            if (fisica.isClosed()) {
+                return false;
+            }
+            if (!fisica.getAutoCommit()) {
+                fisica.rollback();
+                fisica.setAutoCommit(true);
+            }
+            if (fisica.getTransactionIsolation() != conexao.isolamentoOriginal) {
+                fisica.setTransactionIsolation(conexao.isolamentoOriginal);
+            }
+            if (fisica.isReadOnly() != conexao.somenteLeituraOriginal) {
+                fisica.setReadOnly(conexao.somenteLeituraOriginal);
+            }
+            fisica.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Conexão descartada ao retornar ao pool " + nome, e);
+            return false;
+        }
+    }
+    
+    private void registrarEspera(long nanos) {
+        emprestimos.increment();
+        esperaTotalNanos.add(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    private void executarManutencao() {
+        try {
+            long agora = System.currentTimeMillis();
+            
+            // Remover conexões ociosas além do mínimo
+            if (idleTimeoutMillis > 0) {
+                for (ConexaoFisica conexao : ociosas) {
+                    if (total.get() <= minSize) {
+                        break;
+                    }
+                    if (agora - conexao.ultimoUso > idleTimeoutMillis && ociosas.remove(conexao)) {
+                        descartar(conexao);
+                    }
+                }
+            }
+            
+            // Completar o mínimo de conexões
+            while (!fechado && total.get() < minSize && permissoes.tryAcquire()) {
+                try {
+                    ConexaoFisica conexao = criar();
+                    conexao.ultimoUso = System.currentTimeMillis();
+                    ociosas.offerLast(conexao);
+                } finally {
+                    permissoes.release();
+                }
+            }
+            
+            // Detectar conexões emprestadas há tempo demais
+            if (leakThresholdMillis > 0) {
+                for (ConexaoFisica conexao : emUso) {
+                    if (!conexao.vazamentoReportado && agora - conexao.emprestadaEm > leakThresholdMillis) {
+                        conexao.vazamentoReportado = true;
+                        vazamentos.increment();
+                        logger.log(Level.WARNING, "Possível vazamento de conexão no pool " + nome +
+                                ": emprestada há " + (agora - conexao.emprestadaEm) + "ms", conexao.origem);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Erro ao completar o mínimo de conexões do pool " + nome, e);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Erro na manutenção do pool " + nome, e);
+        }
+    }
+    
+    /**
+     * Encerra o pool, fechando as conexões ociosas. Conexões em uso são
+     * fechadas quando devolvidas.
+     */
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        manutencao.shutdownNow();
+        
+        ConexaoFisica conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            descartar(conexao);
+        }
+        
+        logger.info("Pool de conexões encerrado. " + getMetricas());
+    }
+    
+    public Metricas getMetricas() {
+        long qtdEmprestimos = emprestimos.sum();
+        return new Metricas(
+                nome,
+                emUso.size(),
+                ociosas.size(),
+                total.get(),
+                picoAtivas.get(),
+                permissoes.getQueueLength(),
+                qtdEmprestimos,
+                qtdEmprestimos > 0 ? esperaTotalNanos.sum() / qtdEmprestimos / 1_000_000.0 : 0.0,
+                esperaMaximaNanos.get() / 1_000_000.0,
+                timeouts.sum(),
+                criadas.sum(),
+                descartadas.sum(),
+                vazamentos.sum());
+    }
+    
+    /**
+     * Conexão física mantida pelo pool
+     */
+    private final class ConexaoFisica {
+        private final Connection fisica;
+        private final int isolamentoOriginal;
+        private final boolean somenteLeituraOriginal;
+        private volatile long ultimoUso;
+        private volatile long emprestadaEm;
+        private volatile boolean vazamentoReportado;
+        private volatile Exception origem;
+        
+        private ConexaoFisica(Connection fisica) throws SQLException {
+            this.fisica = fisica;
+            this.isolamentoOriginal = fisica.getTransactionIsolation();
+            this.somenteLeituraOriginal = fisica.isReadOnly();
+        }
+        
+        private Connection novoEmprestimo() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Emprestimo(this));
+        }
+    }
+    
+    /**
+     * Handler do proxy entregue ao chamador. Cada empréstimo tem o seu, de modo
+     * que um close() repetido não devolve a mesma conexão duas vezes.
+     */
+    private final class Emprestimo implements InvocationHandler {
+        private final ConexaoFisica conexao;
+        private final AtomicBoolean devolvida = new AtomicBoolean();
+        
+        private Emprestimo(ConexaoFisica conexao) {
+            this.conexao = conexao;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (devolvida.compareAndSet(false, true)) {
+                        devolver(conexao);
+                    }
+                    return null;
+                case "isClosed":
+                    return devolvida.get() || conexao.fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexaoPool[" + nome + "]" + (devolvida.get() ? " (devolvida)" : "");
+                default:
+                    break;
+            }
+            
+            if (devolvida.get()) {
+                throw new SQLException("Conexão já devolvida ao pool " + nome);
+            }
+            
+            try {
+                return method.invoke(conexao.fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    /**
+     * Fotografia das métricas do pool em um instante
+     */
+    public static final class Metricas {
+        private final String nome;
+        private final int ativas;
+        private final int ociosas;
+        private final int total;
+        private final int picoAtivas;
+        private final int aguardando;
+        private final long emprestimos;
+        private final double esperaMediaMs;
+        private final double esperaMaximaMs;
+        private final long timeouts;
+        private final long criadas;
+        private final long descartadas;
+        private final long vazamentos;
+        
+        private Metricas(String nome, int ativas, int ociosas, int total, int picoAtivas, int aguardando,
+                         long emprestimos, double esperaMediaMs, double esperaMaximaMs, long timeouts,
+                         long criadas, long descartadas, long vazamentos) {
+            this.nome = nome;
+            this.ativas = ativas;
+            this.ociosas = ociosas;
+            this.total = total;
+            this.picoAtivas = picoAtivas;
+            this.aguardando = aguardando;
+            this.emprestimos = emprestimos;
+            this.esperaMediaMs = esperaMediaMs;
+            this.esperaMaximaMs = esperaMaximaMs;
+            this.timeouts = timeouts;
+            this.criadas = criadas;
+            this.descartadas = descartadas;
+            this.vazamentos = vazamentos;
+        }
+        
+        public int getAtivas() {
+            return ativas;
+        }
+        
+        public int getOciosas() {
+            return ociosas;
+        }
+        
+        public int getTotal() {
+            return total;
+        }
+        
+        public int getPicoAtivas() {
+            return picoAtivas;
+        }
+        
+        public int getAguardando() {
+            return aguardando;
+        }
+        
+        public long getEmprestimos() {
+            return emprestimos;
+        }
+        
+        public double getEsperaMediaMs() {
+            return esperaMediaMs;
+        }
+        
+        public double getEsperaMaximaMs() {
+            return esperaMaximaMs;
+        }
+        
+        public long getTimeouts() {
+            return timeouts;
+        }
+        
+        public long getCriadas() {
+            return criadas;
+        }
+        
+        public long getDescartadas() {
+            return descartadas;
+        }
+        
+        public long getVazamentos() {
+            return vazamentos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Pool %s: ativas=%d, ociosas=%d, total=%d, pico=%d, aguardando=%d, " +
+                    "empréstimos=%d, espera média=%.2fms, espera máx=%.2fms, timeouts=%d, " +
+                    "criadas=%d, descartadas=%d, vazamentos=%d",
+                    nome, ativas, ociosas, total, picoAtivas, aguardando, emprestimos,
+                    esperaMediaMs, esperaMaximaMs, timeouts, criadas, descartadas, vazamentos);
+        }
+    }
+}
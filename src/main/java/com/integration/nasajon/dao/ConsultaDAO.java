@@ -0,0 +1,233 @@
+package com.integration.nasajon.dao;
+
+import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.model.IntegrationLog;
+import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.model.StatusLancamento;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consultas somente leitura usadas pela interface e por relatórios.
+ *
+ * Usa as conexões de leitura do DatabaseManager (pool próprio, isolamento SNAPSHOT)
+ * e um tempo limite por consulta. Ao contrário dos DAOs de escrita, os erros são
+ * propagados, para que a interface possa informar um tempo esgotado ao usuário.
+ */
+public class ConsultaDAO {
+    private final DatabaseManager dbManager;
+    private final String schema;
+    private final int queryTimeoutSeconds;
+    private final int retencaoExclusoesDias;
+    
+    public ConsultaDAO(IntegrationConfig config) {
+        this.dbManager = new DatabaseManager(config);
+        this.schema = config.getSqlServerSchema();
+        this.queryTimeoutSeconds = config.getReadQueryTimeoutSeconds();
+        this.retencaoExclusoesDias = config.getLogRetentionDeletedDays();
+    }
+    
+    public List<LancamentoContabil> listarLancamentos() throws SQLException {
+        String sql = String.format(
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %s.lancamentos_contabeis ORDER BY data DESC, id DESC",
+                schema);
+        
+        return consultarLancamentos(sql);
+    }
+    
+    public List<LancamentoContabil> buscarLancamentosPorStatus(StatusLancamento status) throws SQLException {
+        // O código do status vai literal no SQL para que o otimizador possa usar o índice filtrado
+        String sql = String.format(
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %s.lancamentos_contabeis WHERE status_codigo = %d ORDER BY data DESC, id DESC",
+                schema, status.getCodigo());
+        
+        return consultarLancamentos(sql);
+    }
+    
+    public List<LancamentoContabil> buscarLancamentosPorPeriodo(LocalDate dataInicio, LocalDate dataFim)
+            throws SQLException {
+        String sql = String.format(
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %s.lancamentos_contabeis WHERE data BETWEEN ? AND ? ORDER BY data DESC, id DESC",
+                schema);
+        
+        return consultarLancamentos(sql, Date.valueOf(dataInicio), Date.valueOf(dataFim));
+    }
+    
+    /**
+     * Token de alterações atual: todas as alterações confirmadas até agora têm versão menor.
+     * Deve ser obtido antes de uma carga completa e usado na primeira chamada a buscarAlteracoes.
+     * @return Token a partir do qual buscar alterações
+     */
+    public long obterTokenAlteracoes() throws SQLException {
+        try (Connection conn = dbManager.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement("SELECT CAST(MIN_ACTIVE_ROWVERSION() AS BIGINT)")) {
+            
+            stmt.setQueryTimeout(queryTimeoutSeconds);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+    
+    /**
+     * Prazo em que um token de alterações continua válido. Depois dele, exclusões posteriores
+     * ao token podem ter sido expurgadas (log.retention.deleted.days) e é preciso uma carga completa.
+     * A margem de uma hora cobre a diferença entre os relógios da aplicação e do banco.
+     */
+    public Duration getValidadeTokenAlteracoes() {
+        return Duration.ofDays(retencaoExclusoesDias).minusHours(1);
+    }
+    
+    /**
+     * Busca os lançamentos incluídos, alterados ou excluídos desde o token informado.
+     * O limite superior é MIN_ACTIVE_ROWVERSION(), de modo que alterações de transações
+     * ainda abertas não são puladas: elas aparecem na próxima chamada.
+     * @param desde Token devolvido pela chamada anterior (ou por obterTokenAlteracoes)
+     * @return Alterações e o token para a próxima chamada
+     */
+    public Alteracoes buscarAlteracoes(long desde) throws SQLException {
+        String sql = String.format(
+                "DECLARE @ate BINARY(8) = MIN_ACTIVE_ROWVERSION(); " +
+                "SELECT CAST(@ate AS BIGINT); " +
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %1$s.lancamentos_contabeis " +
+                "WHERE versao_linha >= CAST(? AS BINARY(8)) AND versao_linha < @ate; " +
+                "SELECT id FROM %1$s.lancamentos_excluidos " +
+                "WHERE versao_linha >= CAST(? AS BINARY(8)) AND versao_linha < @ate",
+                schema);
+        
+        try (Connection conn = dbManager.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setQueryTimeout(queryTimeoutSeconds);
+            stmt.setLong(1, desde);
+            stmt.setLong(2, desde);
+            
+            long token;
+            try (ResultSet rs = proximoResultado(stmt, stmt.execute())) {
+                rs.next();
+                token = rs.getLong(1);
+            }
+            
+            List<LancamentoContabil> alterados = new ArrayList<>();
+            try (ResultSet rs = proximoResultado(stmt, stmt.getMoreResults())) {
+                while (rs.next()) {
+                    alterados.add(LancamentoContabilDAO.mapResultSetToLancamento(rs));
+                }
+            }
+            
+            List<Long> excluidos = new ArrayList<>();
+            try (ResultSet rs = proximoResultado(stmt, stmt.getMoreResults())) {
+                while (rs.next()) {
+                    excluidos.add(rs.getLong(1));
+                }
+            }
+            
+            return new Alteracoes(alterados, excluidos, token);
+        }
+    }
+    
+    public List<IntegrationLog> listarLogs(int limit) throws SQLException {
+        List<IntegrationLog> logs = new ArrayList<>();
+        
+        String sql = String.format(
+                "SELECT TOP %d id, timestamp, tipo, mensagem, detalhes " +
+                "FROM %s.integration_logs ORDER BY timestamp DESC",
+                limit, schema);
+        
+        try (Connection conn = dbManager.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setQueryTimeout(queryTimeoutSeconds);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(IntegrationLogDAO.mapResultSetToLog(rs));
+                }
+            }
+        }
+        
+        return logs;
+    }
+    
+    /**
+     * Pula contagens de linhas até o próximo conjunto de resultados
+     */
+    private static ResultSet proximoResultado(PreparedStatement stmt, boolean temResultado) throws SQLException {
+        while (!temResultado) {
+            if (stmt.getUpdateCount() == -1) {
+                throw new SQLException("Consulta de alterações não retornou o resultado esperado");
+            }
+            temResultado = stmt.getMoreResults();
+        }
+        return stmt.getResultSet();
+    }
+    
+    private List<LancamentoContabil> consultarLancamentos(String sql, Object... parametros) throws SQLException {
+        List<LancamentoContabil> lancamentos = new ArrayList<>();
+        
+        try (Connection conn = dbManager.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setQueryTimeout(queryTimeoutSeconds);
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lancamentos.add(LancamentoContabilDAO.mapResultSetToLancamento(rs));
+                }
+            }
+        }
+        
+        return lancamentos;
+    }
+    
+    /**
+     * Alterações de lançamentos entre dois tokens
+     */
+    public static class Alteracoes {
+        private final List<LancamentoContabil> alterados;
+        private final List<Long> excluidos;
+        private final long token;
+        
+        public Alteracoes(List<LancamentoContabil> alterados, List<Long> excluidos, long token) {
+            this.alterados = alterados;
+            this.excluidos = excluidos;
+            this.token = token;
+        }
+        
+        /** Lançamentos incluídos ou alterados, no estado atual */
+        public List<LancamentoContabil> getAlterados() {
+            return alterados;
+        }
+        
+        /** Ids dos lançamentos excluídos */
+        public List<Long> getExcluidos() {
+            return excluidos;
+        }
+        
+        /** Token para a próxima chamada a buscarAlteracoes */
+        public long getToken() {
+            return token;
+        }
+        
+        public boolean isVazio() {
+            return alterados.isEmpty() && excluidos.isEmpty();
+        }
+    }
+}
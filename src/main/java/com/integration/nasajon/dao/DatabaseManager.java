@@ -1,17 +1,38 @@
 package com.integration.nasajon.dao;
 
 import com.integration.nasajon.config.IntegrationConfig;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class DatabaseManager {
     private static final Logger logger = Logger.getLogger(DatabaseManager.class.getName());
     
+    // Versão do esquema esperada por esta versão da aplicação
+    private static final int VERSAO_ESQUEMA = 7;
+    
+    // Linhas por transação nas migrações de dados, abaixo do limite de escalonamento de bloqueios
+    private static final int LINHAS_POR_MIGRACAO = 4000;
+    
+    // Pool de cada finalidade (principal e leitura), compartilhado por todos os DAOs
+    private static final Map<String, PoolAtual> pools = new ConcurrentHashMap<>();
+    private static volatile boolean driverCarregado;
+    private static volatile boolean avisoSemSnapshot;
+    
     private final IntegrationConfig config;
     
     public DatabaseManager(IntegrationConfig config) {
@@ -19,27 +40,158 @@ public class DatabaseManager {
     }
     
     public Connection getConnection() throws SQLException {
+        return obterPool().getConnection();
+    }
+    
+    /**
+     * Conexão somente leitura para consultas da interface e relatórios. Vem de um pool
+     * próprio e pequeno, com isolamento SNAPSHOT quando o banco permite, de modo que as
+     * leituras não bloqueiam nem são bloqueadas pelas atualizações da integração.
+     * @return Conexão que deve ser usada apenas para SELECT
+     */
+    public Connection getConnectionLeitura() throws SQLException {
+        carregarDriver();
+        
+        String chave = config.getJdbcUrl() + "|" + config.getSqlServerUser() + "|" +
+                config.getSqlServerPassword().hashCode();
+        int lockTimeoutMillis = config.getReadQueryTimeoutSeconds() * 1000;
+        
+        return obterPool("leitura", chave, () -> new ConnectionPool(
+                config.getSqlServerHost() + "/" + config.getSqlServerDatabase() + " (leitura)",
+                config.getJdbcUrl(),
+                config.getSqlServerUser(),
+                config.getSqlServerPassword(),
+                0,
+                config.getReadPoolMaxSize(),
+                config.getPoolIdleTimeoutSeconds() * 1000L,
+                config.getReadQueryTimeoutSeconds() * 1000L,
+                config.getPoolValidationTimeoutSeconds(),
+                config.getPoolLeakThresholdSeconds() * 1000L,
+                0,
+                conn -> configurarLeitura(conn, lockTimeoutMillis))).getConnection();
+    }
+    
+    private static void configurarLeitura(Connection conn, int lockTimeoutMillis) throws SQLException {
+        boolean snapshot = false;
+        boolean leituraConfirmadaVersionada = false;
+        
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT snapshot_isolation_state, is_read_committed_snapshot_on FROM sys.databases " +
+                    "WHERE database_id = DB_ID()")) {
+                if (rs.next()) {
+                    snapshot = rs.getInt(1) == 1;
+                    leituraConfirmadaVersionada = rs.getBoolean(2);
+                }
+            }
+            
+            // Sem versionamento de linhas, ao menos não esperar indefinidamente por bloqueios
+            stmt.execute("SET LOCK_TIMEOUT " + lockTimeoutMillis);
+        }
+        
+        conn.setReadOnly(true);
+        if (snapshot) {
+            conn.setTransactionIsolation(SQLServerConnection.TRANSACTION_SNAPSHOT);
+        } else {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            if (!leituraConfirmadaVersionada && !avisoSemSnapshot) {
+                avisoSemSnapshot = true;
+                logger.warning("Banco sem ALLOW_SNAPSHOT_ISOLATION nem READ_COMMITTED_SNAPSHOT: " +
+                        "consultas da interface podem aguardar bloqueios da integração");
+            }
+        }
+    }
+    
+    /**
+     * Métricas do pool de conexões usado por esta configuração
+     * @return Fotografia das métricas (espera no empréstimo, conexões ativas etc.)
+     */
+    public ConnectionPool.Metricas getMetricasPool() throws SQLException {
+        return obterPool().getMetricas();
+    }
+    
+    private ConnectionPool obterPool() throws SQLException {
+        carregarDriver();
+        
+        // A chave muda quando os dados de conexão mudam, de modo que uma
+        // configuração alterada pela interface passa a usar um pool novo
+        String chave = config.getJdbcUrl() + "|" + config.getSqlServerUser() + "|" +
+                config.getSqlServerPassword().hashCode();
+        
+        return obterPool("principal", chave, () -> new ConnectionPool(
+                config.getSqlServerHost() + "/" + config.getSqlServerDatabase(),
+                config.getJdbcUrl(),
+                config.getSqlServerUser(),
+                config.getSqlServerPassword(),
+                config.getPoolMinSize(),
+                config.getPoolMaxSize(),
+                config.getPoolIdleTimeoutSeconds() * 1000L,
+                config.getPoolBorrowTimeoutSeconds() * 1000L,
+                config.getPoolValidationTimeoutSeconds(),
+                config.getPoolLeakThresholdSeconds() * 1000L,
+                config.getPoolMetricsIntervalSeconds() * 1000L));
+    }
+    
+    /**
+     * Pool atual da finalidade. Se os dados de conexão mudaram, cria um pool novo e encerra o
+     * anterior; as conexões que ainda estiverem em uso são fechadas quando devolvidas.
+     */
+    private static ConnectionPool obterPool(String finalidade, String chave, Supplier<ConnectionPool> criar) {
+        PoolAtual[] substituido = new PoolAtual[1];
+        PoolAtual atual = pools.compute(finalidade, (f, anterior) -> {
+            if (anterior != null && anterior.chave.equals(chave)) {
+                return anterior;
+            }
+            substituido[0] = anterior;
+            return new PoolAtual(chave, criar.get());
+        });
+        if (substituido[0] != null) {
+            logger.info("Dados de conexão alterados: encerrando o pool " + finalidade + " anterior");
+            substituido[0].pool.close();
+        }
+        return atual.pool;
+    }
+    
+    private static void carregarDriver() throws SQLException {
+        if (driverCarregado) {
+            return;
+        }
         try {
             // Carregar o driver JDBC do SQL Server
             Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-            
-            // Estabelecer conexão
-            return DriverManager.getConnection(
-                    config.getJdbcUrl(),
-                    config.getSqlServerUser(),
-                    config.getSqlServerPassword());
-            
+            driverCarregado = true;
         } catch (ClassNotFoundException e) {
             logger.log(Level.SEVERE, "Driver JDBC do SQL Server não encontrado", e);
             throw new SQLException("Driver JDBC não encontrado", e);
         }
     }
     
+    /**
+     * Encerra todos os pools de conexão abertos pela aplicação
+     */
+    public static void encerrarPools() {
+        for (PoolAtual atual : pools.values()) {
+            atual.pool.close();
+        }
+        pools.clear();
+    }
+    
+    private static final class PoolAtual {
+        private final String chave;
+        private final ConnectionPool pool;
+        
+        private PoolAtual(String chave, ConnectionPool pool) {
+            this.chave = chave;
+            this.pool = pool;
+        }
+    }
+    
     public void initializeDatabase() {
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             
-            // Criar tabela de lançamentos contábeis se não existir
+            // Criar tabela de lançamentos contábeis se não existir (já com status_codigo;
+            // a migração 1 só converte bancos criados com a antiga coluna status)
             String createLancamentosTable = String.format(
                     "IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'lancamentos_contabeis' AND schema_id = SCHEMA_ID('%s')) " +
                     "BEGIN " +
@@ -50,7 +202,7 @@ public class DatabaseManager {
                     "        valor DECIMAL(18,2) NOT NULL, " +
                     "        data DATE NOT NULL, " +
                     "        natureza CHAR(1) NOT NULL, " +
-                    "        status VARCHAR(20) NOT NULL DEFAULT 'PENDENTE', " +
+                    "        status_codigo TINYINT NOT NULL CONSTRAINT DF_lancamentos_status_codigo DEFAULT 0, " +
                     "        mensagem_erro VARCHAR(MAX), " +
                     "        data_envio DATE " +
                     "    ) " +
@@ -75,6 +227,9 @@ public class DatabaseManager {
             
             stmt.execute(createLogsTable);
             
+            // Aplicar atualizações de esquema pendentes
+            atualizarEsquema(conn);
+            
             logger.info("Banco de dados inicializado com sucesso");
             
         } catch (SQLException e) {
@@ -82,8 +237,360 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Aplica, em ordem, as atualizações de esquema ainda não registradas em schema_version.
+     * Uma atualização que não pôde ser aplicada fica sem registro e é tentada de novo na
+     * próxima inicialização. Um bloqueio de aplicação impede que duas instâncias migrem
+     * o banco ao mesmo tempo.
+     */
+    private void atualizarEsquema(Connection conn) throws SQLException {
+        String schema = config.getSqlServerSchema();
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'schema_version' AND schema_id = SCHEMA_ID('%s')) " +
+                    "BEGIN " +
+                    "    CREATE TABLE %s.schema_version ( " +
+                    "        versao INT NOT NULL PRIMARY KEY, " +
+                    "        descricao VARCHAR(255) NOT NULL, " +
+                    "        aplicado_em DATETIME NOT NULL DEFAULT GETDATE() " +
+                    "    ) " +
+                    "END",
+                    schema, schema));
+        }
+        
+        // Códigos negativos: tempo esgotado (-1), cancelado (-2), deadlock (-3) ou erro (-999)
+        int bloqueio;
+        try (CallableStatement stmt = conn.prepareCall("{? = call sp_getapplock(?, ?, ?, ?)}")) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.setString(2, "nasajon_schema_version");
+            stmt.setString(3, "Exclusive");
+            stmt.setString(4, "Session");
+            stmt.setInt(5, 600000);
+            stmt.execute();
+            bloqueio = stmt.getInt(1);
+        }
+        if (bloqueio < 0) {
+            throw new SQLException("Bloqueio da atualização de esquema não obtido (sp_getapplock retornou " +
+                    bloqueio + "); o esquema não foi atualizado");
+        }
+        
+        try {
+            Set<Integer> aplicadas = new HashSet<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(String.format(
+                         "SELECT versao FROM %s.schema_version", schema))) {
+                while (rs.next()) {
+                    aplicadas.add(rs.getInt(1));
+                }
+            }
+            
+            for (int versao = 1; versao <= VERSAO_ESQUEMA; versao++) {
+                if (aplicadas.contains(versao)) {
+                    continue;
+                }
+                
+                logger.info("Aplicando atualização de esquema versão " + versao);
+                String descricao = aplicarMigracao(conn, versao);
+                if (descricao == null) {
+                    logger.warning("Atualização de esquema versão " + versao +
+                            " não aplicada; será tentada novamente na próxima inicialização");
+                    continue;
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(String.format(
+                        "INSERT INTO %s.schema_version (versao, descricao) VALUES (?, ?)", schema))) {
+                    stmt.setInt(1, versao);
+                    stmt.setString(2, descricao);
+                    stmt.executeUpdate();
+                }
+                
+                logger.info("Esquema atualizado para a versão " + versao + ": " + descricao);
+            }
+            
+        } finally {
+            // Uma falha ao liberar não pode esconder o erro da migração
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("EXEC sp_releaseapplock @Resource = 'nasajon_schema_version', @LockOwner = 'Session'");
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Erro ao liberar o bloqueio da atualização de esquema", e);
+            }
+        }
+    }
+    
+    /**
+     * @return Descrição da atualização aplicada, ou null se ela não pôde ser aplicada agora
+     */
+    private String aplicarMigracao(Connection conn, int versao) throws SQLException {
+        switch (versao) {
+            case 1:
+                migrarStatusParaCodigo(conn);
+                return "Status dos lançamentos como código numérico";
+            case 2:
+                criarIndices(conn);
+                return "Índices de status, período e timestamp dos logs";
+            case 3:
+                criarColunasLease(conn);
+                return "Reserva (lease) de lançamentos em processamento";
+            case 4:
+                criarTabelasRetencaoLogs(conn);
+                return "Resumo por hora e arquivo dos logs antigos";
+            case 5:
+                return habilitarSnapshot(conn) ? "Isolamento SNAPSHOT para consultas somente leitura" : null;
+            case 6:
+                criarControleAlteracoes(conn);
+                return "Versão de linha (rowversion) e registro de exclusões de lançamentos";
+            case 7:
+                criarColunaLoteApi(conn);
+                return "Identificador do lote na API para confirmação do processamento";
+            default:
+                throw new SQLException("Versão de esquema desconhecida: " + versao);
+        }
+    }
+    
+    /**
+     * Substitui a coluna status VARCHAR por status_codigo TINYINT (ver StatusLancamento).
+     * A cópia dos dados é feita em pequenas transações para não bloquear a tabela.
+     * Em bancos novos, criados já com status_codigo, não faz nada.
+     */
+    private void migrarStatusParaCodigo(Connection conn) throws SQLException {
+        String tabela = config.getSqlServerSchema() + ".lancamentos_contabeis";
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF COL_LENGTH('%1$s', 'status_codigo') IS NULL " +
+                    "    ALTER TABLE %1$s ADD status_codigo TINYINT NOT NULL " +
+                    "        CONSTRAINT DF_lancamentos_status_codigo DEFAULT 0",
+                    tabela));
+            
+            if (colunaExiste(conn, tabela, "status")) {
+                // Linhas PENDENTE já estão corretas pelo valor padrão (0)
+                String copiar = String.format(
+                        "UPDATE TOP (%d) %s SET status_codigo = CASE status WHEN 'ENVIADO' THEN 1 ELSE 2 END " +
+                        "WHERE status IN ('ENVIADO', 'ERRO') AND status_codigo = 0",
+                        LINHAS_POR_MIGRACAO, tabela);
+                
+                long copiadas = 0;
+                int linhas;
+                while ((linhas = stmt.executeUpdate(copiar)) > 0) {
+                    copiadas += linhas;
+                }
+                logger.info("Status migrado para código em " + copiadas + " lançamentos");
+                
+                // Remover a coluna antiga e o valor padrão gerado pelo SQL Server
+                stmt.execute(String.format(
+                        "DECLARE @restricao sysname = (SELECT dc.name FROM sys.default_constraints dc " +
+                        "    JOIN sys.columns c ON c.object_id = dc.parent_object_id AND c.column_id = dc.parent_column_id " +
+                        "    WHERE dc.parent_object_id = OBJECT_ID('%1$s') AND c.name = 'status'); " +
+                        "IF @restricao IS NOT NULL " +
+                        "    EXEC('ALTER TABLE %1$s DROP CONSTRAINT ' + @restricao); " +
+                        "ALTER TABLE %1$s DROP COLUMN status",
+                        tabela));
+            }
+        }
+    }
+    
+    /**
+     * Cria os índices usados pelas consultas por status, por período e dos logs.
+     * Em edições que suportam (Enterprise/Azure), os índices são criados ONLINE.
+     */
+    private void criarIndices(Connection conn) throws SQLException {
+        String schema = config.getSqlServerSchema();
+        String opcoes = suportaIndiceOnline(conn) ? " WITH (ONLINE = ON)" : "";
+        
+        // Índice filtrado: só as linhas que a integração ainda precisa ler
+        criarIndiceSeNaoExistir(conn, schema + ".lancamentos_contabeis", "IX_lancamentos_pendentes",
+                "(data, id) INCLUDE (conta, historico, valor, natureza, status_codigo, mensagem_erro, data_envio) " +
+                "WHERE status_codigo IN (0, 2)" + opcoes);
+        
+        // Índice de cobertura para ORDER BY data, id e filtros por período
+        criarIndiceSeNaoExistir(conn, schema + ".lancamentos_contabeis", "IX_lancamentos_data_id",
+                "(data, id) INCLUDE (conta, historico, valor, natureza, status_codigo, data_envio)" + opcoes);
+        
+        criarIndiceSeNaoExistir(conn, schema + ".integration_logs", "IX_integration_logs_timestamp",
+                "(timestamp) INCLUDE (tipo, mensagem)" + opcoes);
+    }
+    
+    /**
+     * Colunas de reserva usadas pela fila de trabalho. O índice filtrado passa a
+     * incluir as linhas em processamento, para encontrar reservas expiradas.
+     */
+    private void criarColunasLease(Connection conn) throws SQLException {
+        String tabela = config.getSqlServerSchema() + ".lancamentos_contabeis";
+        String online = suportaIndiceOnline(conn) ? ", ONLINE = ON" : "";
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF COL_LENGTH('%1$s', 'lease_owner') IS NULL " +
+                    "    ALTER TABLE %1$s ADD lease_owner VARCHAR(100) NULL, lease_expira_em DATETIME2 NULL",
+                    tabela));
+            
+            stmt.execute(String.format(
+                    "CREATE NONCLUSTERED INDEX IX_lancamentos_pendentes ON %s (data, id) " +
+                    "INCLUDE (conta, historico, valor, natureza, status_codigo, mensagem_erro, data_envio, lease_expira_em) " +
+                    "WHERE status_codigo IN (0, 2, 3) WITH (DROP_EXISTING = ON%s)",
+                    tabela, online));
+        }
+    }
+    
+    /**
+     * Tabelas da retenção de logs: contagens por hora/tipo/mensagem dos logs expurgados
+     * e o arquivo dos logs antigos com os detalhes comprimidos (GZIP, ver COMPRESS).
+     */
+    private void criarTabelasRetencaoLogs(Connection conn) throws SQLException {
+        String schema = config.getSqlServerSchema();
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'integration_logs_resumo' AND schema_id = SCHEMA_ID('%1$s')) " +
+                    "BEGIN " +
+                    "    CREATE TABLE %1$s.integration_logs_resumo ( " +
+                    "        hora DATETIME NOT NULL, " +
+                    "        tipo VARCHAR(20) NOT NULL, " +
+                    "        mensagem VARCHAR(255) NOT NULL, " +
+                    "        quantidade INT NOT NULL, " +
+                    "        primeiro DATETIME NOT NULL, " +
+                    "        ultimo DATETIME NOT NULL, " +
+                    "        CONSTRAINT PK_integration_logs_resumo PRIMARY KEY (hora, tipo, mensagem) " +
+                    "    ) " +
+                    "END",
+                    schema));
+            
+            stmt.execute(String.format(
+                    "IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'integration_logs_arquivo' AND schema_id = SCHEMA_ID('%1$s')) " +
+                    "BEGIN " +
+                    "    CREATE TABLE %1$s.integration_logs_arquivo ( " +
+                    "        id BIGINT NOT NULL PRIMARY KEY, " +
+                    "        timestamp DATETIME NOT NULL, " +
+                    "        tipo VARCHAR(20) NOT NULL, " +
+                    "        mensagem VARCHAR(255) NOT NULL, " +
+                    "        detalhes_gzip VARBINARY(MAX) NULL " +
+                    "    ) " +
+                    "END",
+                    schema));
+        }
+        
+        criarIndiceSeNaoExistir(conn, schema + ".integration_logs_arquivo", "IX_integration_logs_arquivo_timestamp",
+                "(timestamp)");
+    }
+    
+    /**
+     * Habilita o isolamento SNAPSHOT no banco, usado pelas conexões de leitura.
+     * Exige permissão ALTER DATABASE; sem ela, as leituras seguem em READ COMMITTED.
+     * @return true se o isolamento SNAPSHOT ficou habilitado
+     */
+    private boolean habilitarSnapshot(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("IF NOT EXISTS (SELECT * FROM sys.databases WHERE database_id = DB_ID() " +
+                    "    AND snapshot_isolation_state = 1) " +
+                    "    ALTER DATABASE CURRENT SET ALLOW_SNAPSHOT_ISOLATION ON");
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Não foi possível habilitar ALLOW_SNAPSHOT_ISOLATION; " +
+                    "peça ao administrador do banco para habilitá-lo", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Controle de alterações para atualização incremental: uma coluna rowversion nos
+     * lançamentos e uma tabela de exclusões alimentada por trigger. O contador de
+     * rowversion é único no banco, então as duas colunas podem ser comparadas entre si.
+     */
+    private void criarControleAlteracoes(Connection conn) throws SQLException {
+        String schema = config.getSqlServerSchema();
+        String tabela = schema + ".lancamentos_contabeis";
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF COL_LENGTH('%1$s', 'versao_linha') IS NULL " +
+                    "    ALTER TABLE %1$s ADD versao_linha ROWVERSION NOT NULL",
+                    tabela));
+            
+            stmt.execute(String.format(
+                    "IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'lancamentos_excluidos' AND schema_id = SCHEMA_ID('%1$s')) " +
+                    "BEGIN " +
+                    "    CREATE TABLE %1$s.lancamentos_excluidos ( " +
+                    "        id BIGINT NOT NULL, " +
+                    "        excluido_em DATETIME NOT NULL DEFAULT GETDATE(), " +
+                    "        versao_linha ROWVERSION NOT NULL " +
+                    "    ) " +
+                    "END",
+                    schema));
+            
+            stmt.execute(String.format(
+                    "IF OBJECT_ID('%1$s.TR_lancamentos_exclusao', 'TR') IS NULL " +
+                    "    EXEC('CREATE TRIGGER %1$s.TR_lancamentos_exclusao ON %1$s.lancamentos_contabeis AFTER DELETE AS " +
+                    "    BEGIN " +
+                    "        SET NOCOUNT ON; " +
+                    "        INSERT INTO %1$s.lancamentos_excluidos (id) SELECT id FROM deleted; " +
+                    "    END')",
+                    schema));
+        }
+        
+        String opcoes = suportaIndiceOnline(conn) ? " WITH (ONLINE = ON)" : "";
+        criarIndiceSeNaoExistir(conn, tabela, "IX_lancamentos_versao_linha", "(versao_linha)" + opcoes);
+        criarIndiceSeNaoExistir(conn, schema + ".lancamentos_excluidos", "IX_lancamentos_excluidos_versao_linha",
+                "(versao_linha) INCLUDE (id)");
+    }
+    
+    /**
+     * Lote devolvido pela API no envio; o índice filtrado cobre só os lançamentos
+     * enviados que ainda aguardam confirmação.
+     */
+    private void criarColunaLoteApi(Connection conn) throws SQLException {
+        String tabela = config.getSqlServerSchema() + ".lancamentos_contabeis";
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF COL_LENGTH('%1$s', 'lote_id') IS NULL " +
+                    "    ALTER TABLE %1$s ADD lote_id VARCHAR(100) NULL",
+                    tabela));
+        }
+        
+        String opcoes = suportaIndiceOnline(conn) ? " WITH (ONLINE = ON)" : "";
+        criarIndiceSeNaoExistir(conn, tabela, "IX_lancamentos_lote_id",
+                "(lote_id) WHERE lote_id IS NOT NULL AND status_codigo = 1" + opcoes);
+    }
+    
+    private void criarIndiceSeNaoExistir(Connection conn, String tabela, String indice, String definicao)
+            throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(
+                    "IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = '%2$s' AND object_id = OBJECT_ID('%1$s')) " +
+                    "    CREATE NONCLUSTERED INDEX %2$s ON %1$s %3$s",
+                    tabela, indice, definicao));
+        }
+    }
+    
+    private boolean colunaExiste(Connection conn, String tabela, String coluna) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COL_LENGTH(?, ?)")) {
+            stmt.setString(1, tabela);
+            stmt.setString(2, coluna);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getObject(1) != null;
+            }
+        }
+    }
+    
+    private boolean suportaIndiceOnline(Connection conn) throws SQLException {
+        // 3 = Enterprise/Developer, 5 = Azure SQL Database, 8 = Azure SQL Managed Instance
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CAST(SERVERPROPERTY('EngineEdition') AS INT)")) {
+            if (rs.next()) {
+                int edicao = rs.getInt(1);
+                return edicao == 3 || edicao == 5 || edicao == 8;
+            }
+            return false;
+        }
+    }
+    
     public void testConnection() throws SQLException {
-        try (Connection conn = getConnection()) {
+        carregarDriver();
+        
+        // Conexão direta, sem pool: os parâmetros testados podem ainda não estar salvos
+        try (Connection conn = DriverManager.getConnection(
+                config.getJdbcUrl(), config.getSqlServerUser(), config.getSqlServerPassword())) {
             if (conn != null && !conn.isClosed()) {
                 logger.info("Conexão com o SQL Server estabelecida com sucesso");
             }
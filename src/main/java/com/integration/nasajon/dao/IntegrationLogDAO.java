@@ -7,21 +7,125 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class IntegrationLogDAO {
     private static final Logger logger = Logger.getLogger(IntegrationLogDAO.class.getName());
     
+    // Um gravador assíncrono por banco/schema, compartilhado por todas as instâncias do DAO
+    private static final Map<String, AsyncLogWriter> escritores = new ConcurrentHashMap<>();
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(IntegrationLogDAO::encerrarEscritores, "log-async-shutdown"));
+    }
+    
     private final DatabaseManager dbManager;
     private final String schema;
+    private final AsyncLogWriter escritor;
     
     public IntegrationLogDAO(IntegrationConfig config) {
         this.dbManager = new DatabaseManager(config);
         this.schema = config.getSqlServerSchema();
+        
+        if (config.isLogAsyncEnabled()) {
+            this.escritor = escritores.computeIfAbsent(config.getJdbcUrl() + "|" + schema, k -> new AsyncLogWriter(
+                    config.getSqlServerDatabase() + "." + schema,
+                    config.getLogAsyncCapacity(),
+                    config.getLogAsyncBatchSize(),
+                    config.getLogAsyncLingerMs(),
+                    politicaOverflow(config.getLogAsyncOverflow()),
+                    this::inserirLote));
+        } else {
+            this.escritor = null;
+        }
+    }
+    
+    /**
+     * Política de log.async.overflow; um valor desconhecido usa a padrão (BLOQUEAR)
+     */
+    private static AsyncLogWriter.PoliticaOverflow politicaOverflow(String valor) {
+        if (valor != null) {
+            try {
+                return AsyncLogWriter.PoliticaOverflow.valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                // valor inválido: usar a política padrão
+            }
+        }
+        logger.warning("Valor inválido em log.async.overflow: " + valor + ". Usando BLOQUEAR");
+        return AsyncLogWriter.PoliticaOverflow.BLOQUEAR;
     }
     
+    /**
+     * Salva o log. Com log assíncrono habilitado, o log é apenas enfileirado
+     * e gravado em lote por uma thread de fundo (o id não é preenchido).
+     * @param log Log a ser salvo
+     */
     public void salvar(IntegrationLog log) {
+        if (escritor != null) {
+            escritor.enfileirar(log);
+        } else {
+            salvarSincrono(log);
+        }
+    }
+    
+    /**
+     * Aguarda a gravação dos logs enfileirados até o momento (sem efeito no modo síncrono)
+     */
+    public void flush() {
+        if (escritor != null && !escritor.flush(5000)) {
+            logger.warning("Tempo esgotado aguardando gravação dos logs pendentes");
+        }
+    }
+    
+    /**
+     * Grava os logs pendentes e encerra os gravadores assíncronos
+     */
+    public static void encerrarEscritores() {
+        for (AsyncLogWriter escritor : escritores.values()) {
+            escritor.close(10000);
+        }
+        escritores.clear();
+    }
+    
+    private void inserirLote(List<IntegrationLog> logs) throws SQLException {
+        String sql = String.format(
+                "INSERT INTO %s.integration_logs (timestamp, tipo, mensagem, detalhes) VALUES (?, ?, ?, ?)",
+                schema);
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            
+            try {
+                for (IntegrationLog log : logs) {
+                    // Uma mensagem longa demais não pode derrubar o lote inteiro
+                    stmt.setTimestamp(1, Timestamp.valueOf(log.getTimestamp()));
+                    stmt.setString(2, truncar(log.getTipo(), 20));
+                    stmt.setString(3, truncar(log.getMensagem(), 255));
+                    stmt.setString(4, log.getDetalhes());
+                    stmt.addBatch();
+                }
+                
+                stmt.executeBatch();
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private static String truncar(String valor, int tamanho) {
+        return valor != null && valor.length() > tamanho ? valor.substring(0, tamanho) : valor;
+    }
+    
+    private void salvarSincrono(IntegrationLog log) {
         String sql = String.format(
                 "INSERT INTO %s.integration_logs (timestamp, tipo, mensagem, detalhes) VALUES (?, ?, ?, ?)",
                 schema);
@@ -102,7 +206,7 @@ public class IntegrationLogDAO {
         return logs;
     }
     
-    private IntegrationLog mapResultSetToLog(ResultSet rs) throws SQLException {
+    static IntegrationLog mapResultSetToLog(ResultSet rs) throws SQLException {
         Long id = rs.getLong("id");
         LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
         String tipo = rs.getString("tipo");
@@ -0,0 +1,86 @@
+package com.integration.nasajon.dao;
+
+import com.integration.nasajon.model.LancamentoContabil;
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Fonte de dados do bulk copy que lê os lançamentos de um Iterator sob demanda,
+ * sem precisar ter a carga inteira em memória.
+ */
+class LancamentoBulkData implements ISQLServerBulkData {
+    private static final long serialVersionUID = 1L;
+    
+    // Colunas de origem, na ordem usada em getRowData
+    static final String[] COLUNAS = {"conta", "historico", "valor", "data", "natureza", "status_codigo"};
+    private static final int[] TIPOS = {Types.VARCHAR, Types.VARCHAR, Types.DECIMAL, Types.DATE, Types.CHAR, Types.TINYINT};
+    private static final int[] PRECISOES = {50, 255, 18, 10, 1, 3};
+    private static final int[] ESCALAS = {0, 0, 2, 0, 0, 0};
+    
+    private final transient Iterator<LancamentoContabil> lancamentos;
+    private transient LancamentoContabil atual;
+    private long linhasLidas;
+    
+    LancamentoBulkData(Iterator<LancamentoContabil> lancamentos) {
+        this.lancamentos = lancamentos;
+    }
+    
+    @Override
+    public Set<Integer> getColumnOrdinals() {
+        return Set.of(1, 2, 3, 4, 5, 6);
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUNAS[column - 1];
+    }
+    
+    @Override
+    public int getColumnType(int column) {
+        return TIPOS[column - 1];
+    }
+    
+    @Override
+    public int getPrecision(int column) {
+        return PRECISOES[column - 1];
+    }
+    
+    @Override
+    public int getScale(int column) {
+        return ESCALAS[column - 1];
+    }
+    
+    @Override
+    public boolean next() {
+        if (!lancamentos.hasNext()) {
+            atual = null;
+            return false;
+        }
+        atual = lancamentos.next();
+        linhasLidas++;
+        return true;
+    }
+    
+    @Override
+    public Object[] getRowData() throws SQLException {
+        return new Object[]{
+                atual.getConta(),
+                atual.getHistorico(),
+                BigDecimal.valueOf(atual.getValor()).setScale(2, RoundingMode.HALF_UP),
+                atual.getData() != null ? Date.valueOf(atual.getData()) : null,
+                atual.getNatureza(),
+                (short) LancamentoContabilDAO.codigoDoStatus(atual)
+        };
+    }
+    
+    long getLinhasLidas() {
+        return linhasLidas;
+    }
+}
@@ -0,0 +1,166 @@
+package com.integration.nasajon.dao;
+
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Mantém uma lista de lançamentos filtrada e ordenada por data e id (decrescentes)
+ * sincronizada com o banco. Depois da carga completa, cada atualização aplica apenas
+ * as alterações desde o último token (ver ConsultaDAO.buscarAlteracoes). Um token mais
+ * antigo que o prazo do registro de exclusões provoca uma nova carga completa.
+ *
+ * A lista de destino é alterada no lugar; na interface, deve ser acessada apenas
+ * pela thread da aplicação JavaFX.
+ */
+public class LancamentoCache {
+    private static final Logger logger = Logger.getLogger(LancamentoCache.class.getName());
+    
+    private static final Comparator<LancamentoContabil> ORDEM = Comparator
+            .comparing(LancamentoContabil::getData, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(LancamentoContabil::getId, Comparator.reverseOrder());
+    
+    /**
+     * Consulta usada na carga completa
+     */
+    public interface ConsultaCompleta {
+        List<LancamentoContabil> consultar() throws SQLException;
+    }
+    
+    private final ConsultaDAO consultaDAO;
+    private final List<LancamentoContabil> destino;
+    private final Map<Long, LancamentoContabil> porId = new HashMap<>();
+    private Predicate<LancamentoContabil> filtro = l -> true;
+    private ConsultaCompleta consulta;
+    private long token = -1;
+    private long tokenObtidoEm;
+    
+    public LancamentoCache(ConsultaDAO consultaDAO, List<LancamentoContabil> destino) {
+        this.consultaDAO = consultaDAO;
+        this.destino = destino;
+    }
+    
+    /**
+     * Substitui o conteúdo da lista pelo resultado da consulta
+     * @param filtro Critério equivalente ao da consulta, aplicado às alterações seguintes
+     * @param consulta Consulta completa com o mesmo critério
+     */
+    public void recarregar(Predicate<LancamentoContabil> filtro, ConsultaCompleta consulta) throws SQLException {
+        // Token antes da consulta: alterações concorrentes voltam no próximo delta
+        long obtidoEm = System.nanoTime();
+        long novoToken = consultaDAO.obterTokenAlteracoes();
+        List<LancamentoContabil> lista = consulta.consultar();
+        lista.sort(ORDEM);
+        
+        this.filtro = filtro;
+        this.consulta = consulta;
+        this.token = novoToken;
+        this.tokenObtidoEm = obtidoEm;
+        porId.clear();
+        for (LancamentoContabil lancamento : lista) {
+            porId.put(lancamento.getId(), lancamento);
+        }
+        destino.clear();
+        destino.addAll(lista);
+    }
+    
+    /**
+     * Aplica à lista as alterações desde a última carga ou atualização
+     * @return Quantidade de lançamentos incluídos, alterados ou removidos da lista
+     *         (o tamanho da lista quando foi preciso recarregar)
+     */
+    public int atualizar() throws SQLException {
+        if (token < 0) {
+            throw new IllegalStateException("Cache de lançamentos ainda não carregado");
+        }
+        
+        if (System.nanoTime() - tokenObtidoEm > consultaDAO.getValidadeTokenAlteracoes().toNanos()) {
+            logger.info("Token de alterações expirado; recarregando a lista de lançamentos");
+            recarregar(filtro, consulta);
+            return destino.size();
+        }
+        
+        long obtidoEm = System.nanoTime();
+        ConsultaDAO.Alteracoes alteracoes = consultaDAO.buscarAlteracoes(token);
+        token = alteracoes.getToken();
+        tokenObtidoEm = obtidoEm;
+        
+        int aplicadas = 0;
+        for (Long id : alteracoes.getExcluidos()) {
+            LancamentoContabil antigo = porId.remove(id);
+            if (antigo != null) {
+                remover(antigo);
+                aplicadas++;
+            }
+        }
+        
+        for (LancamentoContabil novo : alteracoes.getAlterados()) {
+            LancamentoContabil antigo = porId.remove(novo.getId());
+            boolean visivel = filtro.test(novo);
+            
+            if (antigo == null && !visivel) {
+                continue;
+            }
+            aplicadas++;
+            
+            int posicao = antigo != null ? posicaoDe(antigo) : -1;
+            if (visivel && posicao >= 0 && cabeEm(posicao, novo)) {
+                // A ordem não mudou: substituir sem deslocar a lista
+                destino.set(posicao, novo);
+            } else {
+                if (posicao >= 0) {
+                    destino.remove(posicao);
+                }
+                if (visivel) {
+                    int insercao = Collections.binarySearch(destino, novo, ORDEM);
+                    destino.add(insercao < 0 ? -insercao - 1 : insercao, novo);
+                }
+            }
+            
+            if (visivel) {
+                porId.put(novo.getId(), novo);
+            }
+        }
+        
+        if (aplicadas > 0) {
+            logger.fine(aplicadas + " alterações de lançamentos aplicadas");
+        }
+        return aplicadas;
+    }
+    
+    private void remover(LancamentoContabil lancamento) {
+        int posicao = posicaoDe(lancamento);
+        if (posicao >= 0) {
+            destino.remove(posicao);
+        }
+    }
+    
+    /**
+     * Posição do objeto na lista. Se ele foi alterado no lugar (por exemplo, pelo formulário
+     * de edição), a busca binária pode não encontrá-lo e a lista é percorrida.
+     */
+    private int posicaoDe(LancamentoContabil lancamento) {
+        int posicao = Collections.binarySearch(destino, lancamento, ORDEM);
+        if (posicao >= 0 && destino.get(posicao) == lancamento) {
+            return posicao;
+        }
+        for (int i = 0; i < destino.size(); i++) {
+            if (destino.get(i) == lancamento) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean cabeEm(int posicao, LancamentoContabil lancamento) {
+        return (posicao == 0 || ORDEM.compare(destino.get(posicao - 1), lancamento) < 0) &&
+                (posicao == destino.size() - 1 || ORDEM.compare(lancamento, destino.get(posicao + 1)) < 0);
+    }
+}
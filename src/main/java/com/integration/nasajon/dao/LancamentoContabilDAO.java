@@ -2,23 +2,50 @@ package com.integration.nasajon.dao;
 
 import com.integration.nasajon.config.IntegrationConfig;
 import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.model.StatusLancamento;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class LancamentoContabilDAO {
     private static final Logger logger = Logger.getLogger(LancamentoContabilDAO.class.getName());
     
+    // Limite de parâmetros por comando do SQL Server é 2100
+    private static final int MAX_IDS_POR_COMANDO = 2000;
+    
     private final DatabaseManager dbManager;
     private final String schema;
+    private final int updateChunkSize;
+    private final int fetchSize;
+    private final int bulkBatchSize;
+    private final int bulkTimeoutSeconds;
+    private final boolean bulkTableLock;
     
     public LancamentoContabilDAO(IntegrationConfig config) {
         this.dbManager = new DatabaseManager(config);
         this.schema = config.getSqlServerSchema();
+        this.updateChunkSize = Math.max(1, Math.min(config.getUpdateChunkSize(), MAX_IDS_POR_COMANDO));
+        this.fetchSize = config.getFetchSize();
+        this.bulkBatchSize = Math.max(1, config.getBulkBatchSize());
+        this.bulkTimeoutSeconds = config.getBulkTimeoutSeconds();
+        this.bulkTableLock = config.isBulkTableLock();
     }
     
     public void salvar(LancamentoContabil lancamento) {
@@ -27,14 +54,14 @@ public class LancamentoContabilDAO {
         if (lancamento.getId() == null) {
             // Insert
             sql = String.format(
-                    "INSERT INTO %s.lancamentos_contabeis (conta, historico, valor, data, natureza, status, mensagem_erro, data_envio) " +
+                    "INSERT INTO %s.lancamentos_contabeis (conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
                     schema);
         } else {
             // Update
             sql = String.format(
                     "UPDATE %s.lancamentos_contabeis SET " +
-                    "conta = ?, historico = ?, valor = ?, data = ?, natureza = ?, status = ?, mensagem_erro = ?, data_envio = ? " +
+                    "conta = ?, historico = ?, valor = ?, data = ?, natureza = ?, status_codigo = ?, mensagem_erro = ?, data_envio = ? " +
                     "WHERE id = ?",
                     schema);
         }
@@ -47,7 +74,7 @@ public class LancamentoContabilDAO {
             stmt.setDouble(3, lancamento.getValor());
             stmt.setDate(4, lancamento.getData() != null ? Date.valueOf(lancamento.getData()) : null);
             stmt.setString(5, lancamento.getNatureza());
-            stmt.setString(6, lancamento.getStatus());
+            stmt.setInt(6, codigoDoStatus(lancamento));
             stmt.setString(7, lancamento.getMensagemErro());
             stmt.setDate(8, lancamento.getDataEnvio() != null ? Date.valueOf(lancamento.getDataEnvio()) : null);
             
@@ -70,12 +97,162 @@ public class LancamentoContabilDAO {
                     }
                 }
             }
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao salvar lançamento contábil", e);
         }
     }
     
+    /**
+     * Insere um fluxo de lançamentos em massa
+     * @param lancamentos Lançamentos a inserir, consumidos sob demanda
+     * @return Resultado da carga (linhas inseridas e taxa)
+     * @see #salvarEmLote(Iterator)
+     */
+    public ResultadoCarga salvarEmLote(Stream<LancamentoContabil> lancamentos) {
+        return salvarEmLote(lancamentos.iterator());
+    }
+    
+    /**
+     * Insere lançamentos em massa usando o bulk copy do SQL Server, com JDBC batch
+     * como alternativa quando o bulk copy não está disponível. Os lançamentos são lidos
+     * do Iterator sob demanda e cada lote é confirmado separadamente; os ids gerados
+     * não são devolvidos.
+     * @param lancamentos Lançamentos a inserir
+     * @return Resultado da carga (linhas inseridas e taxa). Se a carga falhar, o método é "falha"
+     *         e as linhas são as dos lotes já confirmados antes do erro.
+     */
+    public ResultadoCarga salvarEmLote(Iterator<LancamentoContabil> lancamentos) {
+        long inicio = System.nanoTime();
+        AtomicLong confirmadas = new AtomicLong();
+        
+        try (Connection conn = dbManager.getConnection()) {
+            
+            if (conn.isWrapperFor(SQLServerConnection.class)) {
+                LancamentoBulkData dados = new LancamentoBulkData(lancamentos);
+                try {
+                    inserirComBulkCopy(conn.unwrap(SQLServerConnection.class), dados);
+                    return registrarCarga("bulk copy", dados.getLinhasLidas(), inicio);
+                
+                } catch (SQLException e) {
+                    // Só é seguro trocar de estratégia se nenhuma linha foi consumida
+                    if (dados.getLinhasLidas() > 0) {
+                        confirmadas.set(linhasConfirmadasNoBulkCopy(dados.getLinhasLidas()));
+                        throw e;
+                    }
+                    logger.log(Level.WARNING, "Bulk copy indisponível, usando JDBC batch", e);
+                }
+            }
+            
+            long linhas = inserirComBatch(conn, lancamentos, confirmadas);
+            return registrarCarga("JDBC batch", linhas, inicio);
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao inserir lançamentos contábeis em lote. Lançamentos já confirmados: " +
+                    confirmadas.get(), e);
+        }
+        
+        return new ResultadoCarga("falha", confirmadas.get(), System.nanoTime() - inicio);
+    }
+    
+    /**
+     * Com a transação interna do bulk copy, cada lote completo de bulk.batch.size linhas é
+     * confirmado antes de o próximo ser lido; só o lote em andamento é desfeito pelo erro
+     */
+    private long linhasConfirmadasNoBulkCopy(long linhasLidas) {
+        return (linhasLidas - 1) / bulkBatchSize * bulkBatchSize;
+    }
+    
+    private void inserirComBulkCopy(SQLServerConnection conn, LancamentoBulkData dados) throws SQLException {
+        SQLServerBulkCopyOptions opcoes = new SQLServerBulkCopyOptions();
+        opcoes.setBatchSize(bulkBatchSize);
+        opcoes.setBulkCopyTimeout(bulkTimeoutSeconds);
+        opcoes.setUseInternalTransaction(true);
+        opcoes.setTableLock(bulkTableLock);
+        opcoes.setCheckConstraints(true);
+        
+        try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(conn)) {
+            bulkCopy.setBulkCopyOptions(opcoes);
+            bulkCopy.setDestinationTableName(schema + ".lancamentos_contabeis");
+            for (int i = 0; i < LancamentoBulkData.COLUNAS.length; i++) {
+                bulkCopy.addColumnMapping(i + 1, LancamentoBulkData.COLUNAS[i]);
+            }
+            bulkCopy.writeToServer(dados);
+        }
+    }
+    
+    private long inserirComBatch(Connection conn, Iterator<LancamentoContabil> lancamentos,
+                                 AtomicLong confirmadas) throws SQLException {
+        String sql = String.format(
+                "INSERT INTO %s.lancamentos_contabeis (conta, historico, valor, data, natureza, status_codigo) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                schema);
+        
+        long linhas = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            
+            try {
+                int noLote = 0;
+                while (lancamentos.hasNext()) {
+                    LancamentoContabil lancamento = lancamentos.next();
+                    stmt.setString(1, lancamento.getConta());
+                    stmt.setString(2, lancamento.getHistorico());
+                    stmt.setDouble(3, lancamento.getValor());
+                    stmt.setDate(4, lancamento.getData() != null ? Date.valueOf(lancamento.getData()) : null);
+                    stmt.setString(5, lancamento.getNatureza());
+                    stmt.setInt(6, codigoDoStatus(lancamento));
+                    stmt.addBatch();
+                    
+                    if (++noLote == bulkBatchSize) {
+                        stmt.executeBatch();
+                        conn.commit();
+                        linhas += noLote;
+                        confirmadas.set(linhas);
+                        noLote = 0;
+                    }
+                }
+                
+                if (noLote > 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                    linhas += noLote;
+                    confirmadas.set(linhas);
+                }
+            
+            } catch (SQLException e) {
+                conn.rollback();
+                logger.log(Level.SEVERE, "Carga interrompida após " + linhas + " lançamentos", e);
+                throw e;
+            }
+        }
+        return linhas;
+    }
+    
+    /**
+     * Código gravado em status_codigo; sem status, o lançamento fica PENDENTE
+     * @throws SQLException se o status não for um StatusLancamento, para que o erro siga o
+     *         tratamento das demais falhas de gravação
+     */
+    static int codigoDoStatus(LancamentoContabil lancamento) throws SQLException {
+        String nome = lancamento.getStatus();
+        if (nome == null || nome.isBlank()) {
+            return StatusLancamento.PENDENTE.getCodigo();
+        }
+        StatusLancamento status = StatusLancamento.fromNome(nome);
+        if (status == null) {
+            throw new SQLException("Status desconhecido no lançamento " +
+                    (lancamento.getId() != null ? lancamento.getId() : "novo") + ": " + nome);
+        }
+        return status.getCodigo();
+    }
+    
+    private ResultadoCarga registrarCarga(String metodo, long linhas, long inicio) {
+        ResultadoCarga resultado = new ResultadoCarga(metodo, linhas, System.nanoTime() - inicio);
+        logger.info(resultado.toString());
+        return resultado;
+    }
+    
     public void excluir(Long id) {
         String sql = String.format("DELETE FROM %s.lancamentos_contabeis WHERE id = ?", schema);
         
@@ -84,7 +261,7 @@ public class LancamentoContabilDAO {
             
             stmt.setLong(1, id);
             stmt.executeUpdate();
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao excluir lançamento contábil", e);
         }
@@ -92,7 +269,7 @@ public class LancamentoContabilDAO {
     
     public LancamentoContabil buscarPorId(Long id) {
         String sql = String.format(
-                "SELECT id, conta, historico, valor, data, natureza, status, mensagem_erro, data_envio " +
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
                 "FROM %s.lancamentos_contabeis WHERE id = ?",
                 schema);
         
@@ -106,7 +283,7 @@ public class LancamentoContabilDAO {
                     return mapResultSetToLancamento(rs);
                 }
             }
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao buscar lançamento contábil por ID", e);
         }
@@ -118,7 +295,7 @@ public class LancamentoContabilDAO {
         List<LancamentoContabil> lancamentos = new ArrayList<>();
         
         String sql = String.format(
-                "SELECT id, conta, historico, valor, data, natureza, status, mensagem_erro, data_envio " +
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
                 "FROM %s.lancamentos_contabeis ORDER BY data DESC, id DESC",
                 schema);
         
@@ -129,7 +306,7 @@ public class LancamentoContabilDAO {
             while (rs.next()) {
                 lancamentos.add(mapResultSetToLancamento(rs));
             }
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao listar lançamentos contábeis", e);
         }
@@ -137,25 +314,24 @@ public class LancamentoContabilDAO {
         return lancamentos;
     }
     
-    public List<LancamentoContabil> buscarPorStatus(String status) {
+    public List<LancamentoContabil> buscarPorStatus(StatusLancamento status) {
         List<LancamentoContabil> lancamentos = new ArrayList<>();
         
+        // O código do status vai literal no SQL para que o otimizador possa usar o índice filtrado
         String sql = String.format(
-                "SELECT id, conta, historico, valor, data, natureza, status, mensagem_erro, data_envio " +
-                "FROM %s.lancamentos_contabeis WHERE status = ? ORDER BY data DESC, id DESC",
-                schema);
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %s.lancamentos_contabeis WHERE status_codigo = %d ORDER BY data DESC, id DESC",
+                schema, status.getCodigo());
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, status);
-            
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     lancamentos.add(mapResultSetToLancamento(rs));
                 }
             }
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao buscar lançamentos contábeis por status", e);
         }
@@ -167,7 +343,7 @@ public class LancamentoContabilDAO {
         List<LancamentoContabil> lancamentos = new ArrayList<>();
         
         String sql = String.format(
-                "SELECT id, conta, historico, valor, data, natureza, status, mensagem_erro, data_envio " +
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
                 "FROM %s.lancamentos_contabeis WHERE data BETWEEN ? AND ? ORDER BY data DESC, id DESC",
                 schema);
         
@@ -182,7 +358,7 @@ public class LancamentoContabilDAO {
                     lancamentos.add(mapResultSetToLancamento(rs));
                 }
             }
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao buscar lançamentos contábeis por período", e);
         }
@@ -190,37 +366,640 @@ public class LancamentoContabilDAO {
         return lancamentos;
     }
     
-    public void atualizarStatus(Long id, String status, String mensagemErro) {
+    public void atualizarStatus(Long id, StatusLancamento status, String mensagemErro) {
         String sql = String.format(
-                "UPDATE %s.lancamentos_contabeis SET status = ?, mensagem_erro = ?, data_envio = ? WHERE id = ?",
+                "UPDATE %s.lancamentos_contabeis SET status_codigo = ?, mensagem_erro = ?, data_envio = ?, " +
+                "lease_owner = NULL, lease_expira_em = NULL WHERE id = ?",
                 schema);
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, status);
+            stmt.setInt(1, status.getCodigo());
             stmt.setString(2, mensagemErro);
-            stmt.setDate(3, status.equals("ENVIADO") ? Date.valueOf(LocalDate.now()) : null);
+            stmt.setDate(3, status == StatusLancamento.ENVIADO ? Date.valueOf(LocalDate.now()) : null);
             stmt.setLong(4, id);
             
             stmt.executeUpdate();
-            
+        
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Erro ao atualizar status do lançamento contábil", e);
         }
     }
     
-    private LancamentoContabil mapResultSetToLancamento(ResultSet rs) throws SQLException {
+    /**
+     * Atualiza o status de vários lançamentos em uma única transação e uma única ida ao banco.
+     * Os ids são divididos em blocos de tamanho fixo (um UPDATE por bloco, enviados juntos
+     * via JDBC batch), mantendo cada comando abaixo do limite de escalonamento de bloqueios.
+     * @param ids Identificadores dos lançamentos
+     * @param status Novo status
+     * @param mensagemErro Mensagem de erro (ou null)
+     * @return Número de lançamentos atualizados
+     */
+    public int atualizarStatusEmLote(Collection<Long> ids, StatusLancamento status, String mensagemErro) {
+        return atualizarStatusEmLote(ids, status, mensagemErro, null);
+    }
+    
+    /**
+     * Como atualizarStatusEmLote, registrando também o lote da API que recebeu os lançamentos
+     * @param loteId Identificador do lote na API (null mantém o atual)
+     */
+    public int atualizarStatusEmLote(Collection<Long> ids, StatusLancamento status, String mensagemErro,
+                                     String loteId) {
+        return atualizarStatusEmLote(ids, status, mensagemErro, loteId, null);
+    }
+    
+    /**
+     * Como atualizarStatusEmLote, alterando só os lançamentos ainda reservados pelo dono informado.
+     * Se a reserva expirou e outro worker reivindicou o lançamento, o status dele é preservado.
+     * @param leaseOwner Dono da reserva (null atualiza sem verificar a reserva)
+     */
+    public int atualizarStatusEmLote(Collection<Long> ids, StatusLancamento status, String mensagemErro,
+                                     String loteId, String leaseOwner) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        
+        // Todos os blocos usam o mesmo comando; o último é completado repetindo o último id
+        int tamanhoBloco = Math.min(updateChunkSize, ids.size());
+        
+        StringBuilder parametros = new StringBuilder();
+        for (int i = 0; i < tamanhoBloco; i++) {
+            parametros.append(i == 0 ? "?" : ", ?");
+        }
+        
+        String sql = String.format(
+                "UPDATE %s.lancamentos_contabeis SET status_codigo = ?, mensagem_erro = ?, data_envio = ?, " +
+                "lote_id = COALESCE(?, lote_id), lease_owner = NULL, lease_expira_em = NULL WHERE id IN (%s)%s",
+                schema, parametros, leaseOwner != null ? " AND lease_owner = ?" : "");
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            
+            try {
+                Date dataEnvio = status == StatusLancamento.ENVIADO ? Date.valueOf(LocalDate.now()) : null;
+                
+                int posicao = 0;
+                Long ultimoId = null;
+                for (Long id : ids) {
+                    if (posicao == 0) {
+                        stmt.setInt(1, status.getCodigo());
+                        stmt.setString(2, mensagemErro);
+                        stmt.setDate(3, dataEnvio);
+                        stmt.setString(4, loteId);
+                        if (leaseOwner != null) {
+                            stmt.setString(5 + tamanhoBloco, leaseOwner);
+                        }
+                    }
+                    stmt.setLong(5 + posicao, id);
+                    ultimoId = id;
+                    
+                    if (++posicao == tamanhoBloco) {
+                        stmt.addBatch();
+                        posicao = 0;
+                    }
+                }
+                
+                if (posicao > 0) {
+                    for (; posicao < tamanhoBloco; posicao++) {
+                        stmt.setLong(5 + posicao, ultimoId);
+                    }
+                    stmt.addBatch();
+                }
+                
+                int atualizados = 0;
+                for (int linhas : stmt.executeBatch()) {
+                    if (linhas > 0) {
+                        atualizados += linhas;
+                    }
+                }
+                
+                conn.commit();
+                return atualizados;
+            
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao atualizar status dos lançamentos contábeis em lote", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Lotes da API com lançamentos ENVIADO aguardando confirmação, em ordem de identificador
+     * @param aposLoteId Último lote da página anterior (null para a primeira página)
+     * @param limite Tamanho da página
+     */
+    public List<String> listarLotesAguardandoConfirmacao(String aposLoteId, int limite) {
+        List<String> lotes = new ArrayList<>(limite);
+        
+        String sql = String.format(
+                "SELECT DISTINCT TOP (?) lote_id FROM %s.lancamentos_contabeis " +
+                "WHERE lote_id IS NOT NULL AND status_codigo = %d AND (? IS NULL OR lote_id > CAST(? AS VARCHAR(100))) " +
+                "ORDER BY lote_id",
+                schema, StatusLancamento.ENVIADO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, limite);
+            stmt.setString(2, aposLoteId);
+            stmt.setString(3, aposLoteId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lotes.add(rs.getString(1));
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao listar lotes aguardando confirmação", e);
+        }
+        
+        return lotes;
+    }
+    
+    /**
+     * Atualiza os lançamentos ainda ENVIADO dos lotes informados, em uma única transação
+     * @param loteIds Identificadores dos lotes na API
+     * @param status Novo status
+     * @param mensagemErro Mensagem de erro (ou null)
+     * @return Número de lançamentos atualizados
+     */
+    public int atualizarStatusPorLote(Collection<String> loteIds, StatusLancamento status, String mensagemErro) {
+        if (loteIds.isEmpty()) {
+            return 0;
+        }
+        
+        String sql = String.format(
+                "UPDATE %s.lancamentos_contabeis SET status_codigo = ?, mensagem_erro = ? " +
+                "WHERE lote_id = CAST(? AS VARCHAR(100)) AND status_codigo = %d",
+                schema, StatusLancamento.ENVIADO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            
+            try {
+                for (String loteId : loteIds) {
+                    stmt.setInt(1, status.getCodigo());
+                    stmt.setString(2, mensagemErro);
+                    stmt.setString(3, loteId);
+                    stmt.addBatch();
+                }
+                
+                int atualizados = 0;
+                for (int linhas : stmt.executeBatch()) {
+                    if (linhas > 0) {
+                        atualizados += linhas;
+                    }
+                }
+                
+                conn.commit();
+                return atualizados;
+            
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao atualizar status dos lançamentos por lote", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Reserva atomicamente uma janela de lançamentos pendentes (ou com reserva expirada)
+     * para o dono informado, movendo-os para EM_PROCESSAMENTO. Linhas já bloqueadas por
+     * outro worker são puladas (READPAST), de modo que vários workers, em threads ou
+     * máquinas diferentes, nunca recebem o mesmo lançamento.
+     * @param quantidade Número máximo de lançamentos
+     * @param leaseOwner Identificador do worker que fica com a reserva
+     * @param leaseSegundos Duração da reserva; depois disso outro worker pode retomá-la
+     * @return Lançamentos reservados, em ordem de (data, id)
+     */
+    public List<LancamentoContabil> reivindicarLote(int quantidade, String leaseOwner, int leaseSegundos) {
+        List<LancamentoContabil> lancamentos = new ArrayList<>(quantidade);
+        
+        String sql = String.format(
+                "WITH fila AS ( " +
+                "    SELECT TOP (?) id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, " +
+                "           data_envio, lease_owner, lease_expira_em " +
+                "    FROM %1$s.lancamentos_contabeis WITH (READPAST, UPDLOCK, ROWLOCK) " +
+                "    WHERE status_codigo = %2$d OR (status_codigo = %3$d AND lease_expira_em < SYSUTCDATETIME()) " +
+                "    ORDER BY data, id) " +
+                "UPDATE fila SET status_codigo = %3$d, lease_owner = ?, " +
+                "    lease_expira_em = DATEADD(SECOND, ?, SYSUTCDATETIME()) " +
+                "OUTPUT inserted.id, inserted.conta, inserted.historico, inserted.valor, inserted.data, " +
+                "    inserted.natureza, inserted.status_codigo, inserted.mensagem_erro, inserted.data_envio",
+                schema, StatusLancamento.PENDENTE.getCodigo(), StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, quantidade);
+            stmt.setString(2, leaseOwner);
+            stmt.setInt(3, leaseSegundos);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lancamentos.add(mapResultSetToLancamento(rs));
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao reservar lote de lançamentos contábeis", e);
+        }
+        
+        // OUTPUT não garante a ordem do ORDER BY interno
+        lancamentos.sort(Comparator.comparing(LancamentoContabil::getData).thenComparing(LancamentoContabil::getId));
+        return lancamentos;
+    }
+    
+    /**
+     * Devolve para PENDENTE os lançamentos cuja reserva expirou (worker que caiu no meio do envio)
+     * @return Número de lançamentos liberados
+     */
+    public int liberarLeasesExpirados() {
+        String sql = String.format(
+                "UPDATE %s.lancamentos_contabeis SET status_codigo = %d, lease_owner = NULL, lease_expira_em = NULL " +
+                "WHERE status_codigo = %d AND lease_expira_em < SYSUTCDATETIME()",
+                schema, StatusLancamento.PENDENTE.getCodigo(), StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            int liberados = stmt.executeUpdate(sql);
+            if (liberados > 0) {
+                logger.info("Reservas expiradas liberadas: " + liberados + " lançamentos voltaram para PENDENTE");
+            }
+            return liberados;
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao liberar reservas expiradas", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Reserva para o dono informado todos os lançamentos pendentes (ou com reserva expirada),
+     * em blocos de UPDATE TOP sem trazer as linhas para a aplicação. Usado pela exportação
+     * em arquivo, que depois lê os reservados com percorrerReservados.
+     * @param leaseOwner Identificador do dono da reserva
+     * @param leaseSegundos Duração da reserva (ver renovarReserva)
+     * @param bloco Linhas reservadas por comando, abaixo do limite de escalonamento de bloqueios
+     * @return Número de lançamentos reservados
+     */
+    public long reservarParaExportacao(String leaseOwner, int leaseSegundos, int bloco) {
+        String sql = String.format(
+                "UPDATE TOP (?) %1$s.lancamentos_contabeis WITH (READPAST, ROWLOCK) " +
+                "SET status_codigo = %3$d, lease_owner = ?, lease_expira_em = DATEADD(SECOND, ?, SYSUTCDATETIME()) " +
+                "WHERE status_codigo = %2$d OR (status_codigo = %3$d AND lease_expira_em < SYSUTCDATETIME())",
+                schema, StatusLancamento.PENDENTE.getCodigo(), StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        long total = 0;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, Math.max(1, bloco));
+            stmt.setString(2, leaseOwner);
+            stmt.setInt(3, leaseSegundos);
+            
+            int reservados;
+            do {
+                reservados = stmt.executeUpdate();
+                total += reservados;
+            } while (reservados >= bloco);
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao reservar lançamentos para exportação", e);
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Lê os lançamentos reservados pelo dono informado, em ordem de (data, id), entregando
+     * uma linha por vez ao consumidor. A consulta fica aberta durante toda a leitura e as
+     * linhas vêm do socket sob demanda, então a memória usada não depende do volume.
+     * @param leaseOwner Identificador do dono da reserva
+     * @param consumidor Recebe cada lançamento; uma IOException interrompe a leitura
+     * @return Número de lançamentos lidos, ou -1 se houve erro no banco
+     */
+    public long percorrerReservados(String leaseOwner, Consumidor consumidor) throws IOException {
+        return percorrerReservados(leaseOwner, "", List.of(), consumidor);
+    }
+    
+    /**
+     * Como percorrerReservados, só para a faixa [de, ate) da ordem (data, id)
+     * @param de Primeira chave da faixa (null = desde o início)
+     * @param ate Primeira chave da faixa seguinte (null = até o fim)
+     */
+    public long percorrerReservados(String leaseOwner, ChaveLancamento de, ChaveLancamento ate,
+                                    Consumidor consumidor) throws IOException {
+        StringBuilder condicao = new StringBuilder();
+        List<Object> parametros = new ArrayList<>();
+        if (de != null) {
+            condicao.append(" AND (data > ? OR (data = ? AND id >= ?))");
+            parametros.addAll(List.of(Date.valueOf(de.getData()), Date.valueOf(de.getData()), de.getId()));
+        }
+        if (ate != null) {
+            condicao.append(" AND (data < ? OR (data = ? AND id < ?))");
+            parametros.addAll(List.of(Date.valueOf(ate.getData()), Date.valueOf(ate.getData()), ate.getId()));
+        }
+        return percorrerReservados(leaseOwner, condicao.toString(), parametros, consumidor);
+    }
+    
+    /**
+     * Como percorrerReservados, só para os lançamentos de uma conta
+     */
+    public long percorrerReservadosDaConta(String leaseOwner, String conta, Consumidor consumidor) throws IOException {
+        return percorrerReservados(leaseOwner, " AND conta = ?", List.of(conta), consumidor);
+    }
+    
+    /**
+     * Como percorrerReservados, só para os lançamentos de um mês
+     */
+    public long percorrerReservadosDoMes(String leaseOwner, YearMonth mes, Consumidor consumidor) throws IOException {
+        return percorrerReservados(leaseOwner, " AND data >= ? AND data < ?",
+                List.of(Date.valueOf(mes.atDay(1)), Date.valueOf(mes.plusMonths(1).atDay(1))), consumidor);
+    }
+    
+    private long percorrerReservados(String leaseOwner, String condicao, List<Object> parametros,
+                                     Consumidor consumidor) throws IOException {
+        String sql = String.format(
+                "SELECT id, conta, historico, valor, data, natureza, status_codigo, mensagem_erro, data_envio " +
+                "FROM %s.lancamentos_contabeis WHERE status_codigo = %d AND lease_owner = ?%s ORDER BY data, id",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo(), condicao);
+        
+        long lidos = 0;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            stmt.setFetchSize(fetchSize);
+            if (stmt.isWrapperFor(SQLServerStatement.class)) {
+                stmt.unwrap(SQLServerStatement.class).setResponseBuffering("adaptive");
+            }
+            stmt.setString(1, leaseOwner);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 2, parametros.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.aceitar(mapResultSetToLancamento(rs));
+                    lidos++;
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao ler lançamentos reservados para exportação", e);
+            return -1;
+        }
+        
+        return lidos;
+    }
+    
+    /**
+     * Divide os lançamentos reservados em faixas consecutivas de (data, id) com o mesmo
+     * número de linhas, para leitura em paralelo
+     * @param faixas Número de faixas desejado (pode vir menos, se houver poucas linhas)
+     * @return Primeira chave de cada faixa, em ordem
+     */
+    public List<ChaveLancamento> dividirReservados(String leaseOwner, int faixas) {
+        List<ChaveLancamento> inicios = new ArrayList<>();
+        
+        String sql = String.format(
+                "SELECT data, id FROM ( " +
+                "    SELECT data, id, ROW_NUMBER() OVER (PARTITION BY faixa ORDER BY data, id) AS posicao, faixa " +
+                "    FROM (SELECT data, id, NTILE(?) OVER (ORDER BY data, id) AS faixa " +
+                "          FROM %s.lancamentos_contabeis WHERE status_codigo = %d AND lease_owner = ?) t) u " +
+                "WHERE posicao = 1 ORDER BY faixa",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, Math.max(1, faixas));
+            stmt.setString(2, leaseOwner);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    inicios.add(new ChaveLancamento(rs.getDate("data").toLocalDate(), rs.getLong("id")));
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao dividir lançamentos reservados em faixas", e);
+        }
+        
+        return inicios;
+    }
+    
+    /**
+     * Contas dos lançamentos reservados, em ordem
+     */
+    public List<String> listarContasReservadas(String leaseOwner) {
+        List<String> contas = new ArrayList<>();
+        
+        String sql = String.format(
+                "SELECT DISTINCT conta FROM %s.lancamentos_contabeis WHERE status_codigo = %d AND lease_owner = ? " +
+                "ORDER BY conta",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, leaseOwner);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    contas.add(rs.getString("conta"));
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao listar contas dos lançamentos reservados", e);
+        }
+        
+        return contas;
+    }
+    
+    /**
+     * Meses dos lançamentos reservados, em ordem
+     */
+    public List<YearMonth> listarMesesReservados(String leaseOwner) {
+        List<YearMonth> meses = new ArrayList<>();
+        
+        String sql = String.format(
+                "SELECT DISTINCT YEAR(data) AS ano, MONTH(data) AS mes FROM %s.lancamentos_contabeis " +
+                "WHERE status_codigo = %d AND lease_owner = ? ORDER BY ano, mes",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, leaseOwner);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    meses.add(YearMonth.of(rs.getInt("ano"), rs.getInt("mes")));
+                }
+            }
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao listar meses dos lançamentos reservados", e);
+        }
+        
+        return meses;
+    }
+    
+    /**
+     * Prorroga a reserva dos lançamentos do dono informado (exportações longas)
+     * @return Número de lançamentos com a reserva prorrogada
+     */
+    public int renovarReserva(String leaseOwner, int leaseSegundos) {
+        String sql = String.format(
+                "UPDATE %s.lancamentos_contabeis SET lease_expira_em = DATEADD(SECOND, ?, SYSUTCDATETIME()) " +
+                "WHERE status_codigo = %d AND lease_owner = ?",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, leaseSegundos);
+            stmt.setString(2, leaseOwner);
+            return stmt.executeUpdate();
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao renovar reserva de lançamentos", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Grava o status final de todos os lançamentos ainda reservados pelo dono informado,
+     * com um único comando, sem precisar da lista de ids
+     * @return Número de lançamentos atualizados
+     */
+    public int finalizarReservados(String leaseOwner, StatusLancamento status, String mensagemErro) {
+        String sql = String.format(
+                "UPDATE %s.lancamentos_contabeis SET status_codigo = ?, mensagem_erro = ?, data_envio = ?, " +
+                "lease_owner = NULL, lease_expira_em = NULL WHERE status_codigo = %d AND lease_owner = ?",
+                schema, StatusLancamento.EM_PROCESSAMENTO.getCodigo());
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, status.getCodigo());
+            stmt.setString(2, mensagemErro);
+            stmt.setDate(3, status == StatusLancamento.ENVIADO ? Date.valueOf(LocalDate.now()) : null);
+            stmt.setString(4, leaseOwner);
+            return stmt.executeUpdate();
+        
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Erro ao finalizar lançamentos reservados", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Gera um identificador de dono de reserva único para este processo (pid@host + sufixo aleatório)
+     * @return Identificador com no máximo 100 caracteres
+     */
+    public static String novoLeaseOwner() {
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" +
+                UUID.randomUUID().toString().substring(0, 8);
+        return owner.length() > 100 ? owner.substring(owner.length() - 100) : owner;
+    }
+    
+    static LancamentoContabil mapResultSetToLancamento(ResultSet rs) throws SQLException {
         Long id = rs.getLong("id");
         String conta = rs.getString("conta");
         String historico = rs.getString("historico");
         double valor = rs.getDouble("valor");
         LocalDate data = rs.getDate("data") != null ? rs.getDate("data").toLocalDate() : null;
         String natureza = rs.getString("natureza");
-        String status = rs.getString("status");
+        String status = StatusLancamento.fromCodigo(rs.getInt("status_codigo")).name();
         String mensagemErro = rs.getString("mensagem_erro");
         LocalDate dataEnvio = rs.getDate("data_envio") != null ? rs.getDate("data_envio").toLocalDate() : null;
         
         return new LancamentoContabil(id, conta, historico, valor, data, natureza, status, mensagemErro, dataEnvio);
     }
+    
+    /**
+     * Recebe os lançamentos lidos por percorrerReservados
+     */
+    @FunctionalInterface
+    public interface Consumidor {
+        void aceitar(LancamentoContabil lancamento) throws IOException;
+    }
+    
+    /**
+     * Posição de um lançamento na ordem (data, id) usada nas leituras em faixas
+     */
+    public static class ChaveLancamento {
+        private final LocalDate data;
+        private final long id;
+        
+        public ChaveLancamento(LocalDate data, long id) {
+            this.data = data;
+            this.id = id;
+        }
+        
+        public LocalDate getData() {
+            return data;
+        }
+        
+        public long getId() {
+            return id;
+        }
+    }
+    
+    /**
+     * Resultado de uma carga em massa
+     */
+    public static class ResultadoCarga {
+        private final String metodo;
+        private final long linhas;
+        private final long duracaoNanos;
+        
+        public ResultadoCarga(String metodo, long linhas, long duracaoNanos) {
+            this.metodo = metodo;
+            this.linhas = linhas;
+            this.duracaoNanos = duracaoNanos;
+        }
+        
+        public String getMetodo() {
+            return metodo;
+        }
+        
+        public long getLinhas() {
+            return linhas;
+        }
+        
+        public long getDuracaoMillis() {
+            return duracaoNanos / 1_000_000;
+        }
+        
+        public double getLinhasPorSegundo() {
+            return duracaoNanos > 0 ? linhas * 1_000_000_000.0 / duracaoNanos : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Carga em massa (%s): %d lançamentos em %d ms (%.0f linhas/s)",
+                    metodo, linhas, getDuracaoMillis(), getLinhasPorSegundo());
+        }
+    }
 }
@@ -0,0 +1,217 @@
+package com.integration.nasajon.dao;
+
+import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.model.IntegrationLog;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Operações de retenção da tabela integration_logs: resumo por hora, arquivo e expurgo em lotes.
+ */
+public class LogRetentionDAO {
+    private static final Logger logger = Logger.getLogger(LogRetentionDAO.class.getName());
+    
+    /**
+     * Destino dos detalhes dos logs expurgados
+     */
+    public enum ModoArquivo {
+        /** Tabela integration_logs_arquivo, com os detalhes comprimidos pelo próprio SQL Server */
+        TABELA,
+        /** Arquivos comprimidos gravados pela aplicação (ver DestinoArquivo) */
+        ARQUIVO,
+        /** Apenas o resumo por hora é mantido */
+        NENHUM
+    }
+    
+    /**
+     * Gravação externa dos logs de um lote, feita antes da confirmação do expurgo
+     */
+    public interface DestinoArquivo {
+        void gravar(List<IntegrationLog> logs) throws IOException;
+    }
+    
+    private final DatabaseManager dbManager;
+    private final String schema;
+    
+    public LogRetentionDAO(IntegrationConfig config) {
+        this.dbManager = new DatabaseManager(config);
+        this.schema = config.getSqlServerSchema();
+    }
+    
+    /**
+     * Remove um lote dos logs mais antigos que o limite, somando-os ao resumo por hora
+     * e arquivando-os conforme o modo, tudo na mesma transação. Lotes pequenos mantêm os
+     * bloqueios em nível de linha e não atrasam as inserções de logs novos.
+     * @param limite Logs com timestamp anterior a este instante são expurgados
+     * @param tamanho Máximo de logs no lote
+     * @param modo Destino dos detalhes
+     * @param destino Destino externo, usado apenas no modo ARQUIVO
+     * @return Quantidade de logs removidos (menor que o tamanho quando não há mais o que expurgar)
+     */
+    public int expurgarLote(LocalDateTime limite, int tamanho, ModoArquivo modo, DestinoArquivo destino)
+            throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(String.format(
+                "SET NOCOUNT ON; " +
+                "SET DEADLOCK_PRIORITY LOW; " +
+                "DECLARE @lote TABLE (id BIGINT PRIMARY KEY, timestamp DATETIME, tipo VARCHAR(20), " +
+                "    mensagem VARCHAR(255), detalhes VARCHAR(MAX)); " +
+                "WITH alvo AS ( " +
+                "    SELECT TOP (?) * FROM %1$s.integration_logs WHERE timestamp < ? ORDER BY timestamp, id " +
+                ") " +
+                "DELETE FROM alvo " +
+                "OUTPUT deleted.id, deleted.timestamp, deleted.tipo, deleted.mensagem, deleted.detalhes INTO @lote; " +
+                "MERGE %1$s.integration_logs_resumo WITH (HOLDLOCK) AS r " +
+                "USING ( " +
+                "    SELECT DATEADD(HOUR, DATEDIFF(HOUR, 0, timestamp), 0) AS hora, tipo, mensagem, " +
+                "           COUNT(*) AS quantidade, MIN(timestamp) AS primeiro, MAX(timestamp) AS ultimo " +
+                "    FROM @lote GROUP BY DATEADD(HOUR, DATEDIFF(HOUR, 0, timestamp), 0), tipo, mensagem " +
+                ") AS l ON r.hora = l.hora AND r.tipo = l.tipo AND r.mensagem = l.mensagem " +
+                "WHEN MATCHED THEN UPDATE SET " +
+                "    quantidade = r.quantidade + l.quantidade, " +
+                "    primeiro = CASE WHEN l.primeiro < r.primeiro THEN l.primeiro ELSE r.primeiro END, " +
+                "    ultimo = CASE WHEN l.ultimo > r.ultimo THEN l.ultimo ELSE r.ultimo END " +
+                "WHEN NOT MATCHED THEN INSERT (hora, tipo, mensagem, quantidade, primeiro, ultimo) " +
+                "    VALUES (l.hora, l.tipo, l.mensagem, l.quantidade, l.primeiro, l.ultimo); ",
+                schema));
+        
+        if (modo == ModoArquivo.TABELA) {
+            sql.append(String.format(
+                    "INSERT INTO %s.integration_logs_arquivo (id, timestamp, tipo, mensagem, detalhes_gzip) " +
+                    "SELECT id, timestamp, tipo, mensagem, COMPRESS(detalhes) FROM @lote; ",
+                    schema));
+        }
+        
+        if (modo == ModoArquivo.ARQUIVO) {
+            sql.append("SELECT id, timestamp, tipo, mensagem, detalhes FROM @lote ORDER BY id;");
+        } else {
+            sql.append("SELECT COUNT(*) FROM @lote;");
+        }
+        
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                stmt.setInt(1, tamanho);
+                stmt.setTimestamp(2, Timestamp.valueOf(limite));
+                
+                int removidos;
+                try (ResultSet rs = primeiroResultado(stmt)) {
+                    if (modo == ModoArquivo.ARQUIVO) {
+                        List<IntegrationLog> logs = new ArrayList<>(tamanho);
+                        while (rs.next()) {
+                            logs.add(new IntegrationLog(rs.getLong("id"), rs.getTimestamp("timestamp").toLocalDateTime(),
+                                    rs.getString("tipo"), rs.getString("mensagem"), rs.getString("detalhes")));
+                        }
+                        if (!logs.isEmpty()) {
+                            destino.gravar(logs);
+                        }
+                        removidos = logs.size();
+                    } else {
+                        removidos = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+                
+                conn.commit();
+                return removidos;
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                // A conexão volta ao pool: restaurar as opções da sessão mesmo se o lote falhou
+                restaurarSessao(conn);
+            }
+        }
+    }
+    
+    /**
+     * Desfaz o SET NOCOUNT ON e o SET DEADLOCK_PRIORITY LOW do lote de expurgo. Se não for
+     * possível, fecha a conexão física para que o pool a descarte em vez de reaproveitá-la.
+     */
+    private static void restaurarSessao(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET DEADLOCK_PRIORITY NORMAL; SET NOCOUNT OFF;");
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Erro ao restaurar as opções da sessão após o expurgo de logs; " +
+                    "descartando a conexão", e);
+            try {
+                conn.unwrap(Connection.class).close();
+            } catch (SQLException erroAoFechar) {
+                logger.log(Level.FINE, "Erro ao fechar a conexão do expurgo de logs", erroAoFechar);
+            }
+        }
+    }
+    
+    /**
+     * Remove um lote do arquivo de logs no banco
+     * @param limite Registros arquivados com timestamp anterior a este instante são removidos
+     * @param tamanho Máximo de registros no lote
+     * @return Quantidade de registros removidos
+     */
+    public int expurgarArquivo(LocalDateTime limite, int tamanho) throws SQLException {
+        return excluirLote("integration_logs_arquivo", "timestamp", limite, tamanho);
+    }
+    
+    /**
+     * Remove um lote do resumo por hora
+     * @param limite Horas anteriores a este instante são removidas
+     * @param tamanho Máximo de registros no lote
+     * @return Quantidade de registros removidos
+     */
+    public int expurgarResumo(LocalDateTime limite, int tamanho) throws SQLException {
+        return excluirLote("integration_logs_resumo", "hora", limite, tamanho);
+    }
+    
+    /**
+     * Remove um lote do registro de exclusões de lançamentos (ver ConsultaDAO.buscarAlteracoes).
+     * Clientes com token de alterações mais antigo que o limite precisam de uma carga completa.
+     * @param limite Exclusões anteriores a este instante são removidas
+     * @param tamanho Máximo de registros no lote
+     * @return Quantidade de registros removidos
+     */
+    public int expurgarExclusoes(LocalDateTime limite, int tamanho) throws SQLException {
+        return excluirLote("lancamentos_excluidos", "excluido_em", limite, tamanho);
+    }
+    
+    private int excluirLote(String tabela, String coluna, LocalDateTime limite, int tamanho) throws SQLException {
+        String sql = String.format(
+                "DELETE TOP (?) FROM %s.%s WHERE %s < ?",
+                schema, tabela, coluna);
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, tamanho);
+            stmt.setTimestamp(2, Timestamp.valueOf(limite));
+            
+            int removidos = stmt.executeUpdate();
+            logger.fine(removidos + " registros removidos de " + tabela);
+            return removidos;
+        }
+    }
+    
+    /**
+     * Avança pelas contagens de linhas até o conjunto de resultados final do lote
+     */
+    private static ResultSet primeiroResultado(PreparedStatement stmt) throws SQLException {
+        boolean temResultado = stmt.execute();
+        while (!temResultado) {
+            if (stmt.getUpdateCount() == -1) {
+                throw new SQLException("Lote de expurgo não retornou resultado");
+            }
+            temResultado = stmt.getMoreResults();
+        }
+        return stmt.getResultSet();
+    }
+}
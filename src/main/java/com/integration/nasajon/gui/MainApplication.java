@@ -1,8 +1,8 @@
 package com.integration.nasajon.gui;
 
 import com.integration.nasajon.config.IntegrationConfig;
-import com.integration.nasajon.dao.DatabaseManager;
 import com.integration.nasajon.scheduler.IntegrationScheduler;
+import com.integration.nasajon.service.IntegrationRuntime;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -28,9 +28,8 @@ public class MainApplication extends Application {
                 config = IntegrationConfig.load("config.properties");
             }
             
-            // Inicializar banco de dados
-            DatabaseManager dbManager = new DatabaseManager(config);
-            dbManager.initializeDatabase();
+            // Serviços compartilhados (inicializa o banco de dados na primeira vez)
+            IntegrationRuntime.iniciar(config);
             
             // Inicializar agendador
             if (scheduler == null) {
@@ -59,6 +58,9 @@ public class MainApplication extends Application {
                 } catch (IOException ex) {
                     logger.log(Level.SEVERE, "Erro ao salvar configurações", ex);
                 }
+                // Jobs do agendador usam os pools fechados pelo runtime
+                scheduler.shutdown();
+                IntegrationRuntime.encerrar();
             });
             
             primaryStage.show();
@@ -1,14 +1,16 @@
 package com.integration.nasajon.gui;
 
 import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.dao.ConsultaDAO;
 import com.integration.nasajon.dao.DatabaseManager;
 import com.integration.nasajon.dao.IntegrationLogDAO;
+import com.integration.nasajon.dao.LancamentoCache;
 import com.integration.nasajon.dao.LancamentoContabilDAO;
 import com.integration.nasajon.model.IntegrationLog;
 import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.model.StatusLancamento;
 import com.integration.nasajon.scheduler.IntegrationScheduler;
-import com.integration.nasajon.service.ApiIntegrationService;
-import com.integration.nasajon.service.FileIntegrationService;
+import com.integration.nasajon.service.IntegrationRuntime;
 import com.integration.nasajon.service.IntegrationService;
 
 import javafx.application.Platform;
@@ -94,7 +96,9 @@ public class MainController {
     private IntegrationScheduler scheduler;
     private LancamentoContabilDAO lancamentoDAO;
     private IntegrationLogDAO logDAO;
-    private ObservableList<LancamentoContabil> lancamentos;
+    private ConsultaDAO consultaDAO;
+    private final ObservableList<LancamentoContabil> lancamentos = FXCollections.observableArrayList();
+    private LancamentoCache cacheLancamentos;
     private ObservableList<IntegrationLog> logs;
     
     public void setConfig(IntegrationConfig config) {
@@ -115,8 +119,12 @@ public class MainController {
             }
         }
         
-        lancamentoDAO = new LancamentoContabilDAO(config);
-        logDAO = new IntegrationLogDAO(config);
+        IntegrationRuntime runtime = IntegrationRuntime.iniciar(config);
+        lancamentoDAO = runtime.getLancamentoDAO();
+        logDAO = runtime.getLogDAO();
+        consultaDAO = runtime.getConsultaDAO();
+        cacheLancamentos = new LancamentoCache(consultaDAO, lancamentos);
+        tblLancamentos.setItems(lancamentos);
         
         // Inicializar componentes
         inicializarTabelaLancamentos();
@@ -173,6 +181,12 @@ public class MainController {
                         case "ERRO":
                             setStyle("-fx-text-fill: red;");
                             break;
+                        case "EM_PROCESSAMENTO":
+                            setStyle("-fx-text-fill: orange;");
+                            break;
+                        case "CONFIRMADO":
+                            setStyle("-fx-text-fill: darkgreen;");
+                            break;
                         default:
                             setStyle("");
                             break;
@@ -253,7 +267,11 @@ public class MainController {
     
     private void inicializarFiltros() {
         // Filtro de status
-        cmbFiltroStatus.setItems(FXCollections.observableArrayList("Todos", "PENDENTE", "ENVIADO", "ERRO"));
+        ObservableList<String> filtrosStatus = FXCollections.observableArrayList("Todos");
+        for (StatusLancamento status : StatusLancamento.values()) {
+            filtrosStatus.add(status.name());
+        }
+        cmbFiltroStatus.setItems(filtrosStatus);
         cmbFiltroStatus.getSelectionModel().select(0);
         
         // Datas padrão (último mês)
@@ -271,7 +289,7 @@ public class MainController {
         cmbIntegrationType.setItems(FXCollections.observableArrayList("api", "file"));
         
         // Formatos de arquivo
-        cmbFileFormat.setItems(FXCollections.observableArrayList("csv", "xml", "json"));
+        cmbFileFormat.setItems(FXCollections.observableArrayList("csv", "xml", "json", "layout"));
         
         // Carregar valores da configuração
         txtSqlServerHost.setText(config.getSqlServerHost());
@@ -329,10 +347,11 @@ public class MainController {
         txtFtpPassword.setDisable(isApi || !chkUseFtp.isSelected());
     }
     
+    /**
+     * Carga completa dos lançamentos com os filtros atuais
+     */
     private void carregarLancamentos() {
         try {
-            List<LancamentoContabil> lista;
-            
             // Aplicar filtros
             String filtroStatus = cmbFiltroStatus.getValue();
             LocalDate dataInicio = dpDataInicio.getValue();
@@ -340,26 +359,44 @@ public class MainController {
             
             if ("Todos".equals(filtroStatus)) {
                 if (dataInicio != null && dataFim != null) {
-                    lista = lancamentoDAO.buscarPorPeriodo(dataInicio, dataFim);
+                    cacheLancamentos.recarregar(
+                            l -> !l.getData().isBefore(dataInicio) && !l.getData().isAfter(dataFim),
+                            () -> consultaDAO.buscarLancamentosPorPeriodo(dataInicio, dataFim));
                 } else {
-                    lista = lancamentoDAO.listarTodos();
+                    cacheLancamentos.recarregar(l -> true, consultaDAO::listarLancamentos);
                 }
             } else {
-                lista = lancamentoDAO.buscarPorStatus(filtroStatus);
+                StatusLancamento status = StatusLancamento.valueOf(filtroStatus);
+                cacheLancamentos.recarregar(
+                        l -> status.name().equals(l.getStatus()),
+                        () -> consultaDAO.buscarLancamentosPorStatus(status));
             }
             
-            lancamentos = FXCollections.observableArrayList(lista);
-            tblLancamentos.setItems(lancamentos);
-            
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Erro ao carregar lançamentos", e);
             showAlert(Alert.AlertType.ERROR, "Erro", "Erro ao carregar lançamentos", e.getMessage());
         }
     }
     
+    /**
+     * Aplica à tabela apenas os lançamentos alterados desde a última carga
+     */
+    private void atualizarLancamentos() {
+        try {
+            cacheLancamentos.atualizar();
+            tblLancamentos.refresh();
+            
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Erro ao atualizar lançamentos", e);
+            showAlert(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar lançamentos", e.getMessage());
+        }
+    }
+    
     private void carregarLogs() {
         try {
-            List<IntegrationLog> lista = logDAO.listarTodos(100);
+            // Garantir que os logs ainda no buffer assíncrono apareçam na tabela
+            logDAO.flush();
+            List<IntegrationLog> lista = consultaDAO.listarLogs(100);
             logs = FXCollections.observableArrayList(lista);
             tblLogs.setItems(logs);
             
@@ -389,8 +426,8 @@ public class MainController {
             stage.setScene(new Scene(root));
             stage.showAndWait();
             
-            // Recarregar lançamentos após fechar o formulário
-            carregarLancamentos();
+            // Atualizar lançamentos após fechar o formulário
+            atualizarLancamentos();
             
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Erro ao abrir formulário de lançamento", e);
@@ -420,8 +457,8 @@ public class MainController {
             stage.setScene(new Scene(root));
             stage.showAndWait();
             
-            // Recarregar lançamentos após fechar o formulário
-            carregarLancamentos();
+            // Atualizar lançamentos após fechar o formulário
+            atualizarLancamentos();
             
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Erro ao abrir formulário de lançamento", e);
@@ -445,7 +482,7 @@ public class MainController {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             lancamentoDAO.excluir(lancamento.getId());
-            carregarLancamentos();
+            atualizarLancamentos();
         }
     }
     
@@ -458,8 +495,8 @@ public class MainController {
         }
         
         // Atualizar status para PENDENTE
-        lancamentoDAO.atualizarStatus(lancamento.getId(), "PENDENTE", null);
-        carregarLancamentos();
+        lancamentoDAO.atualizarStatus(lancamento.getId(), StatusLancamento.PENDENTE, null);
+        atualizarLancamentos();
         
         showAlert(Alert.AlertType.INFORMATION, "Sucesso", "Lançamento marcado para reenvio", 
                 "O lançamento foi marcado como PENDENTE e será reenviado na próxima integração.");
@@ -475,13 +512,8 @@ public class MainController {
         }
         
         try {
-            // Criar serviço de integração
-            IntegrationService service;
-            if ("api".equalsIgnoreCase(config.getIntegrationType())) {
-                service = new ApiIntegrationService(config);
-            } else {
-                service = new FileIntegrationService(config);
-            }
+            // Serviço compartilhado do tipo de integração configurado
+            IntegrationService service = IntegrationRuntime.get().getIntegrationService();
             
             // Enviar lançamentos
             boolean success = service.enviarLote(lancamentosSelecionados);
@@ -495,7 +527,7 @@ public class MainController {
             }
             
             // Recarregar lançamentos e logs
-            carregarLancamentos();
+            atualizarLancamentos();
             carregarLogs();
             
         } catch (Exception e) {
@@ -506,7 +538,7 @@ public class MainController {
     
     @FXML
     private void onAtualizarLancamentos(ActionEvent event) {
-        carregarLancamentos();
+        atualizarLancamentos();
     }
     
     @FXML
@@ -574,6 +606,9 @@ public class MainController {
             // Salvar configuração
             config.save("config.properties");
             
+            // Próximos envios usam serviços criados com a nova configuração
+            IntegrationRuntime.get().configuracaoAlterada();
+            
             // Atualizar agendamento
             if (scheduler != null) {
                 scheduler.updateSchedule(config.getScheduleExpression());
@@ -627,7 +662,7 @@ public class MainController {
                 try {
                     Thread.sleep(3000);
                     Platform.runLater(() -> {
-                        carregarLancamentos();
+                        atualizarLancamentos();
                         carregarLogs();
                     });
                 } catch (InterruptedException e) {
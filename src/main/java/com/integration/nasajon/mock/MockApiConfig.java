@@ -0,0 +1,293 @@
+package com.integration.nasajon.mock;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Configuração do MockNasajonApi. As propriedades usam o prefixo "mock." e podem vir
+ * de um arquivo .properties ou de propriedades do sistema (-Dmock.taxa.erro=0.05).
+ * Porta, caminho, threads e limite de taxa valem a partir do início do servidor; os demais
+ * valores são lidos a cada requisição e podem ser alterados com o servidor no ar.
+ */
+public class MockApiConfig {
+    
+    /**
+     * Distribuição da latência simulada
+     */
+    public enum Distribuicao {
+        // Sempre a média
+        FIXA,
+        // Uniforme entre média - desvio e média + desvio
+        UNIFORME,
+        // Normal com a média e o desvio informados
+        NORMAL,
+        // Exponencial com a média informada (desvio ignorado)
+        EXPONENCIAL,
+        // Log-normal com a média e o desvio informados: cauda longa, como em produção
+        LOGNORMAL
+    }
+    
+    // Servidor
+    private int porta = 8089;
+    private String caminho = "/contabil/lancamentos";
+    private String token = "";
+    private int threads = 4;
+    
+    // Latência simulada
+    private Distribuicao distribuicao = Distribuicao.LOGNORMAL;
+    private long latenciaMediaMs = 80;
+    private long latenciaDesvioMs = 60;
+    private long latenciaMaximaMs = 5000;
+    
+    // Falhas simuladas
+    private double taxaErro = 0.0;
+    private double taxaRecusaItem = 0.0;
+    private double taxaItemTemporario = 0.0;
+    
+    // Limite de taxa (429 com Retry-After)
+    private double limitePorSegundo = 0;
+    private int limiteRajada = 20;
+    
+    // Validação do payload
+    private boolean aceitarGzip = true;
+    private int maxItens = 1000;
+    private long maxBytes = 10L * 1024 * 1024;
+    
+    // Processamento dos lotes (consultado em /status/{id})
+    private long processamentoMs = 2000;
+    private double taxaErroLote = 0.0;
+    private int maxLotes = 100000;
+    
+    /**
+     * Lê as propriedades "mock.*"; as ausentes ficam com o valor padrão
+     */
+    public static MockApiConfig load(Properties props) {
+        MockApiConfig config = new MockApiConfig();
+        
+        // Servidor
+        config.setPorta(Integer.parseInt(props.getProperty("mock.porta", String.valueOf(config.porta))));
+        config.setCaminho(props.getProperty("mock.caminho", config.caminho));
+        config.setToken(props.getProperty("mock.token", config.token));
+        config.setThreads(Integer.parseInt(props.getProperty("mock.threads", String.valueOf(config.threads))));
+        
+        // Latência simulada
+        config.setDistribuicao(Distribuicao.valueOf(props.getProperty("mock.latencia.distribuicao",
+                config.distribuicao.name()).trim().toUpperCase(Locale.ROOT)));
+        config.setLatenciaMediaMs(Long.parseLong(props.getProperty("mock.latencia.media.ms", String.valueOf(config.latenciaMediaMs))));
+        config.setLatenciaDesvioMs(Long.parseLong(props.getProperty("mock.latencia.desvio.ms", String.valueOf(config.latenciaDesvioMs))));
+        config.setLatenciaMaximaMs(Long.parseLong(props.getProperty("mock.latencia.maxima.ms", String.valueOf(config.latenciaMaximaMs))));
+        
+        // Falhas simuladas
+        config.setTaxaErro(Double.parseDouble(props.getProperty("mock.taxa.erro", String.valueOf(config.taxaErro))));
+        config.setTaxaRecusaItem(Double.parseDouble(props.getProperty("mock.taxa.recusa.item", String.valueOf(config.taxaRecusaItem))));
+        config.setTaxaItemTemporario(Double.parseDouble(props.getProperty("mock.taxa.item.temporario", String.valueOf(config.taxaItemTemporario))));
+        
+        // Limite de taxa
+        config.setLimitePorSegundo(Double.parseDouble(props.getProperty("mock.limite.por.segundo", String.valueOf(config.limitePorSegundo))));
+        config.setLimiteRajada(Integer.parseInt(props.getProperty("mock.limite.rajada", String.valueOf(config.limiteRajada))));
+        
+        // Validação do payload
+        config.setAceitarGzip(Boolean.parseBoolean(props.getProperty("mock.aceitar.gzip", String.valueOf(config.aceitarGzip))));
+        config.setMaxItens(Integer.parseInt(props.getProperty("mock.max.itens", String.valueOf(config.maxItens))));
+        config.setMaxBytes(Long.parseLong(props.getProperty("mock.max.bytes", String.valueOf(config.maxBytes))));
+        
+        // Processamento dos lotes
+        config.setProcessamentoMs(Long.parseLong(props.getProperty("mock.processamento.ms", String.valueOf(config.processamentoMs))));
+        config.setTaxaErroLote(Double.parseDouble(props.getProperty("mock.taxa.erro.lote", String.valueOf(config.taxaErroLote))));
+        config.setMaxLotes(Integer.parseInt(props.getProperty("mock.max.lotes", String.valueOf(config.maxLotes))));
+        
+        return config;
+    }
+    
+    public int getPorta() {
+        return porta;
+    }
+    
+    /**
+     * @param porta Porta HTTP; 0 escolhe uma porta livre (ver MockNasajonApi.getUrl)
+     */
+    public void setPorta(int porta) {
+        this.porta = porta;
+    }
+    
+    public String getCaminho() {
+        return caminho;
+    }
+    
+    public void setCaminho(String caminho) {
+        this.caminho = caminho;
+    }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    /**
+     * @param token Token exigido no cabeçalho Authorization; vazio aceita qualquer um
+     */
+    public void setToken(String token) {
+        this.token = token;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+    public Distribuicao getDistribuicao() {
+        return distribuicao;
+    }
+    
+    public void setDistribuicao(Distribuicao distribuicao) {
+        this.distribuicao = distribuicao;
+    }
+    
+    public long getLatenciaMediaMs() {
+        return latenciaMediaMs;
+    }
+    
+    public void setLatenciaMediaMs(long latenciaMediaMs) {
+        this.latenciaMediaMs = latenciaMediaMs;
+    }
+    
+    public long getLatenciaDesvioMs() {
+        return latenciaDesvioMs;
+    }
+    
+    public void setLatenciaDesvioMs(long latenciaDesvioMs) {
+        this.latenciaDesvioMs = latenciaDesvioMs;
+    }
+    
+    public long getLatenciaMaximaMs() {
+        return latenciaMaximaMs;
+    }
+    
+    public void setLatenciaMaximaMs(long latenciaMaximaMs) {
+        this.latenciaMaximaMs = latenciaMaximaMs;
+    }
+    
+    public double getTaxaErro() {
+        return taxaErro;
+    }
+    
+    /**
+     * @param taxaErro Fração das requisições respondidas com 503
+     */
+    public void setTaxaErro(double taxaErro) {
+        this.taxaErro = taxaErro;
+    }
+    
+    public double getTaxaRecusaItem() {
+        return taxaRecusaItem;
+    }
+    
+    /**
+     * @param taxaRecusaItem Fração dos lançamentos válidos recusados em definitivo
+     */
+    public void setTaxaRecusaItem(double taxaRecusaItem) {
+        this.taxaRecusaItem = taxaRecusaItem;
+    }
+    
+    public double getTaxaItemTemporario() {
+        return taxaItemTemporario;
+    }
+    
+    /**
+     * @param taxaItemTemporario Fração dos lançamentos válidos recusados com erro temporário (retentavel)
+     */
+    public void setTaxaItemTemporario(double taxaItemTemporario) {
+        this.taxaItemTemporario = taxaItemTemporario;
+    }
+    
+    public double getLimitePorSegundo() {
+        return limitePorSegundo;
+    }
+    
+    /**
+     * @param limitePorSegundo Requisições aceitas por segundo; acima disso responde 429. Zero desliga
+     */
+    public void setLimitePorSegundo(double limitePorSegundo) {
+        this.limitePorSegundo = limitePorSegundo;
+    }
+    
+    public int getLimiteRajada() {
+        return limiteRajada;
+    }
+    
+    public void setLimiteRajada(int limiteRajada) {
+        this.limiteRajada = limiteRajada;
+    }
+    
+    public boolean isAceitarGzip() {
+        return aceitarGzip;
+    }
+    
+    /**
+     * @param aceitarGzip Se false, corpos com Content-Encoding: gzip recebem 415
+     */
+    public void setAceitarGzip(boolean aceitarGzip) {
+        this.aceitarGzip = aceitarGzip;
+    }
+    
+    public int getMaxItens() {
+        return maxItens;
+    }
+    
+    public void setMaxItens(int maxItens) {
+        this.maxItens = maxItens;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    public long getProcessamentoMs() {
+        return processamentoMs;
+    }
+    
+    /**
+     * @param processamentoMs Tempo até um lote aceito passar de "processando" para "processado"
+     */
+    public void setProcessamentoMs(long processamentoMs) {
+        this.processamentoMs = processamentoMs;
+    }
+    
+    public double getTaxaErroLote() {
+        return taxaErroLote;
+    }
+    
+    /**
+     * @param taxaErroLote Fração dos lotes que terminam o processamento com status "erro"
+     */
+    public void setTaxaErroLote(double taxaErroLote) {
+        this.taxaErroLote = taxaErroLote;
+    }
+    
+    public int getMaxLotes() {
+        return maxLotes;
+    }
+    
+    /**
+     * @param maxLotes Lotes mantidos em memória para consulta; os mais antigos são descartados
+     */
+    public void setMaxLotes(int maxLotes) {
+        this.maxLotes = maxLotes;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "latência %s média %d ms (desvio %d, máx %d), erro %.3f, recusa item %.3f, item temporário %.3f, " +
+                        "limite %.1f/s (rajada %d), gzip %s, processamento %d ms, erro lote %.3f",
+                distribuicao, latenciaMediaMs, latenciaDesvioMs, latenciaMaximaMs, taxaErro, taxaRecusaItem,
+                taxaItemTemporario, limitePorSegundo, limiteRajada, aceitarGzip ? "sim" : "não",
+                processamentoMs, taxaErroLote);
+    }
+}
@@ -0,0 +1,145 @@
+package com.integration.nasajon.mock;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Configuração do MockFtpServer. As propriedades usam o prefixo "mock.ftp." e podem vir
+ * de um arquivo .properties ou de propriedades do sistema (-Dmock.ftp.limite.bytes.por.segundo=...).
+ * Porta, diretório e sessões valem a partir do início do servidor; os demais valores são
+ * lidos a cada comando ou transferência e podem ser alterados com o servidor no ar.
+ */
+public class MockFtpConfig {
+    
+    // Servidor
+    private int porta = 2121;
+    private String usuario = "";
+    private String senha = "";
+    private String diretorio = "";
+    private int maxSessoes = 32;
+    
+    // Rede simulada
+    private long latenciaMs = 0;
+    private long limiteBytesPorSegundo = 0;
+    
+    // Falhas simuladas
+    private double taxaQuedaPorMb = 0.0;
+    
+    /**
+     * Lê as propriedades "mock.ftp.*"; as ausentes ficam com o valor padrão
+     */
+    public static MockFtpConfig load(Properties props) {
+        MockFtpConfig config = new MockFtpConfig();
+        
+        // Servidor
+        config.setPorta(Integer.parseInt(props.getProperty("mock.ftp.porta", String.valueOf(config.porta))));
+        config.setUsuario(props.getProperty("mock.ftp.usuario", config.usuario));
+        config.setSenha(props.getProperty("mock.ftp.senha", config.senha));
+        config.setDiretorio(props.getProperty("mock.ftp.diretorio", config.diretorio));
+        config.setMaxSessoes(Integer.parseInt(props.getProperty("mock.ftp.max.sessoes", String.valueOf(config.maxSessoes))));
+        
+        // Rede simulada
+        config.setLatenciaMs(Long.parseLong(props.getProperty("mock.ftp.latencia.ms", String.valueOf(config.latenciaMs))));
+        config.setLimiteBytesPorSegundo(Long.parseLong(props.getProperty("mock.ftp.limite.bytes.por.segundo",
+                String.valueOf(config.limiteBytesPorSegundo))));
+        
+        // Falhas simuladas
+        config.setTaxaQuedaPorMb(Double.parseDouble(props.getProperty("mock.ftp.taxa.queda.por.mb",
+                String.valueOf(config.taxaQuedaPorMb))));
+        
+        return config;
+    }
+    
+    public int getPorta() {
+        return porta;
+    }
+    
+    /**
+     * @param porta Porta da conexão de controle; 0 escolhe uma porta livre (ver MockFtpServer.getPorta)
+     */
+    public void setPorta(int porta) {
+        this.porta = porta;
+    }
+    
+    public String getUsuario() {
+        return usuario;
+    }
+    
+    /**
+     * @param usuario Usuário exigido no login; vazio aceita qualquer um
+     */
+    public void setUsuario(String usuario) {
+        this.usuario = usuario;
+    }
+    
+    public String getSenha() {
+        return senha;
+    }
+    
+    public void setSenha(String senha) {
+        this.senha = senha;
+    }
+    
+    public String getDiretorio() {
+        return diretorio;
+    }
+    
+    /**
+     * @param diretorio Onde os arquivos recebidos são gravados; vazio usa um diretório temporário
+     */
+    public void setDiretorio(String diretorio) {
+        this.diretorio = diretorio;
+    }
+    
+    public int getMaxSessoes() {
+        return maxSessoes;
+    }
+    
+    /**
+     * @param maxSessoes Conexões de controle simultâneas; acima disso responde 421
+     */
+    public void setMaxSessoes(int maxSessoes) {
+        this.maxSessoes = maxSessoes;
+    }
+    
+    public long getLatenciaMs() {
+        return latenciaMs;
+    }
+    
+    /**
+     * @param latenciaMs Atraso de cada resposta na conexão de controle (ida e volta da rede)
+     */
+    public void setLatenciaMs(long latenciaMs) {
+        this.latenciaMs = latenciaMs;
+    }
+    
+    public long getLimiteBytesPorSegundo() {
+        return limiteBytesPorSegundo;
+    }
+    
+    /**
+     * @param limiteBytesPorSegundo Banda de cada transferência; zero desliga
+     */
+    public void setLimiteBytesPorSegundo(long limiteBytesPorSegundo) {
+        this.limiteBytesPorSegundo = limiteBytesPorSegundo;
+    }
+    
+    public double getTaxaQuedaPorMb() {
+        return taxaQuedaPorMb;
+    }
+    
+    /**
+     * @param taxaQuedaPorMb Chance de a conexão de dados cair a cada MB recebido (o recebido fica
+     *                       gravado, para testar a retomada com REST)
+     */
+    public void setTaxaQuedaPorMb(double taxaQuedaPorMb) {
+        this.taxaQuedaPorMb = taxaQuedaPorMb;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "latência %d ms, banda %s, queda %.3f por MB, máx %d sessões",
+                latenciaMs, limiteBytesPorSegundo > 0 ? limiteBytesPorSegundo + " bytes/s" : "sem limite",
+                taxaQuedaPorMb, maxSessoes);
+    }
+}
@@ -0,0 +1,504 @@
+package com.integration.nasajon.mock;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Servidor FTP local mínimo, para medir a vazão dos envios da integração em arquivo sem rede.
+ *
+ * Atende o que o FtpUtil usa: login, modo passivo (PASV/EPSV), STOR e APPE com REST, SIZE,
+ * RNFR/RNTO, DELE e NOOP, gravando os arquivos recebidos em um diretório. Latência das
+ * respostas, banda por transferência e quedas da conexão de dados seguem o MockFtpConfig;
+ * numa queda o que já chegou fica gravado, como num servidor real, para exercitar a retomada.
+ *
+ * Uso no mesmo processo: {@code try (MockFtpServer ftp = MockFtpServer.iniciar(config))} e
+ * ftp.host=localhost, ftp.port=ftp.getPorta(). Uso isolado: ver main.
+ */
+public class MockFtpServer implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(MockFtpServer.class.getName());
+    
+    private static final int TAMANHO_BLOCO = 64 * 1024;
+    private static final int ESPERA_CONEXAO_DADOS_MS = 30000;
+    private static final double MB = 1024.0 * 1024.0;
+    
+    private final MockFtpConfig config;
+    private final Path diretorio;
+    private final ServerSocket servidor;
+    private final ExecutorService sessoes;
+    private final AtomicInteger ativas = new AtomicInteger();
+    private volatile boolean fechado;
+    
+    private final LongAdder sessoesAbertas = new LongAdder();
+    private final LongAdder sessoesRecusadas = new LongAdder();
+    private final LongAdder comandos = new LongAdder();
+    private final LongAdder envios = new LongAdder();
+    private final LongAdder enviosInterrompidos = new LongAdder();
+    private final LongAdder enviosRetomados = new LongAdder();
+    private final LongAdder bytesRecebidos = new LongAdder();
+    private volatile long inicioContagem = System.nanoTime();
+    
+    private MockFtpServer(MockFtpConfig config) throws IOException {
+        this.config = config;
+        this.diretorio = config.getDiretorio() == null || config.getDiretorio().isEmpty()
+                ? Files.createTempDirectory("mock-ftp")
+                : Files.createDirectories(Paths.get(config.getDiretorio()));
+        this.servidor = new ServerSocket(config.getPorta());
+        
+        AtomicInteger numero = new AtomicInteger();
+        this.sessoes = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-ftp-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Cria e inicia o servidor
+     * @param config Comportamento do servidor; porta 0 escolhe uma porta livre
+     */
+    public static MockFtpServer iniciar(MockFtpConfig config) throws IOException {
+        MockFtpServer ftp = new MockFtpServer(config);
+        Thread aceite = new Thread(ftp::aceitar, "mock-ftp-aceite");
+        aceite.setDaemon(true);
+        aceite.start();
+        logger.info("Servidor FTP simulado na porta " + ftp.getPorta() + ", gravando em " + ftp.diretorio +
+                " (" + config + ")");
+        return ftp;
+    }
+    
+    /**
+     * Porta da conexão de controle, para usar em ftp.port
+     */
+    public int getPorta() {
+        return servidor.getLocalPort();
+    }
+    
+    /**
+     * Diretório onde os arquivos recebidos são gravados
+     */
+    public Path getDiretorio() {
+        return diretorio;
+    }
+    
+    public MockFtpConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Resumo dos contadores desde o início (ou desde zerarEstatisticas), com a vazão média
+     */
+    public String getEstatisticas() {
+        double segundos = Math.max(1e-3, (System.nanoTime() - inicioContagem) / 1e9);
+        return String.format(Locale.ROOT, "%d sessões (%d recusadas), %d comandos, %d envios concluídos, " +
+                        "%d interrompidos, %d retomados; %d bytes recebidos, %.1f MB/s em média",
+                sessoesAbertas.sum(), sessoesRecusadas.sum(), comandos.sum(), envios.sum(),
+                enviosInterrompidos.sum(), enviosRetomados.sum(), bytesRecebidos.sum(),
+                bytesRecebidos.sum() / MB / segundos);
+    }
+    
+    public long getBytesRecebidos() {
+        return bytesRecebidos.sum();
+    }
+    
+    public long getSessoesAbertas() {
+        return sessoesAbertas.sum();
+    }
+    
+    public void zerarEstatisticas() {
+        for (LongAdder contador : new LongAdder[]{sessoesAbertas, sessoesRecusadas, comandos, envios,
+                enviosInterrompidos, enviosRetomados, bytesRecebidos}) {
+            contador.reset();
+        }
+        inicioContagem = System.nanoTime();
+    }
+    
+    @Override
+    public void close() {
+        fechado = true;
+        try {
+            servidor.close();
+        } catch (IOException e) {
+            logger.fine("Erro ao fechar o servidor FTP simulado: " + e.getMessage());
+        }
+        sessoes.shutdownNow();
+        logger.info("Servidor FTP simulado encerrado. " + getEstatisticas());
+    }
+    
+    private void aceitar() {
+        while (!fechado) {
+            try {
+                Socket controle = servidor.accept();
+                sessoes.execute(() -> atender(controle));
+            } catch (IOException e) {
+                if (!fechado) {
+                    logger.log(Level.WARNING, "Erro ao aceitar conexão FTP", e);
+                }
+            }
+        }
+    }
+    
+    private void atender(Socket controle) {
+        try (controle) {
+            Writer saida = new OutputStreamWriter(controle.getOutputStream(), StandardCharsets.UTF_8);
+            if (ativas.incrementAndGet() > Math.max(1, config.getMaxSessoes())) {
+                sessoesRecusadas.increment();
+                saida.write("421 Muitas conexões, tente mais tarde\r\n");
+                saida.flush();
+                return;
+            }
+            sessoesAbertas.increment();
+            new Sessao(controle, saida).executar();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Sessão FTP encerrada com erro", e);
+        } finally {
+            ativas.decrementAndGet();
+        }
+    }
+    
+    private static boolean sortear(double chance) {
+        return chance > 0 && ThreadLocalRandom.current().nextDouble() < chance;
+    }
+    
+    /**
+     * Uma conexão de controle: lê os comandos em ordem e responde cada um
+     */
+    private final class Sessao {
+        private final Socket controle;
+        private final Writer saida;
+        private final BufferedReader entrada;
+        
+        private String usuario;
+        private boolean autenticado;
+        private ServerSocket passivo;
+        private long restart;
+        private Path renomearDe;
+        
+        private Sessao(Socket controle, Writer saida) throws IOException {
+            this.controle = controle;
+            this.saida = saida;
+            this.entrada = new BufferedReader(new InputStreamReader(controle.getInputStream(), StandardCharsets.UTF_8));
+        }
+        
+        void executar() throws IOException {
+            responder("220 Servidor FTP simulado da integração Nasajon");
+            try {
+                String linha;
+                while (!fechado && (linha = entrada.readLine()) != null) {
+                    comandos.increment();
+                    int espaco = linha.indexOf(' ');
+                    String comando = (espaco < 0 ? linha : linha.substring(0, espaco)).toUpperCase(Locale.ROOT);
+                    String argumento = espaco < 0 ? "" : linha.substring(espaco + 1).trim();
+                    if (!executar(comando, argumento)) {
+                        return;
+                    }
+                }
+            } finally {
+                fecharPassivo();
+            }
+        }
+        
+        /**
+         * @return false para encerrar a sessão
+         */
+        private boolean executar(String comando, String argumento) throws IOException {
+            switch (comando) {
+                case "USER":
+                    usuario = argumento;
+                    autenticado = false;
+                    responder("331 Informe a senha");
+                    return true;
+                case "PASS":
+                    autenticado = usuario != null && (config.getUsuario().isEmpty() ||
+                            (config.getUsuario().equals(usuario) && config.getSenha().equals(argumento)));
+                    responder(autenticado ? "230 Login efetuado" : "530 Usuário ou senha inválidos");
+                    return true;
+                case "QUIT":
+                    responder("221 Até logo");
+                    return false;
+                case "SYST":
+                    responder("215 UNIX Type: L8");
+                    return true;
+                case "FEAT":
+                    responder("211-Recursos:\r\n SIZE\r\n REST STREAM\r\n EPSV\r\n PASV\r\n211 Fim");
+                    return true;
+                case "NOOP":
+                    responder("200 OK");
+                    return true;
+                default:
+                    break;
+            }
+            
+            if (!autenticado) {
+                responder("530 Faça login primeiro");
+                return true;
+            }
+            
+            switch (comando) {
+                case "TYPE":
+                case "MODE":
+                case "STRU":
+                case "OPTS":
+                    responder("200 OK");
+                    break;
+                case "PWD":
+                    responder("257 \"/\" é o diretório atual");
+                    break;
+                case "CWD":
+                    responder("250 Diretório alterado");
+                    break;
+                case "PASV":
+                case "EPSV":
+                    abrirPassivo(comando);
+                    break;
+                case "REST":
+                    try {
+                        restart = Long.parseLong(argumento);
+                        responder("350 Reiniciando na posição " + restart);
+                    } catch (NumberFormatException e) {
+                        responder("501 Posição inválida");
+                    }
+                    break;
+                case "STOR":
+                case "APPE":
+                    receber(argumento, "APPE".equals(comando));
+                    break;
+                case "SIZE":
+                    Path arquivo = arquivo(argumento);
+                    if (arquivo != null && Files.isRegularFile(arquivo)) {
+                        responder("213 " + Files.size(arquivo));
+                    } else {
+                        responder("550 Arquivo não encontrado");
+                    }
+                    break;
+                case "RNFR":
+                    renomearDe = arquivo(argumento);
+                    responder(renomearDe != null && Files.exists(renomearDe)
+                            ? "350 Aguardando o novo nome" : "550 Arquivo não encontrado");
+                    break;
+                case "RNTO":
+                    Path destino = arquivo(argumento);
+                    if (renomearDe == null || destino == null || !Files.exists(renomearDe)) {
+                        responder("503 Use RNFR antes");
+                    } else {
+                        Files.move(renomearDe, destino, StandardCopyOption.REPLACE_EXISTING);
+                        responder("250 Arquivo renomeado");
+                    }
+                    renomearDe = null;
+                    break;
+                case "DELE":
+                    Path apagar = arquivo(argumento);
+                    responder(apagar != null && Files.deleteIfExists(apagar)
+                            ? "250 Arquivo apagado" : "550 Arquivo não encontrado");
+                    break;
+                default:
+                    responder("502 Comando não implementado");
+                    break;
+            }
+            return true;
+        }
+        
+        private void abrirPassivo(String comando) throws IOException {
+            fecharPassivo();
+            passivo = new ServerSocket(0, 1, controle.getLocalAddress());
+            passivo.setSoTimeout(ESPERA_CONEXAO_DADOS_MS);
+            int porta = passivo.getLocalPort();
+            if ("EPSV".equals(comando)) {
+                responder("229 Entrando em modo passivo estendido (|||" + porta + "|)");
+            } else {
+                InetAddress endereco = controle.getLocalAddress();
+                byte[] ip = endereco.getAddress();
+                responder(String.format("227 Entrando em modo passivo (%d,%d,%d,%d,%d,%d)",
+                        ip[0] & 0xff, ip[1] & 0xff, ip[2] & 0xff, ip[3] & 0xff, porta >> 8, porta & 0xff));
+            }
+        }
+        
+        /**
+         * STOR (a partir da posição do REST, se houver) ou APPE, com banda limitada e quedas sorteadas
+         */
+        private void receber(String nome, boolean anexar) throws IOException {
+            Path arquivo = arquivo(nome);
+            long inicio = restart;
+            restart = 0;
+            if (arquivo == null) {
+                responder("553 Nome de arquivo inválido");
+                return;
+            }
+            if (passivo == null) {
+                responder("425 Use PASV ou EPSV antes");
+                return;
+            }
+            
+            responder("150 Pronto para receber " + nome);
+            try (Socket dados = passivo.accept();
+                 FileChannel canal = abrirDestino(arquivo, anexar, inicio)) {
+                fecharPassivo();
+                if (anexar || inicio > 0) {
+                    enviosRetomados.increment();
+                }
+                
+                InputStream origem = dados.getInputStream();
+                byte[] bloco = new byte[TAMANHO_BLOCO];
+                long recebidos = 0;
+                long comeco = System.nanoTime();
+                int lidos;
+                while ((lidos = origem.read(bloco)) >= 0) {
+                    ByteBuffer buffer = ByteBuffer.wrap(bloco, 0, lidos);
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer);
+                    }
+                    recebidos += lidos;
+                    bytesRecebidos.add(lidos);
+                    
+                    if (sortear(config.getTaxaQuedaPorMb() * lidos / MB)) {
+                        // Fechamento abrupto (RST), como numa queda de rede
+                        dados.setSoLinger(true, 0);
+                        enviosInterrompidos.increment();
+                        responder("426 Conexão de dados interrompida após " + recebidos + " bytes");
+                        return;
+                    }
+                    limitarBanda(recebidos, comeco);
+                }
+                envios.increment();
+                responder("226 Transferência concluída (" + recebidos + " bytes)");
+            
+            } catch (SocketException e) {
+                enviosInterrompidos.increment();
+                responder("426 Conexão de dados interrompida: " + e.getMessage());
+            } catch (IOException e) {
+                enviosInterrompidos.increment();
+                responder("451 Erro ao gravar " + nome + ": " + e.getMessage());
+            } finally {
+                fecharPassivo();
+            }
+        }
+        
+        private FileChannel abrirDestino(Path arquivo, boolean anexar, long inicio) throws IOException {
+            if (anexar) {
+                return FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // REST + STOR sobrescreve a partir da posição; sem REST, o arquivo é recriado
+            canal.truncate(inicio);
+            canal.position(inicio);
+            return canal;
+        }
+        
+        private void limitarBanda(long recebidos, long comeco) {
+            long limite = config.getLimiteBytesPorSegundo();
+            if (limite <= 0) {
+                return;
+            }
+            long esperadoMs = recebidos * 1000 / limite;
+            long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comeco);
+            if (esperadoMs > decorridoMs) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(esperadoMs - decorridoMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        /**
+         * Arquivo dentro do diretório do servidor; caminhos são reduzidos ao nome do arquivo
+         * @return Caminho, ou null se o nome for inválido
+         */
+        private Path arquivo(String nome) {
+            if (nome == null || nome.isEmpty()) {
+                return null;
+            }
+            Path somenteNome = Paths.get(nome.replace('\\', '/')).getFileName();
+            if (somenteNome == null || somenteNome.toString().equals("..")) {
+                return null;
+            }
+            return diretorio.resolve(somenteNome.toString());
+        }
+        
+        private void responder(String resposta) throws IOException {
+            long latencia = config.getLatenciaMs();
+            if (latencia > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(latencia);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Sessão FTP interrompida", e);
+                }
+            }
+            saida.write(resposta);
+            saida.write("\r\n");
+            saida.flush();
+        }
+        
+        private void fecharPassivo() {
+            if (passivo != null) {
+                try {
+                    passivo.close();
+                } catch (IOException e) {
+                    logger.fine("Erro ao fechar porta passiva: " + e.getMessage());
+                }
+                passivo = null;
+            }
+        }
+    }
+    
+    /**
+     * Execução isolada para medir a vazão dos envios:
+     * java -cp nasajon-sqlserver-integration.jar com.integration.nasajon.mock.MockFtpServer [mock.properties]
+     * As propriedades "mock.ftp.*" do sistema têm prioridade sobre as do arquivo.
+     */
+    public static void main(String[] args) throws Exception {
+        Properties props = new Properties();
+        if (args.length > 0) {
+            try (FileInputStream fis = new FileInputStream(args[0])) {
+                props.load(fis);
+            }
+        }
+        for (String nome : System.getProperties().stringPropertyNames()) {
+            if (nome.startsWith("mock.ftp.")) {
+                props.setProperty(nome, System.getProperty(nome));
+            }
+        }
+        
+        MockFtpServer ftp = iniciar(MockFtpConfig.load(props));
+        Runtime.getRuntime().addShutdownHook(new Thread(ftp::close, "mock-ftp-encerramento"));
+        
+        // Resumo periódico enquanto houver tráfego
+        long ultimo = -1;
+        while (!Thread.currentThread().isInterrupted()) {
+            TimeUnit.SECONDS.sleep(10);
+            long atual = ftp.getBytesRecebidos();
+            if (atual != ultimo) {
+                logger.info(ftp.getEstatisticas());
+                ultimo = atual;
+            }
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package com.integration.nasajon.mock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.integration.nasajon.util.TokenBucket;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Simulador local da API de lançamentos da Nasajon, para testes de carga sem rede.
+ *
+ * Atende POST {caminho} com o array de lançamentos enviado pelo ApiIntegrationService e
+ * GET {caminho}/status/{loteId} com ETag, no formato lido por BatchResponse. Latência,
+ * erros 503, recusas por item, 429 com Retry-After e validação do payload seguem o
+ * MockApiConfig. A latência é simulada agendando a resposta, sem ocupar threads, para
+ * que o simulador aguente muitas requisições simultâneas.
+ *
+ * Uso no mesmo processo: {@code try (MockNasajonApi api = MockNasajonApi.iniciar(config))}
+ * e config.setApiUrl(api.getUrl()). Uso isolado: ver main.
+ */
+public class MockNasajonApi implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(MockNasajonApi.class.getName());
+    
+    private static final String STATUS_PROCESSANDO = "processando";
+    private static final String STATUS_PROCESSADO = "processado";
+    private static final String STATUS_ERRO = "erro";
+    
+    private final MockApiConfig config;
+    private final HttpServer server;
+    private final ExecutorService trabalhadores;
+    private final ScheduledExecutorService agendador;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenBucket limitador;
+    
+    // Lotes aceitos, para a consulta de status (os mais antigos saem primeiro)
+    private final Map<String, Lote> lotes;
+    
+    private final LongAdder requisicoes = new LongAdder();
+    private final LongAdder lancamentosRecebidos = new LongAdder();
+    private final LongAdder lancamentosAceitos = new LongAdder();
+    private final LongAdder lancamentosRecusados = new LongAdder();
+    private final LongAdder lancamentosTemporarios = new LongAdder();
+    private final LongAdder respostas429 = new LongAdder();
+    private final LongAdder respostas5xx = new LongAdder();
+    private final LongAdder respostas4xx = new LongAdder();
+    private final LongAdder consultasStatus = new LongAdder();
+    private final LongAdder bytesRecebidos = new LongAdder();
+    
+    private MockNasajonApi(MockApiConfig config) throws IOException {
+        this.config = config;
+        this.limitador = new TokenBucket(config.getLimitePorSegundo(), config.getLimiteRajada());
+        
+        int maxLotes = Math.max(1, config.getMaxLotes());
+        this.lotes = Collections.synchronizedMap(new LinkedHashMap<String, Lote>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Lote> eldest) {
+                return size() > maxLotes;
+            }
+        });
+        
+        AtomicInteger numero = new AtomicInteger();
+        this.trabalhadores = Executors.newFixedThreadPool(Math.max(1, config.getThreads()), r -> {
+            Thread t = new Thread(r, "mock-api-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mock-api-latencia");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        this.server = HttpServer.create(new InetSocketAddress(config.getPorta()), 0);
+        this.server.createContext(config.getCaminho(), this::atender);
+        this.server.setExecutor(trabalhadores);
+    }
+    
+    /**
+     * Cria e inicia o simulador
+     * @param config Comportamento do simulador; porta 0 escolhe uma porta livre
+     */
+    public static MockNasajonApi iniciar(MockApiConfig config) throws IOException {
+        MockNasajonApi api = new MockNasajonApi(config);
+        api.server.start();
+        logger.info("Simulador da API Nasajon em " + api.getUrl() + " (" + config + ")");
+        return api;
+    }
+    
+    /**
+     * URL do envio de lotes, para usar em api.url
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + config.getCaminho();
+    }
+    
+    public MockApiConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Resumo dos contadores desde o início (ou desde zerarEstatisticas)
+     */
+    public String getEstatisticas() {
+        return String.format("%d requisições (%d consultas de status), %d lançamentos recebidos: " +
+                        "%d aceitos, %d recusados, %d temporários; respostas 429: %d, 4xx: %d, 5xx: %d; %d bytes recebidos",
+                requisicoes.sum(), consultasStatus.sum(), lancamentosRecebidos.sum(), lancamentosAceitos.sum(),
+                lancamentosRecusados.sum(), lancamentosTemporarios.sum(), respostas429.sum(), respostas4xx.sum(),
+                respostas5xx.sum(), bytesRecebidos.sum());
+    }
+    
+    public long getLancamentosAceitos() {
+        return lancamentosAceitos.sum();
+    }
+    
+    public long getRequisicoes() {
+        return requisicoes.sum();
+    }
+    
+    public void zerarEstatisticas() {
+        for (LongAdder contador : new LongAdder[]{requisicoes, lancamentosRecebidos, lancamentosAceitos,
+                lancamentosRecusados, lancamentosTemporarios, respostas429, respostas5xx, respostas4xx,
+                consultasStatus, bytesRecebidos}) {
+            contador.reset();
+        }
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        agendador.shutdownNow();
+        trabalhadores.shutdownNow();
+        logger.info("Simulador da API Nasajon encerrado. " + getEstatisticas());
+    }
+    
+    private void atender(HttpExchange exchange) {
+        requisicoes.increment();
+        try {
+            String caminho = exchange.getRequestURI().getPath();
+            String prefixoStatus = config.getCaminho() + "/status/";
+            
+            if (!autorizado(exchange)) {
+                responder(exchange, 401, erro("Token inválido"), 0);
+                return;
+            }
+            
+            long espera = limitador.tentarAdquirir();
+            if (espera > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(Math.max(1, (espera + 999) / 1000)));
+                responder(exchange, 429, erro("Limite de requisições excedido"), 0);
+                return;
+            }
+            
+            if ("POST".equals(exchange.getRequestMethod()) && caminho.equals(config.getCaminho())) {
+                receberLote(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod()) && caminho.startsWith(prefixoStatus)) {
+                consultarStatus(exchange, caminho.substring(prefixoStatus.length()));
+            } else {
+                responder(exchange, 404, erro("Recurso não encontrado: " + exchange.getRequestMethod() + " " + caminho), 0);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Erro no simulador da API", e);
+            responder(exchange, 500, erro("Erro interno do simulador: " + e.getMessage()), 0);
+        }
+    }
+    
+    private boolean autorizado(HttpExchange exchange) {
+        String token = config.getToken();
+        if (token == null || token.isEmpty()) {
+            return true;
+        }
+        return ("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+    
+    private void receberLote(HttpExchange exchange) throws IOException {
+        long latencia = sortearLatencia();
+        
+        boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        if (gzip && !config.isAceitarGzip()) {
+            responder(exchange, 415, erro("Content-Encoding não suportado"), latencia);
+            return;
+        }
+        if (sortear(config.getTaxaErro())) {
+            responder(exchange, 503, erro("Serviço temporariamente indisponível (simulado)"), latencia);
+            return;
+        }
+        
+        JsonNode lancamentos;
+        try (ContadorEntrada contador = new ContadorEntrada(exchange.getRequestBody(), config.getMaxBytes());
+             InputStream entrada = gzip ? new GZIPInputStream(contador) : contador) {
+            lancamentos = objectMapper.readTree(entrada);
+            bytesRecebidos.add(contador.lidos);
+        } catch (LimiteExcedidoException e) {
+            responder(exchange, 413, erro("Payload acima de " + config.getMaxBytes() + " bytes"), latencia);
+            return;
+        } catch (JsonProcessingException e) {
+            responder(exchange, 400, erro("JSON inválido: " + e.getOriginalMessage()), latencia);
+            return;
+        } catch (IOException e) {
+            responder(exchange, 400, erro("Corpo ilegível: " + e.getMessage()), latencia);
+            return;
+        }
+        
+        if (lancamentos == null || !lancamentos.isArray() || lancamentos.size() == 0) {
+            responder(exchange, 400, erro("O corpo deve ser um array não vazio de lançamentos"), latencia);
+            return;
+        }
+        if (lancamentos.size() > config.getMaxItens()) {
+            responder(exchange, 413, erro("Lote com " + lancamentos.size() + " lançamentos; máximo " +
+                    config.getMaxItens()), latencia);
+            return;
+        }
+        lancamentosRecebidos.add(lancamentos.size());
+        
+        String loteId = UUID.randomUUID().toString();
+        ArrayNode itens = objectMapper.createArrayNode();
+        int aceitos = 0;
+        for (JsonNode lancamento : lancamentos) {
+            ObjectNode item = itens.addObject();
+            JsonNode id = lancamento.get("id");
+            if (id != null) {
+                item.set("id", id);
+            }
+            
+            String invalido = validar(lancamento);
+            if (invalido != null) {
+                recusar(item, invalido, false);
+            } else if (sortear(config.getTaxaRecusaItem())) {
+                recusar(item, "Conta contábil bloqueada para lançamentos (simulado)", false);
+            } else if (sortear(config.getTaxaItemTemporario())) {
+                recusar(item, "Período em fechamento, tente novamente (simulado)", true);
+            } else {
+                item.put("sucesso", true);
+                aceitos++;
+            }
+        }
+        lancamentosAceitos.add(aceitos);
+        
+        ObjectNode corpo = objectMapper.createObjectNode();
+        int statusCode;
+        if (aceitos == lancamentos.size()) {
+            statusCode = 200;
+            corpo.put("status", "aceito");
+        } else if (aceitos > 0) {
+            statusCode = 207;
+            corpo.put("status", "parcial");
+        } else {
+            statusCode = 422;
+            corpo.put("status", "recusado");
+            corpo.put("mensagem", "Nenhum lançamento aceito");
+        }
+        if (aceitos > 0) {
+            boolean comErro = sortear(config.getTaxaErroLote());
+            lotes.put(loteId, new Lote(System.currentTimeMillis() + config.getProcessamentoMs(), comErro));
+            corpo.put("loteId", loteId);
+        }
+        corpo.set("itens", itens);
+        
+        responder(exchange, statusCode, corpo, latencia);
+    }
+    
+    /**
+     * Valida os campos de um lançamento como a API faria
+     * @return Mensagem do problema, ou null se o lançamento é válido
+     */
+    private static String validar(JsonNode lancamento) {
+        if (!lancamento.isObject()) {
+            return "Lançamento deve ser um objeto";
+        }
+        if (!lancamento.path("id").canConvertToLong()) {
+            return "Campo id obrigatório e numérico";
+        }
+        if (lancamento.path("conta").asText("").isBlank()) {
+            return "Campo conta obrigatório";
+        }
+        if (!lancamento.path("valor").isNumber()) {
+            return "Campo valor obrigatório e numérico";
+        }
+        String natureza = lancamento.path("natureza").asText("");
+        if (!"D".equals(natureza) && !"C".equals(natureza)) {
+            return "Campo natureza deve ser D ou C";
+        }
+        try {
+            LocalDate.parse(lancamento.path("data").asText(""));
+        } catch (DateTimeParseException e) {
+            return "Campo data obrigatório no formato AAAA-MM-DD";
+        }
+        return null;
+    }
+    
+    private void recusar(ObjectNode item, String mensagem, boolean temporario) {
+        item.put("sucesso", false);
+        item.put("mensagem", mensagem);
+        item.put("retentavel", temporario);
+        if (temporario) {
+            lancamentosTemporarios.increment();
+        } else {
+            lancamentosRecusados.increment();
+        }
+    }
+    
+    private void consultarStatus(HttpExchange exchange, String loteId) {
+        consultasStatus.increment();
+        long latencia = sortearLatencia();
+        
+        if (sortear(config.getTaxaErro())) {
+            responder(exchange, 503, erro("Serviço temporariamente indisponível (simulado)"), latencia);
+            return;
+        }
+        Lote lote = lotes.get(loteId);
+        if (lote == null) {
+            responder(exchange, 404, erro("Lote não encontrado: " + loteId), latencia);
+            return;
+        }
+        
+        String status = lote.status();
+        String etag = "\"" + loteId + "-" + status + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            responder(exchange, 304, null, latencia);
+            return;
+        }
+        
+        ObjectNode corpo = objectMapper.createObjectNode();
+        corpo.put("loteId", loteId);
+        corpo.put("status", status);
+        if (STATUS_ERRO.equals(status)) {
+            corpo.put("mensagem", "Falha no processamento do lote (simulado)");
+        }
+        responder(exchange, 200, corpo, latencia);
+    }
+    
+    /**
+     * Envia a resposta após a latência sorteada, sem bloquear a thread que atendeu
+     */
+    private void responder(HttpExchange exchange, int statusCode, JsonNode corpo, long latencia) {
+        if (statusCode == 429) {
+            respostas429.increment();
+        } else if (statusCode >= 500) {
+            respostas5xx.increment();
+        } else if (statusCode >= 400) {
+            respostas4xx.increment();
+        }
+        
+        byte[] bytes;
+        try {
+            bytes = corpo != null ? objectMapper.writeValueAsBytes(corpo) : new byte[0];
+        } catch (IOException e) {
+            bytes = new byte[0];
+        }
+        byte[] resposta = bytes;
+        
+        Runnable enviar = () -> {
+            try {
+                drenar(exchange.getRequestBody());
+                if (resposta.length > 0) {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                    exchange.sendResponseHeaders(statusCode, resposta.length);
+                    try (OutputStream saida = exchange.getResponseBody()) {
+                        saida.write(resposta);
+                    }
+                } else {
+                    exchange.sendResponseHeaders(statusCode, -1);
+                }
+            } catch (IOException e) {
+                logger.fine("Cliente desconectou antes da resposta: " + e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        };
+        
+        if (latencia > 0) {
+            agendador.schedule(enviar, latencia, TimeUnit.MILLISECONDS);
+        } else {
+            enviar.run();
+        }
+    }
+    
+    private static void drenar(InputStream entrada) throws IOException {
+        byte[] descarte = new byte[8192];
+        while (entrada.read(descarte) >= 0) {
+            // corpo não lido (respostas antecipadas) precisa ser consumido para reaproveitar a conexão
+        }
+    }
+    
+    private ObjectNode erro(String mensagem) {
+        ObjectNode corpo = objectMapper.createObjectNode();
+        corpo.put("mensagem", mensagem);
+        return corpo;
+    }
+    
+    private static boolean sortear(double taxa) {
+        return taxa > 0 && ThreadLocalRandom.current().nextDouble() < taxa;
+    }
+    
+    /**
+     * Latência da próxima resposta conforme a distribuição configurada, limitada à máxima
+     */
+    long sortearLatencia() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double media = Math.max(0, config.getLatenciaMediaMs());
+        double desvio = Math.max(0, config.getLatenciaDesvioMs());
+        
+        double latencia;
+        switch (config.getDistribuicao()) {
+            case UNIFORME:
+                latencia = media - desvio + random.nextDouble() * 2 * desvio;
+                break;
+            case NORMAL:
+                latencia = media + random.nextGaussian() * desvio;
+                break;
+            case EXPONENCIAL:
+                latencia = -media * Math.log(1 - random.nextDouble());
+                break;
+            case LOGNORMAL:
+                if (media <= 0) {
+                    latencia = 0;
+                    break;
+                }
+                double sigma2 = Math.log(1 + (desvio * desvio) / (media * media));
+                double mu = Math.log(media) - sigma2 / 2;
+                latencia = Math.exp(mu + Math.sqrt(sigma2) * random.nextGaussian());
+                break;
+            case FIXA:
+            default:
+                latencia = media;
+                break;
+        }
+        return (long) Math.min(Math.max(0, latencia), config.getLatenciaMaximaMs());
+    }
+    
+    /**
+     * Execução isolada para testes de carga:
+     * java -cp nasajon-sqlserver-integration.jar com.integration.nasajon.mock.MockNasajonApi [mock.properties]
+     * As propriedades "mock.*" do sistema têm prioridade sobre as do arquivo.
+     */
+    public static void main(String[] args) throws Exception {
+        Properties props = new Properties();
+        if (args.length > 0) {
+            try (FileInputStream fis = new FileInputStream(args[0])) {
+                props.load(fis);
+            }
+        }
+        for (String nome : System.getProperties().stringPropertyNames()) {
+            if (nome.startsWith("mock.")) {
+                props.setProperty(nome, System.getProperty(nome));
+            }
+        }
+        
+        MockNasajonApi api = iniciar(MockApiConfig.load(props));
+        Runtime.getRuntime().addShutdownHook(new Thread(api::close, "mock-api-encerramento"));
+        
+        // Resumo periódico enquanto houver tráfego
+        long ultimo = -1;
+        while (!Thread.currentThread().isInterrupted()) {
+            TimeUnit.SECONDS.sleep(10);
+            long atual = api.getRequisicoes();
+            if (atual != ultimo) {
+                logger.info(api.getEstatisticas());
+                ultimo = atual;
+            }
+        }
+    }
+    
+    /**
+     * Lote aceito: fica "processando" até o prazo e depois "processado" ou "erro"
+     */
+    private static final class Lote {
+        private final long concluidoEm;
+        private final boolean comErro;
+        
+        private Lote(long concluidoEm, boolean comErro) {
+            this.concluidoEm = concluidoEm;
+            this.comErro = comErro;
+        }
+        
+        private String status() {
+            if (System.currentTimeMillis() < concluidoEm) {
+                return STATUS_PROCESSANDO;
+            }
+            return comErro ? STATUS_ERRO : STATUS_PROCESSADO;
+        }
+    }
+    
+    /**
+     * Conta os bytes lidos do corpo (antes da descompressão) e recusa corpos acima do limite
+     */
+    private static final class ContadorEntrada extends InputStream {
+        private final InputStream entrada;
+        private final long limite;
+        private long lidos;
+        
+        private ContadorEntrada(InputStream entrada, long limite) {
+            this.entrada = entrada;
+            this.limite = limite;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = entrada.read();
+            if (b >= 0) {
+                contar(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = entrada.read(b, off, len);
+            if (n > 0) {
+                contar(n);
+            }
+            return n;
+        }
+        
+        private void contar(int n) throws LimiteExcedidoException {
+            lidos += n;
+            if (limite > 0 && lidos > limite) {
+                throw new LimiteExcedidoException();
+            }
+        }
+        
+        @Override
+        public void close() {
+            // o corpo é drenado e fechado junto com a resposta
+        }
+    }
+    
+    private static final class LimiteExcedidoException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        private LimiteExcedidoException() {
+            super("Limite de bytes excedido");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.integration.nasajon.model;
+
+import java.util.Locale;
+
+/**
+ * Status de integração de um lançamento contábil.
+ * No banco é gravado apenas o código numérico (coluna status_codigo).
+ */
+public enum StatusLancamento {
+    PENDENTE(0),
+    ENVIADO(1),
+    ERRO(2),
+    EM_PROCESSAMENTO(3),
+    // Processamento do lote confirmado pela API (ver LoteStatusPoller)
+    CONFIRMADO(4);
+    
+    private final int codigo;
+    
+    StatusLancamento(int codigo) {
+        this.codigo = codigo;
+    }
+    
+    public int getCodigo() {
+        return codigo;
+    }
+    
+    public static StatusLancamento fromCodigo(int codigo) {
+        for (StatusLancamento status : values()) {
+            if (status.codigo == codigo) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Código de status desconhecido: " + codigo);
+    }
+    
+    /**
+     * Status pelo nome, sem diferenciar maiúsculas e ignorando espaços nas pontas
+     * ("enviado", " ERRO ", "em processamento")
+     * @return Status, ou null se o nome não corresponder a nenhum
+     */
+    public static StatusLancamento fromNome(String nome) {
+        if (nome == null) {
+            return null;
+        }
+        String normalizado = nome.trim().replaceAll("\\s+", "_").toUpperCase(Locale.ROOT);
+        for (StatusLancamento status : values()) {
+            if (status.name().equals(normalizado)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
@@ -1,10 +1,8 @@
 package com.integration.nasajon.scheduler;
 
 import com.integration.nasajon.config.IntegrationConfig;
-import com.integration.nasajon.dao.IntegrationLogDAO;
 import com.integration.nasajon.model.IntegrationLog;
-import com.integration.nasajon.service.ApiIntegrationService;
-import com.integration.nasajon.service.FileIntegrationService;
+import com.integration.nasajon.service.IntegrationRuntime;
 import com.integration.nasajon.service.IntegrationService;
 
 import org.quartz.*;
@@ -16,6 +14,8 @@ import java.util.logging.Logger;
 public class IntegrationScheduler {
     private static final Logger logger = Logger.getLogger(IntegrationScheduler.class.getName());
     
+    private static final TriggerKey INTEGRATION_TRIGGER = TriggerKey.triggerKey("integrationTrigger", "nasajonGroup");
+    
     private final IntegrationConfig config;
     private Scheduler scheduler;
     
@@ -39,20 +39,55 @@ public class IntegrationScheduler {
             
             // Definir trigger com expressão cron
             CronTrigger trigger = TriggerBuilder.newTrigger()
-                    .withIdentity("integrationTrigger", "nasajonGroup")
+                    .withIdentity(INTEGRATION_TRIGGER)
                     .withSchedule(CronScheduleBuilder.cronSchedule(config.getScheduleExpression()))
                     .build();
             
             // Agendar job
             scheduler.scheduleJob(job, trigger);
             
-            // Iniciar scheduler se habilitado
+            // Retenção dos logs no mesmo agendador
+            if (config.isLogRetentionEnabled()) {
+                JobDetail retentionJob = JobBuilder.newJob(LogRetentionJob.class)
+                        .withIdentity("logRetentionJob", "nasajonGroup")
+                        .build();
+                retentionJob.getJobDataMap().put("config", config);
+                
+                CronTrigger retentionTrigger = TriggerBuilder.newTrigger()
+                        .withIdentity("logRetentionTrigger", "nasajonGroup")
+                        .withSchedule(CronScheduleBuilder.cronSchedule(config.getLogRetentionSchedule()))
+                        .build();
+                
+                scheduler.scheduleJob(retentionJob, retentionTrigger);
+            }
+            
+            // Confirmação dos lotes enviados à API
+            if (config.isApiStatusPollEnabled() && "api".equalsIgnoreCase(config.getIntegrationType())) {
+                JobDetail statusJob = JobBuilder.newJob(LoteStatusJob.class)
+                        .withIdentity("loteStatusJob", "nasajonGroup")
+                        .build();
+                statusJob.getJobDataMap().put("config", config);
+                
+                SimpleTrigger statusTrigger = TriggerBuilder.newTrigger()
+                        .withIdentity("loteStatusTrigger", "nasajonGroup")
+                        .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(Math.max(1, config.getApiStatusPollSeconds()))
+                                .withMisfireHandlingInstructionNextWithRemainingCount())
+                        .build();
+                
+                scheduler.scheduleJob(statusJob, statusTrigger);
+            }
+            
+            // O scheduler sempre roda (retenção e confirmação de lotes); desabilitar o
+            // agendamento pausa só o trigger da integração
+            if (!config.isSchedulingEnabled()) {
+                scheduler.pauseTrigger(INTEGRATION_TRIGGER);
+            }
+            scheduler.start();
+            
             if (config.isSchedulingEnabled()) {
-                scheduler.start();
                 logger.info("Agendador de integração iniciado com expressão: " + config.getScheduleExpression());
                 
-                IntegrationLogDAO logDAO = new IntegrationLogDAO(config);
-                logDAO.salvar(new IntegrationLog("INFO", "Agendador de integração iniciado", 
+                IntegrationRuntime.get().getLogDAO().salvar(new IntegrationLog("INFO", "Agendador de integração iniciado", 
                         "Expressão cron: " + config.getScheduleExpression()));
             } else {
                 logger.info("Agendador de integração está desabilitado nas configurações");
@@ -65,15 +100,14 @@ public class IntegrationScheduler {
     
     public void start() {
         try {
-            if (scheduler != null && !scheduler.isStarted()) {
-                scheduler.start();
+            if (scheduler != null && integracaoPausada()) {
+                scheduler.resumeTrigger(INTEGRATION_TRIGGER);
                 logger.info("Agendador de integração iniciado");
                 
                 // Atualizar configuração
                 config.setSchedulingEnabled(true);
                 
-                IntegrationLogDAO logDAO = new IntegrationLogDAO(config);
-                logDAO.salvar(new IntegrationLog("INFO", "Agendador de integração iniciado", 
+                IntegrationRuntime.get().getLogDAO().salvar(new IntegrationLog("INFO", "Agendador de integração iniciado", 
                         "Expressão cron: " + config.getScheduleExpression()));
             }
         } catch (SchedulerException e) {
@@ -83,42 +117,62 @@ public class IntegrationScheduler {
     
     public void stop() {
         try {
-            if (scheduler != null && scheduler.isStarted()) {
-                scheduler.standby();
+            if (scheduler != null && !integracaoPausada()) {
+                scheduler.pauseTrigger(INTEGRATION_TRIGGER);
                 logger.info("Agendador de integração pausado");
                 
                 // Atualizar configuração
                 config.setSchedulingEnabled(false);
                 
-                IntegrationLogDAO logDAO = new IntegrationLogDAO(config);
-                logDAO.salvar(new IntegrationLog("INFO", "Agendador de integração pausado"));
+                IntegrationRuntime.get().getLogDAO().salvar(new IntegrationLog("INFO", "Agendador de integração pausado"));
             }
         } catch (SchedulerException e) {
             logger.log(Level.SEVERE, "Erro ao pausar o agendador de integração", e);
         }
     }
     
+    private boolean integracaoPausada() throws SchedulerException {
+        return scheduler.getTriggerState(INTEGRATION_TRIGGER) == Trigger.TriggerState.PAUSED;
+    }
+    
+    /**
+     * Encerra o agendador, aguardando os jobs em execução terminarem.
+     * Deve ser chamado antes de IntegrationRuntime.encerrar(), que fecha os pools usados pelos jobs.
+     */
+    public void shutdown() {
+        try {
+            if (scheduler != null && !scheduler.isShutdown()) {
+                logger.info("Encerrando agendador de integração; aguardando jobs em execução");
+                scheduler.shutdown(true);
+            }
+        } catch (SchedulerException e) {
+            logger.log(Level.SEVERE, "Erro ao encerrar o agendador de integração", e);
+        }
+    }
+    
     public void updateSchedule(String cronExpression) {
         try {
             // Verificar se a expressão cron é válida
             CronScheduleBuilder.cronSchedule(cronExpression);
             
             // Atualizar trigger
-            TriggerKey triggerKey = TriggerKey.triggerKey("integrationTrigger", "nasajonGroup");
             CronTrigger trigger = TriggerBuilder.newTrigger()
-                    .withIdentity(triggerKey)
+                    .withIdentity(INTEGRATION_TRIGGER)
                     .withSchedule(CronScheduleBuilder.cronSchedule(cronExpression))
                     .build();
             
-            scheduler.rescheduleJob(triggerKey, trigger);
+            // O trigger novo nasce ativo; mantém a pausa se o agendamento estiver desabilitado
+            scheduler.rescheduleJob(INTEGRATION_TRIGGER, trigger);
+            if (!config.isSchedulingEnabled()) {
+                scheduler.pauseTrigger(INTEGRATION_TRIGGER);
+            }
             
             // Atualizar configuração
             config.setScheduleExpression(cronExpression);
             
             logger.info("Agendamento atualizado para: " + cronExpression);
             
-            IntegrationLogDAO logDAO = new IntegrationLogDAO(config);
-            logDAO.salvar(new IntegrationLog("INFO", "Agendamento atualizado", 
+            IntegrationRuntime.get().getLogDAO().salvar(new IntegrationLog("INFO", "Agendamento atualizado", 
                     "Nova expressão cron: " + cronExpression));
             
         } catch (Exception e) {
@@ -133,8 +187,7 @@ public class IntegrationScheduler {
             
             logger.info("Execução manual da integração iniciada");
             
-            IntegrationLogDAO logDAO = new IntegrationLogDAO(config);
-            logDAO.salvar(new IntegrationLog("INFO", "Execução manual da integração iniciada"));
+            IntegrationRuntime.get().getLogDAO().salvar(new IntegrationLog("INFO", "Execução manual da integração iniciada"));
             
         } catch (SchedulerException e) {
             logger.log(Level.SEVERE, "Erro ao executar integração manualmente", e);
@@ -145,16 +198,8 @@ public class IntegrationScheduler {
         @Override
         public void execute(JobExecutionContext context) throws JobExecutionException {
             try {
-                // Obter configuração
-                IntegrationConfig config = (IntegrationConfig) context.getJobDetail().getJobDataMap().get("config");
-                
-                // Criar serviço de integração
-                IntegrationService service;
-                if ("api".equalsIgnoreCase(config.getIntegrationType())) {
-                    service = new ApiIntegrationService(config);
-                } else {
-                    service = new FileIntegrationService(config);
-                }
+                // Serviço compartilhado do tipo de integração configurado
+                IntegrationService service = IntegrationRuntime.get().getIntegrationService();
                 
                 // Executar integração
                 int processados = service.executarIntegracao();
@@ -167,4 +212,24 @@ public class IntegrationScheduler {
             }
         }
     }
+    
+    @DisallowConcurrentExecution
+    public static class LogRetentionJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            int removidos = IntegrationRuntime.get().getLogRetentionService().executar();
+            
+            logger.info("Retenção de logs agendada executada. Logs removidos: " + removidos);
+        }
+    }
+    
+    @DisallowConcurrentExecution
+    public static class LoteStatusJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            int concluidos = IntegrationRuntime.get().getStatusPoller().verificarPendentes();
+            
+            logger.fine("Consulta de status dos lotes executada. Lotes concluídos: " + concluidos);
+        }
+    }
 }
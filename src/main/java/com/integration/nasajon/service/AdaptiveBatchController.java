@@ -0,0 +1,182 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.config.IntegrationConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Controle adaptativo do tamanho dos lotes enviados à API (AIMD).
+ *
+ * O tamanho cresce de forma aditiva enquanto a API responde dentro da latência alvo
+ * e cai pela metade com HTTP 429/5xx, falhas de rede ou latência acima da meta. O
+ * tamanho também é limitado para que o payload estimado caiba no orçamento de bytes.
+ * Há um controlador por URL da API, que mantém o aprendizado entre as execuções.
+ */
+public class AdaptiveBatchController {
+    private static final Logger logger = Logger.getLogger(AdaptiveBatchController.class.getName());
+    
+    // Respostas consideradas na taxa de erros
+    private static final int JANELA_TAXA_ERROS = 20;
+    
+    private static final Map<String, AdaptiveBatchController> controladores = new ConcurrentHashMap<>();
+    
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long latenciaAlvoMillis;
+    private final long maxBytes;
+    private final int incremento;
+    
+    private int tamanhoAtual;
+    private long geracao;
+    private String ultimoMotivo = "Tamanho inicial";
+    private double bytesPorLancamento;
+    private final boolean[] errosRecentes = new boolean[JANELA_TAXA_ERROS];
+    private int respostas;
+    
+    public AdaptiveBatchController(int tamanhoInicial, int tamanhoMinimo, int tamanhoMaximo, long latenciaAlvoMillis,
+                                   long maxBytes, int incremento) {
+        this.tamanhoMinimo = Math.max(1, tamanhoMinimo);
+        this.tamanhoMaximo = Math.max(this.tamanhoMinimo, tamanhoMaximo);
+        this.latenciaAlvoMillis = latenciaAlvoMillis;
+        this.maxBytes = maxBytes;
+        this.incremento = Math.max(1, incremento);
+        this.tamanhoAtual = limitar(tamanhoInicial);
+    }
+    
+    /**
+     * Controlador compartilhado para a API configurada
+     * @param config Configuração da integração
+     * @return Controlador da URL da API; é recriado quando os limites configurados mudam,
+     *         partindo do tamanho já aprendido (ajustado aos novos limites)
+     */
+    public static AdaptiveBatchController para(IntegrationConfig config) {
+        int tamanhoMinimo = config.getApiBatchMinSize();
+        int tamanhoMaximo = config.getApiBatchMaxSize();
+        long latenciaAlvoMillis = config.getApiBatchTargetLatencyMs();
+        long maxBytes = config.getApiBatchMaxBytes();
+        int incremento = config.getApiBatchIncreaseStep();
+        return controladores.compute(config.getApiUrl(), (url, atual) ->
+                atual != null
+                        && atual.temParametros(tamanhoMinimo, tamanhoMaximo, latenciaAlvoMillis, maxBytes, incremento)
+                        ? atual
+                        : new AdaptiveBatchController(atual != null ? atual.getTamanhoAtual() : config.getBatchSize(),
+                                tamanhoMinimo, tamanhoMaximo, latenciaAlvoMillis, maxBytes, incremento));
+    }
+    
+    /**
+     * Indica se o controlador foi criado com estes limites (para recriá-lo quando a configuração muda)
+     */
+    public boolean temParametros(int tamanhoMinimo, int tamanhoMaximo, long latenciaAlvoMillis, long maxBytes,
+                                 int incremento) {
+        int minimo = Math.max(1, tamanhoMinimo);
+        return this.tamanhoMinimo == minimo && this.tamanhoMaximo == Math.max(minimo, tamanhoMaximo)
+                && this.latenciaAlvoMillis == latenciaAlvoMillis && this.maxBytes == maxBytes
+                && this.incremento == Math.max(1, incremento);
+    }
+    
+    /**
+     * Tamanho a usar no próximo lote, já limitado pelo orçamento de bytes
+     */
+    public synchronized int getTamanhoLote() {
+        if (bytesPorLancamento > 0 && maxBytes > 0) {
+            int cabeNoOrcamento = (int) Math.max(1, maxBytes / bytesPorLancamento);
+            return Math.max(tamanhoMinimo, Math.min(tamanhoAtual, cabeNoOrcamento));
+        }
+        return tamanhoAtual;
+    }
+    
+    /**
+     * Geração do tamanho atual; muda a cada ajuste. Lotes cortados com uma geração antiga
+     * não provocam nova redução, para que respostas de lotes simultâneos não reduzam
+     * o tamanho várias vezes pelo mesmo motivo.
+     */
+    public synchronized long getGeracao() {
+        return geracao;
+    }
+    
+    public synchronized int getTamanhoAtual() {
+        return tamanhoAtual;
+    }
+    
+    public synchronized String getUltimoMotivo() {
+        return ultimoMotivo;
+    }
+    
+    /**
+     * Percentual de respostas com erro (429, 5xx ou falha) entre as últimas recebidas
+     */
+    public synchronized double getTaxaErros() {
+        int consideradas = Math.min(respostas, JANELA_TAXA_ERROS);
+        if (consideradas == 0) {
+            return 0.0;
+        }
+        int erros = 0;
+        for (int i = 0; i < consideradas; i++) {
+            if (errosRecentes[i]) {
+                erros++;
+            }
+        }
+        return 100.0 * erros / consideradas;
+    }
+    
+    /**
+     * Registra o resultado de um lote e ajusta o tamanho
+     * @param geracaoDoLote Geração em que o lote foi cortado (ver getGeracao)
+     * @param quantidade Lançamentos no lote
+     * @param bytes Tamanho do JSON do lote, sem compressão
+     * @param latenciaMillis Tempo até a resposta, incluindo novas tentativas
+     * @param statusCode Código HTTP da resposta, ou -1 se o envio falhou
+     */
+    public synchronized void registrar(long geracaoDoLote, int quantidade, long bytes, long latenciaMillis,
+                                       int statusCode) {
+        boolean erro = statusCode < 0 || statusCode == 429 || statusCode >= 500;
+        errosRecentes[respostas % JANELA_TAXA_ERROS] = erro;
+        respostas++;
+        
+        if (quantidade > 0 && bytes > 0) {
+            double amostra = (double) bytes / quantidade;
+            bytesPorLancamento = bytesPorLancamento == 0 ? amostra : 0.8 * bytesPorLancamento + 0.2 * amostra;
+        }
+        
+        boolean atual = geracaoDoLote == geracao;
+        if (erro) {
+            if (atual) {
+                reduzir(statusCode < 0 ? "Falha no envio" : "HTTP " + statusCode);
+            }
+        } else if (latenciaAlvoMillis > 0 && latenciaMillis > latenciaAlvoMillis) {
+            if (atual) {
+                reduzir("Latência de " + latenciaMillis + " ms acima da meta de " + latenciaAlvoMillis + " ms");
+            }
+        } else if (statusCode < 300 && atual && quantidade >= getTamanhoLote()) {
+            // Só cresce quando o lote cheio foi bem, e só uma vez por geração
+            ajustar(tamanhoAtual + incremento, "Resposta em " + latenciaMillis + " ms dentro da meta");
+        }
+    }
+    
+    private void reduzir(String motivo) {
+        ajustar(tamanhoAtual / 2, motivo + String.format(" (taxa de erros %.0f%%)", getTaxaErros()));
+    }
+    
+    private void ajustar(int novoTamanho, String motivo) {
+        int anterior = tamanhoAtual;
+        tamanhoAtual = limitar(novoTamanho);
+        if (tamanhoAtual == anterior) {
+            return;
+        }
+        geracao++;
+        ultimoMotivo = motivo;
+        logger.info("Tamanho do lote ajustado de " + anterior + " para " + tamanhoAtual + ": " + motivo);
+    }
+    
+    private int limitar(int tamanho) {
+        return Math.max(tamanhoMinimo, Math.min(tamanhoMaximo, tamanho));
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("Tamanho adaptativo do lote: %d (%d pelo orçamento de bytes). Último ajuste: %s",
+                tamanhoAtual, getTamanhoLote(), ultimoMotivo);
+    }
+}
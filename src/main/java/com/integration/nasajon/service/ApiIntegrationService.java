@@ -6,62 +6,159 @@ import com.integration.nasajon.dao.IntegrationLogDAO;
 import com.integration.nasajon.dao.LancamentoContabilDAO;
 import com.integration.nasajon.model.IntegrationLog;
 import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.model.StatusLancamento;
+import com.integration.nasajon.util.CircuitBreaker;
+import com.integration.nasajon.util.RetryBudget;
+import com.integration.nasajon.util.RetryPolicy;
 import com.integration.nasajon.util.RetryUtil;
+import com.integration.nasajon.util.TokenBucket;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 public class ApiIntegrationService implements IntegrationService {
     private static final Logger logger = Logger.getLogger(ApiIntegrationService.class.getName());
     
+    // Circuito e limite de taxa por URL da API, compartilhados por todas as execuções
+    // e pela consulta de status dos lotes
+    private static final Map<String, CircuitBreaker> circuitos = new ConcurrentHashMap<>();
+    private static final Map<String, TokenBucket> limitadores = new ConcurrentHashMap<>();
+    
     private final IntegrationConfig config;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final LancamentoContabilDAO lancamentoDAO;
     private final IntegrationLogDAO logDAO;
+    private final IntegrationQueueRunner queueRunner;
+    private final AdaptiveBatchController controleLote;
+    private final LoteStatusPoller statusPoller;
+    private final CircuitBreaker circuito;
+    private final TokenBucket limitador;
     
     public ApiIntegrationService(IntegrationConfig config) {
+        this(config,
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build(),
+                new ObjectMapper(),
+                new LancamentoContabilDAO(config),
+                new IntegrationLogDAO(config),
+                null);
+    }
+    
+    /**
+     * Serviço que usa objetos compartilhados (ver IntegrationRuntime)
+     * @param statusPoller Poller usado por verificarStatusLote; null cria um próprio
+     */
+    public ApiIntegrationService(IntegrationConfig config, HttpClient httpClient, ObjectMapper objectMapper,
+                                 LancamentoContabilDAO lancamentoDAO, IntegrationLogDAO logDAO,
+                                 LoteStatusPoller statusPoller) {
         this.config = config;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .build();
-        this.objectMapper = new ObjectMapper();
-        this.lancamentoDAO = new LancamentoContabilDAO(config);
-        this.logDAO = new IntegrationLogDAO(config);
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.lancamentoDAO = lancamentoDAO;
+        this.logDAO = logDAO;
+        this.statusPoller = statusPoller != null
+                ? statusPoller
+                : new LoteStatusPoller(config, httpClient, lancamentoDAO, logDAO);
+        this.queueRunner = new IntegrationQueueRunner(lancamentoDAO, logDAO,
+                config.getReadWindowSize(), config.getLeaseSeconds());
+        this.controleLote = config.isApiBatchAdaptive() ? AdaptiveBatchController.para(config) : null;
+        this.circuito = circuitoDa(config);
+        this.limitador = limitadorDa(config);
+    }
+    
+    /**
+     * Circuito compartilhado da URL da API; é recriado quando os limites configurados mudam
+     */
+    static CircuitBreaker circuitoDa(IntegrationConfig config) {
+        int limiteFalhas = config.getApiCircuitFailureThreshold();
+        long tempoAberto = config.getApiCircuitOpenSeconds() * 1000L;
+        int chamadasMeioAberto = config.getApiCircuitHalfOpenCalls();
+        return circuitos.compute(config.getApiUrl(), (url, atual) ->
+                atual != null && atual.temParametros(limiteFalhas, tempoAberto, chamadasMeioAberto)
+                        ? atual
+                        : new CircuitBreaker("API " + url, limiteFalhas, tempoAberto, chamadasMeioAberto));
+    }
+    
+    /**
+     * Limite de taxa compartilhado da URL da API; é recriado quando a taxa ou a rajada mudam
+     */
+    static TokenBucket limitadorDa(IntegrationConfig config) {
+        double taxa = config.getApiRateLimitPerSecond();
+        int rajada = config.getApiRateLimitBurst();
+        return limitadores.compute(config.getApiUrl(), (url, atual) ->
+                atual != null && atual.temParametros(taxa, rajada) ? atual : new TokenBucket(taxa, rajada));
     }
     
     @Override
     public boolean enviarLote(List<LancamentoContabil> lancamentos) {
+        return enviarLote(lancamentos, new Execucao(novoOrcamento()), null);
+    }
+    
+    /**
+     * Envia os lançamentos dividindo em lotes; as novas tentativas de todos os lotes
+     * consomem o mesmo orçamento
+     * @param execucao Estado da execução a que o envio pertence
+     * @param leaseOwner Dono da reserva da janela; o status só é gravado enquanto a reserva for dele
+     *                   (null para envios manuais, sem reserva)
+     */
+    private boolean enviarLote(List<LancamentoContabil> lancamentos, Execucao execucao, String leaseOwner) {
         try {
             logger.info("Iniciando envio de lote via API. Total de lançamentos: " + lancamentos.size());
             logDAO.salvar(new IntegrationLog("INFO", "Iniciando envio de lote via API", "Total de lançamentos: " + lancamentos.size()));
             
             // Dividir em lotes menores se necessário
-            if (lancamentos.size() > config.getBatchSize()) {
-                logger.info("Dividindo em lotes menores de " + config.getBatchSize() + " lançamentos");
+            int tamanhoLote = tamanhoDoLote();
+            if (lancamentos.size() > tamanhoLote) {
+                logger.info("Dividindo em lotes menores de " + tamanhoLote + " lançamentos");
+                
+                if (config.getApiMaxInFlight() > 1) {
+                    return enviarLotesConcorrentes(lancamentos, execucao, leaseOwner);
+                }
+                
                 boolean allSuccess = true;
                 
-                for (int i = 0; i < lancamentos.size(); i += config.getBatchSize()) {
-                    int end = Math.min(i + config.getBatchSize(), lancamentos.size());
+                // Com o tamanho adaptativo, cada lote é cortado com o tamanho do momento
+                for (int i = 0; i < lancamentos.size(); ) {
+                    if (circuito.isBloqueado()) {
+                        devolverPendentes(lancamentos.subList(i, lancamentos.size()), execucao, leaseOwner);
+                        allSuccess = false;
+                        break;
+                    }
+                    
+                    long geracao = geracaoDoLote();
+                    int end = Math.min(i + tamanhoDoLote(), lancamentos.size());
                     List<LancamentoContabil> batch = lancamentos.subList(i, end);
                     
-                    boolean success = enviarLoteIndividual(batch);
+                    boolean success = enviarLoteIndividualAsync(batch, geracao, execucao, leaseOwner).join();
                     if (!success) {
                         allSuccess = false;
                     }
+                    i = end;
                 }
                 
+                registrarTamanhoAdaptativo();
                 return allSuccess;
             } else {
-                return enviarLoteIndividual(lancamentos);
+                return enviarLoteIndividualAsync(lancamentos, geracaoDoLote(), execucao, leaseOwner).join();
             }
-            
+        
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Erro ao enviar lote via API", e);
             logDAO.salvar(new IntegrationLog("ERROR", "Erro ao enviar lote via API", e.getMessage()));
@@ -69,118 +166,486 @@ public class ApiIntegrationService implements IntegrationService {
         }
     }
     
-    private boolean enviarLoteIndividual(List<LancamentoContabil> lancamentos) {
-        try {
-            String requestBody = objectMapper.writeValueAsString(lancamentos);
+    /**
+     * Envia os lotes com até api.max.in.flight requisições em andamento ao mesmo tempo.
+     * O status de cada lote é atualizado assim que a sua resposta chega.
+     */
+    private boolean enviarLotesConcorrentes(List<LancamentoContabil> lancamentos, Execucao execucao,
+                                            String leaseOwner) throws InterruptedException {
+        int maxInFlight = config.getApiMaxInFlight();
+        Semaphore emAndamento = new Semaphore(maxInFlight);
+        List<CompletableFuture<Boolean>> envios = new ArrayList<>();
+        long inicio = System.currentTimeMillis();
+        
+        for (int i = 0; i < lancamentos.size(); ) {
+            emAndamento.acquire();
             
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(config.getApiUrl()))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + config.getApiToken())
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
+            if (circuito.isBloqueado()) {
+                emAndamento.release();
+                devolverPendentes(lancamentos.subList(i, lancamentos.size()), execucao, leaseOwner);
+                envios.add(CompletableFuture.completedFuture(false));
+                break;
+            }
             
-            // Usar utilitário de retry para tentar novamente em caso de falha
-            HttpResponse<String> response = RetryUtil.executeWithRetry(
-                    () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()),
-                    config.getRetryAttempts()
-            );
+            // Cortar o lote só depois de obter a vaga, com o tamanho mais recente
+            long geracao = geracaoDoLote();
+            int end = Math.min(i + tamanhoDoLote(), lancamentos.size());
+            List<LancamentoContabil> batch = lancamentos.subList(i, end);
+            i = end;
             
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                logger.info("Lote enviado com sucesso! Resposta: " + response.body());
-                logDAO.salvar(new IntegrationLog("INFO", "Lote enviado com sucesso", "Resposta: " + response.body()));
-                
-                // Atualizar status dos lançamentos
-                for (LancamentoContabil lancamento : lancamentos) {
-                    lancamentoDAO.atualizarStatus(lancamento.getId(), "ENVIADO", null);
-                }
-                
-                return true;
-            } else {
-                String errorMsg = "Erro ao enviar lote. Código: " + response.statusCode() + ", Mensagem: " + response.body();
-                logger.warning(errorMsg);
-                logDAO.salvar(new IntegrationLog("WARNING", "Erro ao enviar lote", errorMsg));
-                
-                // Atualizar status dos lançamentos
-                for (LancamentoContabil lancamento : lancamentos) {
-                    lancamentoDAO.atualizarStatus(lancamento.getId(), "ERRO", errorMsg);
-                }
-                
-                return false;
+            CompletableFuture<Boolean> envio;
+            try {
+                envio = enviarLoteIndividualAsync(batch, geracao, execucao, leaseOwner);
+            } catch (RuntimeException e) {
+                emAndamento.release();
+                throw e;
             }
-            
+            envio.whenComplete((sucesso, erro) -> emAndamento.release());
+            envios.add(envio);
+        }
+        
+        CompletableFuture.allOf(envios.toArray(new CompletableFuture<?>[0])).join();
+        
+        long comErro = envios.stream().filter(envio -> !envio.join()).count();
+        String resumo = String.format("%d lotes enviados (até %d simultâneos) em %d ms, %d com erro",
+                envios.size(), maxInFlight, System.currentTimeMillis() - inicio, comErro);
+        logger.info(resumo);
+        logDAO.salvar(new IntegrationLog(comErro == 0 ? "INFO" : "WARNING", "Envio concorrente concluído", resumo));
+        registrarTamanhoAdaptativo();
+        
+        return comErro == 0;
+    }
+    
+    private int tamanhoDoLote() {
+        return controleLote != null ? controleLote.getTamanhoLote() : config.getBatchSize();
+    }
+    
+    private long geracaoDoLote() {
+        return controleLote != null ? controleLote.getGeracao() : 0;
+    }
+    
+    /**
+     * Informa ao controle adaptativo o resultado de um lote (sem efeito com tamanho fixo)
+     */
+    private void medirLote(long geracao, List<LancamentoContabil> lancamentos, JsonBatchBody corpo,
+                           long inicioNanos, int statusCode) {
+        if (controleLote != null) {
+            controleLote.registrar(geracao, lancamentos.size(), corpo.getTamanho(),
+                    (System.nanoTime() - inicioNanos) / 1_000_000, statusCode);
+        }
+    }
+    
+    private void registrarTamanhoAdaptativo() {
+        if (controleLote != null) {
+            logger.info(controleLote.toString());
+            logDAO.salvar(new IntegrationLog("INFO", "Tamanho adaptativo do lote", controleLote.toString()));
+        }
+    }
+    
+    /**
+     * Envia um lote sem bloquear e reenvia só os lançamentos recusados com erro temporário,
+     * em até retry.attempts rodadas; nunca completa com exceção
+     * @return Futuro com true se todos os lançamentos foram aceitos pela API
+     */
+    private CompletableFuture<Boolean> enviarLoteIndividualAsync(List<LancamentoContabil> lancamentos, long geracao,
+                                                                 Execucao execucao, String leaseOwner) {
+        return enviarRodadaAsync(lancamentos, geracao, 1, execucao, leaseOwner);
+    }
+    
+    private CompletableFuture<Boolean> enviarRodadaAsync(List<LancamentoContabil> lancamentos, long geracao, int rodada,
+                                                         Execucao execucao, String leaseOwner) {
+        boolean ultimaRodada = rodada >= config.getRetryAttempts();
+        return enviarItensAsync(lancamentos, geracao, ultimaRodada, execucao, leaseOwner).thenCompose(apuracao -> {
+            if (apuracao.reenviar.isEmpty()) {
+                return CompletableFuture.completedFuture(apuracao.sucesso);
+            }
+            if (!execucao.orcamento.consumir()) {
+                String mensagem = "Recusado pela API com erro temporário; orçamento de novas tentativas esgotado";
+                lancamentoDAO.atualizarStatusEmLote(idsDosLancamentos(apuracao.reenviar), StatusLancamento.ERRO, mensagem,
+                        null, leaseOwner);
+                return CompletableFuture.completedFuture(false);
+            }
+            long espera = esperaAntesDoReenvio(apuracao.reenviar, rodada + 1);
+            return RetryUtil.delay(espera)
+                    .thenCompose(v -> enviarRodadaAsync(apuracao.reenviar, geracao, rodada + 1, execucao, leaseOwner))
+                    .thenApply(sucesso -> sucesso && apuracao.sucesso);
+        });
+    }
+    
+    private CompletableFuture<Apuracao> enviarItensAsync(List<LancamentoContabil> lancamentos, long geracao,
+                                                         boolean ultimaRodada, Execucao execucao,
+                                                         String leaseOwner) {
+        JsonBatchBody corpo;
+        boolean comprimir;
+        try {
+            corpo = new JsonBatchBody(objectMapper.getFactory(), lancamentos);
         } catch (Exception e) {
-            String errorMsg = "Erro ao enviar lote individual: " + e.getMessage();
-            logger.log(Level.SEVERE, errorMsg, e);
-            logDAO.salvar(new IntegrationLog("ERROR", "Erro ao enviar lote individual", e.getMessage()));
-            
-            // Atualizar status dos lançamentos
-            for (LancamentoContabil lancamento : lancamentos) {
-                lancamentoDAO.atualizarStatus(lancamento.getId(), "ERRO", errorMsg);
+            return CompletableFuture.completedFuture(Apuracao.semReenvio(registrarFalha(lancamentos, e, leaseOwner)));
+        }
+        try {
+            comprimir = prepararCompressao(corpo, execucao);
+        } catch (Exception e) {
+            corpo.close();
+            return CompletableFuture.completedFuture(Apuracao.semReenvio(registrarFalha(lancamentos, e, leaseOwner)));
+        }
+        
+        // Cada tentativa reenvia os bytes já serializados
+        HttpRequest request = criarRequisicao(corpo, comprimir);
+        RetryPolicy<HttpResponse<BatchResponse>> politica = politicaDeRetry(execucao.orcamento);
+        long inicio = System.nanoTime();
+        return RetryUtil.executeAsync(() -> chamarApiAsync(request, respostaDoLote()), politica).thenCompose(response -> {
+            if (comprimir && compressaoNaoSuportada(response, execucao)) {
+                HttpRequest semCompressao = criarRequisicao(corpo, false);
+                return RetryUtil.executeAsync(() -> chamarApiAsync(semCompressao, respostaDoLote()), politica);
             }
-            
+            return CompletableFuture.completedFuture(response);
+        }).handle((response, erro) -> {
+            try {
+                Exception causa = erro != null ? causaDe(erro) : null;
+                if (causa instanceof CircuitBreaker.CircuitoAbertoException) {
+                    return Apuracao.semReenvio(devolverPendentes(lancamentos, execucao, leaseOwner));
+                }
+                medirLote(geracao, lancamentos, corpo, inicio, erro == null ? response.statusCode() : -1);
+                return erro == null
+                        ? registrarResposta(lancamentos, response, corpo, ultimaRodada, leaseOwner)
+                        : Apuracao.semReenvio(registrarFalha(lancamentos, causa, leaseOwner));
+            } catch (RuntimeException e) {
+                return Apuracao.semReenvio(registrarFalha(lancamentos, e, leaseOwner));
+            } finally {
+                corpo.close();
+            }
+        });
+    }
+    
+    /**
+     * Política das chamadas à API: repete falhas de rede e respostas 408/425/429/5xx
+     * (respeitando Retry-After) dentro do orçamento da execução; erros 4xx não são repetidos
+     */
+    private RetryPolicy<HttpResponse<BatchResponse>> politicaDeRetry(RetryBudget orcamento) {
+        return new RetryPolicy<HttpResponse<BatchResponse>>(config.getRetryAttempts())
+                .classificador(RetryPolicy.http(ApiIntegrationService::deveRepetir))
+                .orcamento(orcamento);
+    }
+    
+    private RetryBudget novoOrcamento() {
+        return new RetryBudget("da API", config.getRetryBudgetRatio(), config.getRetryBudgetMin());
+    }
+    
+    private long esperaAntesDoReenvio(List<LancamentoContabil> lancamentos, int rodada) {
+        long espera = RetryUtil.calculateWaitTime(rodada - 1);
+        logger.info(lancamentos.size() + " lançamentos recusados com erro temporário. Reenviando em " +
+                espera + " ms (rodada " + rodada + " de " + config.getRetryAttempts() + ")");
+        return espera;
+    }
+    
+    private HttpResponse.BodyHandler<BatchResponse> respostaDoLote() {
+        return BatchResponse.handler(objectMapper.getFactory(), config.getApiResponseMaxBytes());
+    }
+    
+    /**
+     * Chamada à API protegida pelo circuit breaker e pelo limite de taxa;
+     * a espera pelo limite de taxa não ocupa thread
+     */
+    private <T> CompletableFuture<HttpResponse<T>> chamarApiAsync(HttpRequest request, HttpResponse.BodyHandler<T> leitor) {
+        return chamarApiAsync(httpClient, circuito, limitador, request, leitor);
+    }
+    
+    /**
+     * Chamada à API pelo circuito e limite de taxa informados (ver circuitoDa e limitadorDa),
+     * também usada pela consulta de status dos lotes
+     */
+    static <T> CompletableFuture<HttpResponse<T>> chamarApiAsync(HttpClient httpClient, CircuitBreaker circuito,
+                                                                 TokenBucket limitador, HttpRequest request,
+                                                                 HttpResponse.BodyHandler<T> leitor) {
+        try {
+            circuito.verificar();
+        } catch (CircuitBreaker.CircuitoAbertoException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        long espera = limitador.reservar();
+        CompletableFuture<HttpResponse<T>> envio = espera > 0
+                ? RetryUtil.delay(espera).thenCompose(v -> httpClient.sendAsync(request, leitor))
+                : httpClient.sendAsync(request, leitor);
+        
+        return envio.whenComplete((response, erro) -> {
+            if (erro != null) {
+                circuito.registrarFalha();
+            } else {
+                registrarNoCircuito(circuito, response.statusCode());
+            }
+        });
+    }
+    
+    private static void registrarNoCircuito(CircuitBreaker circuito, int statusCode) {
+        if (statusCode == 429 || statusCode >= 500) {
+            circuito.registrarFalha();
+        } else {
+            circuito.registrarSucesso();
+        }
+    }
+    
+    static boolean deveRepetir(Throwable erro) {
+        return !(erro instanceof CircuitBreaker.CircuitoAbertoException);
+    }
+    
+    /**
+     * Devolve à fila lançamentos que não foram enviados porque o circuito abriu.
+     * Não grava log por lote: a interrupção é registrada uma única vez ao final da execução.
+     */
+    private boolean devolverPendentes(List<LancamentoContabil> lancamentos, Execucao execucao, String leaseOwner) {
+        lancamentoDAO.atualizarStatusEmLote(idsDosLancamentos(lancamentos), StatusLancamento.PENDENTE, null,
+                null, leaseOwner);
+        execucao.devolvidos.addAndGet(lancamentos.size());
+        logger.fine(lancamentos.size() + " lançamentos devolvidos como PENDENTE: circuito da API aberto");
+        return false;
+    }
+    
+    private static Exception causaDe(Throwable erro) {
+        Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+        return causa instanceof Exception ? (Exception) causa : new Exception(causa);
+    }
+    
+    /**
+     * Decide se o lote vai comprimido e, nesse caso, gera a versão gzip
+     * @return true se o corpo deve ser enviado comprimido
+     */
+    private boolean prepararCompressao(JsonBatchBody corpo, Execucao execucao) throws IOException {
+        if (!config.isApiCompressionEnabled() || execucao.compressaoRecusada.get()
+                || corpo.getTamanho() < config.getApiCompressionThresholdBytes()) {
             return false;
         }
+        corpo.comprimir(config.getApiCompressionLevel());
+        
+        // Dados que não comprimem seguem como estão
+        return corpo.getTamanhoComprimido() < corpo.getTamanho();
     }
     
-    @Override
-    public String verificarStatusLote(String loteId) {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(config.getApiUrl() + "/status/" + loteId))
-                    .header("Authorization", "Bearer " + config.getApiToken())
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
-                return response.body();
+    /**
+     * Verifica se o servidor recusou o corpo comprimido; se sim, desliga a compressão
+     * para os próximos lotes desta execução
+     */
+    private boolean compressaoNaoSuportada(HttpResponse<BatchResponse> response, Execucao execucao) {
+        if (response.statusCode() != 415) {
+            return false;
+        }
+        if (execucao.compressaoRecusada.compareAndSet(false, true)) {
+            String mensagem = "Servidor não aceita payload comprimido (HTTP 415). Enviando sem compressão";
+            logger.warning(mensagem);
+            logDAO.salvar(new IntegrationLog("WARNING", mensagem, "Resposta: " + response.body().getTrecho()));
+        }
+        return true;
+    }
+    
+    private HttpRequest criarRequisicao(JsonBatchBody corpo, boolean comprimido) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(config.getApiUrl()))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + config.getApiToken());
+        if (comprimido) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        return builder.POST(corpo.publisher(comprimido)).build();
+    }
+    
+    /**
+     * Aplica o resultado de cada lançamento: aceitos ficam ENVIADO e recusados ficam ERRO
+     * com a mensagem da API. Recusados com erro temporário voltam para reenvio, exceto
+     * na última rodada. Lançamentos que a resposta não menciona seguem o código HTTP do lote;
+     * um lote recusado por inteiro com erro temporário já foi repetido pelo RetryUtil.
+     * Se a resposta veio truncada ou ilegível, a aceitação dos lançamentos não mencionados
+     * não é presumida: com o lote identificado e a consulta de status ativa, eles ficam
+     * ENVIADO aguardando a confirmação; senão voltam para reenvio (ERRO na última rodada).
+     */
+    private Apuracao registrarResposta(List<LancamentoContabil> lancamentos, HttpResponse<BatchResponse> response,
+                                       JsonBatchBody corpo, boolean ultimaRodada, String leaseOwner) {
+        BatchResponse resposta = response.body();
+        int statusCode = response.statusCode();
+        boolean loteAceito = statusCode >= 200 && statusCode < 300;
+        // Corpo truncado pelo limite ou com erro de leitura
+        boolean respostaIncompleta = resposta.getErroLeitura() != null;
+        boolean aguardarConfirmacao = resposta.getLoteId() != null && config.isApiStatusPollEnabled();
+        String erroLote = "Erro ao enviar lote. Código: " + statusCode + ", Mensagem: " +
+                (resposta.getMensagem() != null ? resposta.getMensagem() : resposta.getTrecho());
+        
+        List<Long> aceitos = new ArrayList<>();
+        Map<String, List<Long>> recusados = new LinkedHashMap<>();
+        List<LancamentoContabil> reenviar = new ArrayList<>();
+        int totalRecusados = 0;
+        int semResultado = 0;
+        
+        for (LancamentoContabil lancamento : lancamentos) {
+            BatchResponse.Item item = resposta.getItem(lancamento.getId());
+            if (item == null && loteAceito && respostaIncompleta) {
+                semResultado++;
+                if (aguardarConfirmacao) {
+                    aceitos.add(lancamento.getId());
+                } else if (!ultimaRodada) {
+                    reenviar.add(lancamento);
+                } else {
+                    recusados.computeIfAbsent("Resposta da API incompleta; resultado do lançamento desconhecido",
+                            m -> new ArrayList<>()).add(lancamento.getId());
+                    totalRecusados++;
+                }
+            } else if (item != null ? item.isAceito() : loteAceito) {
+                aceitos.add(lancamento.getId());
+            } else if (!ultimaRodada && item != null && item.isRetentavel()) {
+                reenviar.add(lancamento);
             } else {
-                logger.warning("Erro ao verificar status do lote. Código: " + response.statusCode());
-                return "ERRO";
+                String mensagem = item != null && item.getMensagem() != null
+                        ? "Recusado pela API: " + item.getMensagem()
+                        : erroLote;
+                recusados.computeIfAbsent(mensagem, m -> new ArrayList<>()).add(lancamento.getId());
+                totalRecusados++;
             }
-            
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Erro ao verificar status do lote", e);
-            return "ERRO";
         }
+        
+        // Atualizar status dos lançamentos (recusados agrupados pela mensagem)
+        if (!aceitos.isEmpty()) {
+            lancamentoDAO.atualizarStatusEmLote(aceitos, StatusLancamento.ENVIADO, null, resposta.getLoteId(), leaseOwner);
+        }
+        recusados.forEach((mensagem, ids) ->
+                lancamentoDAO.atualizarStatusEmLote(ids, StatusLancamento.ERRO, mensagem, null, leaseOwner));
+        
+        StringBuilder detalhes = new StringBuilder(String.format(
+                "Código: %d, aceitos: %d, recusados: %d, para reenvio: %d",
+                statusCode, aceitos.size(), totalRecusados, reenviar.size()));
+        if (resposta.getLoteId() != null) {
+            detalhes.append(", lote na API: ").append(resposta.getLoteId());
+        }
+        if (semResultado > 0) {
+            detalhes.append(", sem resultado na resposta incompleta: ").append(semResultado)
+                    .append(aguardarConfirmacao ? " (aguardando confirmação do lote)" : "");
+        }
+        if (resposta.getQuantidadeItens() == 0) {
+            detalhes.append("\nResposta: ").append(resposta.getTrecho());
+        }
+        if (resposta.getErroLeitura() != null) {
+            detalhes.append("\n").append(resposta.getErroLeitura());
+        }
+        detalhes.append(descreverCompressao(response, corpo));
+        
+        if (totalRecusados == 0 && reenviar.isEmpty() && semResultado == 0) {
+            logger.info("Lote enviado com sucesso! " + detalhes);
+            logDAO.salvar(new IntegrationLog("INFO", "Lote enviado com sucesso", detalhes.toString()));
+        } else if (totalRecusados == 0 && reenviar.isEmpty()) {
+            logger.warning("Lote enviado com resposta incompleta. " + detalhes);
+            logDAO.salvar(new IntegrationLog("WARNING", "Lote enviado com resposta incompleta", detalhes.toString()));
+        } else if (aceitos.isEmpty()) {
+            logger.warning("Erro ao enviar lote. " + detalhes);
+            logDAO.salvar(new IntegrationLog("WARNING", "Erro ao enviar lote", detalhes.toString()));
+        } else {
+            logger.warning("Lote aceito parcialmente. " + detalhes);
+            logDAO.salvar(new IntegrationLog("WARNING", "Lote aceito parcialmente", detalhes.toString()));
+        }
+        
+        return new Apuracao(totalRecusados == 0, reenviar);
+    }
+    
+    private static String descreverCompressao(HttpResponse<?> response, JsonBatchBody corpo) {
+        boolean comprimido = response.request().headers().firstValue("Content-Encoding").isPresent();
+        if (!comprimido) {
+            return "";
+        }
+        long original = corpo.getTamanho();
+        long enviado = corpo.getTamanhoComprimido();
+        return String.format("%nCompressão gzip: %d -> %d bytes (taxa %.1f%%, %d bytes economizados)",
+                original, enviado, 100.0 * enviado / original, original - enviado);
+    }
+    
+    private boolean registrarFalha(List<LancamentoContabil> lancamentos, Exception e, String leaseOwner) {
+        String errorMsg = "Erro ao enviar lote individual: " + e.getMessage();
+        logger.log(Level.SEVERE, errorMsg, e);
+        logDAO.salvar(new IntegrationLog("ERROR", "Erro ao enviar lote individual", e.getMessage()));
+        
+        // Atualizar status dos lançamentos
+        lancamentoDAO.atualizarStatusEmLote(idsDosLancamentos(lancamentos), StatusLancamento.ERRO, errorMsg,
+                null, leaseOwner);
+        
+        return false;
+    }
+    
+    private static List<Long> idsDosLancamentos(List<LancamentoContabil> lancamentos) {
+        return lancamentos.stream().map(LancamentoContabil::getId).collect(Collectors.toList());
+    }
+    
+    /**
+     * Consulta o status pelo LoteStatusPoller, que usa cache, ETag, timeout e retry
+     * e atualiza os lançamentos do lote quando ele é concluído
+     */
+    @Override
+    public String verificarStatusLote(String loteId) {
+        return statusPoller.consultar(loteId);
     }
     
     @Override
     public int executarIntegracao() {
         try {
-            // Buscar lançamentos pendentes
-            List<LancamentoContabil> lancamentosPendentes = lancamentoDAO.buscarPorStatus("PENDENTE");
-            
-            if (lancamentosPendentes.isEmpty()) {
-                logger.info("Nenhum lançamento pendente para integração");
+            if (circuito.isBloqueado()) {
+                logger.info("Integração não iniciada: " + motivoInterrupcao());
                 return 0;
             }
             
-            logger.info("Iniciando integração de " + lancamentosPendentes.size() + " lançamentos pendentes");
-            logDAO.salvar(new IntegrationLog("INFO", "Iniciando integração automática", 
-                    "Total de lançamentos pendentes: " + lancamentosPendentes.size()));
+            RetryBudget orcamento = novoOrcamento();
+            // Estado desta execução; o serviço é compartilhado pelo agendador e pela interface
+            Execucao execucao = new Execucao(orcamento);
+            int total = queueRunner.executar((janela, leaseOwner) -> enviarLote(janela, execucao, leaseOwner),
+                    config.getIntegrationWorkers(),
+                    () -> circuito.isBloqueado() ? motivoInterrupcao() : null, execucao.devolvidos::get);
             
-            // Enviar lançamentos
-            boolean success = enviarLote(lancamentosPendentes);
-            
-            if (success) {
-                logger.info("Integração concluída com sucesso");
-                logDAO.salvar(new IntegrationLog("INFO", "Integração concluída com sucesso", 
-                        "Total de lançamentos processados: " + lancamentosPendentes.size()));
-                return lancamentosPendentes.size();
-            } else {
-                logger.warning("Integração concluída com erros");
-                logDAO.salvar(new IntegrationLog("WARNING", "Integração concluída com erros", 
-                        "Verifique os logs para mais detalhes"));
-                return 0;
+            if (orcamento.getNegadas() > 0) {
+                logger.warning("Novas tentativas limitadas pelo orçamento: " + orcamento);
+                logDAO.salvar(new IntegrationLog("WARNING", "Novas tentativas limitadas pelo orçamento", orcamento.toString()));
             }
-            
+            return total;
+        
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Erro ao executar integração", e);
             logDAO.salvar(new IntegrationLog("ERROR", "Erro ao executar integração", e.getMessage()));
             return 0;
         }
     }
+    
+    private String motivoInterrupcao() {
+        if (circuito.getEstado() == CircuitBreaker.Estado.MEIO_ABERTO) {
+            return "circuito da API meio aberto, aguardando o resultado das chamadas de teste";
+        }
+        return "circuito da API aberto após " + circuito.getFalhasConsecutivas() + " falhas consecutivas";
+    }
+    
+    /**
+     * Estado de uma execução (ou de um envio manual), compartilhado pelos seus lotes
+     */
+    private static final class Execucao {
+        // Novas tentativas de todos os lotes da execução
+        private final RetryBudget orcamento;
+        // Lançamentos devolvidos como PENDENTE porque o circuito abriu
+        private final AtomicInteger devolvidos = new AtomicInteger();
+        // Compressão desligada para o restante da execução depois que o servidor responde 415;
+        // a próxima execução volta a tentar
+        private final AtomicBoolean compressaoRecusada = new AtomicBoolean();
+        
+        private Execucao(RetryBudget orcamento) {
+            this.orcamento = orcamento;
+        }
+    }
+    
+    /**
+     * Resultado de uma rodada de envio
+     */
+    private static final class Apuracao {
+        // Nenhum lançamento recusado em definitivo nesta rodada
+        private final boolean sucesso;
+        // Recusados com erro temporário, para a próxima rodada
+        private final List<LancamentoContabil> reenviar;
+        
+        private Apuracao(boolean sucesso, List<LancamentoContabil> reenviar) {
+            this.sucesso = sucesso;
+            this.reenviar = reenviar;
+        }
+        
+        private static Apuracao semReenvio(boolean sucesso) {
+            return new Apuracao(sucesso, List.of());
+        }
+    }
 }
@@ -0,0 +1,402 @@
+package com.integration.nasajon.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Resposta da API ao envio de um lote, com o resultado de cada lançamento.
+ *
+ * O corpo é lido em streaming pelo parser não bloqueante do Jackson conforme os bytes
+ * chegam, sem montar a resposta inteira em memória. Só os resultados por item, o
+ * identificador do lote e um trecho inicial do corpo (para log) são guardados. Se o
+ * corpo passar do limite configurado a leitura é interrompida e a resposta fica
+ * marcada como truncada; os itens lidos até ali continuam valendo.
+ *
+ * Formatos aceitos: um array de itens ou um objeto com o identificador do lote
+ * ("loteId", "lote_id", "batchId"), a situação geral ("status"), uma mensagem e o array de itens
+ * ("itens", "items", "resultados", "results"). Cada item traz o "id" do lançamento,
+ * o resultado ("sucesso"/"success"/"aceito" booleano ou "status" texto/código HTTP),
+ * a mensagem de erro e, opcionalmente, "retentavel"/"retryable".
+ */
+final class BatchResponse {
+    private static final int TAMANHO_TRECHO = 512;
+    
+    private static final Set<String> CAMPOS_LOTE = Set.of("loteid", "lote_id", "batchid", "batch_id");
+    private static final Set<String> CAMPOS_STATUS = Set.of("status", "situacao");
+    private static final Set<String> CAMPOS_ITENS = Set.of("itens", "items", "resultados", "results");
+    private static final Set<String> CAMPOS_MENSAGEM = Set.of("mensagem", "message", "erro", "error", "detalhe", "detail");
+    private static final Set<String> CAMPOS_SUCESSO = Set.of("sucesso", "success", "aceito", "accepted");
+    private static final Set<String> CAMPOS_RETENTAVEL = Set.of("retentavel", "retryable");
+    private static final Set<String> STATUS_ACEITOS = Set.of("ok", "aceito", "accepted", "sucesso", "success",
+            "enviado", "criado", "created", "processado", "processed");
+    
+    /**
+     * Resultado de um lançamento na resposta
+     */
+    static final class Item {
+        private final boolean aceito;
+        private final boolean retentavel;
+        private final String mensagem;
+        
+        private Item(boolean aceito, boolean retentavel, String mensagem) {
+            this.aceito = aceito;
+            this.retentavel = retentavel;
+            this.mensagem = mensagem;
+        }
+        
+        boolean isAceito() {
+            return aceito;
+        }
+        
+        boolean isRetentavel() {
+            return retentavel;
+        }
+        
+        String getMensagem() {
+            return mensagem;
+        }
+    }
+    
+    private final Map<Long, Item> itens = new HashMap<>();
+    private final byte[] trecho = new byte[TAMANHO_TRECHO];
+    private int tamanhoTrecho;
+    private long tamanho;
+    private boolean truncado;
+    private String erroLeitura;
+    private String loteId;
+    private String status;
+    private String mensagem;
+    
+    private BatchResponse() {
+    }
+    
+    /**
+     * BodyHandler que lê a resposta em streaming
+     * @param jsonFactory Fábrica do parser
+     * @param maxBytes Limite de bytes lidos do corpo
+     */
+    static HttpResponse.BodyHandler<BatchResponse> handler(JsonFactory jsonFactory, long maxBytes) {
+        return info -> new Leitor(jsonFactory, maxBytes);
+    }
+    
+    /**
+     * Resultado do lançamento, ou null se a resposta não o menciona
+     */
+    Item getItem(Long id) {
+        return id != null ? itens.get(id) : null;
+    }
+    
+    /**
+     * Resultados por identificador do lançamento
+     */
+    Map<Long, Item> getItens() {
+        return Collections.unmodifiableMap(itens);
+    }
+    
+    int getQuantidadeItens() {
+        return itens.size();
+    }
+    
+    String getLoteId() {
+        return loteId;
+    }
+    
+    /**
+     * Situação geral do lote, quando a resposta a informa (consulta de status)
+     */
+    String getStatus() {
+        return status;
+    }
+    
+    String getMensagem() {
+        return mensagem;
+    }
+    
+    boolean isTruncado() {
+        return truncado;
+    }
+    
+    long getTamanho() {
+        return tamanho;
+    }
+    
+    /**
+     * Início do corpo como texto, para log; indica se o corpo foi cortado
+     */
+    String getTrecho() {
+        String texto = new String(trecho, 0, tamanhoTrecho, StandardCharsets.UTF_8);
+        return tamanho > tamanhoTrecho ? texto + "... (" + tamanho + (truncado ? "+" : "") + " bytes)" : texto;
+    }
+    
+    /**
+     * Descrição do problema na leitura do corpo, ou null se foi lido sem erros
+     */
+    String getErroLeitura() {
+        if (erroLeitura != null) {
+            return erroLeitura;
+        }
+        return truncado ? "Resposta maior que o limite; itens após o limite sem resultado" : null;
+    }
+    
+    /**
+     * Percorre os tokens do corpo guardando só o que interessa
+     */
+    private static final class Leitor implements HttpResponse.BodySubscriber<BatchResponse> {
+        private final CompletableFuture<BatchResponse> resultado = new CompletableFuture<>();
+        private final BatchResponse resposta = new BatchResponse();
+        private final long maxBytes;
+        private final JsonParser parser;
+        private final ByteArrayFeeder alimentador;
+        private final byte[] bloco = new byte[8 * 1024];
+        private Flow.Subscription assinatura;
+        
+        // Posição no documento
+        private int profundidade;
+        private boolean raizObjeto;
+        private int profundidadeItens = -1;
+        private String campo;
+        
+        // Item em leitura
+        private boolean emItem;
+        private Long idItem;
+        private Boolean sucessoItem;
+        private String statusItem;
+        private int codigoItem;
+        private Boolean retentavelItem;
+        private String mensagemItem;
+        
+        private Leitor(JsonFactory jsonFactory, long maxBytes) {
+            this.maxBytes = Math.max(1, maxBytes);
+            JsonParser criado;
+            try {
+                criado = jsonFactory.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                criado = null;
+                resposta.erroLeitura = "Parser JSON indisponível: " + e.getMessage();
+            }
+            this.parser = criado;
+            this.alimentador = criado != null ? (ByteArrayFeeder) criado.getNonBlockingInputFeeder() : null;
+        }
+        
+        @Override
+        public CompletionStage<BatchResponse> getBody() {
+            return resultado;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.assinatura = subscription;
+            subscription.request(1);
+        }
+        
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (resultado.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    if (resposta.tamanho >= maxBytes) {
+                        // Não ler o restante: a conexão é descartada em vez de drenar um corpo enorme
+                        resposta.truncado = true;
+                        assinatura.cancel();
+                        finalizar();
+                        return;
+                    }
+                    int quantidade = (int) Math.min(Math.min(buffer.remaining(), bloco.length), maxBytes - resposta.tamanho);
+                    buffer.get(bloco, 0, quantidade);
+                    consumir(quantidade);
+                }
+            }
+            assinatura.request(1);
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            fecharParser();
+            resultado.completeExceptionally(throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            if (alimentador != null && resposta.erroLeitura == null) {
+                alimentador.endOfInput();
+                lerTokens();
+            }
+            finalizar();
+        }
+        
+        private void consumir(int quantidade) {
+            if (resposta.tamanhoTrecho < TAMANHO_TRECHO) {
+                int copiar = Math.min(quantidade, TAMANHO_TRECHO - resposta.tamanhoTrecho);
+                System.arraycopy(bloco, 0, resposta.trecho, resposta.tamanhoTrecho, copiar);
+                resposta.tamanhoTrecho += copiar;
+            }
+            resposta.tamanho += quantidade;
+            
+            if (alimentador == null || resposta.erroLeitura != null) {
+                return;
+            }
+            try {
+                // lerTokens consome toda a entrada antes de o bloco ser reaproveitado
+                alimentador.feedInput(bloco, 0, quantidade);
+                lerTokens();
+            } catch (IOException e) {
+                resposta.erroLeitura = "Resposta não é um JSON válido: " + e.getMessage();
+            }
+        }
+        
+        private void lerTokens() {
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                    tratar(token);
+                }
+            } catch (IOException e) {
+                resposta.erroLeitura = "Resposta não é um JSON válido: " + e.getMessage();
+            }
+        }
+        
+        private void tratar(JsonToken token) throws IOException {
+            switch (token) {
+                case START_OBJECT:
+                    profundidade++;
+                    if (profundidade == 1) {
+                        raizObjeto = true;
+                    } else if (profundidade == profundidadeItens + 1) {
+                        iniciarItem();
+                    }
+                    break;
+                case START_ARRAY:
+                    profundidade++;
+                    if (profundidade == 1 || (profundidade == 2 && raizObjeto && CAMPOS_ITENS.contains(campo))) {
+                        profundidadeItens = profundidade;
+                    }
+                    break;
+                case END_OBJECT:
+                    if (emItem && profundidade == profundidadeItens + 1) {
+                        concluirItem();
+                    }
+                    profundidade--;
+                    break;
+                case END_ARRAY:
+                    if (profundidade == profundidadeItens) {
+                        profundidadeItens = -1;
+                    }
+                    profundidade--;
+                    break;
+                case FIELD_NAME:
+                    campo = parser.getCurrentName().toLowerCase(Locale.ROOT);
+                    break;
+                default:
+                    if (profundidade == 1 && raizObjeto) {
+                        valorDoLote(token);
+                    } else if (emItem && profundidade == profundidadeItens + 1) {
+                        valorDoItem(token);
+                    }
+                    break;
+            }
+        }
+        
+        private void valorDoLote(JsonToken token) throws IOException {
+            if (CAMPOS_LOTE.contains(campo) && token != JsonToken.VALUE_NULL) {
+                resposta.loteId = parser.getText();
+            } else if (CAMPOS_STATUS.contains(campo) && token == JsonToken.VALUE_STRING) {
+                resposta.status = parser.getText();
+            } else if (CAMPOS_MENSAGEM.contains(campo) && token == JsonToken.VALUE_STRING) {
+                resposta.mensagem = parser.getText();
+            }
+        }
+        
+        private void valorDoItem(JsonToken token) throws IOException {
+            if ("id".equals(campo)) {
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    idItem = parser.getLongValue();
+                } else if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        idItem = Long.valueOf(parser.getText().trim());
+                    } catch (NumberFormatException e) {
+                        idItem = null;
+                    }
+                }
+            } else if (CAMPOS_SUCESSO.contains(campo) && token.isBoolean()) {
+                sucessoItem = token == JsonToken.VALUE_TRUE;
+            } else if (CAMPOS_RETENTAVEL.contains(campo) && token.isBoolean()) {
+                retentavelItem = token == JsonToken.VALUE_TRUE;
+            } else if ("status".equals(campo) || "codigo".equals(campo) || "code".equals(campo)) {
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    codigoItem = parser.getIntValue();
+                } else if (token == JsonToken.VALUE_STRING && "status".equals(campo)) {
+                    statusItem = parser.getText().trim().toLowerCase(Locale.ROOT);
+                }
+            } else if (CAMPOS_MENSAGEM.contains(campo) && token == JsonToken.VALUE_STRING && mensagemItem == null) {
+                mensagemItem = parser.getText();
+            }
+        }
+        
+        private void iniciarItem() {
+            emItem = true;
+            idItem = null;
+            sucessoItem = null;
+            statusItem = null;
+            codigoItem = 0;
+            retentavelItem = null;
+            mensagemItem = null;
+        }
+        
+        private void concluirItem() {
+            emItem = false;
+            if (idItem == null) {
+                return;
+            }
+            
+            boolean aceito;
+            if (sucessoItem != null) {
+                aceito = sucessoItem;
+            } else if (statusItem != null) {
+                aceito = STATUS_ACEITOS.contains(statusItem);
+            } else if (codigoItem > 0) {
+                aceito = codigoItem >= 200 && codigoItem < 300;
+            } else {
+                // Sem indicação de resultado: só uma mensagem de erro conta como recusa
+                aceito = mensagemItem == null;
+            }
+            
+            boolean retentavel = !aceito && (retentavelItem != null
+                    ? retentavelItem
+                    : codigoItem == 429 || codigoItem >= 500);
+            resposta.itens.put(idItem, new Item(aceito, retentavel, mensagemItem));
+        }
+        
+        private void finalizar() {
+            fecharParser();
+            resultado.complete(resposta);
+        }
+        
+        private void fecharParser() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    // Nada a liberar além do buffer interno do parser
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.integration.nasajon.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compressão dos arquivos gerados pela integração em arquivo (file.compression)
+ */
+enum ExportCompression {
+    NENHUMA {
+        @Override
+        String nomeArquivo(String nome) {
+            return nome;
+        }
+        
+        @Override
+        OutputStream comprimir(OutputStream destino, String nome) {
+            return destino;
+        }
+    },
+    
+    /**
+     * Arquivo .gz com o mesmo nome do original (lancamentos.csv.gz)
+     */
+    GZIP {
+        @Override
+        String nomeArquivo(String nome) {
+            return nome + ".gz";
+        }
+        
+        @Override
+        OutputStream comprimir(OutputStream destino, String nome) throws IOException {
+            return new GZIPOutputStream(destino, TAMANHO_BUFFER);
+        }
+    },
+    
+    /**
+     * Arquivo .zip com uma única entrada, o arquivo original (lancamentos.zip contendo lancamentos.csv)
+     */
+    ZIP {
+        @Override
+        String nomeArquivo(String nome) {
+            int ponto = nome.lastIndexOf('.');
+            return (ponto > 0 ? nome.substring(0, ponto) : nome) + ".zip";
+        }
+        
+        @Override
+        OutputStream comprimir(OutputStream destino, String nome) throws IOException {
+            ZipOutputStream zip = new ZipOutputStream(destino);
+            zip.putNextEntry(new ZipEntry(nome));
+            // Fechar o ZipOutputStream fecha a entrada e grava o diretório central
+            return zip;
+        }
+    };
+    
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    
+    /**
+     * Nome do arquivo comprimido
+     * @param nome Nome do arquivo sem compressão
+     */
+    abstract String nomeArquivo(String nome);
+    
+    /**
+     * Envolve o destino em um fluxo que comprime o que for escrito; fechar o fluxo devolvido
+     * conclui a compressão e fecha o destino
+     * @param nome Nome do arquivo sem compressão (entrada do zip)
+     */
+    abstract OutputStream comprimir(OutputStream destino, String nome) throws IOException;
+    
+    /**
+     * Compressão configurada em file.compression: none, gzip ou zip
+     * @return Compressão, ou null se não for suportada
+     */
+    static ExportCompression para(String compressao) {
+        switch (compressao == null ? "" : compressao.trim().toLowerCase(Locale.ROOT)) {
+            case "":
+            case "none":
+                return NENHUMA;
+            case "gzip":
+            case "gz":
+                return GZIP;
+            case "zip":
+                return ZIP;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Formato dos arquivos gerados pela integração em arquivo. Cada parte do arquivo
+ * tem cabeçalho, registros e rodapé completos, para ser importada sozinha.
+ */
+interface ExportFormat {
+    
+    String extensao();
+    
+    String cabecalho();
+    
+    /**
+     * Acrescenta um lançamento ao texto
+     * @param primeiro Se é o primeiro registro da parte (para formatos com separador)
+     */
+    void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro);
+    
+    /**
+     * Escreve o lançamento direto em bytes, para formatos com codificação própria (layout
+     * posicional); os demais devolvem false e são codificados em UTF-8 a partir de registro()
+     * @throws java.nio.BufferOverflowException Se o registro não couber no buffer
+     */
+    default boolean codificar(ByteBuffer destino, LancamentoContabil lancamento, boolean primeiro) {
+        return false;
+    }
+    
+    String rodape();
+    
+    /**
+     * Formato configurado em file.format
+     * @return Formato, ou null se não for suportado
+     */
+    static ExportFormat para(String formato) {
+        switch (formato == null ? "" : formato.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return CSV;
+            case "xml":
+                return XML;
+            case "json":
+                return JSON;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Formato configurado em file.format, incluindo o layout posicional ("layout")
+     * @param layout Definição do layout (file.layout); vazio usa o layout padrão
+     * @return Formato, ou null se não for suportado
+     * @throws IOException Se a definição do layout não puder ser lida
+     * @throws IllegalArgumentException Se a definição do layout for inválida
+     */
+    static ExportFormat para(String formato, String layout) throws IOException {
+        String nome = formato == null ? "" : formato.trim().toLowerCase(Locale.ROOT);
+        if (nome.equals("layout") || nome.equals("posicional")) {
+            return FixedWidthLayout.carregar(layout);
+        }
+        return para(formato);
+    }
+    
+    ExportFormat CSV = new ExportFormat() {
+        @Override
+        public String extensao() {
+            return "csv";
+        }
+        
+        @Override
+        public String cabecalho() {
+            return "Conta;Historico;Valor;Data;Natureza\n";
+        }
+        
+        @Override
+        public void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro) {
+            campoCsv(destino, lancamento.getConta()).append(';');
+            campoCsv(destino, lancamento.getHistorico()).append(';');
+            destino.append(lancamento.getValor()).append(';')
+                    .append(lancamento.getDataFormatada()).append(';');
+            campoCsv(destino, lancamento.getNatureza()).append('\n');
+        }
+        
+        @Override
+        public String rodape() {
+            return "";
+        }
+    };
+    
+    ExportFormat XML = new ExportFormat() {
+        @Override
+        public String extensao() {
+            return "xml";
+        }
+        
+        @Override
+        public String cabecalho() {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<lancamentos>\n";
+        }
+        
+        @Override
+        public void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro) {
+            destino.append("  <lancamento>\n");
+            textoXml(destino.append("    <conta>"), lancamento.getConta()).append("</conta>\n");
+            textoXml(destino.append("    <historico>"), lancamento.getHistorico()).append("</historico>\n");
+            destino.append("    <valor>").append(lancamento.getValor()).append("</valor>\n");
+            destino.append("    <data>").append(lancamento.getDataFormatada()).append("</data>\n");
+            textoXml(destino.append("    <natureza>"), lancamento.getNatureza()).append("</natureza>\n");
+            destino.append("  </lancamento>\n");
+        }
+        
+        @Override
+        public String rodape() {
+            return "</lancamentos>";
+        }
+    };
+    
+    ExportFormat JSON = new ExportFormat() {
+        @Override
+        public String extensao() {
+            return "json";
+        }
+        
+        @Override
+        public String cabecalho() {
+            return "{\n  \"lancamentos\": [\n";
+        }
+        
+        @Override
+        public void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro) {
+            if (!primeiro) {
+                destino.append(",\n");
+            }
+            destino.append("    {\n");
+            textoJson(destino.append("      \"conta\": \""), lancamento.getConta()).append("\",\n");
+            textoJson(destino.append("      \"historico\": \""), lancamento.getHistorico()).append("\",\n");
+            destino.append("      \"valor\": ").append(lancamento.getValor()).append(",\n");
+            destino.append("      \"data\": \"").append(lancamento.getDataFormatada()).append("\",\n");
+            textoJson(destino.append("      \"natureza\": \""), lancamento.getNatureza()).append("\"\n");
+            destino.append("    }");
+        }
+        
+        @Override
+        public String rodape() {
+            return "\n  ]\n}";
+        }
+    };
+    
+    /**
+     * Campo CSV entre aspas quando contém separador, aspas ou quebra de linha
+     */
+    private static StringBuilder campoCsv(StringBuilder destino, String valor) {
+        if (valor == null) {
+            return destino;
+        }
+        boolean aspas = false;
+        for (int i = 0; i < valor.length() && !aspas; i++) {
+            char c = valor.charAt(i);
+            aspas = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!aspas) {
+            return destino.append(valor);
+        }
+        destino.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            destino.append(c == '"' ? "\"\"" : String.valueOf(c));
+        }
+        return destino.append('"');
+    }
+    
+    private static StringBuilder textoXml(StringBuilder destino, String valor) {
+        if (valor == null) {
+            return destino;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '&': destino.append("&amp;"); break;
+                case '<': destino.append("&lt;"); break;
+                case '>': destino.append("&gt;"); break;
+                case '"': destino.append("&quot;"); break;
+                default: destino.append(c);
+            }
+        }
+        return destino;
+    }
+    
+    private static StringBuilder textoJson(StringBuilder destino, String valor) {
+        if (valor == null) {
+            return destino;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                destino.append('\\').append(c);
+            } else if (c < 0x20) {
+                destino.append(String.format("\\u%04x", (int) c));
+            } else {
+                destino.append(c);
+            }
+        }
+        return destino;
+    }
+}
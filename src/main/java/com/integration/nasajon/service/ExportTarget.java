@@ -0,0 +1,444 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.util.FtpSessionPool;
+import com.integration.nasajon.util.FtpUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Destino dos arquivos gerados pela integração em arquivo: o diretório de saída ou um
+ * servidor FTP, com ou sem compressão. No FTP com envio direto o arquivo (já comprimido) é
+ * escrito na conexão de dados enquanto é gerado, sem passar pelo disco; a cópia local é
+ * opcional. Sem envio direto, os arquivos gerados no disco são enviados em paralelo.
+ *
+ * Cada arquivo é gravado com extensão .tmp e só recebe o nome definitivo depois de
+ * completo, no disco e no servidor. Um destino atende uma exportação por vez e não é
+ * seguro para uso por várias threads.
+ */
+abstract class ExportTarget {
+    private static final Logger logger = Logger.getLogger(ExportTarget.class.getName());
+    
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    
+    protected final ExportCompression compressao;
+    
+    private ExportTarget(ExportCompression compressao) {
+        this.compressao = compressao;
+    }
+    
+    /**
+     * Arquivos no diretório de saída
+     */
+    static ExportTarget local(Path diretorio, ExportCompression compressao) {
+        return new Local(diretorio, compressao);
+    }
+    
+    /**
+     * Arquivos enviados ao servidor FTP por sessões do pool
+     * @param copiaLocal Diretório para uma cópia de cada arquivo enviado, ou null para não guardar cópia
+     * @param direto Se os arquivos são enviados enquanto são gerados; senão são gerados no disco e
+     *               levados por publicar(), em paralelo e com retomada
+     * @param paralelismo Envios simultâneos em publicar()
+     * @param tentativas Retomadas de um envio interrompido em publicar()
+     */
+    static ExportTarget ftp(FtpSessionPool pool, Path copiaLocal, ExportCompression compressao, boolean direto,
+                            int paralelismo, int tentativas) {
+        return new Ftp(pool, copiaLocal, compressao, direto, paralelismo, tentativas);
+    }
+    
+    /**
+     * Abre um arquivo para escrita, com nome temporário
+     * @param nome Nome do arquivo sem compressão
+     */
+    abstract WritableByteChannel abrir(String nome) throws IOException;
+    
+    /**
+     * Fecha o arquivo completo e dá a ele o nome definitivo; se falhar, o arquivo é descartado
+     * @param nome Nome usado em abrir()
+     * @param definitivo Nome definitivo sem compressão (em geral, o próprio nome)
+     * @return Arquivo no destino (no FTP, o caminho remoto)
+     */
+    abstract Path concluir(String nome, WritableByteChannel canal, String definitivo) throws IOException;
+    
+    /**
+     * Fecha e apaga um arquivo incompleto
+     */
+    abstract void descartar(String nome, WritableByteChannel canal);
+    
+    /**
+     * Apaga um arquivo já concluído
+     */
+    abstract void apagar(Path arquivo);
+    
+    /**
+     * Leva a este destino arquivos já gerados sem compressão no diretório de saída (exportação em
+     * paralelo), na ordem. Se um falhar, os já levados são apagados.
+     * @return Arquivos no destino
+     */
+    abstract List<Path> publicar(List<Path> arquivos) throws IOException;
+    
+    /**
+     * Se o nome do arquivo é gravado no conteúdo ao abrir (entrada do zip), e portanto
+     * precisa ser o definitivo já em abrir()
+     */
+    boolean nomeNoConteudo() {
+        return compressao == ExportCompression.ZIP;
+    }
+    
+    /**
+     * Se o RollingFileWriter grava direto neste destino; senão os arquivos são gerados no
+     * diretório de saída e levados depois com publicar()
+     */
+    abstract boolean gravaDireto();
+    
+    /**
+     * Saída para um FileChannel que grava no disco (force) antes de fechar, para uso como
+     * último elo de uma cadeia de fluxos
+     */
+    protected static OutputStream sincronizarAoFechar(FileChannel canal) {
+        return new FilterOutputStream(Channels.newOutputStream(canal)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                flush();
+                canal.force(false);
+                super.close();
+            }
+        };
+    }
+    
+    protected static void fecharSilenciosamente(WritableByteChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.fine("Erro ao fechar arquivo descartado: " + e.getMessage());
+        }
+    }
+    
+    protected static void apagarLocal(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warning("Não foi possível apagar o arquivo " + arquivo + ": " + e.getMessage());
+        }
+    }
+    
+    private static final class Local extends ExportTarget {
+        private final Path diretorio;
+        
+        private Local(Path diretorio, ExportCompression compressao) {
+            super(compressao);
+            this.diretorio = diretorio;
+        }
+        
+        @Override
+        WritableByteChannel abrir(String nome) throws IOException {
+            FileChannel canal = FileChannel.open(parcial(nome), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            if (compressao == ExportCompression.NENHUMA) {
+                return canal;
+            }
+            try {
+                return Channels.newChannel(compressao.comprimir(
+                        new BufferedOutputStream(sincronizarAoFechar(canal), TAMANHO_BUFFER), nome));
+            } catch (IOException e) {
+                descartar(nome, canal);
+                throw e;
+            }
+        }
+        
+        @Override
+        Path concluir(String nome, WritableByteChannel canal, String definitivo) throws IOException {
+            Path completo = diretorio.resolve(compressao.nomeArquivo(definitivo));
+            try {
+                if (canal instanceof FileChannel) {
+                    ((FileChannel) canal).force(false);
+                }
+                canal.close();
+                Files.move(parcial(nome), completo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return completo;
+            } catch (IOException | RuntimeException e) {
+                descartar(nome, canal);
+                throw e;
+            }
+        }
+        
+        @Override
+        void descartar(String nome, WritableByteChannel canal) {
+            fecharSilenciosamente(canal);
+            apagarLocal(parcial(nome));
+        }
+        
+        @Override
+        void apagar(Path arquivo) {
+            apagarLocal(arquivo);
+        }
+        
+        @Override
+        List<Path> publicar(List<Path> arquivos) throws IOException {
+            if (compressao == ExportCompression.NENHUMA) {
+                return arquivos;
+            }
+            List<Path> comprimidos = new ArrayList<>();
+            try {
+                for (Path arquivo : arquivos) {
+                    comprimidos.add(transferir(arquivo, abrir(arquivo.getFileName().toString())));
+                }
+            } catch (IOException | RuntimeException e) {
+                comprimidos.forEach(ExportTarget::apagarLocal);
+                throw e;
+            }
+            arquivos.forEach(ExportTarget::apagarLocal);
+            return comprimidos;
+        }
+        
+        @Override
+        boolean gravaDireto() {
+            return true;
+        }
+        
+        /**
+         * Copia um arquivo local para o canal aberto e conclui
+         */
+        private Path transferir(Path arquivo, WritableByteChannel canal) throws IOException {
+            String nome = arquivo.getFileName().toString();
+            try (FileChannel entrada = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                long tamanho = entrada.size();
+                long copiados = 0;
+                while (copiados < tamanho) {
+                    copiados += entrada.transferTo(copiados, tamanho - copiados, canal);
+                }
+            } catch (IOException | RuntimeException e) {
+                descartar(nome, canal);
+                throw e;
+            }
+            return concluir(nome, canal, nome);
+        }
+        
+        private Path parcial(String nome) {
+            return diretorio.resolve(compressao.nomeArquivo(nome) + ".tmp");
+        }
+    }
+    
+    private static final class Ftp extends ExportTarget {
+        private final FtpSessionPool pool;
+        private final Path copiaLocal;
+        private final boolean direto;
+        private final int paralelismo;
+        private final int tentativas;
+        
+        // Sessão do arquivo em envio direto (um por vez)
+        private FtpUtil.Sessao sessao;
+        
+        private Ftp(FtpSessionPool pool, Path copiaLocal, ExportCompression compressao, boolean direto,
+                    int paralelismo, int tentativas) {
+            super(compressao);
+            this.pool = pool;
+            this.copiaLocal = copiaLocal;
+            this.direto = direto;
+            this.paralelismo = paralelismo;
+            this.tentativas = tentativas;
+        }
+        
+        @Override
+        WritableByteChannel abrir(String nome) throws IOException {
+            sessao = pool.emprestar();
+            OutputStream destino;
+            try {
+                destino = sessao.enviar(parcial(nome));
+            } catch (IOException e) {
+                liberarSessao(true);
+                throw e;
+            }
+            try {
+                if (copiaLocal != null) {
+                    FileChannel copia = FileChannel.open(copiaParcial(nome), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    destino = new Bifurcacao(destino, sincronizarAoFechar(copia));
+                }
+                return Channels.newChannel(compressao.comprimir(new BufferedOutputStream(destino, TAMANHO_BUFFER), nome));
+            } catch (IOException e) {
+                descartar(nome, Channels.newChannel(destino));
+                throw e;
+            }
+        }
+        
+        @Override
+        Path concluir(String nome, WritableByteChannel canal, String definitivo) throws IOException {
+            String remoto = compressao.nomeArquivo(definitivo);
+            // Fechar o fluxo encerra a conexão de dados; a resposta do servidor vem em seguida
+            IOException falha = null;
+            try {
+                canal.close();
+            } catch (IOException e) {
+                falha = e;
+            }
+            try {
+                sessao.concluirEnvio();
+            } catch (IOException e) {
+                if (falha == null) {
+                    falha = e;
+                } else {
+                    falha.addSuppressed(e);
+                }
+            }
+            
+            boolean copiaConcluida = false;
+            try {
+                if (falha != null) {
+                    throw falha;
+                }
+                if (copiaLocal != null && Files.exists(copiaParcial(nome))) {
+                    Files.move(copiaParcial(nome), copiaLocal.resolve(remoto), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    copiaConcluida = true;
+                }
+                sessao.renomear(parcial(nome), remoto);
+                liberarSessao(false);
+            } catch (IOException | RuntimeException e) {
+                liberarSessao(true);
+                pool.apagar(List.of(parcial(nome)));
+                apagarCopia(nome);
+                if (copiaConcluida) {
+                    apagarLocal(copiaLocal.resolve(remoto));
+                }
+                throw e;
+            }
+            logger.fine("Arquivo enviado ao servidor FTP: " + remoto);
+            return Paths.get(remoto);
+        }
+        
+        @Override
+        void descartar(String nome, WritableByteChannel canal) {
+            fecharSilenciosamente(canal);
+            if (sessao != null) {
+                try {
+                    // Consumir a resposta do envio interrompido
+                    sessao.concluirEnvio();
+                } catch (IOException e) {
+                    logger.fine("Envio interrompido: " + e.getMessage());
+                }
+                liberarSessao(true);
+            }
+            pool.apagar(List.of(parcial(nome)));
+            apagarCopia(nome);
+        }
+        
+        @Override
+        void apagar(Path arquivo) {
+            pool.apagar(List.of(arquivo.toString()));
+            if (copiaLocal != null) {
+                apagarLocal(copiaLocal.resolve(arquivo.toString()));
+            }
+        }
+        
+        /**
+         * Envia os arquivos em paralelo pelo pool, retomando envios interrompidos. Com compressão,
+         * cada arquivo é comprimido no disco antes (a retomada precisa reler o mesmo conteúdo) e a
+         * cópia local é a comprimida; sem compressão, a cópia local são os próprios arquivos
+         */
+        @Override
+        List<Path> publicar(List<Path> arquivos) throws IOException {
+            if (arquivos.isEmpty()) {
+                return arquivos;
+            }
+            List<Path> locais = compressao == ExportCompression.NENHUMA ? arquivos
+                    : ExportTarget.local(arquivos.get(0).getParent(), compressao).publicar(arquivos);
+            List<Path> enviados = new ArrayList<>();
+            for (String remoto : pool.enviarArquivos(locais, paralelismo, tentativas)) {
+                enviados.add(Paths.get(remoto));
+            }
+            if (copiaLocal == null) {
+                locais.forEach(ExportTarget::apagarLocal);
+            }
+            return enviados;
+        }
+        
+        @Override
+        boolean gravaDireto() {
+            return direto;
+        }
+        
+        private void liberarSessao(boolean invalidar) {
+            if (sessao != null) {
+                if (invalidar) {
+                    sessao.invalidar();
+                }
+                sessao.close();
+                sessao = null;
+            }
+        }
+        
+        private String parcial(String nome) {
+            return compressao.nomeArquivo(nome) + ".tmp";
+        }
+        
+        private Path copiaParcial(String nome) {
+            return copiaLocal.resolve(parcial(nome));
+        }
+        
+        private void apagarCopia(String nome) {
+            if (copiaLocal != null) {
+                apagarLocal(copiaParcial(nome));
+            }
+        }
+    }
+    
+    /**
+     * Escreve o mesmo conteúdo no servidor e na cópia local
+     */
+    private static final class Bifurcacao extends OutputStream {
+        private final OutputStream principal;
+        private final OutputStream copia;
+        
+        private Bifurcacao(OutputStream principal, OutputStream copia) {
+            this.principal = principal;
+            this.copia = copia;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            principal.write(b);
+            copia.write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            principal.write(b, off, len);
+            copia.write(b, off, len);
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            principal.flush();
+            copia.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                copia.close();
+            } finally {
+                principal.close();
+            }
+        }
+    }
+}
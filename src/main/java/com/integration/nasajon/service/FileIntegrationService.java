@@ -5,10 +5,10 @@ import com.integration.nasajon.dao.IntegrationLogDAO;
 import com.integration.nasajon.dao.LancamentoContabilDAO;
 import com.integration.nasajon.model.IntegrationLog;
 import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.model.StatusLancamento;
+import com.integration.nasajon.util.FtpSessionPool;
 import com.integration.nasajon.util.FtpUtil;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -16,8 +16,14 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 public class FileIntegrationService implements IntegrationService {
     private static final Logger logger = Logger.getLogger(FileIntegrationService.class.getName());
@@ -27,9 +33,17 @@ public class FileIntegrationService implements IntegrationService {
     private final IntegrationLogDAO logDAO;
     
     public FileIntegrationService(IntegrationConfig config) {
+        this(config, new LancamentoContabilDAO(config), new IntegrationLogDAO(config));
+    }
+    
+    /**
+     * Serviço que usa DAOs compartilhados (ver IntegrationRuntime)
+     */
+    public FileIntegrationService(IntegrationConfig config, LancamentoContabilDAO lancamentoDAO,
+                                  IntegrationLogDAO logDAO) {
         this.config = config;
-        this.lancamentoDAO = new LancamentoContabilDAO(config);
-        this.logDAO = new IntegrationLogDAO(config);
+        this.lancamentoDAO = lancamentoDAO;
+        this.logDAO = logDAO;
         
         // Garantir que o diretório de saída existe
         try {
@@ -41,139 +55,168 @@ public class FileIntegrationService implements IntegrationService {
     
     @Override
     public boolean enviarLote(List<LancamentoContabil> lancamentos) {
-        try {
-            logger.info("Iniciando geração de arquivo para lote. Total de lançamentos: " + lancamentos.size());
-            logDAO.salvar(new IntegrationLog("INFO", "Iniciando geração de arquivo para lote", 
-                    "Total de lançamentos: " + lancamentos.size()));
-            
-            String fileName = gerarNomeArquivo();
-            String filePath = config.getOutputDirectory() + File.separator + fileName;
-            
-            // Gerar arquivo de acordo com o formato configurado
-            switch (config.getFileFormat().toLowerCase()) {
-                case "csv":
-                    gerarArquivoCsv(lancamentos, filePath);
-                    break;
-                case "xml":
-                    gerarArquivoXml(lancamentos, filePath);
-                    break;
-                case "json":
-                    gerarArquivoJson(lancamentos, filePath);
-                    break;
-                default:
-                    String errorMsg = "Formato de arquivo não suportado: " + config.getFileFormat();
-                    logger.warning(errorMsg);
-                    logDAO.salvar(new IntegrationLog("WARNING", errorMsg));
-                    return false;
-            }
-            
-            // Enviar arquivo via FTP se configurado
-            boolean success = true;
-            if (config.isUseFtp()) {
-                success = FtpUtil.enviarArquivo(
-                        config.getFtpHost(),
-                        config.getFtpUser(),
-                        config.getFtpPassword(),
-                        filePath,
-                        fileName
-                );
-            }
-            
-            if (success) {
-                logger.info("Arquivo gerado com sucesso: " + filePath);
-                logDAO.salvar(new IntegrationLog("INFO", "Arquivo gerado com sucesso", 
-                        "Caminho: " + filePath + (config.isUseFtp() ? " e enviado via FTP" : "")));
-                
-                // Atualizar status dos lançamentos
-                for (LancamentoContabil lancamento : lancamentos) {
-                    lancamentoDAO.atualizarStatus(lancamento.getId(), "ENVIADO", null);
-                }
-            } else {
-                String errorMsg = "Erro ao enviar arquivo via FTP";
-                logger.warning(errorMsg);
-                logDAO.salvar(new IntegrationLog("WARNING", errorMsg));
-                
-                // Atualizar status dos lançamentos
-                for (LancamentoContabil lancamento : lancamentos) {
-                    lancamentoDAO.atualizarStatus(lancamento.getId(), "ERRO", "Erro ao enviar arquivo via FTP");
-                }
+        logger.info("Iniciando geração de arquivo para lote. Total de lançamentos: " + lancamentos.size());
+        logDAO.salvar(new IntegrationLog("INFO", "Iniciando geração de arquivo para lote", 
+                "Total de lançamentos: " + lancamentos.size()));
+        
+        List<Long> ids = idsDosLancamentos(lancamentos);
+        return exportar((formato, nomeBase, destino) -> gerarSequencial(formato, nomeBase, destino, escritor -> {
+            for (LancamentoContabil lancamento : lancamentos) {
+                escritor.escrever(lancamento);
             }
-            
-            return success;
-            
+            return lancamentos.size();
+        }), (status, mensagem) -> lancamentoDAO.atualizarStatusEmLote(ids, status, mensagem));
+    }
+    
+    /**
+     * Gera os arquivos (divididos em partes) e grava o status final. Com FTP configurado, os
+     * arquivos são enviados enquanto são gerados (ftp.streaming) ou gerados no disco e enviados
+     * em paralelo depois; a cópia local é opcional (file.keep.local)
+     * @param gerador Gera os arquivos no formato configurado
+     * @param finalizar Grava o status final dos lançamentos exportados
+     * @return true se os arquivos foram gerados (e enviados)
+     */
+    private boolean exportar(Gerador gerador, BiConsumer<StatusLancamento, String> finalizar) {
+        String erroConfiguracao = validarConfiguracao();
+        if (erroConfiguracao != null) {
+            logger.warning(erroConfiguracao);
+            logDAO.salvar(new IntegrationLog("WARNING", erroConfiguracao));
+            finalizar.accept(StatusLancamento.ERRO, erroConfiguracao);
+            return false;
+        }
+        ExportCompression compressao = ExportCompression.para(config.getFileCompression());
+        Path diretorio = Paths.get(config.getOutputDirectory());
+        
+        long inicio = System.currentTimeMillis();
+        List<Path> arquivos;
+        String resumo;
+        try {
+            // O layout posicional já foi compilado na validação; aqui vem do cache
+            ExportFormat formato = ExportFormat.para(config.getFileFormat(), config.getFileLayout());
+            ExportTarget destino = config.isUseFtp()
+                    ? ExportTarget.ftp(poolFtp(), config.isFileKeepLocal() ? diretorio : null, compressao,
+                            config.isFtpStreaming(), config.getFtpUploadParallelism(), config.getFtpResumeAttempts())
+                    : ExportTarget.local(diretorio, compressao);
+            Geracao geracao = gerador.gerar(formato, gerarNomeBase(), destino);
+            arquivos = geracao.arquivos;
+            resumo = String.format("%d lançamentos, %d bytes%s em %d arquivo(s), %d ms",
+                    geracao.registros, geracao.bytes,
+                    compressao == ExportCompression.NENHUMA ? "" : " antes da compressão " + compressao.name().toLowerCase(Locale.ROOT),
+                    arquivos.size(), System.currentTimeMillis() - inicio);
+        
         } catch (Exception e) {
-            String errorMsg = "Erro ao gerar arquivo para lote: " + e.getMessage();
+            String titulo = config.isUseFtp() ? "Erro ao gerar ou enviar arquivo via FTP" : "Erro ao gerar arquivo para lote";
+            String errorMsg = titulo + ": " + e.getMessage();
             logger.log(Level.SEVERE, errorMsg, e);
-            logDAO.salvar(new IntegrationLog("ERROR", "Erro ao gerar arquivo para lote", e.getMessage()));
+            logDAO.salvar(new IntegrationLog("ERROR", titulo, e.getMessage()));
             
             // Atualizar status dos lançamentos
-            for (LancamentoContabil lancamento : lancamentos) {
-                lancamentoDAO.atualizarStatus(lancamento.getId(), "ERRO", errorMsg);
-            }
-            
+            finalizar.accept(StatusLancamento.ERRO, errorMsg);
             return false;
         }
+        
+        String caminhos = arquivos.stream().map(Path::toString).collect(Collectors.joining("\n"));
+        logger.info("Arquivo gerado com sucesso: " + resumo);
+        logDAO.salvar(new IntegrationLog("INFO", "Arquivo gerado com sucesso", 
+                resumo + (config.isUseFtp() ? ", enviado via FTP" : "") + "\n" + caminhos));
+        
+        // Atualizar status dos lançamentos
+        finalizar.accept(StatusLancamento.ENVIADO, null);
+        return true;
     }
     
-    private String gerarNomeArquivo() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        return "lancamentos_contabeis_" + timestamp + "." + config.getFileFormat().toLowerCase();
-    }
-    
-    private void gerarArquivoCsv(List<LancamentoContabil> lancamentos, String filePath) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            // Cabeçalho
-            writer.append("Conta;Historico;Valor;Data;Natureza\n");
-            
-            // Dados
-            for (LancamentoContabil lancamento : lancamentos) {
-                writer.append(lancamento.getConta()).append(";")
-                      .append(lancamento.getHistorico()).append(";")
-                      .append(String.valueOf(lancamento.getValor())).append(";")
-                      .append(lancamento.getDataFormatada()).append(";")
-                      .append(lancamento.getNatureza()).append("\n");
+    /**
+     * @return Mensagem de erro se o formato ou a compressão configurados não forem suportados,
+     * ou se o layout posicional for inválido
+     */
+    private String validarConfiguracao() {
+        try {
+            if (ExportFormat.para(config.getFileFormat(), config.getFileLayout()) == null) {
+                return "Formato de arquivo não suportado: " + config.getFileFormat();
             }
+        } catch (IOException | IllegalArgumentException e) {
+            String layout = config.getFileLayout() == null || config.getFileLayout().isBlank()
+                    ? "padrão" : config.getFileLayout();
+            return "Layout de arquivo inválido (" + layout + "): " + e.getMessage();
+        }
+        if (ExportCompression.para(config.getFileCompression()) == null) {
+            return "Compressão de arquivo não suportada: " + config.getFileCompression();
         }
+        return null;
     }
     
-    private void gerarArquivoXml(List<LancamentoContabil> lancamentos, String filePath) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-            writer.append("<lancamentos>\n");
+    /**
+     * Gera os arquivos em uma thread, dividindo em partes pelos limites de file.max.*
+     */
+    private Geracao gerarSequencial(ExportFormat formato, String nomeBase, ExportTarget destino,
+                                    Fonte fonte) throws IOException {
+        // Sem envio direto, as partes são geradas no diretório de saída e levadas ao destino depois
+        ExportTarget escrita = destino.gravaDireto() ? destino
+                : ExportTarget.local(Paths.get(config.getOutputDirectory()), ExportCompression.NENHUMA);
+        try (RollingFileWriter escritor = new RollingFileWriter(escrita, nomeBase, formato, config.getFileMaxBytes(), config.getFileMaxRows(), config.getFileBufferKb() * 1024)) {
             
-            for (LancamentoContabil lancamento : lancamentos) {
-                writer.append("  <lancamento>\n");
-                writer.append("    <conta>").append(lancamento.getConta()).append("</conta>\n");
-                writer.append("    <historico>").append(lancamento.getHistorico()).append("</historico>\n");
-                writer.append("    <valor>").append(String.valueOf(lancamento.getValor())).append("</valor>\n");
-                writer.append("    <data>").append(lancamento.getDataFormatada()).append("</data>\n");
-                writer.append("    <natureza>").append(lancamento.getNatureza()).append("</natureza>\n");
-                writer.append("  </lancamento>\n");
+            if (fonte.escrever(escritor) < 0) {
+                throw new IOException("Falha ao ler os lançamentos do banco");
             }
-            
-            writer.append("</lancamentos>");
+            List<Path> arquivos = escritor.concluir();
+            if (escrita != destino) {
+                arquivos = destino.publicar(arquivos);
+            }
+            return new Geracao(arquivos, escritor.getTotalRegistros(), escritor.getTotalBytes());
         }
     }
     
-    private void gerarArquivoJson(List<LancamentoContabil> lancamentos, String filePath) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.append("{\n");
-            writer.append("  \"lancamentos\": [\n");
-            
-            for (int i = 0; i < lancamentos.size(); i++) {
-                LancamentoContabil lancamento = lancamentos.get(i);
-                writer.append("    {\n");
-                writer.append("      \"conta\": \"").append(lancamento.getConta()).append("\",\n");
-                writer.append("      \"historico\": \"").append(lancamento.getHistorico()).append("\",\n");
-                writer.append("      \"valor\": ").append(String.valueOf(lancamento.getValor())).append(",\n");
-                writer.append("      \"data\": \"").append(lancamento.getDataFormatada()).append("\",\n");
-                writer.append("      \"natureza\": \"").append(lancamento.getNatureza()).append("\"\n");
-                writer.append("    }").append(i < lancamentos.size() - 1 ? "," : "").append("\n");
-            }
-            
-            writer.append("  ]\n");
-            writer.append("}");
+    /**
+     * Gera os arquivos dos lançamentos reservados com ParallelFileExporter: um por conta, um por
+     * mês, ou partes (um único arquivo, sem limite de tamanho) a partir de faixas geradas em
+     * paralelo. Os arquivos são
+     * montados no diretório de saída e depois comprimidos ou enviados ao destino
+     */
+    private Geracao gerarEmParalelo(ExportFormat formato, String nomeBase, ExportTarget destino, String leaseOwner,
+                                    long reservados) throws IOException {
+        ParallelFileExporter exportador = new ParallelFileExporter(lancamentoDAO, Paths.get(config.getOutputDirectory()),
+                config.getFileParallelism(), config.getFileMaxBytes(), config.getFileMaxRows(),
+                config.getFileBufferKb() * 1024);
+        
+        List<Path> arquivos;
+        switch (divisaoDosArquivos()) {
+            case "conta":
+                arquivos = exportador.exportarPorConta(leaseOwner, formato, nomeBase);
+                break;
+            case "mes":
+                arquivos = exportador.exportarPorMes(leaseOwner, formato, nomeBase);
+                break;
+            default:
+                arquivos = exportador.exportarEmFaixas(leaseOwner, reservados, formato, nomeBase);
+                break;
         }
+        return new Geracao(destino.publicar(arquivos), exportador.getTotalRegistros(), exportador.getTotalBytes());
+    }
+    
+    /**
+     * Pool de sessões do servidor FTP configurado, mantido entre execuções
+     */
+    private FtpSessionPool poolFtp() {
+        return FtpUtil.obterPool(config.getFtpHost(), config.getFtpPort(), config.getFtpUser(), config.getFtpPassword(),
+                config.getFtpPoolSize(), config.getFtpConnectTimeoutSeconds() * 1000,
+                config.getFtpDataTimeoutSeconds() * 1000);
+    }
+    
+    /**
+     * Divisão configurada em file.shard.by: "conta", "mes" ou "none"
+     */
+    private String divisaoDosArquivos() {
+        String divisao = config.getFileShardBy() == null ? "" : config.getFileShardBy().trim().toLowerCase(Locale.ROOT);
+        return divisao.equals("mês") ? "mes" : divisao;
+    }
+    
+    private String gerarNomeBase() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS"));
+        return "lancamentos_contabeis_" + timestamp;
+    }
+    
+    private static List<Long> idsDosLancamentos(List<LancamentoContabil> lancamentos) {
+        return lancamentos.stream().map(LancamentoContabil::getId).collect(Collectors.toList());
     }
     
     @Override
@@ -184,40 +227,111 @@ public class FileIntegrationService implements IntegrationService {
         return "DESCONHECIDO";
     }
     
+    /**
+     * Exporta todos os lançamentos pendentes de uma vez: reserva as linhas para esta execução,
+     * lê as reservadas direto do cursor do banco para os arquivos e grava o status final pelo
+     * dono da reserva. A memória usada não depende do número de lançamentos.
+     */
     @Override
     public int executarIntegracao() {
         try {
-            // Buscar lançamentos pendentes
-            List<LancamentoContabil> lancamentosPendentes = lancamentoDAO.buscarPorStatus("PENDENTE");
+            String errorMsg = validarConfiguracao();
+            if (errorMsg != null) {
+                logger.warning(errorMsg);
+                logDAO.salvar(new IntegrationLog("WARNING", errorMsg));
+                return 0;
+            }
             
-            if (lancamentosPendentes.isEmpty()) {
+            lancamentoDAO.liberarLeasesExpirados();
+            String leaseOwner = LancamentoContabilDAO.novoLeaseOwner();
+            long reservados = lancamentoDAO.reservarParaExportacao(leaseOwner, config.getLeaseSeconds(),
+                    config.getReadWindowSize());
+            
+            if (reservados == 0) {
                 logger.info("Nenhum lançamento pendente para integração");
                 return 0;
             }
             
-            logger.info("Iniciando integração de " + lancamentosPendentes.size() + " lançamentos pendentes");
-            logDAO.salvar(new IntegrationLog("INFO", "Iniciando integração automática", 
-                    "Total de lançamentos pendentes: " + lancamentosPendentes.size()));
+            logger.info("Iniciando exportação de " + reservados + " lançamentos pendentes");
+            logDAO.salvar(new IntegrationLog("INFO", "Iniciando integração automática",
+                    "Exportação em arquivo de " + reservados + " lançamentos, execução " + leaseOwner));
             
-            // Enviar lançamentos
-            boolean success = enviarLote(lancamentosPendentes);
+            boolean paralelo = config.getFileParallelism() > 1 || !"none".equals(divisaoDosArquivos());
+            Gerador gerador = paralelo
+                    ? (formato, nomeBase, destino) -> gerarEmParalelo(formato, nomeBase, destino, leaseOwner, reservados)
+                    : (formato, nomeBase, destino) -> gerarSequencial(formato, nomeBase, destino,
+                            escritor -> lancamentoDAO.percorrerReservados(leaseOwner, escritor::escrever));
             
-            if (success) {
-                logger.info("Integração concluída com sucesso");
-                logDAO.salvar(new IntegrationLog("INFO", "Integração concluída com sucesso", 
-                        "Total de lançamentos processados: " + lancamentosPendentes.size()));
-                return lancamentosPendentes.size();
-            } else {
-                logger.warning("Integração concluída com erros");
-                logDAO.salvar(new IntegrationLog("WARNING", "Integração concluída com erros", 
-                        "Verifique os logs para mais detalhes"));
-                return 0;
+            // A reserva é prorrogada durante toda a exportação: escrita, compressão e envio ao FTP
+            boolean success;
+            ScheduledExecutorService renovacao = iniciarRenovacao(leaseOwner);
+            try {
+                success = exportar(gerador,
+                        (status, mensagem) -> lancamentoDAO.finalizarReservados(leaseOwner, status, mensagem));
+            } finally {
+                renovacao.shutdownNow();
             }
             
+            return success ? (int) Math.min(Integer.MAX_VALUE, reservados) : 0;
+        
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Erro ao executar integração", e);
             logDAO.salvar(new IntegrationLog("ERROR", "Erro ao executar integração", e.getMessage()));
             return 0;
         }
     }
+    
+    /**
+     * Renova a reserva da execução a cada terço do tempo de reserva, para que os lançamentos
+     * continuem reservados enquanto os arquivos são gerados, comprimidos e enviados
+     */
+    private ScheduledExecutorService iniciarRenovacao(String leaseOwner) {
+        ScheduledExecutorService renovacao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "exportacao-renovacao-reserva");
+            t.setDaemon(true);
+            return t;
+        });
+        int leaseSegundos = Math.max(1, config.getLeaseSeconds());
+        long intervalo = Math.max(1, leaseSegundos / 3);
+        renovacao.scheduleWithFixedDelay(() -> {
+            try {
+                lancamentoDAO.renovarReserva(leaseOwner, leaseSegundos);
+            } catch (RuntimeException e) {
+                // Uma falha não pode cancelar as próximas renovações
+                logger.log(Level.WARNING, "Erro ao renovar a reserva da exportação " + leaseOwner, e);
+            }
+        }, intervalo, intervalo, TimeUnit.SECONDS);
+        return renovacao;
+    }
+    
+    /**
+     * Origem dos lançamentos de uma exportação sequencial
+     */
+    @FunctionalInterface
+    private interface Fonte {
+        long escrever(RollingFileWriter escritor) throws IOException;
+    }
+    
+    /**
+     * Gera os arquivos de uma exportação
+     */
+    @FunctionalInterface
+    private interface Gerador {
+        Geracao gerar(ExportFormat formato, String nomeBase, ExportTarget destino) throws IOException;
+    }
+    
+    /**
+     * Arquivos gerados e totais de uma exportação
+     */
+    private static final class Geracao {
+        private final List<Path> arquivos;
+        private final long registros;
+        private final long bytes;
+        
+        private Geracao(List<Path> arquivos, long registros, long bytes) {
+            this.arquivos = arquivos;
+            this.registros = registros;
+            this.bytes = bytes;
+        }
+    }
 }
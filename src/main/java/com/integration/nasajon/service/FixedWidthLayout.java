@@ -0,0 +1,654 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Layout posicional (largura fixa) dos lançamentos, lido de um arquivo de definição
+ * (file.layout; o formato está descrito em layout-lancamentos.txt).
+ *
+ * A definição é compilada uma vez: espaços, preenchimento, campos fixos e fim de linha
+ * ficam num modelo do registro já em bytes, e cada campo variável vira um codificador
+ * próprio que escreve direto no buffer do registro, sem criar objetos por lançamento.
+ * Os caracteres passam por uma tabela do charset do layout, que precisa ter um byte por
+ * caractere para que as posições valham tanto em caracteres quanto em bytes.
+ */
+final class FixedWidthLayout implements ExportFormat {
+    private static final Logger logger = Logger.getLogger(FixedWidthLayout.class.getName());
+    
+    private static final String LAYOUT_PADRAO = "/layout-lancamentos.txt";
+    
+    // Layouts compilados por arquivo; um arquivo alterado é compilado de novo
+    private static final Map<String, Compilado> compilados = new ConcurrentHashMap<>();
+    
+    private final Charset charset;
+    private final String extensao;
+    private final byte[] modelo;
+    private final Campo[] campos;
+    
+    private FixedWidthLayout(Charset charset, String extensao, byte[] modelo, Campo[] campos) {
+        this.charset = charset;
+        this.extensao = extensao;
+        this.modelo = modelo;
+        this.campos = campos;
+    }
+    
+    /**
+     * Layout configurado em file.layout, compilado no primeiro uso
+     * @param caminho Arquivo de definição (UTF-8); vazio usa o layout padrão embutido
+     * @throws IOException Se o arquivo não puder ser lido
+     * @throws IllegalArgumentException Se a definição for inválida, com a linha do erro
+     */
+    static FixedWidthLayout carregar(String caminho) throws IOException {
+        if (caminho == null || caminho.isBlank()) {
+            Compilado padrao = compilados.get(LAYOUT_PADRAO);
+            if (padrao == null) {
+                padrao = new Compilado(0, compilar(lerPadrao(), "layout padrão"));
+                compilados.put(LAYOUT_PADRAO, padrao);
+            }
+            return padrao.layout;
+        }
+        
+        Path arquivo = Paths.get(caminho.trim()).toAbsolutePath().normalize();
+        long versao = Files.getLastModifiedTime(arquivo).toMillis() * 31 + Files.size(arquivo);
+        Compilado atual = compilados.get(arquivo.toString());
+        if (atual == null || atual.versao != versao) {
+            atual = new Compilado(versao, compilar(Files.readAllLines(arquivo, StandardCharsets.UTF_8),
+                    arquivo.getFileName().toString()));
+            compilados.put(arquivo.toString(), atual);
+        }
+        return atual.layout;
+    }
+    
+    /**
+     * Compila as linhas de uma definição de layout
+     * @param origem Nome da definição, para as mensagens de erro
+     */
+    static FixedWidthLayout compilar(List<String> linhas, String origem) {
+        Charset charset = StandardCharsets.ISO_8859_1;
+        String extensao = "txt";
+        String fimLinha = "\r\n";
+        int tamanhoRegistro = 0;
+        List<Definicao> definicoes = new ArrayList<>();
+        
+        for (int i = 0; i < linhas.size(); i++) {
+            String linha = linhas.get(i).trim();
+            int numero = i + 1;
+            if (linha.isEmpty() || linha.startsWith("#")) {
+                continue;
+            }
+            int igual = linha.indexOf('=');
+            if (igual > 0 && linha.indexOf(';') < 0) {
+                String nome = linha.substring(0, igual).trim().toLowerCase(Locale.ROOT);
+                String valor = linha.substring(igual + 1).trim();
+                try {
+                    switch (nome) {
+                        case "charset":
+                            charset = Charset.forName(valor);
+                            break;
+                        case "extensao":
+                            extensao = valor.startsWith(".") ? valor.substring(1) : valor;
+                            break;
+                        case "fim.linha":
+                            fimLinha = fimLinha(valor);
+                            break;
+                        case "tamanho":
+                            tamanhoRegistro = Integer.parseInt(valor);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("opção desconhecida: " + nome);
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw erro(origem, numero, e.getMessage());
+                }
+                continue;
+            }
+            definicoes.add(Definicao.ler(linha, origem, numero));
+        }
+        if (definicoes.isEmpty()) {
+            throw new IllegalArgumentException(origem + ": o layout não tem campos");
+        }
+        
+        byte[] tabela;
+        try {
+            tabela = tabela(charset);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(origem + ": " + e.getMessage());
+        }
+        
+        // Campos em ordem de posição, sem sobreposição
+        definicoes.sort(Comparator.comparingInt(d -> d.inicio));
+        int fim = 0;
+        for (Definicao definicao : definicoes) {
+            if (definicao.inicio < fim) {
+                throw erro(origem, definicao.linha, "o campo " + definicao.campo + " começa na posição " +
+                        (definicao.inicio + 1) + ", dentro do campo anterior");
+            }
+            fim = definicao.inicio + definicao.tamanho;
+        }
+        if (tamanhoRegistro < fim) {
+            if (tamanhoRegistro > 0) {
+                throw new IllegalArgumentException(origem + ": tamanho=" + tamanhoRegistro +
+                        " é menor que o fim do último campo (" + fim + ")");
+            }
+            tamanhoRegistro = fim;
+        }
+        
+        // Modelo do registro: espaços, preenchimento de cada campo, campos fixos e fim de linha
+        byte[] terminador = fimLinha.getBytes(charset);
+        byte[] modelo = new byte[tamanhoRegistro + terminador.length];
+        Arrays.fill(modelo, 0, tamanhoRegistro, tabela[' ']);
+        System.arraycopy(terminador, 0, modelo, tamanhoRegistro, terminador.length);
+        
+        List<Campo> campos = new ArrayList<>();
+        for (Definicao definicao : definicoes) {
+            Arrays.fill(modelo, definicao.inicio, definicao.inicio + definicao.tamanho, tabela[definicao.preenchimento]);
+            Campo campo = definicao.compilar(tabela, origem);
+            if (campo == null) {
+                // Campo fixo: o texto vai direto no modelo
+                byte[] texto = codificar(definicao.formato, tabela);
+                if (texto.length > definicao.tamanho) {
+                    throw erro(origem, definicao.linha, "o texto fixo \"" + definicao.formato + "\" não cabe em " +
+                            definicao.tamanho + " posições");
+                }
+                int deslocamento = definicao.direita ? definicao.tamanho - texto.length : 0;
+                System.arraycopy(texto, 0, modelo, definicao.inicio + deslocamento, texto.length);
+            } else {
+                campos.add(campo);
+            }
+        }
+        
+        logger.info(String.format("Layout posicional %s compilado: %d campos, registro de %d posições (%s)",
+                origem, definicoes.size(), tamanhoRegistro, charset.name()));
+        return new FixedWidthLayout(charset, extensao, modelo, campos.toArray(new Campo[0]));
+    }
+    
+    @Override
+    public String extensao() {
+        return extensao;
+    }
+    
+    @Override
+    public String cabecalho() {
+        return "";
+    }
+    
+    /**
+     * Texto do registro; a exportação usa codificar(), que escreve os bytes sem passar por texto
+     */
+    @Override
+    public void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro) {
+        ByteBuffer bytes = ByteBuffer.allocate(modelo.length);
+        codificar(bytes, lancamento, primeiro);
+        bytes.flip();
+        destino.append(charset.decode(bytes));
+    }
+    
+    @Override
+    public boolean codificar(ByteBuffer destino, LancamentoContabil lancamento, boolean primeiro) {
+        int base = destino.position();
+        destino.put(modelo);
+        for (Campo campo : campos) {
+            campo.escrever(destino, base, lancamento);
+        }
+        return true;
+    }
+    
+    @Override
+    public String rodape() {
+        return "";
+    }
+    
+    private static List<String> lerPadrao() throws IOException {
+        try (InputStream entrada = FixedWidthLayout.class.getResourceAsStream(LAYOUT_PADRAO)) {
+            if (entrada == null) {
+                throw new IOException("Layout padrão não encontrado: " + LAYOUT_PADRAO);
+            }
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        }
+    }
+    
+    private static String fimLinha(String valor) {
+        switch (valor.toLowerCase(Locale.ROOT)) {
+            case "crlf":
+                return "\r\n";
+            case "lf":
+                return "\n";
+            case "nenhum":
+            case "":
+                return "";
+            default:
+                throw new IllegalArgumentException("fim.linha deve ser crlf, lf ou nenhum: " + valor);
+        }
+    }
+    
+    /**
+     * Byte de cada caractere no charset do layout. Caracteres que o charset não representa
+     * viram o caractere de substituição dele, e caracteres de controle viram espaço, para não
+     * quebrar o registro.
+     */
+    private static byte[] tabela(Charset charset) {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (encoder.maxBytesPerChar() != 1.0f) {
+            throw new IllegalArgumentException("o charset " + charset.name() +
+                    " não tem um byte por caractere, e as posições do layout deixariam de valer");
+        }
+        char[] caracteres = new char[Character.MAX_VALUE + 1];
+        for (int i = 0; i < caracteres.length; i++) {
+            char c = (char) i;
+            caracteres[i] = Character.isSurrogate(c) || Character.isISOControl(c) ? ' ' : c;
+        }
+        try {
+            ByteBuffer bytes = encoder.encode(CharBuffer.wrap(caracteres));
+            if (bytes.remaining() != caracteres.length) {
+                throw new IllegalArgumentException("o charset " + charset.name() + " não tem um byte por caractere");
+            }
+            byte[] tabela = new byte[caracteres.length];
+            bytes.get(tabela);
+            return tabela;
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("charset " + charset.name() + " não suportado: " + e.getMessage());
+        }
+    }
+    
+    private static byte[] codificar(String texto, byte[] tabela) {
+        byte[] bytes = new byte[texto.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = tabela[texto.charAt(i)];
+        }
+        return bytes;
+    }
+    
+    private static IllegalArgumentException erro(String origem, int linha, String mensagem) {
+        return new IllegalArgumentException(origem + ", linha " + linha + ": " + mensagem);
+    }
+    
+    private static final class Compilado {
+        private final long versao;
+        private final FixedWidthLayout layout;
+        
+        private Compilado(long versao, FixedWidthLayout layout) {
+            this.versao = versao;
+            this.layout = layout;
+        }
+    }
+    
+    /**
+     * Uma linha de campo da definição: campo;início;tamanho;alinhamento;preenchimento;formato
+     */
+    private static final class Definicao {
+        private final int linha;
+        private final String campo;
+        private final int inicio;
+        private final int tamanho;
+        private final boolean direita;
+        private final char preenchimento;
+        private final String formato;
+        
+        private Definicao(int linha, String campo, int inicio, int tamanho, boolean direita, char preenchimento,
+                          String formato) {
+            this.linha = linha;
+            this.campo = campo;
+            this.inicio = inicio;
+            this.tamanho = tamanho;
+            this.direita = direita;
+            this.preenchimento = preenchimento;
+            this.formato = formato;
+        }
+        
+        static Definicao ler(String texto, String origem, int linha) {
+            String[] partes = texto.split(";", 6);
+            if (partes.length < 3) {
+                throw erro(origem, linha, "esperado campo;início;tamanho[;alinhamento;preenchimento;formato]");
+            }
+            String campo = partes[0].trim().toLowerCase(Locale.ROOT);
+            boolean numerico = campo.equals("valor") || campo.equals("id");
+            int inicio;
+            int tamanho;
+            try {
+                inicio = Integer.parseInt(partes[1].trim());
+                tamanho = Integer.parseInt(partes[2].trim());
+            } catch (NumberFormatException e) {
+                throw erro(origem, linha, "início e tamanho devem ser números");
+            }
+            if (inicio < 1 || tamanho < 1) {
+                throw erro(origem, linha, "início e tamanho devem ser maiores que zero");
+            }
+            
+            String alinhamento = partes.length > 3 ? partes[3].trim().toLowerCase(Locale.ROOT) : "";
+            boolean direita;
+            switch (alinhamento) {
+                case "":
+                    direita = numerico;
+                    break;
+                case "esquerda":
+                    direita = false;
+                    break;
+                case "direita":
+                    direita = true;
+                    break;
+                default:
+                    throw erro(origem, linha, "alinhamento deve ser esquerda ou direita: " + alinhamento);
+            }
+            
+            String preenchimento = partes.length > 4 ? partes[4] : "";
+            char caractere;
+            if (preenchimento.trim().isEmpty()) {
+                caractere = preenchimento.length() == 1 ? ' ' : (numerico ? '0' : ' ');
+            } else if (preenchimento.trim().equalsIgnoreCase("espaco") || preenchimento.trim().equalsIgnoreCase("espaço")) {
+                caractere = ' ';
+            } else if (preenchimento.trim().equalsIgnoreCase("zero")) {
+                caractere = '0';
+            } else if (preenchimento.trim().length() == 1) {
+                caractere = preenchimento.trim().charAt(0);
+            } else {
+                throw erro(origem, linha, "preenchimento deve ser um caractere, espaco ou zero: " + preenchimento);
+            }
+            
+            String formato = partes.length > 5 ? partes[5].trim() : "";
+            return new Definicao(linha, campo, inicio - 1, tamanho, direita, caractere, formato);
+        }
+        
+        /**
+         * @return Codificador do campo, ou null para campo fixo (escrito só no modelo)
+         */
+        Campo compilar(byte[] tabela, String origem) {
+            switch (campo) {
+                case "fixo":
+                    return null;
+                case "conta":
+                    return new Texto(this, LancamentoContabil::getConta, tabela);
+                case "historico":
+                case "histórico":
+                    return new Texto(this, LancamentoContabil::getHistorico, tabela);
+                case "natureza":
+                    return new Texto(this, LancamentoContabil::getNatureza, tabela);
+                case "valor":
+                    return new Valor(this, formato.isEmpty() ? "2" : formato, tabela, origem);
+                case "id":
+                    return new Id(this, tabela);
+                case "data":
+                    return new Data(this, formato.isEmpty() ? "ddMMyyyy" : formato, tabela, origem);
+                default:
+                    throw erro(origem, linha, "campo desconhecido: " + campo +
+                            " (use conta, historico, valor, data, natureza, id ou fixo)");
+            }
+        }
+    }
+    
+    /**
+     * Codificador de um campo variável. Escreve nas posições absolutas do registro cujo
+     * primeiro byte está em base; o que não escrever fica com o preenchimento do modelo.
+     */
+    private abstract static class Campo {
+        final String nome;
+        final int inicio;
+        final int tamanho;
+        final boolean direita;
+        
+        Campo(Definicao definicao) {
+            this.nome = definicao.campo;
+            this.inicio = definicao.inicio;
+            this.tamanho = definicao.tamanho;
+            this.direita = definicao.direita;
+        }
+        
+        abstract void escrever(ByteBuffer destino, int base, LancamentoContabil lancamento);
+    }
+    
+    /**
+     * Texto cortado no tamanho do campo
+     */
+    private static final class Texto extends Campo {
+        private final Function<LancamentoContabil, String> valor;
+        private final byte[] tabela;
+        
+        Texto(Definicao definicao, Function<LancamentoContabil, String> valor, byte[] tabela) {
+            super(definicao);
+            this.valor = valor;
+            this.tabela = tabela;
+        }
+        
+        @Override
+        void escrever(ByteBuffer destino, int base, LancamentoContabil lancamento) {
+            String texto = valor.apply(lancamento);
+            if (texto == null) {
+                return;
+            }
+            int quantidade = Math.min(texto.length(), tamanho);
+            int posicao = base + inicio + (direita ? tamanho - quantidade : 0);
+            for (int i = 0; i < quantidade; i++) {
+                destino.put(posicao + i, tabela[texto.charAt(i)]);
+            }
+        }
+    }
+    
+    /**
+     * Número inteiro de unidades (centavos, para o valor), com sinal e separador decimal opcionais.
+     * Números não são cortados: um que não cabe no campo interrompe a exportação.
+     */
+    private abstract static class Numero extends Campo {
+        final int decimais;
+        private final byte separador;
+        private final boolean comSeparador;
+        private final boolean sinalNoInicio;
+        private final byte sinal;
+        private final byte[] digitos = new byte[10];
+        
+        Numero(Definicao definicao, int decimais, char separador, byte[] tabela) {
+            super(definicao);
+            this.decimais = decimais;
+            this.comSeparador = separador != 0 && decimais > 0;
+            this.separador = tabela[separador];
+            // Com zeros à esquerda, o sinal vai na primeira posição (-0000012345)
+            this.sinalNoInicio = definicao.direita && definicao.preenchimento == '0';
+            this.sinal = tabela['-'];
+            for (int i = 0; i < 10; i++) {
+                digitos[i] = tabela['0' + i];
+            }
+        }
+        
+        void escrever(ByteBuffer destino, int base, long unidades, boolean negativo) {
+            int quantidade = 1;
+            for (long resto = unidades / 10; resto > 0; resto /= 10) {
+                quantidade++;
+            }
+            // Pelo menos um dígito antes das casas decimais (0,05 ou 005)
+            quantidade = Math.max(quantidade, decimais + 1);
+            int comprimento = quantidade + (comSeparador ? 1 : 0) + (negativo ? 1 : 0);
+            if (comprimento > tamanho) {
+                throw new IllegalArgumentException(String.format(
+                        "%s com %d caracteres não cabe nas %d posições do campo no layout", nome, comprimento, tamanho));
+            }
+            
+            int posicao = base + inicio + (direita ? tamanho : comprimento) - 1;
+            long resto = unidades;
+            for (int i = 0; i < quantidade; i++) {
+                if (comSeparador && i == decimais) {
+                    destino.put(posicao--, separador);
+                }
+                destino.put(posicao--, digitos[(int) (resto % 10)]);
+                resto /= 10;
+            }
+            if (negativo) {
+                destino.put(sinalNoInicio ? base + inicio : posicao, sinal);
+            }
+        }
+    }
+    
+    private static final class Valor extends Numero {
+        private final double fator;
+        
+        Valor(Definicao definicao, String formato, byte[] tabela, String origem) {
+            super(definicao, decimais(definicao, formato, origem), separador(formato), tabela);
+            this.fator = Math.pow(10, decimais);
+        }
+        
+        @Override
+        void escrever(ByteBuffer destino, int base, LancamentoContabil lancamento) {
+            double valor = lancamento.getValor();
+            long unidades = Math.round(Math.abs(valor) * fator);
+            escrever(destino, base, unidades, valor < 0 && unidades != 0);
+        }
+        
+        /**
+         * Casas decimais do formato: "2", "2," ou "2."
+         */
+        private static int decimais(Definicao definicao, String formato, String origem) {
+            String numero = formato.endsWith(",") || formato.endsWith(".")
+                    ? formato.substring(0, formato.length() - 1) : formato;
+            try {
+                int decimais = Integer.parseInt(numero.trim());
+                if (decimais < 0 || decimais > 6) {
+                    throw erro(origem, definicao.linha, "o valor aceita de 0 a 6 casas decimais: " + formato);
+                }
+                return decimais;
+            } catch (NumberFormatException e) {
+                throw erro(origem, definicao.linha, "formato do valor deve ser as casas decimais, " +
+                        "seguidas do separador se houver (2, \"2,\" ou \"2.\"): " + formato);
+            }
+        }
+        
+        private static char separador(String formato) {
+            return formato.endsWith(",") || formato.endsWith(".") ? formato.charAt(formato.length() - 1) : 0;
+        }
+    }
+    
+    private static final class Id extends Numero {
+        Id(Definicao definicao, byte[] tabela) {
+            super(definicao, 0, (char) 0, tabela);
+        }
+        
+        @Override
+        void escrever(ByteBuffer destino, int base, LancamentoContabil lancamento) {
+            Long id = lancamento.getId();
+            if (id != null) {
+                escrever(destino, base, Math.abs(id), id < 0);
+            }
+        }
+    }
+    
+    /**
+     * Data no padrão do formato, compilado em partes (dia, mês, ano ou caractere literal)
+     */
+    private static final class Data extends Campo {
+        private static final byte LITERAL = 0;
+        private static final byte DIA = 1;
+        private static final byte MES = 2;
+        private static final byte ANO = 3;
+        private static final byte ANO_CURTO = 4;
+        
+        private final byte[] partes;
+        private final byte[] literais;
+        private final byte[] digitos = new byte[10];
+        private final int largura;
+        
+        Data(Definicao definicao, String formato, byte[] tabela, String origem) {
+            super(definicao);
+            byte[] partes = new byte[formato.length()];
+            byte[] literais = new byte[formato.length()];
+            int quantidade = 0;
+            int largura = 0;
+            for (int i = 0; i < formato.length(); ) {
+                if (formato.startsWith("yyyy", i)) {
+                    partes[quantidade] = ANO;
+                    largura += 4;
+                    i += 4;
+                } else if (formato.startsWith("yy", i)) {
+                    partes[quantidade] = ANO_CURTO;
+                    largura += 2;
+                    i += 2;
+                } else if (formato.startsWith("MM", i)) {
+                    partes[quantidade] = MES;
+                    largura += 2;
+                    i += 2;
+                } else if (formato.startsWith("dd", i)) {
+                    partes[quantidade] = DIA;
+                    largura += 2;
+                    i += 2;
+                } else {
+                    char c = formato.charAt(i);
+                    if (Character.isLetter(c)) {
+                        throw erro(origem, definicao.linha, "padrão de data inválido (use dd, MM, yyyy e yy): " + formato);
+                    }
+                    partes[quantidade] = LITERAL;
+                    literais[quantidade] = tabela[c];
+                    largura++;
+                    i++;
+                }
+                quantidade++;
+            }
+            if (largura > tamanho) {
+                throw erro(origem, definicao.linha, "a data no padrão " + formato + " não cabe em " + tamanho + " posições");
+            }
+            this.partes = Arrays.copyOf(partes, quantidade);
+            this.literais = Arrays.copyOf(literais, quantidade);
+            this.largura = largura;
+            for (int i = 0; i < 10; i++) {
+                digitos[i] = tabela['0' + i];
+            }
+        }
+        
+        @Override
+        void escrever(ByteBuffer destino, int base, LancamentoContabil lancamento) {
+            LocalDate data = lancamento.getData();
+            if (data == null) {
+                return;
+            }
+            int posicao = base + inicio + (direita ? tamanho - largura : 0);
+            for (int i = 0; i < partes.length; i++) {
+                switch (partes[i]) {
+                    case DIA:
+                        posicao = digitos(destino, posicao, data.getDayOfMonth(), 2);
+                        break;
+                    case MES:
+                        posicao = digitos(destino, posicao, data.getMonthValue(), 2);
+                        break;
+                    case ANO:
+                        posicao = digitos(destino, posicao, data.getYear(), 4);
+                        break;
+                    case ANO_CURTO:
+                        posicao = digitos(destino, posicao, data.getYear() % 100, 2);
+                        break;
+                    default:
+                        destino.put(posicao++, literais[i]);
+                        break;
+                }
+            }
+        }
+        
+        private int digitos(ByteBuffer destino, int posicao, int numero, int quantidade) {
+            int resto = Math.abs(numero);
+            for (int i = quantidade - 1; i >= 0; i--) {
+                destino.put(posicao + i, digitos[resto % 10]);
+                resto /= 10;
+            }
+            return posicao + quantidade;
+        }
+    }
+}
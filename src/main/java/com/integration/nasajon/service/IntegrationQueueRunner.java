@@ -0,0 +1,214 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.dao.IntegrationLogDAO;
+import com.integration.nasajon.dao.LancamentoContabilDAO;
+import com.integration.nasajon.model.IntegrationLog;
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executa a integração dos lançamentos pendentes como uma fila de trabalho.
+ *
+ * Cada worker reserva uma janela de lançamentos no banco (ver
+ * LancamentoContabilDAO.reivindicarLote), envia a janela e repete até a fila
+ * esvaziar. Como a reserva é atômica, vários workers e várias instâncias da
+ * aplicação podem processar a mesma tabela sem enviar um lançamento duas vezes.
+ * Enquanto a execução durar, as reservas dos workers são renovadas periodicamente
+ * para que uma janela demorada não expire no meio do envio.
+ */
+public class IntegrationQueueRunner {
+    private static final Logger logger = Logger.getLogger(IntegrationQueueRunner.class.getName());
+    
+    private final LancamentoContabilDAO lancamentoDAO;
+    private final IntegrationLogDAO logDAO;
+    private final int tamanhoJanela;
+    private final int leaseSegundos;
+    
+    public IntegrationQueueRunner(LancamentoContabilDAO lancamentoDAO, IntegrationLogDAO logDAO,
+                                  int tamanhoJanela, int leaseSegundos) {
+        this.lancamentoDAO = lancamentoDAO;
+        this.logDAO = logDAO;
+        this.tamanhoJanela = Math.max(1, tamanhoJanela);
+        this.leaseSegundos = Math.max(1, leaseSegundos);
+    }
+    
+    /**
+     * Processa a fila até esvaziar
+     * @param envio Envia uma janela reservada pelo dono informado e atualiza o status dos lançamentos;
+     *              devolve true se deu certo
+     * @param workers Número de workers concorrentes neste processo
+     * @return Número de lançamentos processados com sucesso
+     */
+    public int executar(BiPredicate<List<LancamentoContabil>, String> envio, int workers) throws Exception {
+        return executar(envio, workers, () -> null, () -> 0);
+    }
+    
+    /**
+     * Processa a fila até esvaziar ou até o envio pedir a interrupção
+     * @param envio Envia uma janela reservada pelo dono informado e atualiza o status dos lançamentos;
+     *              devolve true se deu certo
+     * @param workers Número de workers concorrentes neste processo
+     * @param interrupcao Consultado antes de reservar cada janela; um motivo não nulo encerra a execução
+     * @param devolvidos Lançamentos que o envio devolveu à fila sem tentar enviar, para o resumo final
+     * @return Número de lançamentos processados com sucesso
+     */
+    public int executar(BiPredicate<List<LancamentoContabil>, String> envio, int workers, Supplier<String> interrupcao,
+                        IntSupplier devolvidos) throws Exception {
+        lancamentoDAO.liberarLeasesExpirados();
+        
+        String execucao = LancamentoContabilDAO.novoLeaseOwner();
+        List<LancamentoContabil> primeiraJanela = lancamentoDAO.reivindicarLote(tamanhoJanela, execucao + "-w1", leaseSegundos);
+        
+        if (primeiraJanela.isEmpty()) {
+            logger.info("Nenhum lançamento pendente para integração");
+            return 0;
+        }
+        
+        workers = Math.max(1, workers);
+        logger.info("Iniciando integração de lançamentos pendentes: " + workers + " worker(s), janelas de " + tamanhoJanela);
+        logDAO.salvar(new IntegrationLog("INFO", "Iniciando integração automática", 
+                "Workers: " + workers + ", janelas de " + tamanhoJanela + " lançamentos, execução " + execucao));
+        
+        AtomicInteger processados = new AtomicInteger();
+        AtomicLong lidos = new AtomicLong();
+        AtomicBoolean success = new AtomicBoolean(true);
+        AtomicReference<String> motivo = new AtomicReference<>();
+        Supplier<String> parada = () -> {
+            if (motivo.get() == null) {
+                motivo.compareAndSet(null, interrupcao.get());
+            }
+            return motivo.get();
+        };
+        
+        ScheduledExecutorService renovacao = iniciarRenovacao(execucao, workers);
+        try {
+            processarWorkers(envio, execucao, workers, primeiraJanela, processados, lidos, success, parada);
+        } finally {
+            renovacao.shutdownNow();
+        }
+        
+        if (motivo.get() != null) {
+            logger.warning("Integração interrompida: " + motivo.get());
+            logDAO.salvar(new IntegrationLog("WARNING", "Integração interrompida",
+                    "Motivo: " + motivo.get() + ". Lançamentos processados: " + processados.get() + " de " + lidos.get() +
+                    ". Devolvidos à fila sem envio: " + devolvidos.getAsInt()));
+        } else if (success.get()) {
+            logger.info("Integração concluída com sucesso");
+            logDAO.salvar(new IntegrationLog("INFO", "Integração concluída com sucesso", 
+                    "Total de lançamentos processados: " + processados.get()));
+        } else {
+            logger.warning("Integração concluída com erros");
+            logDAO.salvar(new IntegrationLog("WARNING", "Integração concluída com erros", 
+                    "Lançamentos processados: " + processados.get() + " de " + lidos.get() +
+                    ". Verifique os logs para mais detalhes"));
+        }
+        return processados.get();
+    }
+    
+    private void processarWorkers(BiPredicate<List<LancamentoContabil>, String> envio, String execucao, int workers,
+                                  List<LancamentoContabil> primeiraJanela, AtomicInteger processados,
+                                  AtomicLong lidos, AtomicBoolean success, Supplier<String> parada) throws Exception {
+        if (workers == 1) {
+            processarFila(envio, execucao + "-w1", primeiraJanela, processados, lidos, success, parada);
+            return;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r);
+            t.setName("integracao-worker-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        try {
+            List<Callable<Void>> tarefas = new ArrayList<>();
+            for (int i = 1; i <= workers; i++) {
+                String leaseOwner = execucao + "-w" + i;
+                List<LancamentoContabil> inicial = i == 1 ? primeiraJanela : null;
+                tarefas.add(() -> {
+                    processarFila(envio, leaseOwner, inicial, processados, lidos, success, parada);
+                    return null;
+                });
+            }
+            
+            for (Future<Void> tarefa : executor.invokeAll(tarefas)) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Renova a reserva de todos os workers da execução a cada terço do tempo de reserva,
+     * para que a janela em envio continue reservada mesmo quando a API demora a responder
+     */
+    private ScheduledExecutorService iniciarRenovacao(String execucao, int workers) {
+        ScheduledExecutorService renovacao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "integracao-renovacao-reserva");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(1, leaseSegundos / 3);
+        renovacao.scheduleWithFixedDelay(() -> {
+            try {
+                for (int i = 1; i <= workers; i++) {
+                    lancamentoDAO.renovarReserva(execucao + "-w" + i, leaseSegundos);
+                }
+            } catch (RuntimeException e) {
+                // Uma falha não pode cancelar as próximas renovações
+                logger.log(Level.WARNING, "Erro ao renovar reservas da execução " + execucao, e);
+            }
+        }, intervalo, intervalo, TimeUnit.SECONDS);
+        return renovacao;
+    }
+    
+    private void processarFila(BiPredicate<List<LancamentoContabil>, String> envio, String leaseOwner,
+                               List<LancamentoContabil> janela, AtomicInteger processados,
+                               AtomicLong lidos, AtomicBoolean success, Supplier<String> parada) {
+        if (janela == null) {
+            if (parada.get() != null) {
+                return;
+            }
+            janela = lancamentoDAO.reivindicarLote(tamanhoJanela, leaseOwner, leaseSegundos);
+        }
+        
+        while (!janela.isEmpty()) {
+            lidos.addAndGet(janela.size());
+            
+            try {
+                if (envio.test(janela, leaseOwner)) {
+                    processados.addAndGet(janela.size());
+                } else {
+                    success.set(false);
+                }
+            } catch (RuntimeException e) {
+                // A reserva expira e a janela volta para a fila em outra execução
+                logger.log(Level.SEVERE, "Erro ao processar janela reservada por " + leaseOwner, e);
+                success.set(false);
+            }
+            
+            if (parada.get() != null) {
+                return;
+            }
+            janela = lancamentoDAO.reivindicarLote(tamanhoJanela, leaseOwner, leaseSegundos);
+        }
+    }
+}
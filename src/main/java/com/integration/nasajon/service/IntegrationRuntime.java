@@ -0,0 +1,215 @@
+package com.integration.nasajon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.dao.ConsultaDAO;
+import com.integration.nasajon.dao.DatabaseManager;
+import com.integration.nasajon.dao.IntegrationLogDAO;
+import com.integration.nasajon.dao.LancamentoContabilDAO;
+import com.integration.nasajon.model.LancamentoContabil;
+import com.integration.nasajon.util.FtpUtil;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Objetos de longa duração da aplicação: HttpClient, ObjectMapper, DAOs e serviços.
+ *
+ * São criados uma única vez e compartilhados pelo agendador e pela interface, de modo
+ * que as conexões HTTP (inclusive HTTP/2), os caches do Jackson e os pools do banco
+ * sejam reaproveitados entre execuções. Todos podem ser usados por várias threads.
+ * iniciar() cria o runtime e faz o aquecimento; encerrar() libera os recursos.
+ */
+public final class IntegrationRuntime {
+    private static final Logger logger = Logger.getLogger(IntegrationRuntime.class.getName());
+    
+    private static volatile IntegrationRuntime instancia;
+    
+    private final IntegrationConfig config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final LancamentoContabilDAO lancamentoDAO;
+    private final IntegrationLogDAO logDAO;
+    private final ConsultaDAO consultaDAO;
+    private final LoteStatusPoller statusPoller;
+    
+    // Recriados quando a configuração muda (ver configuracaoAlterada)
+    private ApiIntegrationService apiService;
+    private FileIntegrationService fileService;
+    private LogRetentionService logRetentionService;
+    
+    private IntegrationRuntime(IntegrationConfig config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.objectMapper = new ObjectMapper();
+        this.lancamentoDAO = new LancamentoContabilDAO(config);
+        this.logDAO = new IntegrationLogDAO(config);
+        this.consultaDAO = new ConsultaDAO(config);
+        this.statusPoller = new LoteStatusPoller(config, httpClient, lancamentoDAO, logDAO);
+    }
+    
+    /**
+     * Cria o runtime da aplicação, se ainda não existe, e faz o aquecimento
+     * @param config Configuração usada por todos os serviços
+     * @return Runtime da aplicação
+     */
+    public static synchronized IntegrationRuntime iniciar(IntegrationConfig config) {
+        if (instancia != null) {
+            return instancia;
+        }
+        
+        long inicio = System.currentTimeMillis();
+        IntegrationRuntime runtime = new IntegrationRuntime(config);
+        runtime.aquecer();
+        instancia = runtime;
+        
+        logger.info("Runtime de integração iniciado em " + (System.currentTimeMillis() - inicio) + " ms");
+        return runtime;
+    }
+    
+    /**
+     * Runtime já iniciado
+     * @throws IllegalStateException se iniciar() ainda não foi chamado
+     */
+    public static IntegrationRuntime get() {
+        IntegrationRuntime runtime = instancia;
+        if (runtime == null) {
+            throw new IllegalStateException("Runtime de integração não iniciado");
+        }
+        return runtime;
+    }
+    
+    /**
+     * Grava os logs pendentes e fecha os pools de conexão (banco e FTP). Chamado ao fechar a aplicação,
+     * depois de encerrado o agendador (ver IntegrationScheduler.shutdown).
+     */
+    public static synchronized void encerrar() {
+        if (instancia == null) {
+            return;
+        }
+        instancia = null;
+        
+        IntegrationLogDAO.encerrarEscritores();
+        DatabaseManager.encerrarPools();
+        FtpUtil.encerrarPools();
+        logger.info("Runtime de integração encerrado");
+    }
+    
+    /**
+     * Serviço do tipo de integração configurado no momento
+     */
+    public IntegrationService getIntegrationService() {
+        return "api".equalsIgnoreCase(config.getIntegrationType()) ? getApiService() : getFileService();
+    }
+    
+    public synchronized ApiIntegrationService getApiService() {
+        if (apiService == null) {
+            apiService = new ApiIntegrationService(config, httpClient, objectMapper, lancamentoDAO, logDAO, statusPoller);
+        }
+        return apiService;
+    }
+    
+    public synchronized FileIntegrationService getFileService() {
+        if (fileService == null) {
+            fileService = new FileIntegrationService(config, lancamentoDAO, logDAO);
+        }
+        return fileService;
+    }
+    
+    public synchronized LogRetentionService getLogRetentionService() {
+        if (logRetentionService == null) {
+            logRetentionService = new LogRetentionService(config, logDAO);
+        }
+        return logRetentionService;
+    }
+    
+    /**
+     * Descarta os serviços criados com a configuração anterior; os próximos pedidos
+     * criam serviços novos sobre os mesmos HttpClient, ObjectMapper e DAOs
+     */
+    public synchronized void configuracaoAlterada() {
+        apiService = null;
+        fileService = null;
+        logRetentionService = null;
+    }
+    
+    public IntegrationConfig getConfig() {
+        return config;
+    }
+    
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+    
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+    
+    public LancamentoContabilDAO getLancamentoDAO() {
+        return lancamentoDAO;
+    }
+    
+    public IntegrationLogDAO getLogDAO() {
+        return logDAO;
+    }
+    
+    public ConsultaDAO getConsultaDAO() {
+        return consultaDAO;
+    }
+    
+    public LoteStatusPoller getStatusPoller() {
+        return statusPoller;
+    }
+    
+    /**
+     * Prepara o que a primeira integração usaria: esquema e conexões do banco, serializador
+     * JSON e conexão com a API. Falhas aqui só geram aviso; o uso normal tenta de novo.
+     */
+    private void aquecer() {
+        // Esquema do banco e primeira conexão do pool
+        new DatabaseManager(config).initializeDatabase();
+        
+        // Serializador e parser JSON, com o mesmo caminho usado no envio dos lotes
+        LancamentoContabil exemplo = new LancamentoContabil("0", "Aquecimento", 0.0, LocalDate.now(), "D");
+        exemplo.setId(0L);
+        try (JsonBatchBody corpo = new JsonBatchBody(objectMapper.getFactory(), List.of(exemplo))) {
+            if (config.isApiCompressionEnabled()) {
+                corpo.comprimir(config.getApiCompressionLevel());
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Falha no aquecimento do serializador JSON", e);
+        }
+        
+        // Conexão (TCP/TLS) com a API, sem esperar a resposta
+        if ("api".equalsIgnoreCase(config.getIntegrationType()) && config.isApiWarmupEnabled()) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(config.getApiUrl()))
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                        .timeout(Duration.ofSeconds(10))
+                        .build();
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, erro) -> {
+                            if (erro != null) {
+                                logger.warning("Não foi possível abrir conexão com a API no aquecimento: " +
+                                        erro.getMessage());
+                            } else {
+                                logger.fine("Conexão com a API aberta no aquecimento (" + response.version() + ")");
+                            }
+                        });
+            } catch (IllegalArgumentException e) {
+                logger.warning("URL da API inválida: " + config.getApiUrl());
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.integration.nasajon.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Corpo JSON de um lote de lançamentos para a API.
+ *
+ * O lote é serializado uma única vez pelo JsonGenerator direto em blocos de bytes
+ * reaproveitados, sem passar por String. O publisher entrega os blocos conforme o
+ * HttpClient os pede e pode ser assinado de novo a cada tentativa, reenviando os
+ * mesmos bytes. close() devolve os blocos ao pool e só deve ser chamado quando não
+ * houver mais tentativas.
+ */
+final class JsonBatchBody implements AutoCloseable {
+    private static final int TAMANHO_BLOCO = 16 * 1024;
+    private static final int MAX_BLOCOS_NO_POOL = 64;
+    
+    private static final Queue<byte[]> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger blocosNoPool = new AtomicInteger();
+    
+    private final Blocos json = new Blocos();
+    private Blocos gzip;
+    private volatile boolean fechado;
+    
+    JsonBatchBody(JsonFactory jsonFactory, List<LancamentoContabil> lancamentos) throws IOException {
+        try (JsonGenerator gerador = jsonFactory.createGenerator(json.new Saida(), JsonEncoding.UTF8)) {
+            gerador.writeStartArray();
+            for (LancamentoContabil lancamento : lancamentos) {
+                gerador.writeStartObject();
+                gerador.writeNumberField("id", lancamento.getId());
+                gerador.writeStringField("conta", lancamento.getConta());
+                gerador.writeStringField("historico", lancamento.getHistorico());
+                gerador.writeNumberField("valor", BigDecimal.valueOf(lancamento.getValor()).setScale(2, RoundingMode.HALF_UP));
+                gerador.writeStringField("data", lancamento.getData() != null
+                        ? lancamento.getData().format(DateTimeFormatter.ISO_LOCAL_DATE) : null);
+                gerador.writeStringField("natureza", lancamento.getNatureza());
+                gerador.writeEndObject();
+            }
+            gerador.writeEndArray();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Gera também a versão gzip do corpo, mantendo a original para o caso de o
+     * servidor recusar a compressão
+     * @param nivel Nível de compressão (1 a 9)
+     */
+    void comprimir(int nivel) throws IOException {
+        if (gzip != null) {
+            return;
+        }
+        Blocos comprimido = new Blocos();
+        try (GZIPOutputStream saida = new GZIPOutputStream(comprimido.new Saida(), TAMANHO_BLOCO) {
+            {
+                def.setLevel(nivel);
+            }
+        }) {
+            for (int i = 0; i < json.lista.size(); i++) {
+                saida.write(json.lista.get(i), 0, json.usados(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            comprimido.liberar();
+            throw e;
+        }
+        gzip = comprimido;
+    }
+    
+    /**
+     * Publisher com Content-Length conhecido; cada assinatura percorre os blocos desde o início
+     * @param comprimido Se deve publicar a versão gzip (ver comprimir)
+     */
+    HttpRequest.BodyPublisher publisher(boolean comprimido) {
+        Blocos blocos = comprimido ? gzip : json;
+        if (blocos == null) {
+            throw new IllegalStateException("Corpo comprimido não foi gerado");
+        }
+        return HttpRequest.BodyPublishers.fromPublisher(assinante -> {
+            Assinatura assinatura = new Assinatura(blocos, assinante);
+            assinante.onSubscribe(assinatura);
+        }, blocos.tamanho);
+    }
+    
+    long getTamanho() {
+        return json.tamanho;
+    }
+    
+    long getTamanhoComprimido() {
+        return gzip != null ? gzip.tamanho : json.tamanho;
+    }
+    
+    @Override
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        json.liberar();
+        if (gzip != null) {
+            gzip.liberar();
+        }
+    }
+    
+    private static byte[] obterBloco() {
+        byte[] bloco = pool.poll();
+        if (bloco == null) {
+            return new byte[TAMANHO_BLOCO];
+        }
+        blocosNoPool.decrementAndGet();
+        return bloco;
+    }
+    
+    /**
+     * Sequência de blocos do pool com o último parcialmente preenchido
+     */
+    private static final class Blocos {
+        private final List<byte[]> lista = new ArrayList<>();
+        private int usadosNoUltimo;
+        private long tamanho;
+        
+        private int usados(int indice) {
+            return indice == lista.size() - 1 ? usadosNoUltimo : TAMANHO_BLOCO;
+        }
+        
+        private ByteBuffer buffer(int indice) {
+            return ByteBuffer.wrap(lista.get(indice), 0, usados(indice)).asReadOnlyBuffer();
+        }
+        
+        private void liberar() {
+            for (byte[] bloco : lista) {
+                if (blocosNoPool.incrementAndGet() <= MAX_BLOCOS_NO_POOL) {
+                    pool.offer(bloco);
+                } else {
+                    blocosNoPool.decrementAndGet();
+                }
+            }
+            lista.clear();
+        }
+        
+        /**
+         * Acrescenta blocos do pool conforme enchem
+         */
+        private final class Saida extends OutputStream {
+            @Override
+            public void write(int b) {
+                garantirEspaco();
+                lista.get(lista.size() - 1)[usadosNoUltimo++] = (byte) b;
+                tamanho++;
+            }
+            
+            @Override
+            public void write(byte[] origem, int inicio, int quantidade) {
+                while (quantidade > 0) {
+                    garantirEspaco();
+                    int copiar = Math.min(quantidade, TAMANHO_BLOCO - usadosNoUltimo);
+                    System.arraycopy(origem, inicio, lista.get(lista.size() - 1), usadosNoUltimo, copiar);
+                    usadosNoUltimo += copiar;
+                    inicio += copiar;
+                    quantidade -= copiar;
+                    tamanho += copiar;
+                }
+            }
+            
+            private void garantirEspaco() {
+                if (lista.isEmpty() || usadosNoUltimo == TAMANHO_BLOCO) {
+                    lista.add(obterBloco());
+                    usadosNoUltimo = 0;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Entrega os blocos respeitando a demanda do assinante
+     */
+    private final class Assinatura implements Flow.Subscription {
+        private final Blocos blocos;
+        private final Flow.Subscriber<? super ByteBuffer> assinante;
+        private final AtomicLong demanda = new AtomicLong();
+        private final AtomicInteger emEntrega = new AtomicInteger();
+        private int proximo;
+        private volatile boolean encerrada;
+        
+        private Assinatura(Blocos blocos, Flow.Subscriber<? super ByteBuffer> assinante) {
+            this.blocos = blocos;
+            this.assinante = assinante;
+        }
+        
+        @Override
+        public void request(long n) {
+            if (encerrada) {
+                return;
+            }
+            if (n <= 0) {
+                encerrada = true;
+                assinante.onError(new IllegalArgumentException("Demanda inválida: " + n));
+                return;
+            }
+            demanda.accumulateAndGet(n, (atual, pedido) -> atual + pedido < 0 ? Long.MAX_VALUE : atual + pedido);
+            entregar();
+        }
+        
+        @Override
+        public void cancel() {
+            encerrada = true;
+        }
+        
+        private void entregar() {
+            // Só uma thread entrega por vez; pedidos feitos durante a entrega são atendidos no mesmo laço
+            if (emEntrega.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!encerrada && proximo < blocos.lista.size() && demanda.get() > 0) {
+                    if (fechado) {
+                        encerrada = true;
+                        assinante.onError(new IllegalStateException("Corpo da requisição já liberado"));
+                        return;
+                    }
+                    demanda.decrementAndGet();
+                    assinante.onNext(blocos.buffer(proximo++));
+                }
+                if (!encerrada && proximo == blocos.lista.size()) {
+                    encerrada = true;
+                    assinante.onComplete();
+                    return;
+                }
+            } while (emEntrega.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.integration.nasajon.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.dao.IntegrationLogDAO;
+import com.integration.nasajon.dao.LogRetentionDAO;
+import com.integration.nasajon.model.IntegrationLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Retenção dos logs de integração: os logs mais antigos que o prazo configurado são
+ * resumidos por hora, arquivados e removidos em pequenos lotes, com uma pausa entre
+ * os lotes para não competir com a gravação dos logs novos. O registro de exclusões
+ * de lançamentos, usado na atualização incremental da interface, é expurgado junto.
+ */
+public class LogRetentionService {
+    private static final Logger logger = Logger.getLogger(LogRetentionService.class.getName());
+    
+    private static final DateTimeFormatter ARQUIVO_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    
+    private final IntegrationConfig config;
+    private final LogRetentionDAO retentionDAO;
+    private final IntegrationLogDAO logDAO;
+    
+    public LogRetentionService(IntegrationConfig config) {
+        this(config, new IntegrationLogDAO(config));
+    }
+    
+    public LogRetentionService(IntegrationConfig config, IntegrationLogDAO logDAO) {
+        this.config = config;
+        this.retentionDAO = new LogRetentionDAO(config);
+        this.logDAO = logDAO;
+    }
+    
+    /**
+     * Executa a retenção completa: logs, arquivo e resumo
+     * @return Quantidade de logs removidos da tabela integration_logs
+     */
+    public int executar() {
+        LogRetentionDAO.ModoArquivo modo = modoArquivo(config.getLogRetentionArchive());
+        int tamanho = Math.max(1, config.getLogRetentionBatchSize());
+        LocalDateTime agora = LocalDateTime.now();
+        
+        long inicio = System.currentTimeMillis();
+        int removidos = 0;
+        
+        try (ArquivoGzip arquivo = modo == LogRetentionDAO.ModoArquivo.ARQUIVO ? new ArquivoGzip(agora) : null) {
+            
+            LocalDateTime limite = agora.minusDays(config.getLogRetentionDays());
+            int lote;
+            do {
+                lote = retentionDAO.expurgarLote(limite, tamanho, modo, arquivo);
+                removidos += lote;
+                pausar(lote == tamanho);
+            } while (lote == tamanho);
+            
+            int arquivados = 0;
+            if (modo == LogRetentionDAO.ModoArquivo.TABELA) {
+                LocalDateTime limiteArquivo = agora.minusDays(config.getLogRetentionArchiveDays());
+                do {
+                    lote = retentionDAO.expurgarArquivo(limiteArquivo, tamanho);
+                    arquivados += lote;
+                    pausar(lote == tamanho);
+                } while (lote == tamanho);
+            }
+            
+            int resumidos = 0;
+            LocalDateTime limiteResumo = agora.minusDays(config.getLogRetentionSummaryDays());
+            do {
+                lote = retentionDAO.expurgarResumo(limiteResumo, tamanho);
+                resumidos += lote;
+                pausar(lote == tamanho);
+            } while (lote == tamanho);
+            
+            int exclusoes = 0;
+            LocalDateTime limiteExclusoes = agora.minusDays(config.getLogRetentionDeletedDays());
+            do {
+                lote = retentionDAO.expurgarExclusoes(limiteExclusoes, tamanho);
+                exclusoes += lote;
+                pausar(lote == tamanho);
+            } while (lote == tamanho);
+            
+            String detalhes = String.format(
+                    "Logs removidos: %d (modo de arquivo %s). Registros expirados: arquivo=%d, resumo=%d, " +
+                    "exclusões de lançamentos=%d. Tempo: %d ms",
+                    removidos, modo, arquivados, resumidos, exclusoes, System.currentTimeMillis() - inicio);
+            logger.info("Retenção de logs concluída. " + detalhes);
+            if (removidos > 0) {
+                logDAO.salvar(new IntegrationLog("INFO", "Retenção de logs concluída", detalhes));
+            }
+            
+        } catch (SQLException | IOException e) {
+            logger.log(Level.SEVERE, "Erro na retenção de logs após remover " + removidos + " logs", e);
+            logDAO.salvar(new IntegrationLog("ERROR", "Erro na retenção de logs", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Retenção de logs interrompida após remover " + removidos + " logs");
+        }
+        
+        return removidos;
+    }
+    
+    /**
+     * Modo de log.retention.archive; um valor desconhecido usa o padrão (TABELA)
+     */
+    private static LogRetentionDAO.ModoArquivo modoArquivo(String valor) {
+        if (valor != null) {
+            try {
+                return LogRetentionDAO.ModoArquivo.valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                // valor inválido: usar o modo padrão
+            }
+        }
+        logger.warning("Valor inválido em log.retention.archive: " + valor + ". Usando TABELA");
+        return LogRetentionDAO.ModoArquivo.TABELA;
+    }
+    
+    private void pausar(boolean haMais) throws InterruptedException {
+        if (haMais && config.getLogRetentionPauseMs() > 0) {
+            Thread.sleep(config.getLogRetentionPauseMs());
+        }
+    }
+    
+    /**
+     * Arquivo .jsonl.gz com um log por linha, aberto apenas se houver o que arquivar
+     */
+    private class ArquivoGzip implements LogRetentionDAO.DestinoArquivo, Closeable {
+        private final Path caminho;
+        private JsonGenerator gerador;
+        
+        private ArquivoGzip(LocalDateTime execucao) {
+            this.caminho = Paths.get(config.getLogRetentionArchiveDir(),
+                    "integration_logs_" + execucao.format(ARQUIVO_FORMATTER) + ".jsonl.gz");
+        }
+        
+        @Override
+        public void gravar(List<IntegrationLog> logs) throws IOException {
+            if (gerador == null) {
+                Files.createDirectories(caminho.getParent());
+                OutputStream saida = new GZIPOutputStream(Files.newOutputStream(caminho), 64 * 1024, true);
+                gerador = new JsonFactory().createGenerator(saida, JsonEncoding.UTF8);
+                gerador.setRootValueSeparator(null);
+            }
+            
+            for (IntegrationLog log : logs) {
+                gerador.writeStartObject();
+                gerador.writeNumberField("id", log.getId());
+                gerador.writeStringField("timestamp", log.getTimestamp().format(TIMESTAMP_FORMATTER));
+                gerador.writeStringField("tipo", log.getTipo());
+                gerador.writeStringField("mensagem", log.getMensagem());
+                gerador.writeStringField("detalhes", log.getDetalhes());
+                gerador.writeEndObject();
+                gerador.writeRaw('\n');
+            }
+            
+            // O lote só é confirmado no banco depois de estar no arquivo
+            gerador.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (gerador != null) {
+                gerador.close();
+                logger.info("Logs arquivados em " + caminho.toAbsolutePath());
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.integration.nasajon.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.integration.nasajon.config.IntegrationConfig;
+import com.integration.nasajon.dao.IntegrationLogDAO;
+import com.integration.nasajon.dao.LancamentoContabilDAO;
+import com.integration.nasajon.model.IntegrationLog;
+import com.integration.nasajon.model.StatusLancamento;
+import com.integration.nasajon.util.CircuitBreaker;
+import com.integration.nasajon.util.RetryBudget;
+import com.integration.nasajon.util.RetryPolicy;
+import com.integration.nasajon.util.RetryUtil;
+import com.integration.nasajon.util.TokenBucket;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Confirma o processamento dos lotes aceitos pela API.
+ *
+ * Os lotes pendentes são os lote_id dos lançamentos ainda ENVIADO. Eles são lidos em
+ * páginas e cada página é consultada com um número limitado de requisições simultâneas.
+ * A consulta usa ETag/If-None-Match, então um lote que continua em processamento
+ * custa uma resposta 304 sem corpo. Os resultados finais (status e itens recusados)
+ * ficam em cache e os lançamentos afetados são atualizados por lote, em uma transação
+ * por página. ETags e cache vivem enquanto a instância viver, por isso a aplicação usa
+ * a do IntegrationRuntime. As consultas passam pelo mesmo circuit breaker e limite de
+ * taxa do envio (ver ApiIntegrationService.circuitoDa).
+ */
+public class LoteStatusPoller {
+    private static final Logger logger = Logger.getLogger(LoteStatusPoller.class.getName());
+    
+    private static final Set<String> STATUS_CONCLUIDOS = Set.of("processado", "concluido", "concluído", "confirmado",
+            "sucesso", "success", "completed", "done");
+    private static final Set<String> STATUS_COM_ERRO = Set.of("erro", "falha", "rejeitado", "error", "failed",
+            "rejected");
+    
+    /**
+     * Resultado da consulta de um lote
+     */
+    private enum Resultado {
+        CONFIRMADO,
+        ERRO,
+        EM_PROCESSAMENTO,
+        SEM_ALTERACAO,
+        FALHA_CONSULTA
+    }
+    
+    private final IntegrationConfig config;
+    private final HttpClient httpClient;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final LancamentoContabilDAO lancamentoDAO;
+    private final IntegrationLogDAO logDAO;
+    
+    // ETag e status da última resposta de cada lote ainda em processamento
+    private final Map<String, Versao> versoes = new ConcurrentHashMap<>();
+    // Resultado final dos lotes já concluídos, com os itens recusados, para reaplicar
+    // enquanto restarem lançamentos ENVIADO do lote (os mais antigos saem primeiro)
+    private final Map<String, Situacao> statusFinais;
+    
+    public LoteStatusPoller(IntegrationConfig config) {
+        this(config,
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(config.getApiStatusTimeoutSeconds())).build(),
+                new LancamentoContabilDAO(config),
+                new IntegrationLogDAO(config));
+    }
+    
+    public LoteStatusPoller(IntegrationConfig config, HttpClient httpClient, LancamentoContabilDAO lancamentoDAO,
+                            IntegrationLogDAO logDAO) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.lancamentoDAO = lancamentoDAO;
+        this.logDAO = logDAO;
+        
+        int tamanhoCache = Math.max(1, config.getApiStatusCacheSize());
+        this.statusFinais = Collections.synchronizedMap(new LinkedHashMap<String, Situacao>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Situacao> eldest) {
+                return size() > tamanhoCache;
+            }
+        });
+    }
+    
+    /**
+     * Consulta todos os lotes aguardando confirmação
+     * @return Número de lotes concluídos (confirmados ou com erro) nesta execução
+     */
+    public int verificarPendentes() {
+        long inicio = System.currentTimeMillis();
+        Map<Resultado, Integer> contagem = new LinkedHashMap<>();
+        int concluidos = 0;
+        RetryBudget orcamento = novoOrcamento();
+        
+        String ultimo = null;
+        List<String> pagina;
+        while (!(pagina = lancamentoDAO.listarLotesAguardandoConfirmacao(ultimo, config.getApiStatusBatchSize())).isEmpty()) {
+            if (ApiIntegrationService.circuitoDa(config).isBloqueado()) {
+                logger.info("Consulta de status dos lotes interrompida: circuito da API aberto");
+                break;
+            }
+            
+            List<Situacao> situacoes = consultarPagina(pagina, orcamento);
+            aplicar(situacoes);
+            
+            for (Situacao situacao : situacoes) {
+                contagem.merge(situacao.resultado, 1, Integer::sum);
+                if (situacao.isFinal()) {
+                    concluidos++;
+                }
+            }
+            ultimo = pagina.get(pagina.size() - 1);
+            
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        
+        if (!contagem.isEmpty()) {
+            String resumo = String.format("%d lotes consultados em %d ms: %s",
+                    contagem.values().stream().mapToInt(Integer::intValue).sum(),
+                    System.currentTimeMillis() - inicio, contagem);
+            if (orcamento.getNegadas() > 0) {
+                resumo += "\nNovas tentativas limitadas pelo orçamento: " + orcamento;
+            }
+            logger.info("Status dos lotes verificado. " + resumo);
+            logDAO.salvar(new IntegrationLog(contagem.containsKey(Resultado.FALHA_CONSULTA) ? "WARNING" : "INFO",
+                    "Status dos lotes verificado", resumo));
+        }
+        return concluidos;
+    }
+    
+    /**
+     * Consulta um lote, usando o cache se ele já foi concluído, e atualiza os seus lançamentos
+     * @param loteId Identificador do lote na API
+     * @return Status informado pela API, ou "ERRO" se não foi possível consultar
+     */
+    public String consultar(String loteId) {
+        try {
+            Situacao situacao = consultarAsync(loteId, novoOrcamento())
+                    .get(config.getApiStatusTimeoutSeconds() * (long) Math.max(1, config.getRetryAttempts()) + 5,
+                            TimeUnit.SECONDS);
+            aplicar(List.of(situacao));
+            return situacao.status != null ? situacao.status : "ERRO";
+        
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Erro ao verificar status do lote " + loteId, e);
+            return "ERRO";
+        }
+    }
+    
+    private List<Situacao> consultarPagina(List<String> lotes, RetryBudget orcamento) {
+        Semaphore emAndamento = new Semaphore(Math.max(1, config.getApiStatusMaxInFlight()));
+        List<CompletableFuture<Situacao>> consultas = new ArrayList<>(lotes.size());
+        
+        try {
+            for (String loteId : lotes) {
+                emAndamento.acquire();
+                CompletableFuture<Situacao> consulta = consultarAsync(loteId, orcamento);
+                consulta.whenComplete((situacao, erro) -> emAndamento.release());
+                consultas.add(consulta);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        List<Situacao> situacoes = new ArrayList<>(consultas.size());
+        for (CompletableFuture<Situacao> consulta : consultas) {
+            situacoes.add(consulta.join());
+        }
+        return situacoes;
+    }
+    
+    /**
+     * Consulta um lote; nunca completa com exceção
+     */
+    private CompletableFuture<Situacao> consultarAsync(String loteId, RetryBudget orcamento) {
+        Situacao concluida = statusFinais.get(loteId);
+        if (concluida != null) {
+            return CompletableFuture.completedFuture(concluida);
+        }
+        
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(config.getApiUrl() + "/status/" + URLEncoder.encode(loteId, StandardCharsets.UTF_8)))
+                .header("Authorization", "Bearer " + config.getApiToken())
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(config.getApiStatusTimeoutSeconds()))
+                .GET();
+        Versao versao = versoes.get(loteId);
+        if (versao != null) {
+            builder.header("If-None-Match", versao.etag);
+        }
+        HttpRequest request = builder.build();
+        
+        RetryPolicy<HttpResponse<BatchResponse>> politica = new RetryPolicy<HttpResponse<BatchResponse>>(config.getRetryAttempts())
+                .classificador(RetryPolicy.http(ApiIntegrationService::deveRepetir))
+                .orcamento(orcamento);
+        CircuitBreaker circuito = ApiIntegrationService.circuitoDa(config);
+        TokenBucket limitador = ApiIntegrationService.limitadorDa(config);
+        return RetryUtil.executeAsync(
+                () -> ApiIntegrationService.chamarApiAsync(httpClient, circuito, limitador, request,
+                        BatchResponse.handler(jsonFactory, config.getApiResponseMaxBytes())),
+                politica
+        ).handle((response, erro) -> {
+            if (erro != null) {
+                Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                return new Situacao(loteId, Resultado.FALHA_CONSULTA, null, causa.getMessage());
+            }
+            return interpretar(loteId, response, versao);
+        });
+    }
+    
+    private RetryBudget novoOrcamento() {
+        return new RetryBudget("da consulta de status", config.getRetryBudgetRatio(), config.getRetryBudgetMin());
+    }
+    
+    private Situacao interpretar(String loteId, HttpResponse<BatchResponse> response, Versao anterior) {
+        if (response.statusCode() == 304 && anterior != null) {
+            return new Situacao(loteId, Resultado.SEM_ALTERACAO, anterior.status, null);
+        }
+        
+        BatchResponse resposta = response.body();
+        if (response.statusCode() != 200 || resposta.getStatus() == null) {
+            String mensagem = "Código: " + response.statusCode() + ", Resposta: " + resposta.getTrecho();
+            logger.warning("Erro ao verificar status do lote " + loteId + ". " + mensagem);
+            return new Situacao(loteId, Resultado.FALHA_CONSULTA, null, mensagem);
+        }
+        
+        Resultado resultado = classificar(resposta.getStatus());
+        Situacao situacao = new Situacao(loteId, resultado, resposta.getStatus(), resposta.getMensagem());
+        resposta.getItens().forEach((id, item) -> {
+            if (!item.isAceito()) {
+                situacao.recusados.put(id, item.getMensagem());
+            }
+        });
+        
+        if (situacao.isFinal()) {
+            statusFinais.put(loteId, situacao);
+            versoes.remove(loteId);
+        } else {
+            response.headers().firstValue("ETag")
+                    .ifPresent(etag -> versoes.put(loteId, new Versao(etag, resposta.getStatus())));
+        }
+        return situacao;
+    }
+    
+    private static Resultado classificar(String status) {
+        String normalizado = status.trim().toLowerCase(Locale.ROOT);
+        if (STATUS_CONCLUIDOS.contains(normalizado)) {
+            return Resultado.CONFIRMADO;
+        }
+        if (STATUS_COM_ERRO.contains(normalizado)) {
+            return Resultado.ERRO;
+        }
+        return Resultado.EM_PROCESSAMENTO;
+    }
+    
+    /**
+     * Atualiza os lançamentos dos lotes concluídos: primeiro os itens recusados, depois
+     * os demais lançamentos de cada lote, agrupados por status e mensagem
+     */
+    private void aplicar(List<Situacao> situacoes) {
+        Map<String, List<Long>> itensRecusados = new LinkedHashMap<>();
+        List<String> confirmados = new ArrayList<>();
+        Map<String, List<String>> lotesComErro = new LinkedHashMap<>();
+        
+        for (Situacao situacao : situacoes) {
+            situacao.recusados.forEach((id, mensagem) -> itensRecusados
+                    .computeIfAbsent("Recusado pela API no lote " + situacao.loteId +
+                            (mensagem != null ? ": " + mensagem : ""), m -> new ArrayList<>())
+                    .add(id));
+            
+            if (situacao.resultado == Resultado.CONFIRMADO) {
+                confirmados.add(situacao.loteId);
+            } else if (situacao.resultado == Resultado.ERRO) {
+                String mensagem = "Lote " + situacao.loteId + " com status " + situacao.status +
+                        (situacao.mensagem != null ? ": " + situacao.mensagem : "");
+                lotesComErro.computeIfAbsent(mensagem, m -> new ArrayList<>()).add(situacao.loteId);
+            }
+        }
+        
+        itensRecusados.forEach((mensagem, ids) ->
+                lancamentoDAO.atualizarStatusEmLote(ids, StatusLancamento.ERRO, mensagem));
+        int atualizados = lancamentoDAO.atualizarStatusPorLote(confirmados, StatusLancamento.CONFIRMADO, null);
+        for (Map.Entry<String, List<String>> entrada : lotesComErro.entrySet()) {
+            atualizados += lancamentoDAO.atualizarStatusPorLote(entrada.getValue(), StatusLancamento.ERRO, entrada.getKey());
+        }
+        
+        if (!lotesComErro.isEmpty()) {
+            String detalhes = String.join("\n", lotesComErro.keySet());
+            logger.warning("Lotes processados com erro pela API: " + detalhes);
+            logDAO.salvar(new IntegrationLog("WARNING", "Lotes processados com erro pela API", detalhes));
+        }
+        if (atualizados > 0) {
+            logger.info(atualizados + " lançamentos atualizados pela confirmação de " +
+                    (confirmados.size() + lotesComErro.values().stream().mapToInt(List::size).sum()) + " lotes");
+        }
+    }
+    
+    private static final class Situacao {
+        private final String loteId;
+        private final Resultado resultado;
+        private final String status;
+        private final String mensagem;
+        private final Map<Long, String> recusados = new LinkedHashMap<>();
+        
+        private Situacao(String loteId, Resultado resultado, String status, String mensagem) {
+            this.loteId = loteId;
+            this.resultado = resultado;
+            this.status = status;
+            this.mensagem = mensagem;
+        }
+        
+        private boolean isFinal() {
+            return resultado == Resultado.CONFIRMADO || resultado == Resultado.ERRO;
+        }
+    }
+    
+    private static final class Versao {
+        private final String etag;
+        private final String status;
+        
+        private Versao(String etag, String status) {
+            this.etag = etag;
+            this.status = status;
+        }
+    }
+}
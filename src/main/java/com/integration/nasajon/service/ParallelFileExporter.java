@@ -0,0 +1,410 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.dao.LancamentoContabilDAO;
+import com.integration.nasajon.dao.LancamentoContabilDAO.ChaveLancamento;
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Exportação em arquivo dos lançamentos reservados, com a geração dividida entre threads.
+ *
+ * Sem divisão em arquivos por conta ou mês, os lançamentos são separados em faixas
+ * consecutivas de (data, id) com o mesmo número de linhas. Cada faixa é lida e codificada
+ * em paralelo, em um ForkJoinPool, para um arquivo de segmento sem cabeçalho e rodapé.
+ * O arquivo final é montado com o cabeçalho, os segmentos na ordem das faixas (copiados
+ * com FileChannel.transferTo, sem passar pela memória da aplicação) e o rodapé, de modo
+ * que a ordem dos registros e o envelope do formato são os mesmos da geração sequencial.
+ * Com limite de tamanho (file.max.*), cada faixa é gerada como arquivos completos, divididos
+ * pelos mesmos limites, e as partes de todas as faixas são numeradas na ordem das faixas.
+ *
+ * Com file.shard.by=conta ou mes, cada conta ou mês vira um arquivo completo (dividido em
+ * partes pelos limites de file.max.*), e os arquivos são gerados em paralelo.
+ */
+class ParallelFileExporter {
+    private static final Logger logger = Logger.getLogger(ParallelFileExporter.class.getName());
+    
+    // Abaixo disso por faixa, dividir custa mais do que a leitura em paralelo economiza
+    private static final long MIN_LINHAS_POR_FAIXA = 10000;
+    
+    private final LancamentoContabilDAO lancamentoDAO;
+    private final Path diretorio;
+    private final int paralelismo;
+    private final long maxBytes;
+    private final long maxRegistros;
+    private final int tamanhoBuffer;
+    
+    private long totalRegistros;
+    private long totalBytes;
+    
+    // Arquivos completos já gerados, apagados se outra tarefa falhar
+    private final List<Path> gerados = new ArrayList<>();
+    // Sinaliza às tarefas em andamento que outra falhou
+    private volatile boolean cancelado;
+    
+    ParallelFileExporter(LancamentoContabilDAO lancamentoDAO, Path diretorio, int paralelismo,
+                         long maxBytes, long maxRegistros, int tamanhoBuffer) {
+        this.lancamentoDAO = lancamentoDAO;
+        this.diretorio = diretorio;
+        this.paralelismo = Math.max(1, paralelismo);
+        this.maxBytes = maxBytes;
+        this.maxRegistros = maxRegistros;
+        this.tamanhoBuffer = tamanhoBuffer;
+    }
+    
+    /**
+     * Gera um único arquivo com todos os lançamentos reservados, a partir de faixas em paralelo,
+     * ou partes que respeitam os limites de file.max.*
+     * @param reservados Número de lançamentos reservados, para decidir quantas faixas usar
+     * @return Arquivos gerados, na ordem
+     */
+    List<Path> exportarEmFaixas(String leaseOwner, long reservados, ExportFormat formato, String nomeBase)
+            throws IOException {
+        int faixas = (int) Math.max(1, Math.min(paralelismo, reservados / MIN_LINHAS_POR_FAIXA));
+        List<ChaveLancamento> inicios = faixas > 1 ? lancamentoDAO.dividirReservados(leaseOwner, faixas) : List.of();
+        if (inicios.size() <= 1) {
+            // Uma faixa só: o mesmo que a geração sequencial
+            return exportarArquivo(formato, nomeBase, consumidor -> lancamentoDAO.percorrerReservados(leaseOwner, consumidor));
+        }
+        
+        List<Leitura> leituras = new ArrayList<>();
+        for (int i = 0; i < inicios.size(); i++) {
+            ChaveLancamento de = i == 0 ? null : inicios.get(i);
+            ChaveLancamento ate = i + 1 < inicios.size() ? inicios.get(i + 1) : null;
+            leituras.add(consumidor -> lancamentoDAO.percorrerReservados(leaseOwner, de, ate, consumidor));
+        }
+        
+        Path temporario = Files.createTempDirectory(diretorio, "." + nomeBase + "_segmentos");
+        try {
+            if (maxBytes > 0 || maxRegistros > 0) {
+                return exportarFaixasEmPartes(temporario, formato, nomeBase, leituras);
+            }
+            
+            List<Tarefa<Path>> tarefas = new ArrayList<>();
+            for (int i = 0; i < leituras.size(); i++) {
+                ExportFormat segmento = new Segmento(formato, i > 0);
+                String nome = String.format("segmento_%03d", i + 1);
+                Leitura leitura = leituras.get(i);
+                tarefas.add(() -> escreverSegmento(temporario, segmento, nome, leitura));
+            }
+            List<Path> segmentos = executarTarefas(tarefas);
+            
+            Path destino = diretorio.resolve(nomeBase + "." + formato.extensao());
+            concatenar(formato, segmentos, destino);
+            logger.info("Arquivo montado a partir de " + segmentos.size() + " faixas geradas em paralelo: " + destino);
+            return List.of(destino);
+        
+        } finally {
+            apagarDiretorio(temporario);
+        }
+    }
+    
+    /**
+     * Gera cada faixa como arquivos completos no diretório temporário, divididos pelos limites
+     * de file.max.*, e os leva ao diretório de saída como partes numeradas na ordem das faixas.
+     * A concatenação em um único arquivo ignoraria esses limites.
+     */
+    private List<Path> exportarFaixasEmPartes(Path temporario, ExportFormat formato, String nomeBase,
+                                              List<Leitura> leituras) throws IOException {
+        List<Tarefa<List<Path>>> tarefas = new ArrayList<>();
+        for (int i = 0; i < leituras.size(); i++) {
+            String nome = String.format("faixa_%03d", i + 1);
+            Leitura leitura = leituras.get(i);
+            tarefas.add(() -> exportarArquivo(temporario, formato, nome, leitura));
+        }
+        List<Path> partes = new ArrayList<>();
+        executarTarefas(tarefas).forEach(partes::addAll);
+        
+        // A mudança de diretório é atômica: o importador só vê partes completas
+        List<Path> arquivos = new ArrayList<>(partes.size());
+        try {
+            for (int i = 0; i < partes.size(); i++) {
+                Path destino = diretorio.resolve(String.format("%s_%03d.%s", nomeBase, i + 1, formato.extensao()));
+                Files.move(partes.get(i), destino, StandardCopyOption.ATOMIC_MOVE);
+                arquivos.add(destino);
+            }
+        } catch (IOException | RuntimeException e) {
+            arquivos.forEach(ParallelFileExporter::apagar);
+            throw e;
+        }
+        logger.info(arquivos.size() + " partes geradas a partir de " + leituras.size() + " faixas em paralelo");
+        return arquivos;
+    }
+    
+    /**
+     * Gera um arquivo por conta, com o código da conta no nome
+     */
+    List<Path> exportarPorConta(String leaseOwner, ExportFormat formato, String nomeBase) throws IOException {
+        List<Tarefa<List<Path>>> tarefas = new ArrayList<>();
+        for (String conta : lancamentoDAO.listarContasReservadas(leaseOwner)) {
+            tarefas.add(() -> exportarArquivo(formato, nomeBase + "_conta_" + paraNomeDeArquivo(conta),
+                    consumidor -> lancamentoDAO.percorrerReservadosDaConta(leaseOwner, conta, consumidor)));
+        }
+        return executarArquivos(tarefas);
+    }
+    
+    /**
+     * Gera um arquivo por mês (AAAA-MM no nome)
+     */
+    List<Path> exportarPorMes(String leaseOwner, ExportFormat formato, String nomeBase) throws IOException {
+        List<Tarefa<List<Path>>> tarefas = new ArrayList<>();
+        for (YearMonth mes : lancamentoDAO.listarMesesReservados(leaseOwner)) {
+            tarefas.add(() -> exportarArquivo(formato, nomeBase + "_" + mes,
+                    consumidor -> lancamentoDAO.percorrerReservadosDoMes(leaseOwner, mes, consumidor)));
+        }
+        return executarArquivos(tarefas);
+    }
+    
+    private List<Path> executarArquivos(List<Tarefa<List<Path>>> tarefas) throws IOException {
+        try {
+            List<Path> arquivos = new ArrayList<>();
+            executarTarefas(tarefas).forEach(arquivos::addAll);
+            return arquivos;
+        } catch (IOException e) {
+            synchronized (gerados) {
+                gerados.forEach(ParallelFileExporter::apagar);
+                gerados.clear();
+            }
+            throw e;
+        }
+    }
+    
+    long getTotalRegistros() {
+        return totalRegistros;
+    }
+    
+    long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    private List<Path> exportarArquivo(ExportFormat formato, String nomeBase, Leitura leitura) throws IOException {
+        return exportarArquivo(diretorio, formato, nomeBase, leitura);
+    }
+    
+    private List<Path> exportarArquivo(Path destino, ExportFormat formato, String nomeBase, Leitura leitura)
+            throws IOException {
+        try (RollingFileWriter escritor = new RollingFileWriter(destino, nomeBase, formato, maxBytes, maxRegistros,
+                tamanhoBuffer)) {
+            if (leitura.ler(lancamento -> {
+                verificarCancelamento();
+                escritor.escrever(lancamento);
+            }) < 0) {
+                throw new IOException("Falha ao ler os lançamentos do banco");
+            }
+            List<Path> arquivos = escritor.concluir();
+            somar(escritor.getTotalRegistros(), escritor.getTotalBytes());
+            synchronized (gerados) {
+                gerados.addAll(arquivos);
+            }
+            return arquivos;
+        }
+    }
+    
+    private Path escreverSegmento(Path temporario, ExportFormat segmento, String nome, Leitura leitura)
+            throws IOException {
+        try (RollingFileWriter escritor = new RollingFileWriter(temporario, nome, segmento, 0, 0, tamanhoBuffer)) {
+            if (leitura.ler(lancamento -> {
+                verificarCancelamento();
+                escritor.escrever(lancamento);
+            }) < 0) {
+                throw new IOException("Falha ao ler os lançamentos do banco");
+            }
+            List<Path> arquivos = escritor.concluir();
+            somar(escritor.getTotalRegistros(), 0);
+            return arquivos.get(0);
+        }
+    }
+    
+    /**
+     * Cabeçalho, segmentos e rodapé, copiados para um .tmp que só recebe o nome final no fim
+     */
+    private void concatenar(ExportFormat formato, List<Path> segmentos, Path destino) throws IOException {
+        Path parcial = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel saida = FileChannel.open(parcial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            
+            gravar(saida, formato.cabecalho());
+            for (Path segmento : segmentos) {
+                try (FileChannel entrada = FileChannel.open(segmento, StandardOpenOption.READ)) {
+                    long tamanho = entrada.size();
+                    long copiados = 0;
+                    while (copiados < tamanho) {
+                        copiados += entrada.transferTo(copiados, tamanho - copiados, saida);
+                    }
+                }
+            }
+            gravar(saida, formato.rodape());
+            
+            somar(0, saida.size());
+            saida.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(parcial);
+            throw e;
+        }
+        Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void gravar(FileChannel saida, String texto) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            saida.write(bytes);
+        }
+    }
+    
+    /**
+     * Executa as tarefas no ForkJoinPool e devolve os resultados na ordem das tarefas.
+     * Se uma falhar, as demais são interrompidas e a falha é lançada depois que todas pararem.
+     */
+    private <T> List<T> executarTarefas(List<Tarefa<T>> tarefas) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.min(paralelismo, Math.max(1, tarefas.size())));
+        try {
+            List<ForkJoinTask<T>> submetidas = new ArrayList<>(tarefas.size());
+            for (Tarefa<T> tarefa : tarefas) {
+                submetidas.add(pool.submit(() -> {
+                    try {
+                        return tarefa.call();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            
+            List<T> resultados = new ArrayList<>(submetidas.size());
+            for (ForkJoinTask<T> submetida : submetidas) {
+                try {
+                    resultados.add(submetida.get());
+                } catch (ExecutionException e) {
+                    cancelado = true;
+                    Throwable causa = e.getCause();
+                    if (causa instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) causa).getCause();
+                    }
+                    throw new IOException("Erro na geração em paralelo: " + causa.getMessage(), causa);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelado = true;
+                    throw new IOException("Geração em paralelo interrompida", e);
+                }
+            }
+            return resultados;
+        } finally {
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logger.warning("Tarefas de geração ainda em andamento após o cancelamento");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void verificarCancelamento() throws IOException {
+        if (cancelado) {
+            throw new IOException("Geração cancelada por falha em outra tarefa");
+        }
+    }
+    
+    private synchronized void somar(long registros, long bytes) {
+        totalRegistros += registros;
+        totalBytes += bytes;
+    }
+    
+    /**
+     * Código de conta seguro para nome de arquivo ("1.1.01" continua "1.1.01"; "1/2" vira "1_2")
+     */
+    static String paraNomeDeArquivo(String valor) {
+        String nome = valor == null ? "" : valor.trim().replaceAll("[^A-Za-z0-9._-]", "_");
+        return nome.isEmpty() ? "sem_conta" : nome.toLowerCase(Locale.ROOT);
+    }
+    
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warning("Não foi possível apagar o arquivo " + arquivo + ": " + e.getMessage());
+        }
+    }
+    
+    private static void apagarDiretorio(Path diretorio) {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(ParallelFileExporter::apagar);
+        } catch (IOException e) {
+            logger.warning("Não foi possível apagar o diretório temporário " + diretorio + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Leitura dos lançamentos de um arquivo ou segmento
+     */
+    @FunctionalInterface
+    private interface Leitura {
+        long ler(LancamentoContabilDAO.Consumidor consumidor) throws IOException;
+    }
+    
+    /**
+     * Geração de um arquivo ou segmento
+     */
+    @FunctionalInterface
+    private interface Tarefa<T> {
+        T call() throws IOException;
+    }
+    
+    /**
+     * Registros de uma faixa, sem cabeçalho e rodapé. Nas faixas após a primeira o primeiro
+     * registro já leva o separador, pois continua o que a faixa anterior escreveu.
+     */
+    private static final class Segmento implements ExportFormat {
+        private final ExportFormat formato;
+        private final boolean continuacao;
+        
+        private Segmento(ExportFormat formato, boolean continuacao) {
+            this.formato = formato;
+            this.continuacao = continuacao;
+        }
+        
+        @Override
+        public String extensao() {
+            return formato.extensao() + ".seg";
+        }
+        
+        @Override
+        public String cabecalho() {
+            return "";
+        }
+        
+        @Override
+        public void registro(StringBuilder destino, LancamentoContabil lancamento, boolean primeiro) {
+            formato.registro(destino, lancamento, primeiro && !continuacao);
+        }
+        
+        @Override
+        public boolean codificar(ByteBuffer destino, LancamentoContabil lancamento, boolean primeiro) {
+            return formato.codificar(destino, lancamento, primeiro && !continuacao);
+        }
+        
+        @Override
+        public String rodape() {
+            return "";
+        }
+    }
+}
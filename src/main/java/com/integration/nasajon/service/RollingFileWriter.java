@@ -0,0 +1,316 @@
+package com.integration.nasajon.service;
+
+import com.integration.nasajon.model.LancamentoContabil;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Escreve lançamentos em arquivos UTF-8 com buffer próprio, abrindo uma nova parte quando
+ * a atual chegaria ao limite de bytes ou de registros. As partes vão para um ExportTarget
+ * (diretório de saída ou servidor FTP, com ou sem compressão). O layout posicional escreve
+ * os próprios bytes, no charset da sua definição.
+ *
+ * Cada registro é codificado uma única vez, e o limite é verificado antes de escrevê-lo,
+ * de modo que nenhuma parte passa do tamanho máximo (exceto um registro sozinho maior
+ * que o limite); com compressão, os limites valem para o conteúdo antes de comprimido.
+ * As partes são escritas com extensão .tmp e renomeadas só depois de completas, para que
+ * o importador nunca veja um arquivo pela metade. Com uma única parte o arquivo fica com
+ * o nome base, como antes da divisão em partes: a última parte só recebe o nome definitivo
+ * em concluir(), quando já se sabe se houve outras. No zip, que grava o nome da entrada ao
+ * abrir, a primeira parte é escrita sem compressão em um arquivo local e só é comprimida
+ * quando o seu nome é conhecido.
+ * Não é seguro para uso por várias threads.
+ */
+class RollingFileWriter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(RollingFileWriter.class.getName());
+    
+    private final ExportTarget destino;
+    private final String nomeBase;
+    private final ExportFormat formato;
+    private final long maxBytes;
+    private final long maxRegistros;
+    
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer buffer;
+    private final StringBuilder texto = new StringBuilder(512);
+    private ByteBuffer registro = ByteBuffer.allocate(1024);
+    private final long bytesRodape;
+    
+    private final List<Path> partes = new ArrayList<>();
+    private WritableByteChannel canal;
+    private String parteAtual;
+    // Primeira parte no zip, guardada até se saber se será a única (ver abrirParte)
+    private Path parteAdiada;
+    private long bytesParte;
+    private long registrosParte;
+    
+    private long totalRegistros;
+    private long totalBytes;
+    private boolean concluido;
+    
+    /**
+     * @param diretorio Diretório de saída
+     * @param nomeBase Nome dos arquivos, sem extensão
+     * @param maxBytes Tamanho máximo de cada parte (0 = sem limite)
+     * @param maxRegistros Registros por parte (0 = sem limite)
+     * @param tamanhoBuffer Tamanho do buffer de escrita em bytes
+     */
+    RollingFileWriter(Path diretorio, String nomeBase, ExportFormat formato, long maxBytes, long maxRegistros,
+                      int tamanhoBuffer) throws CharacterCodingException {
+        this(ExportTarget.local(diretorio, ExportCompression.NENHUMA), nomeBase, formato, maxBytes, maxRegistros,
+                tamanhoBuffer);
+    }
+    
+    /**
+     * @param destino Onde as partes são gravadas
+     */
+    RollingFileWriter(ExportTarget destino, String nomeBase, ExportFormat formato, long maxBytes, long maxRegistros,
+                      int tamanhoBuffer) throws CharacterCodingException {
+        this.destino = destino;
+        this.nomeBase = nomeBase;
+        this.formato = formato;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        this.maxRegistros = maxRegistros > 0 ? maxRegistros : Long.MAX_VALUE;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, tamanhoBuffer));
+        this.bytesRodape = encoder.encode(CharBuffer.wrap(formato.rodape())).remaining();
+    }
+    
+    /**
+     * Escreve um lançamento, abrindo uma nova parte se necessário
+     */
+    void escrever(LancamentoContabil lancamento) throws IOException {
+        if (canal == null) {
+            abrirParte();
+        }
+        
+        codificarLancamento(lancamento, registrosParte == 0);
+        
+        if (registrosParte > 0 && (registrosParte >= maxRegistros ||
+                bytesParte + registro.remaining() + bytesRodape > maxBytes)) {
+            fecharParte(parteAtual);
+            abrirParte();
+            // O separador depende de ser o primeiro registro da parte
+            codificarLancamento(lancamento, true);
+        }
+        
+        bytesParte += registro.remaining();
+        registrosParte++;
+        totalRegistros++;
+        gravar(registro);
+    }
+    
+    /**
+     * Fecha a última parte e devolve os arquivos gerados, na ordem
+     */
+    List<Path> concluir() throws IOException {
+        if (canal == null && partes.isEmpty()) {
+            // Nenhum registro: gera um arquivo vazio (só cabeçalho e rodapé), como antes
+            abrirParte();
+        }
+        if (canal != null) {
+            // Parte única: do .tmp direto para o nome base, sem passar pelo nome numerado
+            fecharParte(partes.isEmpty() ? nomeBase + "." + formato.extensao() : parteAtual);
+        }
+        concluido = true;
+        return List.copyOf(partes);
+    }
+    
+    long getTotalRegistros() {
+        return totalRegistros;
+    }
+    
+    long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    /**
+     * Sem concluir(), descarta a parte em andamento e as partes já completas
+     */
+    @Override
+    public void close() {
+        if (concluido) {
+            return;
+        }
+        if (canal != null && parteAdiada != null) {
+            fecharSilenciosamente(canal);
+            apagarAdiada();
+            canal = null;
+        } else if (canal != null) {
+            destino.descartar(parteAtual, canal);
+            canal = null;
+        }
+        partes.forEach(destino::apagar);
+        partes.clear();
+    }
+    
+    private void abrirParte() throws IOException {
+        parteAtual = String.format("%s_%03d.%s", nomeBase, partes.size() + 1, formato.extensao());
+        if (partes.isEmpty() && destino.nomeNoConteudo()) {
+            // A entrada do zip leva o nome da parte, que só é conhecido no fim da primeira
+            parteAdiada = Files.createTempFile(nomeBase + "_", ".tmp");
+            canal = FileChannel.open(parteAdiada, StandardOpenOption.WRITE);
+        } else {
+            canal = destino.abrir(parteAtual);
+        }
+        bytesParte = 0;
+        registrosParte = 0;
+        
+        texto.setLength(0);
+        texto.append(formato.cabecalho());
+        codificarRegistro();
+        bytesParte += registro.remaining();
+        gravar(registro);
+    }
+    
+    /**
+     * @param definitivo Nome que a parte recebe depois de completa
+     */
+    private void fecharParte(String definitivo) throws IOException {
+        texto.setLength(0);
+        texto.append(formato.rodape());
+        codificarRegistro();
+        bytesParte += registro.remaining();
+        gravar(registro);
+        esvaziarBuffer();
+        
+        // Se a conclusão falhar, o próprio destino descarta a parte
+        WritableByteChannel completo = canal;
+        canal = null;
+        Path completa = parteAdiada != null
+                ? concluirAdiada(completo, definitivo)
+                : destino.concluir(parteAtual, completo, definitivo);
+        totalBytes += bytesParte;
+        partes.add(completa);
+        logger.fine("Parte concluída: " + completa + " (" + registrosParte + " registros, " + bytesParte + " bytes)");
+    }
+    
+    /**
+     * Leva a primeira parte, já completa no arquivo local, ao destino com o nome definitivo
+     */
+    private Path concluirAdiada(WritableByteChannel local, String definitivo) throws IOException {
+        try {
+            local.close();
+            WritableByteChannel saida = destino.abrir(definitivo);
+            try (FileChannel entrada = FileChannel.open(parteAdiada, StandardOpenOption.READ)) {
+                long tamanho = entrada.size();
+                long copiados = 0;
+                while (copiados < tamanho) {
+                    copiados += entrada.transferTo(copiados, tamanho - copiados, saida);
+                }
+            } catch (IOException | RuntimeException e) {
+                destino.descartar(definitivo, saida);
+                throw e;
+            }
+            return destino.concluir(definitivo, saida, definitivo);
+        } finally {
+            apagarAdiada();
+        }
+    }
+    
+    private void apagarAdiada() {
+        try {
+            Files.deleteIfExists(parteAdiada);
+        } catch (IOException e) {
+            logger.warning("Não foi possível apagar o arquivo temporário " + parteAdiada + ": " + e.getMessage());
+        }
+        parteAdiada = null;
+    }
+    
+    private static void fecharSilenciosamente(WritableByteChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.fine("Erro ao fechar arquivo descartado: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Codifica o lançamento no buffer do registro: direto em bytes, se o formato tiver
+     * codificação própria, ou pelo texto do registro em UTF-8
+     */
+    private void codificarLancamento(LancamentoContabil lancamento, boolean primeiro) {
+        while (true) {
+            registro.clear();
+            try {
+                if (formato.codificar(registro, lancamento, primeiro)) {
+                    registro.flip();
+                    return;
+                }
+                break;
+            } catch (BufferOverflowException e) {
+                registro = ByteBuffer.allocate(registro.capacity() * 2);
+            }
+        }
+        texto.setLength(0);
+        formato.registro(texto, lancamento, primeiro);
+        codificarRegistro();
+    }
+    
+    /**
+     * Codifica o texto atual em UTF-8 no buffer do registro, aumentando-o se preciso
+     */
+    private void codificarRegistro() {
+        CharBuffer entrada = CharBuffer.wrap(texto);
+        registro.clear();
+        encoder.reset();
+        while (true) {
+            CoderResult resultado = encoder.encode(entrada, registro, true);
+            if (resultado.isOverflow()) {
+                registro = ampliar(registro);
+                continue;
+            }
+            if (encoder.flush(registro).isOverflow()) {
+                registro = ampliar(registro);
+                continue;
+            }
+            break;
+        }
+        registro.flip();
+    }
+    
+    private static ByteBuffer ampliar(ByteBuffer atual) {
+        ByteBuffer maior = ByteBuffer.allocate(atual.capacity() * 2);
+        atual.flip();
+        maior.put(atual);
+        return maior;
+    }
+    
+    private void gravar(ByteBuffer origem) throws IOException {
+        while (origem.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                esvaziarBuffer();
+            }
+            int quantidade = Math.min(origem.remaining(), buffer.remaining());
+            ByteBuffer fatia = origem.slice();
+            fatia.limit(quantidade);
+            buffer.put(fatia);
+            origem.position(origem.position() + quantidade);
+        }
+    }
+    
+    private void esvaziarBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,136 @@
+package com.integration.nasajon.util;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker para chamadas a um serviço externo.
+ *
+ * FECHADO: chamadas liberadas; após um número de falhas consecutivas o circuito abre.
+ * ABERTO: chamadas recusadas até o tempo de abertura passar.
+ * MEIO_ABERTO: algumas chamadas de teste são liberadas; um sucesso fecha o circuito
+ * e uma falha o abre de novo.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+    
+    public enum Estado {
+        FECHADO,
+        ABERTO,
+        MEIO_ABERTO
+    }
+    
+    /**
+     * Chamada recusada sem ser feita porque o circuito está aberto
+     */
+    public static class CircuitoAbertoException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        public CircuitoAbertoException(String message) {
+            super(message);
+        }
+    }
+    
+    private final String nome;
+    private final int limiteFalhas;
+    private final long tempoAbertoMillis;
+    private final int chamadasMeioAberto;
+    
+    private Estado estado = Estado.FECHADO;
+    private int falhasConsecutivas;
+    private long abertoEm;
+    private int chamadasDeTeste;
+    
+    public CircuitBreaker(String nome, int limiteFalhas, long tempoAbertoMillis, int chamadasMeioAberto) {
+        this.nome = nome;
+        this.limiteFalhas = Math.max(1, limiteFalhas);
+        this.tempoAbertoMillis = tempoAbertoMillis;
+        this.chamadasMeioAberto = Math.max(1, chamadasMeioAberto);
+    }
+    
+    /**
+     * Verifica se uma chamada pode ser feita. No estado MEIO_ABERTO, cada chamada
+     * liberada conta como uma das chamadas de teste.
+     * @return true se a chamada pode ser feita
+     */
+    public synchronized boolean permitir() {
+        switch (getEstado()) {
+            case FECHADO:
+                return true;
+            case MEIO_ABERTO:
+                if (chamadasDeTeste < chamadasMeioAberto) {
+                    chamadasDeTeste++;
+                    return true;
+                }
+                return false;
+            case ABERTO:
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Versão de permitir() que lança exceção quando a chamada é recusada
+     */
+    public void verificar() throws CircuitoAbertoException {
+        if (!permitir()) {
+            throw new CircuitoAbertoException("Circuito " + nome + " aberto após " + falhasConsecutivas +
+                    " falhas consecutivas; chamada não realizada");
+        }
+    }
+    
+    public synchronized void registrarSucesso() {
+        if (estado != Estado.FECHADO) {
+            logger.info("Circuito " + nome + " fechado: chamada de teste bem-sucedida");
+        }
+        estado = Estado.FECHADO;
+        falhasConsecutivas = 0;
+    }
+    
+    public synchronized void registrarFalha() {
+        falhasConsecutivas++;
+        if (estado == Estado.MEIO_ABERTO || (estado == Estado.FECHADO && falhasConsecutivas >= limiteFalhas)) {
+            estado = Estado.ABERTO;
+            abertoEm = System.currentTimeMillis();
+            logger.warning("Circuito " + nome + " aberto após " + falhasConsecutivas + " falhas consecutivas. " +
+                    "Novas chamadas recusadas por " + tempoAbertoMillis + " ms");
+        }
+    }
+    
+    /**
+     * Estado atual; um circuito aberto passa a MEIO_ABERTO quando o tempo de abertura termina
+     */
+    public synchronized Estado getEstado() {
+        if (estado == Estado.ABERTO && System.currentTimeMillis() - abertoEm >= tempoAbertoMillis) {
+            estado = Estado.MEIO_ABERTO;
+            chamadasDeTeste = 0;
+        }
+        return estado;
+    }
+    
+    public boolean isAberto() {
+        return getEstado() == Estado.ABERTO;
+    }
+    
+    /**
+     * Indica se a próxima chamada seria recusada: circuito aberto, ou meio aberto com
+     * todas as chamadas de teste já liberadas e aguardando resultado
+     */
+    public synchronized boolean isBloqueado() {
+        Estado atual = getEstado();
+        return atual == Estado.ABERTO || (atual == Estado.MEIO_ABERTO && chamadasDeTeste >= chamadasMeioAberto);
+    }
+    
+    /**
+     * Indica se o circuito foi criado com estes limites (para recriá-lo quando a configuração muda)
+     */
+    public boolean temParametros(int limiteFalhas, long tempoAbertoMillis, int chamadasMeioAberto) {
+        return this.limiteFalhas == Math.max(1, limiteFalhas)
+                && this.tempoAbertoMillis == tempoAbertoMillis
+                && this.chamadasMeioAberto == Math.max(1, chamadasMeioAberto);
+    }
+    
+    public synchronized int getFalhasConsecutivas() {
+        return falhasConsecutivas;
+    }
+}
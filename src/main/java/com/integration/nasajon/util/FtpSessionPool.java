@@ -0,0 +1,320 @@
+package com.integration.nasajon.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool de sessões FTP já autenticadas com um servidor.
+ *
+ * As sessões são reaproveitadas entre envios, evitando conectar e fazer login a cada
+ * arquivo; o close() da sessão emprestada a devolve ao pool. Os envios de arquivo vão
+ * com nome .tmp e são renomeados no fim; um envio interrompido é retomado com REST a
+ * partir do tamanho que o servidor já recebeu.
+ */
+public class FtpSessionPool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(FtpSessionPool.class.getName());
+    
+    // Sessões usadas há menos tempo que isso não são testadas (NOOP) no empréstimo
+    private static final long VALIDACAO_INTERVALO_MS = 5000;
+    // Servidores costumam fechar conexões de controle paradas por alguns minutos
+    private static final long OCIOSA_MAXIMO_MS = 120000;
+    private static final long ESPERA_RETOMADA_MS = 1000;
+    
+    private final String nome;
+    private final String host;
+    private final int porta;
+    private final String user;
+    private final String password;
+    private final int maxSessoes;
+    private final int connectTimeoutMs;
+    private final int dataTimeoutMs;
+    
+    private final Semaphore permissoes;
+    private final Deque<FtpUtil.Sessao> ociosas = new ConcurrentLinkedDeque<>();
+    private volatile boolean fechado;
+    
+    // Métricas
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder reaproveitadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder arquivosEnviados = new LongAdder();
+    private final LongAdder retomadas = new LongAdder();
+    private final LongAdder bytesEnviados = new LongAdder();
+    
+    /**
+     * @param maxSessoes Sessões abertas ao mesmo tempo (também o limite de envios em paralelo)
+     * @param connectTimeoutMs Tempo limite para abrir as conexões de controle e de dados
+     * @param dataTimeoutMs Tempo limite sem resposta ou sem dados durante um envio
+     */
+    public FtpSessionPool(String host, int porta, String user, String password, int maxSessoes,
+                          int connectTimeoutMs, int dataTimeoutMs) {
+        this.nome = user + "@" + host + ":" + porta;
+        this.host = host;
+        this.porta = porta;
+        this.user = user;
+        this.password = password;
+        this.maxSessoes = Math.max(1, maxSessoes);
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.dataTimeoutMs = dataTimeoutMs;
+        this.permissoes = new Semaphore(this.maxSessoes, true);
+        
+        logger.log(Level.INFO, "Pool de sessões FTP {0} criado (máx={1})", new Object[]{nome, this.maxSessoes});
+    }
+    
+    /**
+     * Empresta uma sessão, aguardando se todas estiverem em uso
+     * @return Sessão cujo close() a devolve ao pool
+     * @throws IOException Se a sessão não puder ser aberta
+     */
+    public FtpUtil.Sessao emprestar() throws IOException {
+        if (fechado) {
+            throw new IOException("Pool de sessões FTP " + nome + " encerrado");
+        }
+        try {
+            permissoes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido aguardando sessão FTP de " + nome, e);
+        }
+        
+        try {
+            FtpUtil.Sessao sessao;
+            while ((sessao = ociosas.pollFirst()) != null) {
+                if (validar(sessao)) {
+                    reaproveitadas.increment();
+                    return sessao;
+                }
+                descartar(sessao);
+            }
+            sessao = FtpUtil.conectar(host, porta, user, password, connectTimeoutMs, dataTimeoutMs);
+            sessao.vincular(this);
+            criadas.increment();
+            return sessao;
+        } catch (IOException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Chamado pelo close() da sessão
+     */
+    void devolver(FtpUtil.Sessao sessao) {
+        try {
+            if (fechado || !sessao.isValida()) {
+                descartar(sessao);
+            } else {
+                sessao.registrarUso();
+                ociosas.addFirst(sessao);
+            }
+        } finally {
+            permissoes.release();
+        }
+    }
+    
+    /**
+     * Envia um arquivo ao servidor, retomando de onde parou se a transferência cair
+     * @param tentativas Retomadas permitidas depois da primeira tentativa
+     */
+    public void enviarArquivo(Path arquivo, String remoteFileName, int tentativas) throws IOException {
+        String parcial = remoteFileName + ".tmp";
+        long tamanho = Files.size(arquivo);
+        IOException ultimaFalha = null;
+        
+        for (int tentativa = 0; tentativa <= Math.max(0, tentativas); tentativa++) {
+            if (tentativa > 0) {
+                aguardarRetomada(tentativa);
+            }
+            FtpUtil.Sessao sessao = null;
+            try {
+                sessao = emprestar();
+                long inicio = 0;
+                if (tentativa > 0) {
+                    // Continuar do que o servidor já gravou; tamanho inválido recomeça do zero
+                    long recebido = sessao.tamanho(parcial);
+                    inicio = recebido > 0 && recebido <= tamanho ? recebido : 0;
+                    if (inicio > 0) {
+                        retomadas.increment();
+                        logger.info("Retomando envio de " + remoteFileName + " a partir do byte " + inicio +
+                                " de " + tamanho);
+                    }
+                }
+                if (inicio < tamanho || tamanho == 0) {
+                    sessao.enviarArquivo(arquivo, parcial, inicio);
+                }
+                sessao.renomear(parcial, remoteFileName);
+                
+                bytesEnviados.add(tamanho - inicio);
+                arquivosEnviados.increment();
+                return;
+            
+            } catch (IOException e) {
+                if (sessao != null) {
+                    sessao.invalidar();
+                }
+                ultimaFalha = e;
+                logger.warning(String.format("Falha no envio de %s (tentativa %d de %d): %s",
+                        remoteFileName, tentativa + 1, tentativas + 1, e.getMessage()));
+            } finally {
+                if (sessao != null) {
+                    sessao.close();
+                }
+            }
+        }
+        throw ultimaFalha;
+    }
+    
+    /**
+     * Envia os arquivos em paralelo, até o número de sessões do pool, cada um com retomada.
+     * Cada arquivo fica no servidor com o próprio nome. Se um falhar, os que ainda não começaram
+     * são pulados e os já enviados são apagados.
+     * @return Nomes dos arquivos no servidor, na ordem recebida
+     */
+    public List<String> enviarArquivos(List<Path> arquivos, int paralelismo, int tentativas) throws IOException {
+        List<String> remotos = new ArrayList<>();
+        for (Path arquivo : arquivos) {
+            remotos.add(arquivo.getFileName().toString());
+        }
+        int threads = Math.max(1, Math.min(Math.min(paralelismo, maxSessoes), arquivos.size()));
+        if (threads == 1) {
+            for (int i = 0; i < arquivos.size(); i++) {
+                try {
+                    enviarArquivo(arquivos.get(i), remotos.get(i), tentativas);
+                } catch (IOException e) {
+                    apagar(remotos.subList(0, i));
+                    throw e;
+                }
+            }
+            return remotos;
+        }
+        
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ftp-envio-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Depois de uma falha, os envios que ainda não começaram são pulados
+        AtomicBoolean falhou = new AtomicBoolean();
+        try {
+            List<Future<Boolean>> envios = new ArrayList<>();
+            for (int i = 0; i < arquivos.size(); i++) {
+                Path arquivo = arquivos.get(i);
+                String remoto = remotos.get(i);
+                envios.add(executor.submit(() -> {
+                    if (falhou.get()) {
+                        return false;
+                    }
+                    try {
+                        enviarArquivo(arquivo, remoto, tentativas);
+                        return true;
+                    } catch (IOException | RuntimeException e) {
+                        falhou.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            
+            IOException falha = null;
+            List<String> enviados = new ArrayList<>();
+            for (int i = 0; i < envios.size(); i++) {
+                try {
+                    if (envios.get(i).get()) {
+                        enviados.add(remotos.get(i));
+                    }
+                } catch (ExecutionException e) {
+                    if (falha == null) {
+                        falha = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException("Falha no envio de " + remotos.get(i), e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    falhou.set(true);
+                    throw new IOException("Interrompido durante o envio dos arquivos FTP", e);
+                }
+            }
+            if (falha != null) {
+                apagar(enviados);
+                throw falha;
+            }
+            return remotos;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Apaga arquivos no servidor; falhas só são registradas
+     */
+    public void apagar(List<String> remotos) {
+        if (remotos.isEmpty()) {
+            return;
+        }
+        try (FtpUtil.Sessao sessao = emprestar()) {
+            remotos.forEach(sessao::apagar);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Não foi possível apagar arquivos no servidor FTP " + nome, e);
+        }
+    }
+    
+    /**
+     * Resumo dos contadores desde a criação do pool
+     */
+    public String getEstatisticas() {
+        return String.format("Pool FTP %s: %d sessões criadas, %d reaproveitadas, %d descartadas, %d ociosas; " +
+                        "%d arquivos enviados (%d retomados), %d bytes",
+                nome, criadas.sum(), reaproveitadas.sum(), descartadas.sum(), ociosas.size(),
+                arquivosEnviados.sum(), retomadas.sum(), bytesEnviados.sum());
+    }
+    
+    /**
+     * Fecha as sessões ociosas; as emprestadas são fechadas ao serem devolvidas
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        FtpUtil.Sessao sessao;
+        while ((sessao = ociosas.pollFirst()) != null) {
+            descartar(sessao);
+        }
+        logger.info(getEstatisticas());
+    }
+    
+    private boolean validar(FtpUtil.Sessao sessao) {
+        long ociosa = System.currentTimeMillis() - sessao.getUltimoUso();
+        if (!sessao.isValida() || ociosa > OCIOSA_MAXIMO_MS) {
+            return false;
+        }
+        return ociosa < VALIDACAO_INTERVALO_MS || sessao.testar();
+    }
+    
+    private void descartar(FtpUtil.Sessao sessao) {
+        descartadas.increment();
+        sessao.desconectar();
+    }
+    
+    private static void aguardarRetomada(int tentativa) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ESPERA_RETOMADA_MS * tentativa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido aguardando nova tentativa de envio FTP", e);
+        }
+    }
+}
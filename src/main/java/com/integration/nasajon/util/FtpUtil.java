@@ -4,16 +4,41 @@ import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPReply;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class FtpUtil {
     private static final Logger logger = Logger.getLogger(FtpUtil.class.getName());
     
+    public static final int PORTA_PADRAO = 21;
+    
+    // Valores usados por enviarArquivo(host, user, password, ...), sem configuração própria
+    private static final int CONNECT_TIMEOUT_PADRAO_MS = 30000;
+    private static final int DATA_TIMEOUT_PADRAO_MS = 120000;
+    private static final int SESSOES_PADRAO = 4;
+    private static final int TENTATIVAS_PADRAO = 3;
+    
+    // NOOP na conexão de controle durante envios longos, para o servidor não a fechar por inatividade
+    private static final Duration KEEPALIVE = Duration.ofMinutes(2);
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    
+    // Pool de cada servidor e usuário, com a chave dos dados de conexão que o criaram
+    private static final Map<String, PoolAtual> pools = new ConcurrentHashMap<>();
+    
     /**
-     * Envia um arquivo para um servidor FTP
+     * Envia um arquivo para um servidor FTP, por uma sessão reaproveitada do pool do servidor.
+     * Um envio interrompido é retomado do ponto em que parou.
      * @param host Endereço do servidor FTP
      * @param user Usuário FTP
      * @param password Senha FTP
@@ -21,45 +46,248 @@ public class FtpUtil {
      * @param remoteFileName Nome do arquivo no servidor remoto
      * @return true se o envio foi bem-sucedido, false caso contrário
      */
-    public static boolean enviarArquivo(String host, String user, String password, 
+    public static boolean enviarArquivo(String host, String user, String password,
                                         String localFilePath, String remoteFileName) {
+        FtpSessionPool pool = obterPool(host, PORTA_PADRAO, user, password, SESSOES_PADRAO,
+                CONNECT_TIMEOUT_PADRAO_MS, DATA_TIMEOUT_PADRAO_MS);
+        try {
+            pool.enviarArquivo(Paths.get(localFilePath), remoteFileName, TENTATIVAS_PADRAO);
+            logger.info("Arquivo enviado com sucesso para o servidor FTP: " + remoteFileName);
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Erro durante operação FTP", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Pool de sessões do servidor, criado no primeiro uso e mantido até encerrarPools(). Se a
+     * senha, o tamanho ou os tempos limite mudarem, o pool anterior é encerrado e um novo é criado.
+     * @param maxSessoes Sessões abertas ao mesmo tempo
+     */
+    public static FtpSessionPool obterPool(String host, int porta, String user, String password, int maxSessoes,
+                                           int connectTimeoutMs, int dataTimeoutMs) {
+        String servidor = user + "@" + host + ":" + porta;
+        String chave = (password == null ? 0 : password.hashCode()) + "|" + maxSessoes + "|" +
+                connectTimeoutMs + "|" + dataTimeoutMs;
+        
+        PoolAtual[] substituido = new PoolAtual[1];
+        PoolAtual atual = pools.compute(servidor, (s, anterior) -> {
+            if (anterior != null && anterior.chave.equals(chave)) {
+                return anterior;
+            }
+            substituido[0] = anterior;
+            return new PoolAtual(chave, new FtpSessionPool(host, porta, user, password, maxSessoes,
+                    connectTimeoutMs, dataTimeoutMs));
+        });
+        if (substituido[0] != null) {
+            // Sessões emprestadas do pool anterior são fechadas quando devolvidas
+            logger.info("Dados de conexão FTP alterados: encerrando o pool anterior de " + servidor);
+            substituido[0].pool.close();
+        }
+        return atual.pool;
+    }
+    
+    /**
+     * Encerra as sessões FTP abertas pela aplicação
+     */
+    public static void encerrarPools() {
+        for (PoolAtual atual : pools.values()) {
+            atual.pool.close();
+        }
+        pools.clear();
+    }
+    
+    private static final class PoolAtual {
+        private final String chave;
+        private final FtpSessionPool pool;
+        
+        private PoolAtual(String chave, FtpSessionPool pool) {
+            this.chave = chave;
+            this.pool = pool;
+        }
+    }
+    
+    /**
+     * Abre uma sessão FTP em modo passivo e binário, para enviar vários arquivos
+     * pela mesma conexão de controle
+     * @throws IOException Se a conexão for recusada ou o login falhar
+     */
+    public static Sessao conectar(String host, String user, String password) throws IOException {
+        return conectar(host, PORTA_PADRAO, user, password, CONNECT_TIMEOUT_PADRAO_MS, DATA_TIMEOUT_PADRAO_MS);
+    }
+    
+    /**
+     * @param connectTimeoutMs Tempo limite para abrir as conexões de controle e de dados
+     * @param dataTimeoutMs Tempo limite sem resposta na conexão de controle ou sem dados na de dados
+     */
+    public static Sessao conectar(String host, int porta, String user, String password, int connectTimeoutMs,
+                                  int dataTimeoutMs) throws IOException {
         FTPClient ftpClient = new FTPClient();
+        ftpClient.setConnectTimeout(connectTimeoutMs);
+        ftpClient.setDefaultTimeout(dataTimeoutMs);
+        ftpClient.setDataTimeout(Duration.ofMillis(dataTimeoutMs));
+        ftpClient.setControlKeepAliveTimeout(KEEPALIVE);
+        ftpClient.setBufferSize(TAMANHO_BUFFER);
         
+        Sessao sessao = new Sessao(ftpClient);
         try {
-            ftpClient.connect(host);
-            int replyCode = ftpClient.getReplyCode();
-            
-            if (!FTPReply.isPositiveCompletion(replyCode)) {
-                logger.warning("Conexão FTP recusada. Código de resposta: " + replyCode);
-                return false;
+            ftpClient.connect(host, porta);
+            if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+                throw new IOException("Conexão FTP recusada. Código de resposta: " + ftpClient.getReplyCode());
             }
-            
-            boolean success = ftpClient.login(user, password);
-            if (!success) {
-                logger.warning("Falha no login FTP");
-                return false;
+            if (!ftpClient.login(user, password)) {
+                throw new IOException("Falha no login FTP");
             }
-            
             ftpClient.enterLocalPassiveMode();
             ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
-            
-            File localFile = new File(localFilePath);
-            try (FileInputStream inputStream = new FileInputStream(localFile)) {
-                success = ftpClient.storeFile(remoteFileName, inputStream);
-                
-                if (success) {
-                    logger.info("Arquivo enviado com sucesso para o servidor FTP: " + remoteFileName);
-                } else {
-                    logger.warning("Falha ao enviar arquivo para o servidor FTP");
+            return sessao;
+        } catch (IOException e) {
+            sessao.desconectar();
+            throw e;
+        }
+    }
+    
+    /**
+     * Sessão FTP aberta por conectar() ou emprestada por um FtpSessionPool. Cada envio devolve o
+     * fluxo da conexão de dados, de modo que o arquivo pode ser gerado direto no servidor, sem
+     * cópia local. close() devolve a sessão ao pool, se veio de um. Não é segura para uso por
+     * várias threads.
+     */
+    public static class Sessao implements AutoCloseable {
+        private final FTPClient ftpClient;
+        
+        // Preenchidos quando a sessão pertence a um pool
+        private FtpSessionPool pool;
+        private volatile boolean invalida;
+        private volatile long ultimoUso = System.currentTimeMillis();
+        
+        private Sessao(FTPClient ftpClient) {
+            this.ftpClient = ftpClient;
+        }
+        
+        /**
+         * Inicia o envio de um arquivo. O fluxo devolvido deve ser fechado e, em seguida,
+         * concluirEnvio() chamado antes de qualquer outro comando
+         */
+        public OutputStream enviar(String remoteFileName) throws IOException {
+            OutputStream saida = ftpClient.storeFileStream(remoteFileName);
+            if (saida == null) {
+                throw new IOException("Servidor FTP recusou o envio de " + remoteFileName + ": "
+                        + ftpClient.getReplyString().trim());
+            }
+            return saida;
+        }
+        
+        /**
+         * Aguarda a confirmação do servidor para o envio cujo fluxo acabou de ser fechado
+         */
+        public void concluirEnvio() throws IOException {
+            if (!ftpClient.completePendingCommand()) {
+                throw new IOException("Servidor FTP não confirmou o envio: " + ftpClient.getReplyString().trim());
+            }
+        }
+        
+        /**
+         * Envia um arquivo local a partir de uma posição (REST), para retomar um envio interrompido
+         * @param inicio Bytes já recebidos pelo servidor; 0 envia o arquivo inteiro
+         */
+        public void enviarArquivo(Path arquivo, String remoteFileName, long inicio) throws IOException {
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+                 InputStream entrada = Channels.newInputStream(canal.position(inicio))) {
+                if (inicio > 0) {
+                    ftpClient.setRestartOffset(inicio);
+                }
+                if (!ftpClient.storeFile(remoteFileName, entrada)) {
+                    throw new IOException("Falha ao enviar " + remoteFileName + " para o servidor FTP: "
+                            + ftpClient.getReplyString().trim());
                 }
-                
-                return success;
+            } finally {
+                ftpClient.setRestartOffset(0);
             }
-            
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Erro durante operação FTP", e);
-            return false;
-        } finally {
+        }
+        
+        /**
+         * Tamanho de um arquivo no servidor (SIZE)
+         * @return Tamanho em bytes, ou -1 se o arquivo não existe ou o servidor não informa
+         */
+        public long tamanho(String remoteFileName) throws IOException {
+            String tamanho = ftpClient.getSize(remoteFileName);
+            if (tamanho == null) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(tamanho.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        
+        public void renomear(String de, String para) throws IOException {
+            if (!ftpClient.rename(de, para)) {
+                throw new IOException("Falha ao renomear " + de + " para " + para + " no servidor FTP: "
+                        + ftpClient.getReplyString().trim());
+            }
+        }
+        
+        /**
+         * Apaga um arquivo remoto; falhas só são registradas
+         */
+        public void apagar(String remoteFileName) {
+            try {
+                if (!ftpClient.deleteFile(remoteFileName)) {
+                    logger.fine("Arquivo remoto não apagado: " + remoteFileName);
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro ao apagar arquivo no servidor FTP: " + remoteFileName, e);
+            }
+        }
+        
+        /**
+         * Marca a sessão para ser fechada em vez de voltar ao pool, após um erro que
+         * deixa a conexão em estado incerto
+         */
+        public void invalidar() {
+            invalida = true;
+        }
+        
+        @Override
+        public void close() {
+            if (pool != null) {
+                pool.devolver(this);
+            } else {
+                desconectar();
+            }
+        }
+        
+        void vincular(FtpSessionPool pool) {
+            this.pool = pool;
+        }
+        
+        boolean isValida() {
+            return !invalida && ftpClient.isConnected();
+        }
+        
+        long getUltimoUso() {
+            return ultimoUso;
+        }
+        
+        void registrarUso() {
+            ultimoUso = System.currentTimeMillis();
+        }
+        
+        /**
+         * NOOP na conexão de controle
+         */
+        boolean testar() {
+            try {
+                return ftpClient.sendNoOp();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        
+        void desconectar() {
             try {
                 if (ftpClient.isConnected()) {
                     ftpClient.logout();
@@ -67,6 +295,11 @@ public class FtpUtil {
                 }
             } catch (Exception e) {
                 logger.log(Level.WARNING, "Erro ao desconectar do servidor FTP", e);
+                try {
+                    ftpClient.disconnect();
+                } catch (IOException ignorada) {
+                    // conexão já perdida
+                }
             }
         }
     }
@@ -0,0 +1,86 @@
+package com.integration.nasajon.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Orçamento de novas tentativas de uma execução.
+ *
+ * As novas tentativas ficam limitadas a um mínimo fixo mais uma proporção das chamadas
+ * feitas. Em um incidente, quando quase tudo falha, as tentativas extras param no limite
+ * em vez de multiplicar a carga sobre o servidor. Seguro para uso por várias threads.
+ */
+public class RetryBudget {
+    private static final Logger logger = Logger.getLogger(RetryBudget.class.getName());
+    
+    private final String nome;
+    private final double proporcao;
+    private final int minimo;
+    
+    private final AtomicInteger chamadas = new AtomicInteger();
+    private final AtomicInteger repeticoes = new AtomicInteger();
+    private final AtomicInteger negadas = new AtomicInteger();
+    private final AtomicBoolean avisado = new AtomicBoolean();
+    
+    /**
+     * @param nome Nome usado nos logs
+     * @param proporcao Novas tentativas permitidas por chamada (0.2 = 20%)
+     * @param minimo Novas tentativas sempre permitidas, mesmo com poucas chamadas
+     */
+    public RetryBudget(String nome, double proporcao, int minimo) {
+        this.nome = nome;
+        this.proporcao = Math.max(0, proporcao);
+        this.minimo = Math.max(0, minimo);
+    }
+    
+    /**
+     * Registra a primeira tentativa de uma chamada
+     */
+    public void registrarChamada() {
+        chamadas.incrementAndGet();
+    }
+    
+    /**
+     * Reserva uma nova tentativa, se houver saldo
+     * @return true se a nova tentativa pode ser feita
+     */
+    public boolean consumir() {
+        while (true) {
+            int atual = repeticoes.get();
+            if (atual >= limite()) {
+                negadas.incrementAndGet();
+                if (avisado.compareAndSet(false, true)) {
+                    logger.warning("Orçamento de novas tentativas " + nome + " esgotado: " + this +
+                            ". As próximas falhas não serão repetidas nesta execução");
+                }
+                return false;
+            }
+            if (repeticoes.compareAndSet(atual, atual + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    public boolean temSaldo() {
+        return repeticoes.get() < limite();
+    }
+    
+    public int getRepeticoes() {
+        return repeticoes.get();
+    }
+    
+    public int getNegadas() {
+        return negadas.get();
+    }
+    
+    private int limite() {
+        return minimo + (int) (proporcao * chamadas.get());
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d chamadas, %d novas tentativas (limite %d), %d negadas",
+                chamadas.get(), repeticoes.get(), limite(), negadas.get());
+    }
+}
@@ -0,0 +1,189 @@
+package com.integration.nasajon.util;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Regras de nova tentativa usadas por RetryUtil.executeAsync: número de tentativas,
+ * backoff, classificação do resultado/erro e orçamento compartilhado da execução.
+ * @param <T> Tipo do resultado da operação
+ */
+public class RetryPolicy<T> {
+    
+    // Códigos HTTP que indicam falha temporária do servidor
+    private static final Set<Integer> STATUS_TEMPORARIOS = Set.of(408, 425, 429, 500, 502, 503, 504);
+    
+    /**
+     * Decisão sobre uma tentativa
+     */
+    public static final class Decisao {
+        public static final Decisao NAO_REPETIR = new Decisao(false, -1);
+        public static final Decisao REPETIR = new Decisao(true, -1);
+        
+        private final boolean repetir;
+        private final long esperaMillis;
+        
+        private Decisao(boolean repetir, long esperaMillis) {
+            this.repetir = repetir;
+            this.esperaMillis = esperaMillis;
+        }
+        
+        /**
+         * Repetir após o tempo pedido pelo servidor, em vez do backoff
+         */
+        public static Decisao apos(long esperaMillis) {
+            return new Decisao(true, Math.max(0, esperaMillis));
+        }
+        
+        public boolean isRepetir() {
+            return repetir;
+        }
+        
+        /**
+         * Espera pedida, ou -1 para usar o backoff da política
+         */
+        public long getEsperaMillis() {
+            return esperaMillis;
+        }
+    }
+    
+    /**
+     * Classifica o resultado de uma tentativa
+     * @param <T> Tipo do resultado
+     */
+    @FunctionalInterface
+    public interface Classificador<T> {
+        /**
+         * @param resultado Resultado da tentativa (null se falhou)
+         * @param erro Falha da tentativa (null se houve resultado)
+         */
+        Decisao classificar(T resultado, Throwable erro);
+    }
+    
+    private final int maxTentativas;
+    private Classificador<? super T> classificador = (resultado, erro) -> erro != null ? Decisao.REPETIR : Decisao.NAO_REPETIR;
+    private RetryBudget orcamento;
+    private long esperaBase = 1000;
+    private long esperaMaxima = 30000;
+    
+    public RetryPolicy(int maxTentativas) {
+        this.maxTentativas = Math.max(1, maxTentativas);
+    }
+    
+    public RetryPolicy<T> classificador(Classificador<? super T> classificador) {
+        this.classificador = classificador;
+        return this;
+    }
+    
+    /**
+     * Orçamento compartilhado com as demais chamadas da execução (null = sem limite)
+     */
+    public RetryPolicy<T> orcamento(RetryBudget orcamento) {
+        this.orcamento = orcamento;
+        return this;
+    }
+    
+    /**
+     * @param base Espera antes da segunda tentativa; dobra a cada tentativa
+     * @param maxima Maior espera aceita, inclusive a pedida pelo servidor (Retry-After)
+     */
+    public RetryPolicy<T> espera(long base, long maxima) {
+        this.esperaBase = Math.max(0, base);
+        this.esperaMaxima = Math.max(this.esperaBase, maxima);
+        return this;
+    }
+    
+    /**
+     * Repete só as falhas dos tipos informados; resultados nunca são repetidos
+     */
+    @SafeVarargs
+    public static Classificador<Object> porExcecao(Class<? extends Throwable>... tipos) {
+        return (resultado, erro) -> {
+            if (erro == null) {
+                return Decisao.NAO_REPETIR;
+            }
+            for (Class<? extends Throwable> tipo : tipos) {
+                if (tipo.isInstance(erro)) {
+                    return Decisao.REPETIR;
+                }
+            }
+            return Decisao.NAO_REPETIR;
+        };
+    }
+    
+    /**
+     * Classificação para chamadas HTTP: repete falhas de rede aceitas pelo filtro e
+     * respostas 408/425/429/5xx, respeitando Retry-After. Demais respostas, inclusive
+     * erros 4xx de validação, são devolvidas sem nova tentativa.
+     * @param excecaoRetentavel Filtro das falhas de rede (IOException) que podem ser repetidas
+     */
+    public static <R> Classificador<HttpResponse<R>> http(Predicate<Throwable> excecaoRetentavel) {
+        return (response, erro) -> {
+            if (erro != null) {
+                return erro instanceof IOException && excecaoRetentavel.test(erro)
+                        ? Decisao.REPETIR
+                        : Decisao.NAO_REPETIR;
+            }
+            if (!STATUS_TEMPORARIOS.contains(response.statusCode())) {
+                return Decisao.NAO_REPETIR;
+            }
+            long retryAfter = retryAfterMillis(response);
+            return retryAfter >= 0 ? Decisao.apos(retryAfter) : Decisao.REPETIR;
+        };
+    }
+    
+    /**
+     * Tempo pedido no cabeçalho Retry-After (segundos ou data HTTP)
+     * @return Espera em milissegundos, ou -1 se o cabeçalho não existe ou é inválido
+     */
+    public static long retryAfterMillis(HttpResponse<?> response) {
+        String valor = response.headers().firstValue("Retry-After").orElse(null);
+        if (valor == null || valor.isBlank()) {
+            return -1;
+        }
+        valor = valor.trim();
+        try {
+            return Math.max(0, Long.parseLong(valor) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime quando = ZonedDateTime.parse(valor, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(quando.getZone()), quando).toMillis());
+            } catch (DateTimeParseException ex) {
+                return -1;
+            }
+        }
+    }
+    
+    /**
+     * Backoff exponencial com jitter de até 20%
+     * @param tentativa Tentativa que acabou de falhar (1 = primeira)
+     */
+    public long calcularEspera(int tentativa) {
+        double fator = Math.pow(2, Math.max(0, tentativa - 1));
+        long espera = (long) Math.min(esperaBase * fator, esperaMaxima);
+        long jitter = (long) (espera * 0.2 * Math.random());
+        return Math.min(espera + jitter, esperaMaxima);
+    }
+    
+    public int getMaxTentativas() {
+        return maxTentativas;
+    }
+    
+    public long getEsperaMaxima() {
+        return esperaMaxima;
+    }
+    
+    public RetryBudget getOrcamento() {
+        return orcamento;
+    }
+    
+    Decisao classificar(T resultado, Throwable erro) {
+        return classificador.classificar(resultado, erro);
+    }
+}
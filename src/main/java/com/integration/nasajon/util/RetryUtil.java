@@ -1,12 +1,29 @@
 package com.integration.nasajon.util;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class RetryUtil {
     private static final Logger logger = Logger.getLogger(RetryUtil.class.getName());
     
+    // Backoff padrão: 1 segundo dobrando a cada tentativa, até 30 segundos
+    private static final RetryPolicy<Object> PADRAO = new RetryPolicy<>(1);
+    
+    // Agendador das esperas entre tentativas, compartilhado por todas as chamadas
+    private static final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "retry-agendador");
+        t.setDaemon(true);
+        return t;
+    });
+    
     /**
      * Executa uma operação com retry em caso de falha
      * @param operation Operação a ser executada
@@ -15,6 +32,20 @@ public class RetryUtil {
      * @throws Exception Se todas as tentativas falharem
      */
     public static <T> T executeWithRetry(Callable<T> operation, int maxAttempts) throws Exception {
+        return executeWithRetry(operation, maxAttempts, e -> true);
+    }
+    
+    /**
+     * Executa uma operação com retry apenas para as falhas aceitas pelo filtro.
+     * A espera entre tentativas bloqueia a thread; para chamadas HTTP use executeAsync.
+     * @param operation Operação a ser executada
+     * @param maxAttempts Número máximo de tentativas
+     * @param retryable Indica se a falha justifica nova tentativa; as demais são lançadas imediatamente
+     * @return Resultado da operação
+     * @throws Exception Se todas as tentativas falharem ou a falha não justificar nova tentativa
+     */
+    public static <T> T executeWithRetry(Callable<T> operation, int maxAttempts,
+                                         Predicate<? super Exception> retryable) throws Exception {
         int attempts = 0;
         Exception lastException = null;
         
@@ -22,6 +53,9 @@ public class RetryUtil {
             try {
                 return operation.call();
             } catch (Exception e) {
+                if (!retryable.test(e)) {
+                    throw e;
+                }
                 lastException = e;
                 attempts++;
                 
@@ -44,24 +78,121 @@ public class RetryUtil {
         throw lastException;
     }
     
+    /**
+     * Versão assíncrona de executeWithRetry: as esperas entre tentativas não ocupam threads
+     * @param operation Operação a ser executada; cada chamada deve iniciar uma nova tentativa
+     * @param maxAttempts Número máximo de tentativas
+     * @return Futuro com o resultado da operação, ou com a última falha se todas as tentativas falharem
+     */
+    public static <T> CompletableFuture<T> executeWithRetryAsync(Supplier<CompletableFuture<T>> operation, int maxAttempts) {
+        return executeWithRetryAsync(operation, maxAttempts, e -> true);
+    }
+    
+    /**
+     * Versão assíncrona de executeWithRetry com filtro das falhas que justificam nova tentativa
+     * @param operation Operação a ser executada; cada chamada deve iniciar uma nova tentativa
+     * @param maxAttempts Número máximo de tentativas
+     * @param retryable Indica se a falha justifica nova tentativa
+     * @return Futuro com o resultado da operação, ou com a falha que encerrou as tentativas
+     */
+    public static <T> CompletableFuture<T> executeWithRetryAsync(Supplier<CompletableFuture<T>> operation, int maxAttempts,
+                                                                 Predicate<? super Throwable> retryable) {
+        return executeAsync(operation, new RetryPolicy<T>(maxAttempts).classificador((resultado, erro) ->
+                erro != null && retryable.test(erro) ? RetryPolicy.Decisao.REPETIR : RetryPolicy.Decisao.NAO_REPETIR));
+    }
+    
+    /**
+     * Executa uma operação assíncrona com novas tentativas conforme a política.
+     * As esperas são agendadas em um executor compartilhado e a nova tentativa começa na
+     * thread desse executor, por isso a operação não deve bloquear ao ser iniciada.
+     * @param operation Operação a ser executada; cada chamada deve iniciar uma nova tentativa
+     * @param policy Tentativas, backoff, classificação e orçamento
+     * @return Futuro com o resultado ou a falha da última tentativa feita
+     */
+    public static <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> operation, RetryPolicy<T> policy) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        if (policy.getOrcamento() != null) {
+            policy.getOrcamento().registrarChamada();
+        }
+        tentarAsync(operation, policy, 1, resultado);
+        return resultado;
+    }
+    
+    /**
+     * Futuro completado após o tempo informado, pelo agendador compartilhado
+     */
+    public static CompletableFuture<Void> delay(long millis) {
+        if (millis <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> espera = new CompletableFuture<>();
+        agendador.schedule(() -> espera.complete(null), millis, TimeUnit.MILLISECONDS);
+        return espera;
+    }
+    
+    private static <T> void tentarAsync(Supplier<CompletableFuture<T>> operation, RetryPolicy<T> policy, int attempt,
+                                        CompletableFuture<T> resultado) {
+        CompletableFuture<T> tentativa;
+        try {
+            tentativa = operation.get();
+        } catch (RuntimeException e) {
+            tentativa = CompletableFuture.failedFuture(e);
+        }
+        
+        tentativa.whenComplete((valor, erro) -> {
+            Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+            
+            RetryPolicy.Decisao decisao;
+            try {
+                decisao = policy.classificar(valor, causa);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Erro ao classificar tentativa; sem nova tentativa", e);
+                decisao = RetryPolicy.Decisao.NAO_REPETIR;
+            }
+            
+            if (!decisao.isRepetir()) {
+                concluir(resultado, valor, causa);
+                return;
+            }
+            if (attempt >= policy.getMaxTentativas()) {
+                logger.severe("Todas as tentativas falharam após " + policy.getMaxTentativas() + " tentativas");
+                concluir(resultado, valor, causa);
+                return;
+            }
+            
+            long waitTime = decisao.getEsperaMillis() >= 0 ? decisao.getEsperaMillis() : policy.calcularEspera(attempt);
+            if (waitTime > policy.getEsperaMaxima()) {
+                logger.warning("Servidor pediu " + waitTime + "ms antes de nova tentativa, acima do limite de " +
+                        policy.getEsperaMaxima() + "ms. Sem nova tentativa");
+                concluir(resultado, valor, causa);
+                return;
+            }
+            if (policy.getOrcamento() != null && !policy.getOrcamento().consumir()) {
+                concluir(resultado, valor, causa);
+                return;
+            }
+            
+            logger.log(Level.WARNING, "Tentativa {0} falhou ({1}). Aguardando {2}ms antes de tentar novamente.",
+                    new Object[]{attempt, causa != null ? causa.toString() : "resultado " + valor, waitTime});
+            
+            agendador.schedule(() -> tentarAsync(operation, policy, attempt + 1, resultado), waitTime, TimeUnit.MILLISECONDS);
+        });
+    }
+    
+    private static <T> void concluir(CompletableFuture<T> resultado, T valor, Throwable causa) {
+        if (causa != null) {
+            resultado.completeExceptionally(causa);
+        } else {
+            resultado.complete(valor);
+        }
+    }
+    
     /**
      * Calcula o tempo de espera entre tentativas usando backoff exponencial
      * @param attempt Número da tentativa atual
      * @return Tempo de espera em milissegundos
      */
-    private static long calculateWaitTime(int attempt) {
-        // Backoff exponencial com jitter
-        long baseWaitTime = 1000; // 1 segundo
-        long maxWaitTime = 30000; // 30 segundos
-        
-        double exponentialFactor = Math.pow(2, attempt - 1);
-        long waitTime = (long) (baseWaitTime * exponentialFactor);
-        
-        // Adicionar jitter (variação aleatória) para evitar sincronização
-        double jitterFactor = 0.2; // 20% de variação
-        long jitter = (long) (waitTime * jitterFactor * Math.random());
-        waitTime = waitTime + jitter;
-        
-        return Math.min(waitTime, maxWaitTime);
+    public static long calculateWaitTime(int attempt) {
+        return PADRAO.calcularEspera(attempt);
     }
 }
@@ -0,0 +1,81 @@
+package com.integration.nasajon.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de taxa do tipo token bucket. Os tokens são repostos continuamente à
+ * taxa configurada, até a capacidade (rajada máxima). Quem não encontra token
+ * disponível reserva o próximo e recebe o tempo que deve esperar por ele.
+ */
+public class TokenBucket {
+    private final double taxaPorSegundo;
+    private final double capacidade;
+    
+    private double tokens;
+    private long ultimaReposicao;
+    
+    /**
+     * @param taxaPorSegundo Tokens repostos por segundo; zero ou negativo desliga o limite
+     * @param capacidade Máximo de tokens acumulados
+     */
+    public TokenBucket(double taxaPorSegundo, int capacidade) {
+        this.taxaPorSegundo = taxaPorSegundo;
+        this.capacidade = Math.max(1, capacidade);
+        this.tokens = this.capacidade;
+        this.ultimaReposicao = System.nanoTime();
+    }
+    
+    /**
+     * Indica se o limitador foi criado com estes limites (para recriá-lo quando a configuração muda)
+     */
+    public boolean temParametros(double taxaPorSegundo, int capacidade) {
+        return this.taxaPorSegundo == taxaPorSegundo && this.capacidade == Math.max(1, capacidade);
+    }
+    
+    /**
+     * Reserva um token
+     * @return Tempo de espera em milissegundos até o token reservado ficar disponível (0 se já está)
+     */
+    public synchronized long reservar() {
+        if (taxaPorSegundo <= 0) {
+            return 0;
+        }
+        
+        long agora = System.nanoTime();
+        tokens = Math.min(capacidade, tokens + (agora - ultimaReposicao) / 1e9 * taxaPorSegundo);
+        ultimaReposicao = agora;
+        
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / taxaPorSegundo * 1000);
+    }
+    
+    /**
+     * Tenta obter um token sem reservar o próximo
+     * @return 0 se obteve o token, ou o tempo em milissegundos até haver um token disponível
+     */
+    public synchronized long tentarAdquirir() {
+        if (taxaPorSegundo <= 0) {
+            return 0;
+        }
+        
+        long agora = System.nanoTime();
+        tokens = Math.min(capacidade, tokens + (agora - ultimaReposicao) / 1e9 * taxaPorSegundo);
+        ultimaReposicao = agora;
+        
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / taxaPorSegundo * 1000));
+    }
+    
+    /**
+     * Reserva um token e aguarda até ele ficar disponível
+     */
+    public void adquirir() throws InterruptedException {
+        long espera = reservar();
+        if (espera > 0) {
+            TimeUnit.MILLISECONDS.sleep(espera);
+        }
+    }
+}